@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.benchmark;
+
+import nl.oebelelijzenga.arjaclm.cli.BaseAPRCommand;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.execution.CommandResult;
+import nl.oebelelijzenga.arjaclm.execution.CommandSummary;
+import nl.oebelelijzenga.arjaclm.genetic.PseudoRandom;
+import nl.oebelelijzenga.arjaclm.io.InputLoader;
+import nl.oebelelijzenga.arjaclm.io.JavaProjectLoader;
+import nl.oebelelijzenga.arjaclm.model.apr.Bug;
+import nl.oebelelijzenga.arjaclm.model.apr.BugLocation;
+import nl.oebelelijzenga.arjaclm.model.apr.ModificationPoint;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.FitnessResult;
+import nl.oebelelijzenga.arjaclm.model.apr.genetic.Edit;
+import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
+import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import nl.oebelelijzenga.arjaclm.model.java.CompilationResult;
+import nl.oebelelijzenga.arjaclm.model.java.JavaClass;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
+import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
+import nl.oebelelijzenga.arjaclm.parser.ModificationPointFactory;
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.eclipse.jdt.core.dom.Statement;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The tests/SimpleExample bug loaded for benchmarks. Every statement of the project is marked suspicious, such that
+ * variants consist of a realistic number of edits rather than only the single buggy line.
+ */
+public class BenchmarkProject {
+
+    public static final Path BUG_DIR = Path.of(System.getProperty("user.dir")).resolve("tests/SimpleExample");
+
+    private final AprConfig config;
+    private final Bug bug;
+    private final JavaProject project;
+    private final List<ModificationPoint> modificationPoints;
+
+    private BenchmarkProject(AprConfig config, Bug bug, JavaProject project, List<ModificationPoint> modificationPoints) {
+        this.config = config;
+        this.bug = bug;
+        this.project = project;
+        this.modificationPoints = modificationPoints;
+    }
+
+    public static BenchmarkProject load(int seed) throws AprException {
+        InputLoader inputLoader = new InputLoader(new BaseAPRCommand().createPreferences(BUG_DIR, seed));
+        inputLoader.load();
+        AprConfig config = inputLoader.getConfig();
+        JavaProject project = new JavaProjectLoader(inputLoader.getContext()).loadJavaProject();
+
+        Bug bug = inputLoader.getBug();
+        Bug allSuspiciousBug = new Bug(bug.name(), bug.positiveTests(), bug.negativeTests(), bug.flakyTests(), bug.env(), getAllStatementLocations(project));
+
+        return new BenchmarkProject(config, allSuspiciousBug, project, ModificationPointFactory.create(config, project, allSuspiciousBug));
+    }
+
+    private static List<BugLocation> getAllStatementLocations(JavaProject project) {
+        List<BugLocation> locations = new ArrayList<>();
+        for (ParsedJavaFile file : project.sourceFiles()) {
+            Path filePath = project.context().rootDir().resolve(file.relativeFilePath());
+            for (JavaClass cls : file.classes()) {
+                for (Statement statement : cls.statements()) {
+                    locations.add(new BugLocation(filePath, cls.compilationUnit().getLineNumber(statement.getStartPosition()), 1.0f));
+                }
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Creates variants the same way as the initial population of the search, with unique patch ids.
+     */
+    public List<Variant> createVariants(int amount) {
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            List<Edit> edits = new ArrayList<>();
+            for (ModificationPoint modificationPoint : modificationPoints) {
+                edits.add(
+                        new Edit(
+                                PseudoRandom.bool(0.5f),
+                                ManipulationName.pickRandomWeighted(modificationPoint.allowedManipulations()),
+                                modificationPoint,
+                                PseudoRandom.pick(modificationPoint.redundancyIngredients())
+                        )
+                );
+            }
+            Variant variant = Variant.create(edits);
+            variant.setPatchId(i + 1);
+            variants.add(variant);
+        }
+        return variants;
+    }
+
+    /**
+     * Fitness results with random scores, such that the variants are spread over multiple pareto fronts.
+     */
+    public static Map<Variant, FitnessResult> createEvaluations(List<Variant> variants) {
+        CommandSummary commandSummary = CommandSummary.of(CommandResult.empty(), null);
+        CompilationResult compilationResult = new CompilationResult(true, commandSummary);
+        FitnessResult.TestSummary testSummary = new FitnessResult.TestSummary(true, Set.of(), 0.0f, Set.of(), 0.0f, commandSummary);
+
+        Map<Variant, FitnessResult> evaluations = new HashMap<>();
+        for (Variant variant : variants) {
+            evaluations.put(variant, new FitnessResult(
+                    PseudoRandom.intRange(0, 20) / 10.0f,
+                    variant.enabledEdits().size(),
+                    compilationResult,
+                    testSummary
+            ));
+        }
+        return evaluations;
+    }
+
+    public AprConfig config() {
+        return config;
+    }
+
+    public Bug bug() {
+        return bug;
+    }
+
+    public JavaProject project() {
+        return project;
+    }
+
+    public List<ModificationPoint> modificationPoints() {
+        return modificationPoints;
+    }
+}
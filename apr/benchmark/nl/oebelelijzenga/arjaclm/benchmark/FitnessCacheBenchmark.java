@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.benchmark;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.fitness.FitnessCache;
+import nl.oebelelijzenga.arjaclm.model.apr.Bug;
+import nl.oebelelijzenga.arjaclm.model.apr.Patch;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.FitnessResult;
+import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
+import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FitnessCacheBenchmark {
+
+    @Param({"1000", "10000"})
+    public int nrEntries;
+
+    private AprConfig config;
+    private Bug bug;
+    private FitnessCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws AprException {
+        BenchmarkProject project = BenchmarkProject.load(0);
+        config = project.config();
+        // Use a separate cache file, such that the cache of actual runs of the example is left alone
+        Bug exampleBug = project.bug();
+        bug = new Bug("fitness cache benchmark", exampleBug.positiveTests(), exampleBug.negativeTests(), exampleBug.flakyTests(), exampleBug.env(), exampleBug.suspiciousLocations());
+
+        cache = FitnessCache.create(config, bug);
+        List<Variant> variants = project.createVariants(nrEntries);
+        Map<Variant, FitnessResult> evaluations = BenchmarkProject.createEvaluations(variants);
+        for (Variant variant : variants) {
+            cache.put(new Patch(variant.patchId(), variant, List.of()), evaluations.get(variant));
+        }
+        cache.save();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(FitnessCache.getCacheFilePath(config, bug));
+    }
+
+    @Benchmark
+    public void save() throws AprException {
+        cache.save();
+    }
+
+    @Benchmark
+    public FitnessCache load() throws AprException {
+        return FitnessCache.create(config, bug);
+    }
+}
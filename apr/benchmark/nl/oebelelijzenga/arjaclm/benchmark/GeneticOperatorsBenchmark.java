@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.benchmark;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.genetic.PseudoRandom;
+import nl.oebelelijzenga.arjaclm.genetic.crossover.ARJACrossover;
+import nl.oebelelijzenga.arjaclm.genetic.mutation.ARJAMutation;
+import nl.oebelelijzenga.arjaclm.genetic.selection.SelectionException;
+import nl.oebelelijzenga.arjaclm.genetic.selection.TournamentSelection;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.FitnessResult;
+import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneticOperatorsBenchmark {
+
+    @Param({"40", "400"})
+    public int populationSize;
+
+    private List<Variant> variants;
+    private Map<Variant, FitnessResult> evaluations;
+    private TournamentSelection selection;
+    private ARJAMutation mutation;
+    private final ARJACrossover crossover = new ARJACrossover();
+
+    @Setup(Level.Trial)
+    public void setUp() throws AprException {
+        BenchmarkProject project = BenchmarkProject.load(0);
+        variants = project.createVariants(populationSize);
+        evaluations = BenchmarkProject.createEvaluations(variants);
+        selection = new TournamentSelection(variants, evaluations);
+        mutation = new ARJAMutation(1.0f / project.modificationPoints().size());
+    }
+
+    @Benchmark
+    public TournamentSelection tournamentSelectionConstruction() {
+        return new TournamentSelection(variants, evaluations);
+    }
+
+    @Benchmark
+    public List<Variant> tournamentSelect() throws SelectionException {
+        return selection.select(variants, populationSize / 2);
+    }
+
+    @Benchmark
+    public void mutationApply(Blackhole blackhole) {
+        for (Variant variant : variants) {
+            blackhole.consume(mutation.apply(variant));
+        }
+    }
+
+    @Benchmark
+    public void crossover(Blackhole blackhole) {
+        for (int i = 0; i + 1 < variants.size(); i += 2) {
+            Pair<Variant, Variant> children = crossover.doCrossover(variants.get(i), variants.get(i + 1));
+            blackhole.consume(children);
+        }
+    }
+
+    @Benchmark
+    public void enabledEditsHashCode(Blackhole blackhole) {
+        for (Variant variant : variants) {
+            blackhole.consume(variant.enabledEditsHashCode());
+        }
+    }
+
+    /*
+     * Keeps the random choices of the operators independent of the number of invocations in earlier iterations
+     */
+    @Setup(Level.Iteration)
+    public void resetRandom() {
+        PseudoRandom.setSeed(0);
+    }
+}
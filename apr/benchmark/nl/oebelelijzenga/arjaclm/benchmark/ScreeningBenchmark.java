@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.benchmark;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.model.apr.ModificationPoint;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.Ingredient;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening.IngredientScreeningInfo;
+import nl.oebelelijzenga.arjaclm.model.java.JavaClass;
+import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
+import nl.oebelelijzenga.arjaclm.parser.ingredient.IngredientScreenerCollection;
+import nl.oebelelijzenga.arjaclm.parser.ingredient.ModificationScreener;
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.eclipse.jdt.core.dom.Statement;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScreeningBenchmark {
+
+    private List<ModificationPoint> modificationPoints;
+    private List<Statement> statements;
+    private IngredientScreenerCollection screeners;
+
+    @Setup(Level.Trial)
+    public void setUp() throws AprException {
+        BenchmarkProject project = BenchmarkProject.load(0);
+        modificationPoints = project.modificationPoints();
+
+        statements = new ArrayList<>();
+        for (ParsedJavaFile file : project.project().sourceFiles()) {
+            for (JavaClass cls : file.classes()) {
+                statements.addAll(cls.statements());
+            }
+        }
+        screeners = new IngredientScreenerCollection(
+                project.config(),
+                IngredientScreeningInfo.create(project.project(), statements, statements)
+        );
+    }
+
+    @Benchmark
+    public void modificationScreener(Blackhole blackhole) {
+        for (ModificationPoint modificationPoint : modificationPoints) {
+            for (Ingredient ingredient : modificationPoint.redundancyIngredients()) {
+                for (ManipulationName manipulation : modificationPoint.allowedManipulations()) {
+                    blackhole.consume(ModificationScreener.screen(modificationPoint.statement(), ingredient, manipulation));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void ingredientScreenerCollection(Blackhole blackhole) throws AprException {
+        for (Statement statement : statements) {
+            for (Statement ingredient : statements) {
+                blackhole.consume(screeners.screen(statement, ingredient));
+            }
+        }
+    }
+}
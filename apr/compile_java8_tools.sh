@@ -4,3 +4,8 @@
 mkdir -p target/java8
 /usr/lib/jvm/java-8-openjdk/bin/javac -d target/java8 -cp "lib/junit-4.12.jar" -Xlint:deprecation src/nl/oebelelijzenga/arjaclm/execution/java8/JUnitTestRunner.java
 /usr/lib/jvm/java-8-openjdk/bin/javac -d target/java8 -cp "lib/junit-4.12.jar" -Xlint:deprecation src/nl/oebelelijzenga/arjaclm/execution/java8/TestMethodResolver.java
+
+# The hot swap test worker is loaded as java agent, which requires a jar with a manifest
+/usr/lib/jvm/java-8-openjdk/bin/javac -d target/java8 -cp "lib/junit-4.12.jar:target/java8" -Xlint:deprecation src/nl/oebelelijzenga/arjaclm/execution/java8/HotSwapTestWorker.java
+printf "Premain-Class: nl.oebelelijzenga.arjaclm.execution.java8.HotSwapTestWorker\nCan-Redefine-Classes: true\n" > target/java8/hotswap-agent.mf
+/usr/lib/jvm/java-8-openjdk/bin/jar cfm target/java8/hotswap-agent.jar target/java8/hotswap-agent.mf -C target/java8 nl/oebelelijzenga/arjaclm/execution/java8/HotSwapTestWorker.class
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe registry of named timers, used to break down where the time of a run goes. Each timer keeps a
+ * histogram with logarithmic buckets of the recorded durations, so percentiles are approximate (within 12.5%) but
+ * recording is cheap and the memory use does not grow with the number of recordings. Besides the totals of the
+ * run, the durations recorded since the previous call to {@link #takeIntervalSummaries()} are kept, which is used
+ * for statistics per generation.
+ */
+public class PhaseTimers {
+
+    public record Summary(
+            long count,
+            float totalMillis,
+            float meanMillis,
+            float p50Millis,
+            float p90Millis,
+            float p99Millis,
+            float maxMillis
+    ) {
+    }
+
+    @FunctionalInterface
+    public interface TimedTask<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public <T, E extends Exception> T time(String phase, TimedTask<T, E> task) throws E {
+        long startNanos = System.nanoTime();
+        try {
+            return task.run();
+        } finally {
+            recordSince(phase, startNanos);
+        }
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()} value.
+     */
+    public void recordSince(String phase, long startNanos) {
+        recordNanos(phase, System.nanoTime() - startNanos);
+    }
+
+    public void recordMillis(String phase, float millis) {
+        recordNanos(phase, (long) (millis * 1_000_000));
+    }
+
+    public void recordNanos(String phase, long nanos) {
+        timers.computeIfAbsent(phase, p -> new Timer()).record(Math.max(0, nanos));
+    }
+
+    public Map<String, Summary> getSummaries() {
+        Map<String, Summary> result = new TreeMap<>();
+        timers.forEach((phase, timer) -> result.put(phase, timer.total.summarize()));
+        return result;
+    }
+
+    /**
+     * Returns the summaries of the durations recorded since the previous call, and starts a new interval.
+     */
+    public Map<String, Summary> takeIntervalSummaries() {
+        Map<String, Summary> result = new TreeMap<>();
+        timers.forEach((phase, timer) -> {
+            Histogram interval = timer.interval.getAndSet(new Histogram());
+            if (interval.count.sum() > 0) {
+                result.put(phase, interval.summarize());
+            }
+        });
+        return result;
+    }
+
+    private static class Timer {
+        private final Histogram total = new Histogram();
+        private final AtomicReference<Histogram> interval = new AtomicReference<>(new Histogram());
+
+        private void record(long nanos) {
+            total.record(nanos);
+            interval.get().record(nanos);
+        }
+    }
+
+    /*
+     * Every power of two is split into 2^SUB_BUCKET_BITS buckets of equal width
+     */
+    private static class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int NR_SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * NR_SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            buckets.incrementAndGet(getBucket(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private static int getBucket(long nanos) {
+            if (nanos < NR_SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (NR_SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * NR_SUB_BUCKETS + subBucket;
+        }
+
+        private static long getBucketUpperBound(int bucket) {
+            if (bucket < NR_SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / NR_SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = bucket % NR_SUB_BUCKETS;
+            return ((NR_SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+
+        private long getPercentileNanos(long count, float percentile) {
+            long rank = Math.max(1, (long) Math.ceil(percentile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(getBucketUpperBound(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+        private Summary summarize() {
+            long n = count.sum();
+            if (n == 0) {
+                return new Summary(0, 0, 0, 0, 0, 0, 0);
+            }
+            long total = totalNanos.sum();
+            return new Summary(
+                    n,
+                    toMillis(total),
+                    toMillis(total / n),
+                    toMillis(getPercentileNanos(n, 0.5f)),
+                    toMillis(getPercentileNanos(n, 0.9f)),
+                    toMillis(getPercentileNanos(n, 0.99f)),
+                    toMillis(maxNanos.get())
+            );
+        }
+
+        private static float toMillis(long nanos) {
+            return nanos / 1_000_000.0f;
+        }
+    }
+}
@@ -23,6 +23,7 @@ package nl.oebelelijzenga.arjaclm.api;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictRequestDTO;
 import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictResponseDTO;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
@@ -41,11 +42,17 @@ public class ClmApiClient {
     private final String host;
     private final int port;
     private final Gson gson;
+    private final PhaseTimers timers;
 
     public ClmApiClient(String host, int port) {
+        this(host, port, new PhaseTimers());
+    }
+
+    public ClmApiClient(String host, int port, PhaseTimers timers) {
         this.host = host;
         this.port = port;
         this.gson = new GsonBuilder().serializeNulls().create();
+        this.timers = timers;
     }
 
     private String getBaseUrl() {
@@ -88,7 +95,7 @@ public class ClmApiClient {
     }
 
     public MaskPredictResponseDTO maskPredict(MaskPredictRequestDTO request) throws AprException {
-        HttpResponse<String> response = doHttpRequest("POST", getBaseUrl() + "/mask_predict", request);
+        HttpResponse<String> response = timers.time("clm request", () -> doHttpRequest("POST", getBaseUrl() + "/mask_predict", request));
         return JSONUtil.fromJson(response.body(), MaskPredictResponseDTO.class);
     }
 }
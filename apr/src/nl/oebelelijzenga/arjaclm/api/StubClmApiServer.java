@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictRequestDTO;
+import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictResponseDTO;
+import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictResponseMaskReplacementDTO;
+import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictResponseResultDTO;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.io.JSONUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the mask predict endpoint of the CLM API without a language model, such that the CLM mutation can be exercised
+ * on machines without a GPU. Infills are the statements surrounding the mask in the prompt, returned after a fixed
+ * latency that simulates the model.
+ */
+public class StubClmApiServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final long latencyMillis;
+
+    public StubClmApiServer(long latencyMillis) throws AprIOException {
+        this.latencyMillis = latencyMillis;
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new AprIOException("Failed to start stub CLM API", e);
+        }
+        server.createContext("/mask_predict", this::handleMaskPredict);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String host() {
+        return server.getAddress().getHostString();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleMaskPredict(HttpExchange exchange) throws IOException {
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            MaskPredictRequestDTO request = JSONUtil.fromJson(body, MaskPredictRequestDTO.class);
+            Thread.sleep(latencyMillis);
+
+            byte[] response = JSONUtil.toJSON(createResponse(request)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } catch (AprException e) {
+            exchange.sendResponseHeaders(400, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private MaskPredictResponseDTO createResponse(MaskPredictRequestDTO request) {
+        Set<String> infills = new LinkedHashSet<>();
+        for (String line : request.getText().split("\n")) {
+            String statement = line.strip();
+            if (statement.endsWith(";") && !statement.contains(ClmApiClient.MASK_TOKEN)) {
+                infills.add(statement);
+            }
+        }
+
+        ArrayList<MaskPredictResponseMaskReplacementDTO> replacements = new ArrayList<>();
+        for (String infill : infills.stream().limit(request.getNrResults()).toList()) {
+            replacements.add(new MaskPredictResponseMaskReplacementDTO(ClmApiClient.MASK_TOKEN, ClmApiClient.MASK_TOKEN, infill));
+        }
+
+        ArrayList<MaskPredictResponseResultDTO> results = new ArrayList<>();
+        results.add(new MaskPredictResponseResultDTO(1.0f, request.getText(), replacements));
+        return new MaskPredictResponseDTO(0.0f, latencyMillis / 1000.0f, 0, results);
+    }
+}
@@ -24,10 +24,14 @@ package nl.oebelelijzenga.arjaclm.apr;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.exception.AprIOException;
 import nl.oebelelijzenga.arjaclm.exception.SanityCheckFailedException;
+import nl.oebelelijzenga.arjaclm.execution.BatchJavaCompiler;
+import nl.oebelelijzenga.arjaclm.execution.HotSwapTestRunner;
 import nl.oebelelijzenga.arjaclm.execution.JavaExecutorFactory;
+import nl.oebelelijzenga.arjaclm.fitness.BytecodeEquivalence;
 import nl.oebelelijzenga.arjaclm.fitness.Fitness;
 import nl.oebelelijzenga.arjaclm.fitness.FitnessCache;
 import nl.oebelelijzenga.arjaclm.fitness.NoFitnessCache;
+import nl.oebelelijzenga.arjaclm.fitness.TestPrioritizer;
 import nl.oebelelijzenga.arjaclm.genetic.PatchManager;
 import nl.oebelelijzenga.arjaclm.genetic.Population;
 import nl.oebelelijzenga.arjaclm.genetic.PopulationResult;
@@ -41,7 +45,6 @@ import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
 import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
 import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
 import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
-import nl.oebelelijzenga.arjaclm.parser.ModificationPointFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -50,6 +53,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 public class AprProblem {
 
@@ -61,33 +65,49 @@ public class AprProblem {
     private final Bug bug;
     private final TestSuite fullTestSuite;
     private final TestSuite sampledTestSuite;
-    private List<ModificationPoint> modificationPoints;
+    private final WarmBugState warmState;
 
-    public AprProblem(AprConfig config, PatchManager patchManager, JavaProject project, Bug bug, TestSuite fullTestSuite, TestSuite sampledTestSuite) {
+    public AprProblem(AprConfig config, PatchManager patchManager, JavaProject project, Bug bug, TestSuite fullTestSuite, TestSuite sampledTestSuite, WarmBugState warmState) {
         this.config = config;
         this.patchManager = patchManager;
         this.project = project;
         this.fullTestSuite = fullTestSuite;
         this.sampledTestSuite = sampledTestSuite;
         this.bug = bug;
+        this.warmState = warmState;
     }
 
     public PopulationResult repair() throws AprException {
+        return repair(new NoAprRunListener());
+    }
+
+    public PopulationResult repair(IAprRunListener listener) throws AprException {
         logger.info("Fixing %s with seed %s".formatted(bug.name(), config.seed()));
 
-        List<ModificationPoint> modificationPoints = modificationPoints();
+        List<ModificationPoint> modificationPoints = warmState.getModificationPoints(config, bug);
         logger.info("The repair task uses %s modification points:".formatted(modificationPoints.size()));
         for (ModificationPoint modificationPoint : modificationPoints) {
             logger.info(modificationPoint);
         }
+        listener.onEvent("Created %s modification points".formatted(modificationPoints.size()));
+
+        if (warmState.sanityCheckPassed()) {
+            logger.info("Sanity check already passed for unchanged sources, skipping it");
+            patchManager.scheduler().testJvmResources().setMaxHeapBytes(warmState.testJvmMaxHeapBytes());
+        } else {
+            logger.info("Doing sanity check");
+            listener.onEvent("Doing sanity check");
+            sanityCheck();
+            warmState.setSanityCheckPassed(patchManager.scheduler().testJvmResources().getMaxHeapBytes());
+            logger.info("Sanity check passed");
+        }
 
-        logger.info("Doing sanity check");
-        sanityCheck();
-        logger.info("Sanity check passed");
-
-        Fitness fitness = createFitness(sampledTestSuite, true);
-        Population population = Population.create(config, fitness, patchManager, modificationPoints);
-        PopulationResult result = population.evolve();
+        listener.onEvent("Starting genetic search");
+        PopulationResult result;
+        try (Fitness fitness = createFitness(sampledTestSuite, true, true)) {
+            Population population = Population.create(config, fitness, patchManager, modificationPoints, listener);
+            result = population.evolve();
+        }
 
         logger.info("Genetic search found %s unique test-adequate patches for bug %s with seed %s".formatted(result.correctVariants().size(), bug.name(), config.seed()));
 
@@ -112,8 +132,14 @@ public class AprProblem {
     }
 
     public void sanityCheck() throws AprException {
-        Fitness fitness = createFitness(fullTestSuite, false);
-        FitnessResult fitnessResult = fitness.evaluate(patchManager.createPatch(Variant.create(new ArrayList<>())));
+        FitnessResult fitnessResult;
+        try (Fitness fitness = createFitness(fullTestSuite, false)) {
+            fitnessResult = fitness.evaluate(patchManager.createPatch(Variant.create(new ArrayList<>())));
+        }
+
+        if (!fitnessResult.compilationResult().success()) {
+            throw new SanityCheckFailedException("Original program could not be evaluated:\n" + fitnessResult.compilationResult().commandSummary().toFileString());
+        }
 
         if (!fitnessResult.isSanityCheckResult()) {
             logSanityCheckFailure(fitnessResult, bug);
@@ -122,12 +148,19 @@ public class AprProblem {
             List<String> unexpectedPasses = bug.negativeTests().stream().filter(t -> !fitnessResult.testSummary().failedNegativeTests().contains(TestCase.fromString(t))).toList();
             throw new SanityCheckFailedException("Unexpected failures: %s, unexpected passes: %s".formatted(unexpectedFailures, unexpectedPasses));
         }
+
+        // Test JVMs of patches get a heap size that fits the original program
+        patchManager.scheduler().testJvmResources().deriveMaxHeapBytes();
     }
 
     public AprConfig config() {
         return config;
     }
 
+    public PatchManager patchManager() {
+        return patchManager;
+    }
+
     public JavaProject project() {
         return project;
     }
@@ -136,13 +169,6 @@ public class AprProblem {
         return bug;
     }
 
-    private List<ModificationPoint> modificationPoints() throws AprException {
-        if (this.modificationPoints == null) {
-            this.modificationPoints = ModificationPointFactory.create(config, project, bug);
-        }
-        return this.modificationPoints;
-    }
-
     private void logSanityCheckFailure(FitnessResult fitnessResult, Bug bug) {
         logger.error("Sanity check failed");
         logger.error("Failing tests:");
@@ -155,30 +181,56 @@ public class AprProblem {
         }
     }
 
-    private Fitness createFitness(TestSuite testSuite, boolean cache) throws AprIOException {
+    private Fitness createFitness(TestSuite testSuite, boolean cache) throws AprException {
+        return createFitness(testSuite, cache, false);
+    }
+
+    /*
+     * Test results can only be reused after the sanity check, which establishes the results of the original program.
+     * Only the search skips tests, as the sanity check and post-processing need the results of all tests.
+     */
+    private Fitness createFitness(TestSuite testSuite, boolean cache, boolean search) throws AprException {
         return new Fitness(
-                new JavaExecutorFactory(config, bug),
-                cache ? FitnessCache.create(config, bug) : new NoFitnessCache(),
+                new JavaExecutorFactory(config, bug, patchManager.scheduler().testJvmResources(), patchManager.timers()),
+                cache ? FitnessCache.create(config, bug, patchManager.timers()) : new NoFitnessCache(),
                 patchManager,
                 testSuite,
                 config.positiveTestWeight(),
                 config.negativeTestWeight(),
-                config.nrJobs()
+                patchManager.scheduler(),
+                search && config.reuseUnaffectedTestResults() ? Optional.of(warmState.getTestImpactAnalysis()) : Optional.empty(),
+                search && config.prioritizeTests() ? Optional.of(new TestPrioritizer()) : Optional.empty(),
+                search && config.useMutantSchemata(),
+                search && config.batchCompilation() ? Optional.of(new BatchJavaCompiler(config, patchManager.originalContext(), patchManager.timers())) : Optional.empty(),
+                search && config.reuseEquivalentBytecodeResults() ? Optional.of(new BytecodeEquivalence(patchManager.originalContext(), patchManager.timers())) : Optional.empty(),
+                search ? createHotSwapTestRunner() : Optional.empty()
         );
     }
 
+    private Optional<HotSwapTestRunner> createHotSwapTestRunner() {
+        if (!config.hotSwapTests()) {
+            return Optional.empty();
+        }
+        if (!HotSwapTestRunner.isAvailable(config)) {
+            logger.warn("Hot swap test agent %s not found, testing every patch in a new JVM".formatted(config.java8ToolsDir().resolve(HotSwapTestRunner.AGENT_JAR)));
+            return Optional.empty();
+        }
+        return Optional.of(new HotSwapTestRunner(config, bug, patchManager.originalContext(), patchManager.scheduler().testJvmResources(), patchManager.timers()));
+    }
+
     private List<Variant> getPostProcessedVariants(List<Variant> variants) throws AprException {
-        Fitness fitness = createFitness(fullTestSuite, false);
         List<Variant> result = new ArrayList<>();
-        for (Variant variant : variants) {
-            Patch patch = patchManager.createPatch(variant);
-            FitnessResult fitnessResult = fitness.evaluate(patch);
-            if (fitnessResult.isTestAdequate()) {
-                result.add(variant);
-                JavaContext resultContext = patchManager.createResultContext(patch);
-                patchManager.writePatchInfoFile(fitnessResult, patch, resultContext);
-            } else {
-                logger.info("Dropping patch %s as it does not pass the full test suite".formatted(variant.patchId()));
+        try (Fitness fitness = createFitness(fullTestSuite, false)) {
+            for (Variant variant : variants) {
+                Patch patch = patchManager.createPatch(variant);
+                FitnessResult fitnessResult = fitness.evaluate(patch);
+                if (fitnessResult.isTestAdequate()) {
+                    result.add(variant);
+                    JavaContext resultContext = patchManager.createResultContext(patch);
+                    patchManager.writePatchInfoFile(fitnessResult, patch, resultContext);
+                } else {
+                    logger.info("Dropping patch %s as it does not pass the full test suite".formatted(variant.patchId()));
+                }
             }
         }
         return result;
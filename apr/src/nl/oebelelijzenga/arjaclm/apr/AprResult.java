@@ -21,14 +21,18 @@
 
 package nl.oebelelijzenga.arjaclm.apr;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.genetic.PopulationResult;
 
+import java.util.Map;
+
 
 public record AprResult(
         boolean sanityCheckOk,
         boolean executionError,
         long executionTimeMillis,
-        PopulationResult population
+        PopulationResult population,
+        Map<String, PhaseTimers.Summary> phaseTimings
 )
 {
 }
@@ -21,6 +21,7 @@
 
 package nl.oebelelijzenga.arjaclm.apr;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.exception.SanityCheckFailedException;
 import nl.oebelelijzenga.arjaclm.genetic.PopulationResult;
@@ -44,9 +45,17 @@ public class AprRun {
     private static final Logger logger = LogManager.getLogger(AprRun.class);
 
     private final AprPreferences preferences;
+    private final Optional<WarmBugStateCache> warmBugStateCache;
+    private final IAprRunListener listener;
 
     public AprRun(AprPreferences preferences) {
+        this(preferences, Optional.empty(), new NoAprRunListener());
+    }
+
+    public AprRun(AprPreferences preferences, Optional<WarmBugStateCache> warmBugStateCache, IAprRunListener listener) {
         this.preferences = preferences;
+        this.warmBugStateCache = warmBugStateCache;
+        this.listener = listener;
     }
 
     public AprResult execute() throws AprException {
@@ -57,22 +66,27 @@ public class AprRun {
 
         AprProblem aprProblem;
         try {
-            aprProblem = new AprProblemLoader(preferences).load();
+            listener.onEvent("Loading bug %s".formatted(preferences.bugDir()));
+            aprProblem = new AprProblemLoader(preferences, warmBugStateCache).load();
             logger.info("Output directory is " + aprProblem.config().runOutDir());
+            listener.onEvent("Output directory is " + aprProblem.config().runOutDir());
         } catch (AprException e) {
             logger.error("Failed to load APR problem", e);
+            listener.onEvent("Failed to load APR problem: " + e.getMessage());
             return new AprResult(
                     true,
                     false,
                     System.currentTimeMillis() - startTime,
-                    new PopulationResult()
+                    new PopulationResult(),
+                    Map.of()
             );
         }
 
         AprResult result = repair(startTime, aprProblem);
 
-        AprRunDto runDto = new AprRunDto(preferences, aprProblem.config(), aprProblem.bug().name(), new AprResultDto(result));
+        AprRunDto runDto = new AprRunDto(preferences, aprProblem.config(), aprProblem.bug().name(), new AprResultDto(result), aprProblem.patchManager().timers().getSummaries());
         FileUtil.writeFile(aprProblem.config().runOutDir().resolve("run.json"), JSONUtil.toJSON(runDto));
+        logPhaseTimings(runDto.phaseTimings());
         clearRunLog(aprProblem.config().runOutDir());
 
         return result;
@@ -81,21 +95,24 @@ public class AprRun {
     private AprResult repair(long startTime, AprProblem aprProblem) {
         PopulationResult result;
         try {
-            result = aprProblem.repair();
+            result = aprProblem.repair(listener);
         } catch (AprException e) {
             logger.error("APR job encountered an exception", e);
+            listener.onEvent("APR job encountered an exception: " + e.getMessage());
             return new AprResult(
                     !(e instanceof SanityCheckFailedException),
                     true,
                     System.currentTimeMillis() - startTime,
-                    new PopulationResult()
+                    new PopulationResult(),
+                    aprProblem.patchManager().timers().getSummaries()
             );
         }
         return new AprResult(
                 true,
                 false,
                 System.currentTimeMillis() - startTime,
-                result
+                result,
+                aprProblem.patchManager().timers().getSummaries()
         );
     }
 
@@ -137,6 +154,22 @@ public class AprRun {
         clearRunLog(Optional.of(exportDir));
     }
 
+    private void logPhaseTimings(Map<String, PhaseTimers.Summary> phaseTimings) {
+        logger.info("Phase timings (milliseconds):");
+        for (Map.Entry<String, PhaseTimers.Summary> entry : phaseTimings.entrySet()) {
+            PhaseTimers.Summary summary = entry.getValue();
+            logger.info("%-20s n = %-6s total = %-10.0f p50 = %-8.1f p90 = %-8.1f p99 = %-8.1f max = %.1f".formatted(
+                    entry.getKey(),
+                    summary.count(),
+                    summary.totalMillis(),
+                    summary.p50Millis(),
+                    summary.p90Millis(),
+                    summary.p99Millis(),
+                    summary.maxMillis()
+            ));
+        }
+    }
+
     public void logPreferences(AprPreferences preferences) {
         logger.info("APR Preferences:");
         for (Map.Entry<String, String> entry : preferences.toMap().entrySet()) {
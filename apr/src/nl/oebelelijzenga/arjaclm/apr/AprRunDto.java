@@ -21,13 +21,17 @@
 
 package nl.oebelelijzenga.arjaclm.apr;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
 import nl.oebelelijzenga.arjaclm.model.io.AprPreferences;
 
+import java.util.Map;
+
 public record AprRunDto(
     AprPreferences preferences,
     AprConfig config,
     String bugName,
-    AprResultDto result
+    AprResultDto result,
+    Map<String, PhaseTimers.Summary> phaseTimings
 ) {
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.apr;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.execution.TestJvmResources;
+import nl.oebelelijzenga.arjaclm.fitness.TestImpactAnalysis;
+import nl.oebelelijzenga.arjaclm.model.apr.Bug;
+import nl.oebelelijzenga.arjaclm.model.apr.ModificationPoint;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestSuite;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening.IngredientScreeningInfo;
+import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
+import nl.oebelelijzenga.arjaclm.parser.ModificationPointFactory;
+import nl.oebelelijzenga.arjaclm.parser.ModificationPointIndex;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * State of a bug that does not depend on the seed of a run and can therefore be reused by subsequent runs on the same
+ * bug: the parsed project, the full test suite, the modification points and the outcome of the sanity check. The
+ * original sources are compiled once when the state is created.
+ */
+public class WarmBugState {
+
+    private final String sourceFingerprint;
+    private final JavaProject project;
+    private final TestSuite fullTestSuite;
+    private final Map<String, List<ModificationPoint>> modificationPoints = new HashMap<>();
+    private IngredientScreeningInfo ingredientScreeningInfo = null;
+    private TestImpactAnalysis testImpactAnalysis = null;
+    private boolean sanityCheckPassed = false;
+    private long testJvmMaxHeapBytes = TestJvmResources.DEFAULT_MAX_HEAP_BYTES;
+
+    public WarmBugState(String sourceFingerprint, JavaProject project, TestSuite fullTestSuite) {
+        this.sourceFingerprint = sourceFingerprint;
+        this.project = project;
+        this.fullTestSuite = fullTestSuite;
+    }
+
+    public String sourceFingerprint() {
+        return sourceFingerprint;
+    }
+
+    public JavaProject project() {
+        return project;
+    }
+
+    public TestSuite fullTestSuite() {
+        return fullTestSuite;
+    }
+
+    /*
+     * Modification points only depend on the modification point preferences, so runs that share them also share the
+     * modification points along with their screened ingredients. If enabled they are also persisted for later runs.
+     */
+    public synchronized List<ModificationPoint> getModificationPoints(AprConfig config, Bug bug) throws AprException {
+        String key = "%s_%s".formatted(config.modificationPointSuspiciousnessThreshold(), config.maxNrModificationPoints());
+        List<ModificationPoint> result = modificationPoints.get(key);
+        if (result == null) {
+            Optional<List<ModificationPoint>> indexedResult = ModificationPointIndex.load(config, project, bug);
+            if (indexedResult.isPresent()) {
+                result = indexedResult.get();
+            } else {
+                result = ModificationPointFactory.create(config, project, bug, getIngredientScreeningInfo());
+                ModificationPointIndex.save(config, project, bug, result);
+            }
+            modificationPoints.put(key, result);
+        }
+        return result;
+    }
+
+    /*
+     * Symbol information of the project, which is extended with every modification point and ingredient that is screened
+     */
+    public synchronized IngredientScreeningInfo getIngredientScreeningInfo() {
+        if (ingredientScreeningInfo == null) {
+            ingredientScreeningInfo = IngredientScreeningInfo.create(project);
+        }
+        return ingredientScreeningInfo;
+    }
+
+    public synchronized TestImpactAnalysis getTestImpactAnalysis() throws AprIOException {
+        if (testImpactAnalysis == null) {
+            testImpactAnalysis = TestImpactAnalysis.fromSourceTree(project);
+        }
+        return testImpactAnalysis;
+    }
+
+    public synchronized boolean sanityCheckPassed() {
+        return sanityCheckPassed;
+    }
+
+    public synchronized void setSanityCheckPassed(long testJvmMaxHeapBytes) {
+        sanityCheckPassed = true;
+        this.testJvmMaxHeapBytes = testJvmMaxHeapBytes;
+    }
+
+    /*
+     * Maximum heap size of test JVMs that was derived in the sanity check
+     */
+    public synchronized long testJvmMaxHeapBytes() {
+        return testJvmMaxHeapBytes;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.apr;
+
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.io.InputLoader;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps a {@link WarmBugState} per bug directory and variant, where the variant distinguishes states that are loaded
+ * differently, such as fully and partially loaded projects. A state is only handed out while the contents of the
+ * sources, tests and bug.json of the bug are unchanged since the state was created.
+ */
+public class WarmBugStateCache {
+
+    private static final Logger logger = LogManager.getLogger(WarmBugStateCache.class);
+
+    private record Key(Path rootDir, String variant) {
+    }
+
+    private final Map<Key, WarmBugState> states = new HashMap<>();
+
+    public synchronized Optional<WarmBugState> get(JavaContext context, String variant, String sourceFingerprint) {
+        WarmBugState state = states.get(new Key(context.rootDir(), variant));
+        if (state == null) {
+            return Optional.empty();
+        }
+
+        if (!state.sourceFingerprint().equals(sourceFingerprint) || !Files.isDirectory(context.sourceBuildDir())) {
+            logger.info("Bug %s changed since it was loaded, discarding its warm state".formatted(context.rootDir()));
+            // Other variants of the bug are stale as well, unless they were loaded after the change
+            boolean buildDirExists = Files.isDirectory(context.sourceBuildDir());
+            states.entrySet().removeIf(e -> e.getKey().rootDir().equals(context.rootDir())
+                    && (!buildDirExists || !e.getValue().sourceFingerprint().equals(sourceFingerprint)));
+            return Optional.empty();
+        }
+
+        return Optional.of(state);
+    }
+
+    public synchronized void put(JavaContext context, String variant, WarmBugState state) {
+        states.put(new Key(context.rootDir(), variant), state);
+    }
+
+    public synchronized int size() {
+        return states.size();
+    }
+
+    public static String getSourceFingerprint(JavaContext context) throws AprIOException {
+        List<Path> paths = new ArrayList<>(FileUtil.getJavaSourceFilePaths(context.srcDir()));
+        if (!context.testDir().startsWith(context.srcDir())) {
+            paths.addAll(FileUtil.getJavaSourceFilePaths(context.testDir()));
+        }
+        paths.add(context.rootDir().resolve(InputLoader.BUG_FILE));
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        // Contents are hashed rather than sizes and modification times, which miss edits that keep both
+        for (Path path : paths.stream().sorted().toList()) {
+            try {
+                byte[] content = Files.readAllBytes(path);
+                digest.update("%s:%s;".formatted(path, content.length).getBytes(StandardCharsets.UTF_8));
+                digest.update(content);
+            } catch (IOException e) {
+                throw new AprIOException("Failed to read %s".formatted(path), e);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -29,7 +29,9 @@ import picocli.CommandLine;
         ParseJavaCommand.class,
         SanityCheckCommand.class,
         RepairCommand.class,
-        BenchmarkCommand.class
+        ServeCommand.class,
+        BenchmarkCommand.class,
+        ThroughputBenchmarkCommand.class
 })
 public class AprCli {
 
@@ -48,6 +50,7 @@ public class AprCli {
 
         int exitCode = new CommandLine(new AprCli())
                 .setExecutionExceptionHandler(new AprCli.ExecutionExceptionHandler())
+                .setCaseInsensitiveEnumValuesAllowed(true)
                 .execute(args);
         System.exit(exitCode);
     }
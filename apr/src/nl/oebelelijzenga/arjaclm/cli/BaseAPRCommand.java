@@ -22,6 +22,7 @@
 package nl.oebelelijzenga.arjaclm.cli;
 
 import nl.oebelelijzenga.arjaclm.model.io.AprPreferences;
+import nl.oebelelijzenga.arjaclm.model.io.ProcessSandboxMode;
 import picocli.CommandLine;
 
 import java.nio.file.Path;
@@ -43,8 +44,8 @@ public class BaseAPRCommand {
     @CommandLine.Option(names = {"--persistent-fitness-cache"}, description = "Disable fitness cache")
     protected boolean usePersistentFitnessCache = true;
 
-    @CommandLine.Option(names = {"-j", "--nr-jobs"}, description = "The number of threads used to evaluate variants in parallel")
-    protected int nrJobs = 3;
+    @CommandLine.Option(names = {"-j", "--nr-jobs"}, description = "The number of threads used to evaluate variants in parallel, derived from the available cores and memory if 0")
+    protected int nrJobs = 0;
 
     @CommandLine.Option(names = {"-p", "--population-size"})
     protected int populationSize = 40;
@@ -109,6 +110,39 @@ public class BaseAPRCommand {
     @CommandLine.Option(names = {"--time-limit"}, description = "Execution time limit for genetic search in seconds")
     protected int geneticSearchTimeLimitSeconds = 99999;
 
+    @CommandLine.Option(names = {"--parser-threads"}, description = "The number of threads used to parse the source files of the bug, partitioned by package. Types of different partitions are matched by name during ingredient screening, which can accept or reject slightly different ingredients than a single thread")
+    protected int nrParserThreads = 1;
+
+    @CommandLine.Option(names = {"--lazy-project"}, description = "Only load the packages containing suspicious statements and the files they import")
+    protected boolean lazyProjectLoading = false;
+
+    @CommandLine.Option(names = {"--screening-threads"}, description = "The number of threads used to create modification points and screen their ingredients, the number of available cores if 0")
+    protected int nrScreeningThreads = 0;
+
+    @CommandLine.Option(names = {"--persistent-modpoint-index"}, description = "Store modification points and their screened ingredients in the cache directory, so that runs on unchanged sources reuse them")
+    protected boolean usePersistentModificationPointIndex = false;
+
+    @CommandLine.Option(names = {"--process-sandbox"}, description = "Wraps compile and test processes to limit their resources: ${COMPLETION-CANDIDATES} (case-insensitive), where cgroup uses a transient systemd scope")
+    protected ProcessSandboxMode processSandbox = ProcessSandboxMode.NONE;
+
+    @CommandLine.Option(names = {"--reuse-unaffected-test-results"}, description = "During the search, only run tests that can observe the classes edited by a patch and reuse the results of the original program for other tests. Tests are matched statically, so classes only used through reflection are missed")
+    protected boolean reuseUnaffectedTestResults = false;
+
+    @CommandLine.Option(names = {"--prioritize-tests"}, description = "During the search, run the tests that most often failed for earlier patches first, and stop running positive tests once enough of them failed to fix the fitness of a patch")
+    protected boolean prioritizeTests = false;
+
+    @CommandLine.Option(names = {"--mutant-schemata"}, description = "During the search, compile the variants of a generation together in a single build in which each edit is enabled by a system property, and test each variant on that build. Variants with edits that cannot be guarded this way are compiled separately")
+    protected boolean useMutantSchemata = false;
+
+    @CommandLine.Option(names = {"--batch-compilation"}, description = "Compile the patches of a generation in-process, in shared compiler tasks against the build of the original program")
+    protected boolean batchCompilation = false;
+
+    @CommandLine.Option(names = {"--reuse-equivalent-bytecode-results"}, description = "Reuse the test results of patches that compiled to the same classes, ignoring debug information")
+    protected boolean reuseEquivalentBytecodeResults = false;
+
+    @CommandLine.Option(names = {"--hot-swap-tests"}, description = "Test patches that only change method bodies in warm test JVMs, by redefining the classes of the original program")
+    protected boolean hotSwapTests = false;
+
     public AprPreferences createPreferences(Path bugDir, int seed) {
         return new AprPreferences(
                 bugDir,
@@ -139,7 +173,18 @@ public class BaseAPRCommand {
                 clmNrInfills,
                 clmMutationProbability,
                 deletePatchDirs,
-                geneticSearchTimeLimitSeconds
+                geneticSearchTimeLimitSeconds,
+                nrParserThreads,
+                lazyProjectLoading,
+                nrScreeningThreads,
+                usePersistentModificationPointIndex,
+                processSandbox,
+                reuseUnaffectedTestResults,
+                prioritizeTests,
+                useMutantSchemata,
+                batchCompilation,
+                reuseEquivalentBytecodeResults,
+                hotSwapTests
         );
     }
 
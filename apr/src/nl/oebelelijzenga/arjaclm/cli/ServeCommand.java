@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.cli;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.model.io.AprPreferences;
+import nl.oebelelijzenga.arjaclm.server.AprServer;
+import picocli.CommandLine;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+@CommandLine.Command(name = "serve", description = "Run a resident APR server that accepts repair jobs over a local HTTP API")
+public class ServeCommand implements Callable<Integer> {
+
+    @CommandLine.Option(names = {"--host"}, description = "Host the server binds to")
+    protected String host = "localhost";
+
+    @CommandLine.Option(names = {"--port"}, description = "Port the server listens on")
+    protected int port = 5100;
+
+    /*
+     * Job arguments are parsed exactly like the arguments of the repair command
+     */
+    @CommandLine.Command(name = "repair")
+    static class JobCommand extends AbstractSingleAPRRunCommand {
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        AprServer server = new AprServer(host, port, ServeCommand::parseJobArgs);
+        server.start();
+
+        CountDownLatch shutdown = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            shutdown.countDown();
+        }));
+        shutdown.await();
+        return 0;
+    }
+
+    private static AprPreferences parseJobArgs(List<String> args) throws AprException {
+        JobCommand command = new JobCommand();
+        try {
+            new CommandLine(command).setCaseInsensitiveEnumValuesAllowed(true).parseArgs(args.toArray(new String[0]));
+        } catch (CommandLine.ParameterException e) {
+            throw new AprException("Invalid job arguments %s: %s".formatted(args, e.getMessage()), e);
+        }
+        return command.createPreferences();
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.cli;
+
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+import nl.oebelelijzenga.arjaclm.api.StubClmApiServer;
+import nl.oebelelijzenga.arjaclm.apr.AprResult;
+import nl.oebelelijzenga.arjaclm.apr.AprRun;
+import nl.oebelelijzenga.arjaclm.apr.IAprRunListener;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.execution.TestJvmResources;
+import nl.oebelelijzenga.arjaclm.genetic.GenerationStatistics;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.io.JSONUtil;
+import nl.oebelelijzenga.arjaclm.io.SyntheticBugGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of the whole pipeline on generated bugs, using a stub instead of the CLM API. Unlike the
+ * benchmark command it needs no Defects4J or GPU, so scaling changes can be validated on any Linux machine with Java 8.
+ */
+@CommandLine.Command(name = "throughput", description = "Measure patch evaluation throughput on generated synthetic bugs")
+public class ThroughputBenchmarkCommand extends BaseAPRCommand implements Callable<Integer> {
+
+    private static final Logger logger = LogManager.getLogger(ThroughputBenchmarkCommand.class);
+
+    @CommandLine.Option(names = {"--nr-bugs"}, description = "The number of synthetic bugs to generate and repair")
+    protected int nrBugs = 1;
+
+    @CommandLine.Option(names = {"--nr-files"}, description = "The number of source files of each synthetic bug")
+    protected int nrFiles = 5;
+
+    @CommandLine.Option(names = {"--nr-statements"}, description = "The number of statements of each source file")
+    protected int nrStatements = 40;
+
+    @CommandLine.Option(names = {"--nr-tests"}, description = "The number of positive tests of each synthetic bug")
+    protected int nrTests = 20;
+
+    @CommandLine.Option(names = {"--test-runtime-ms"}, description = "The time each test case sleeps")
+    protected int testRuntimeMillis = 10;
+
+    @CommandLine.Option(names = {"--stub-clm-latency-ms"}, description = "The response time of the stub CLM API")
+    protected int stubClmLatencyMillis = 100;
+
+    @CommandLine.Option(names = {"--corpus-dir"}, description = "Directory the synthetic bugs are written to, defaults to [out dir]/synthetic")
+    protected Path corpusDir = null;
+
+    public record BugThroughput(
+            String bug,
+            boolean executionError,
+            boolean foundPatch,
+            int nrEvaluatedPatches,
+            long searchMillis,
+            float patchesPerSecond,
+            Map<String, PhaseTimers.Summary> phaseTimings,
+            long peakHeapBytes
+    ) {
+    }
+
+    public record ThroughputReport(
+            SyntheticBugGenerator.Spec spec,
+            int nrJobs,
+            int nrEvaluatedPatches,
+            long searchMillis,
+            float patchesPerSecond,
+            // High-water mark of this process
+            long peakRssBytes,
+            // Sampled peak of this process and its child processes, such as compilers and test JVMs
+            long peakProcessTreeRssBytes,
+            List<BugThroughput> bugs
+    ) {
+    }
+
+    /*
+     * Collects the statistics of the generations of the genetic search, which is where patches are evaluated
+     */
+    private static class GenerationListener implements IAprRunListener {
+        private final List<GenerationStatistics> generations = new ArrayList<>();
+
+        @Override
+        public void onEvent(String message) {
+        }
+
+        @Override
+        public synchronized void onGenerationFinished(GenerationStatistics statistics) {
+            generations.add(statistics);
+        }
+
+        private synchronized int getNrEvaluatedPatches() {
+            return generations.stream().mapToInt(GenerationStatistics::nrUniqueNewVariants).sum();
+        }
+
+        private synchronized long getSearchMillis() {
+            return generations.stream().mapToLong(GenerationStatistics::durationMillis).sum();
+        }
+    }
+
+    /*
+     * Samples the resident memory of this process and its descendants, which the high-water mark of this process does
+     * not cover. Processes that start and exit between samples are missed.
+     */
+    private static class ProcessTreeRssSampler implements AutoCloseable {
+        private static final long SAMPLE_INTERVAL_MILLIS = 200;
+
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rss-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final AtomicLong peakRssBytes = new AtomicLong();
+
+        private ProcessTreeRssSampler() {
+            executor.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            long rssBytes = getStatusBytes(ProcessHandle.current().pid(), "VmRSS");
+            for (ProcessHandle process : ProcessHandle.current().descendants().toList()) {
+                rssBytes += getStatusBytes(process.pid(), "VmRSS");
+            }
+            peakRssBytes.accumulateAndGet(rssBytes, Math::max);
+        }
+
+        private long getPeakRssBytes() {
+            return peakRssBytes.get();
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public Integer call() throws AprException, IOException {
+        SyntheticBugGenerator.Spec spec = new SyntheticBugGenerator.Spec(nrFiles, nrStatements, nrTests, testRuntimeMillis);
+        SyntheticBugGenerator generator = new SyntheticBugGenerator(spec, Path.of(System.getProperty("user.dir")).resolve("lib"));
+        if (corpusDir == null) {
+            corpusDir = outDir.resolve("synthetic");
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+        outDir = outDir.resolve("throughput_%s".formatted(formatter.format(LocalDateTime.now())));
+        // Every patch must actually be evaluated to measure throughput
+        usePersistentFitnessCache = false;
+
+        List<BugThroughput> bugResults = new ArrayList<>();
+        long peakProcessTreeRssBytes;
+        try (StubClmApiServer clmApiServer = new StubClmApiServer(stubClmLatencyMillis); ProcessTreeRssSampler rssSampler = new ProcessTreeRssSampler()) {
+            clmApiHost = clmApiServer.host();
+            clmApiPort = clmApiServer.port();
+
+            for (int i = 0; i < nrBugs; i++) {
+                Path bugDir = generator.generate(corpusDir, "synthetic_%s".formatted(i), i);
+                logger.info("Generated synthetic bug %s".formatted(bugDir));
+                bugResults.add(runBug(bugDir, i));
+            }
+            peakProcessTreeRssBytes = rssSampler.getPeakRssBytes();
+        }
+
+        int nrEvaluatedPatches = bugResults.stream().mapToInt(BugThroughput::nrEvaluatedPatches).sum();
+        long searchMillis = bugResults.stream().mapToLong(BugThroughput::searchMillis).sum();
+        ThroughputReport report = new ThroughputReport(
+                spec,
+                // The number of jobs the runs used, as derived when loading their config
+                nrJobs > 0 ? nrJobs : TestJvmResources.getDefaultNrJobs(),
+                nrEvaluatedPatches,
+                searchMillis,
+                getPatchesPerSecond(nrEvaluatedPatches, searchMillis),
+                getStatusBytes(ProcessHandle.current().pid(), "VmHWM"),
+                peakProcessTreeRssBytes,
+                bugResults
+        );
+
+        Path reportFile = outDir.resolve("throughput.json");
+        FileUtil.mkdir(outDir);
+        FileUtil.writeFile(reportFile, JSONUtil.toJSON(report));
+        logger.info("Evaluated %s patches in %.1f seconds of search, %.2f patches per second, peak RSS %s MiB, %s MiB including child processes".formatted(
+                nrEvaluatedPatches,
+                searchMillis / 1000.0f,
+                report.patchesPerSecond(),
+                report.peakRssBytes() / (1024 * 1024),
+                report.peakProcessTreeRssBytes() / (1024 * 1024)
+        ));
+        logger.info("Report written to %s".formatted(reportFile));
+
+        return bugResults.stream().anyMatch(BugThroughput::executionError) ? 1 : 0;
+    }
+
+    private BugThroughput runBug(Path bugDir, int seed) throws AprException {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream().filter(p -> p.getType() == MemoryType.HEAP).toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        GenerationListener listener = new GenerationListener();
+        AprResult result = new AprRun(createPreferences(bugDir, seed), Optional.empty(), listener).execute();
+
+        int nrEvaluatedPatches = listener.getNrEvaluatedPatches();
+        long searchMillis = listener.getSearchMillis();
+        BugThroughput bugThroughput = new BugThroughput(
+                bugDir.getFileName().toString(),
+                result.executionError(),
+                result.population() != null && !result.population().correctVariants().isEmpty(),
+                nrEvaluatedPatches,
+                searchMillis,
+                getPatchesPerSecond(nrEvaluatedPatches, searchMillis),
+                result.phaseTimings(),
+                heapPools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum()
+        );
+        logger.info("Throughput for %s: %.2f patches per second".formatted(bugThroughput.bug(), bugThroughput.patchesPerSecond()));
+        return bugThroughput;
+    }
+
+    private static float getPatchesPerSecond(int nrPatches, long millis) {
+        return millis == 0 ? 0.0f : nrPatches * 1000.0f / millis;
+    }
+
+    /*
+     * Memory statistic of a process in bytes, only available on Linux. Returns 0 if the process exited.
+     */
+    private static long getStatusBytes(long pid, String field) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/%s/status".formatted(pid)))) {
+                if (line.startsWith(field + ":")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution;
+
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import nl.oebelelijzenga.arjaclm.model.java.CompilationResult;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Compiles the edited files of many patches in-process against the build of the original program. All compilations
+ * share one file manager, such that the jars on the class path are opened and indexed once, and unchanged sources are
+ * read as classes of the original build rather than compiled again. Every patch is compiled in its own task, such that
+ * it only sees the classes of the original program besides its own edited files.
+ * <p>
+ * The options of the compilation script of a bug are not known, so the in-process compiler targets the class file
+ * version of the original build. Before the first patch is compiled, it checks that it can compile the original
+ * program with those options. When it cannot, patches have to be compiled with the compilation script instead.
+ */
+public class BatchJavaCompiler implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(BatchJavaCompiler.class);
+
+    public static final String COMMAND = "(in-process javac)";
+    private static final String VALIDATION_DIR = "batch_compiler_validation";
+    private static final int JAVA_8_CLASS_VERSION = 52;
+
+    private final Path java8Home;
+    private final JavaContext originalContext;
+    private final PhaseTimers timers;
+    private final JavaCompiler compiler;
+    private final StandardJavaFileManager fileManager;
+    private List<String> options = null;
+    private Boolean usable = null;
+
+    /**
+     * Files to compile into the build directories of a patch context, relative to its root directory.
+     */
+    public record Unit(JavaContext context, List<Path> filePaths) {
+    }
+
+    public BatchJavaCompiler(AprConfig config, JavaContext originalContext, PhaseTimers timers) throws AprException {
+        this.java8Home = config.java8Home();
+        this.originalContext = originalContext;
+        this.timers = timers;
+
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new AprException("In-process compilation requires the APR to run on a JDK");
+        }
+        fileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether the in-process compiler can compile the original program, which is checked once. Requires the original
+     * program to be built.
+     */
+    public synchronized boolean isUsable() throws AprException {
+        if (usable != null) {
+            return usable;
+        }
+        if (!Files.isDirectory(originalContext.sourceBuildDir())) {
+            throw new AprException("Original program must be compiled before patches can be compiled against it");
+        }
+
+        Optional<Integer> classVersion = getClassVersion(originalContext.sourceBuildDir());
+        if (classVersion.isEmpty() || classVersion.get() < JAVA_8_CLASS_VERSION - 1) {
+            logger.warn("Original build has no classes of a supported class file version, compiling patches with the compilation script");
+            usable = false;
+            return false;
+        }
+        options = getOptions(classVersion.get() - JAVA_8_CLASS_VERSION + 8);
+
+        List<Path> classPath = new ArrayList<>();
+        classPath.add(originalContext.sourceBuildDir());
+        classPath.addAll(originalContext.compileClassPath().paths());
+        try {
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classPath);
+            // Sources are never resolved, as they may be the edited files of other patches
+            fileManager.setLocationFromPaths(StandardLocation.SOURCE_PATH, List.of());
+        } catch (IOException e) {
+            throw new AprIOException("Failed to set class path of in-process compiler", e);
+        }
+
+        usable = validate();
+        return usable;
+    }
+
+    private List<String> getOptions(int release) {
+        List<String> options = new ArrayList<>(List.of("-g", "-nowarn", "-proc:none", "-implicit:none", "-Xlint:-options"));
+
+        // Compile against the class library of the JVM that runs the tests
+        Path runtimeJar = java8Home.resolve("jre/lib/rt.jar");
+        if (Files.isRegularFile(runtimeJar)) {
+            options.addAll(List.of("-source", Integer.toString(release), "-target", Integer.toString(release), "-bootclasspath", runtimeJar.toString()));
+        } else {
+            options.addAll(List.of("--release", Integer.toString(release)));
+        }
+        return options;
+    }
+
+    /*
+     * Class file major version of the first class found in the build directory
+     */
+    private static Optional<Integer> getClassVersion(Path buildDir) throws AprIOException {
+        Optional<Path> classFile;
+        try (Stream<Path> files = Files.walk(buildDir)) {
+            classFile = files.filter(p -> p.toString().endsWith(".class")).findFirst();
+        } catch (IOException e) {
+            throw new AprIOException("Failed to list classes in " + buildDir, e);
+        }
+        if (classFile.isEmpty()) {
+            return Optional.empty();
+        }
+
+        byte[] header = new byte[8];
+        try (InputStream stream = Files.newInputStream(classFile.get())) {
+            if (stream.readNBytes(header, 0, header.length) < header.length) {
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            throw new AprIOException("Failed to read class file " + classFile.get(), e);
+        }
+        return Optional.of(((header[6] & 0xff) << 8) | (header[7] & 0xff));
+    }
+
+    /*
+     * Compiles all sources of the original program, which fails when they need options of the compilation script such
+     * as a different encoding
+     */
+    private boolean validate() throws AprException {
+        List<Path> sourceFiles;
+        try (Stream<Path> files = Files.walk(originalContext.srcDir())) {
+            sourceFiles = files.filter(p -> p.toString().endsWith(".java")).toList();
+        } catch (IOException e) {
+            throw new AprIOException("Failed to list sources in " + originalContext.srcDir(), e);
+        }
+
+        Path outputDir = originalContext.aprDir().resolve(VALIDATION_DIR);
+        FileUtil.mkdir(outputDir);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> validationOptions = new ArrayList<>(options);
+        validationOptions.addAll(List.of("-d", outputDir.toString()));
+        long startNanos = System.nanoTime();
+        boolean success;
+        try {
+            success = compiler.getTask(null, fileManager, diagnostics, validationOptions, null, fileManager.getJavaFileObjectsFromPaths(sourceFiles)).call();
+        } catch (RuntimeException e) {
+            throw new AprException("In-process compiler failed", e);
+        } finally {
+            FileUtil.deleteDirectory(outputDir);
+        }
+        timers.recordSince("compile", startNanos);
+
+        if (!success) {
+            Optional<Diagnostic<? extends JavaFileObject>> error = diagnostics.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR).findFirst();
+            logger.warn("In-process compiler cannot compile the original program%s, compiling patches with the compilation script".formatted(
+                    error.map(d -> " (%s)".formatted(d.getMessage(Locale.ROOT))).orElse("")
+            ));
+        }
+        return success;
+    }
+
+    public synchronized List<CompilationResult> compile(List<Unit> units) throws AprException {
+        if (!isUsable()) {
+            throw new AprException("In-process compiler cannot compile the original program");
+        }
+
+        List<CompilationResult> results = new ArrayList<>();
+        for (Unit unit : units) {
+            List<String> errors = unit.filePaths().isEmpty() ? List.of() : compileUnit(unit);
+            boolean success = errors.isEmpty();
+            if (success) {
+                completeBuild(unit.context());
+            }
+            results.add(createResult(unit, success, errors));
+        }
+        return results;
+    }
+
+    /*
+     * Compiles the files of the unit in one task and returns the errors
+     */
+    private List<String> compileUnit(Unit unit) throws AprException {
+        FileUtil.deleteDirectory(unit.context().sourceBuildDir());
+        FileUtil.mkdir(unit.context().sourceBuildDir());
+        List<Path> sourceFiles = unit.filePaths().stream().map(p -> unit.context().rootDir().resolve(p)).toList();
+
+        JavaFileManager outputRouter = new ForwardingJavaFileManager<>(fileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                Path classFile = unit.context().sourceBuildDir().resolve(className.replace('.', '/') + kind.extension);
+                return fileManager.getJavaFileObjects(classFile).iterator().next();
+            }
+        };
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        long startNanos = System.nanoTime();
+        boolean success;
+        try {
+            success = compiler.getTask(null, outputRouter, diagnostics, options, null, fileManager.getJavaFileObjectsFromPaths(sourceFiles)).call();
+        } catch (RuntimeException e) {
+            throw new AprException("In-process compiler failed", e);
+        }
+        timers.recordSince("compile", startNanos);
+
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                continue;
+            }
+            if (diagnostic.getSource() == null) {
+                errors.add("error: " + diagnostic.getMessage(Locale.ROOT));
+            } else {
+                errors.add("%s:%s: error: %s".formatted(Path.of(diagnostic.getSource().toUri()), diagnostic.getLineNumber(), diagnostic.getMessage(Locale.ROOT)));
+            }
+        }
+
+        if (!success && errors.isEmpty()) {
+            errors.add("error: compilation failed without reporting errors");
+        }
+        return errors;
+    }
+
+    /*
+     * Adds the classes of the original build that were not compiled for the patch, and the original test classes, such
+     * that the build directories of the patch look like they were built from scratch. Nested classes of compiled
+     * classes are not added, as the patch may have removed them.
+     */
+    private void completeBuild(JavaContext context) throws AprException {
+        Path buildDir = context.sourceBuildDir();
+        if (buildDir.equals(originalContext.sourceBuildDir())) {
+            return;
+        }
+        FileUtil.mkdir(buildDir);
+
+        Set<String> compiledClasses = new HashSet<>();
+        try (Stream<Path> files = Files.walk(buildDir)) {
+            files.filter(p -> p.toString().endsWith(".class")).forEach(p -> compiledClasses.add(getOuterClassFileName(buildDir.relativize(p))));
+        } catch (IOException e) {
+            throw new AprIOException("Failed to list classes in " + buildDir, e);
+        }
+
+        try (Stream<Path> files = Files.walk(originalContext.sourceBuildDir())) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                Path relativePath = originalContext.sourceBuildDir().relativize(file);
+                Path target = buildDir.resolve(relativePath.toString());
+                if (Files.exists(target) || compiledClasses.contains(getOuterClassFileName(relativePath))) {
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target);
+            }
+        } catch (IOException e) {
+            throw new AprIOException("Failed to copy original classes to " + buildDir, e);
+        }
+
+        if (!originalContext.testBuildDir().equals(originalContext.sourceBuildDir()) && Files.isDirectory(originalContext.testBuildDir())) {
+            if (Files.exists(context.testBuildDir())) {
+                FileUtil.deleteDirectory(context.testBuildDir());
+            }
+            FileUtil.copySourceCodeFolder(originalContext.testBuildDir(), context.testBuildDir());
+        }
+    }
+
+    private static String getOuterClassFileName(Path classFile) {
+        String name = classFile.toString();
+        int nestedIndex = name.indexOf('$', name.lastIndexOf('/') + 1);
+        return nestedIndex < 0 ? name.replaceFirst("\\.class$", "") : name.substring(0, nestedIndex);
+    }
+
+    private CompilationResult createResult(Unit unit, boolean success, List<String> errors) throws AprException {
+        CommandResult commandResult = new CommandResult(
+                "%s %s".formatted(COMMAND, String.join(" ", unit.filePaths().stream().map(Path::toString).toList())),
+                Map.of(),
+                success,
+                false,
+                success ? 0 : 1,
+                "",
+                String.join("\n", errors)
+        );
+        Path logFile = unit.context().aprDir().resolve(ScriptJavaCompiler.COMPILATION_LOG);
+        FileUtil.writeFile(logFile, commandResult.toFileString());
+        return new CompilationResult(success, CommandSummary.of(commandResult, logFile));
+    }
+
+    @Override
+    public synchronized void close() throws AprIOException {
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            throw new AprIOException("Failed to close in-process compiler", e);
+        }
+    }
+}
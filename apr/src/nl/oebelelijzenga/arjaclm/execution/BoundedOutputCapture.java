@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution;
+
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Captures the output of an external process. Only the head and the tail of the output are kept, to avoid OutOfMemory
+ * errors and full disks caused by untrusted programs. The head can be streamed to a log file, to which the tail is
+ * appended when the capture is closed, such that the log has the same content as {@link #toString()}. Buffers are
+ * grown as needed, such that capturing the output of the many processes with little output stays cheap.
+ */
+public class BoundedOutputCapture extends OutputStream {
+
+    private static final int INITIAL_HEAD_SIZE = 8192;
+
+    private final int headCapacity;
+    private final int tailCapacity;
+    private byte[] head;
+    private int headSize = 0;
+    // Ring buffer containing the most recent output after the head was filled
+    private byte[] tail = null;
+    private int tailSize = 0;
+    private int tailEnd = 0;
+    private long totalSize = 0;
+    private final OutputStream log;
+
+    public BoundedOutputCapture(int headCapacity, int tailCapacity) {
+        this.headCapacity = headCapacity;
+        this.tailCapacity = tailCapacity;
+        this.head = new byte[Math.min(headCapacity, INITIAL_HEAD_SIZE)];
+        this.log = null;
+    }
+
+    public BoundedOutputCapture(int headCapacity, int tailCapacity, Path logFile) throws AprIOException {
+        this.headCapacity = headCapacity;
+        this.tailCapacity = tailCapacity;
+        this.head = new byte[Math.min(headCapacity, INITIAL_HEAD_SIZE)];
+        try {
+            this.log = new BufferedOutputStream(Files.newOutputStream(logFile), 65536);
+        } catch (IOException e) {
+            throw new AprIOException("Failed to open output log " + logFile, e);
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        totalSize++;
+        if (headSize < headCapacity) {
+            if (headSize == head.length) {
+                head = Arrays.copyOf(head, Math.min(headCapacity, 2 * head.length));
+            }
+            head[headSize++] = (byte) b;
+            if (log != null) {
+                log.write(b);
+            }
+        } else if (tailCapacity > 0) {
+            if (tail == null) {
+                tail = new byte[tailCapacity];
+            }
+            tail[tailEnd] = (byte) b;
+            tailEnd = (tailEnd + 1) % tail.length;
+            tailSize = Math.min(tail.length, tailSize + 1);
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        totalSize += len;
+
+        int headLength = Math.min(len, headCapacity - headSize);
+        if (headSize + headLength > head.length) {
+            head = Arrays.copyOf(head, Math.min(headCapacity, Math.max(2 * head.length, headSize + headLength)));
+        }
+        System.arraycopy(b, off, head, headSize, headLength);
+        headSize += headLength;
+        if (log != null && headLength > 0) {
+            log.write(b, off, headLength);
+        }
+        if (headLength < len) {
+            writeTail(b, off + headLength, len - headLength);
+        }
+    }
+
+    private void writeTail(byte[] b, int off, int len) {
+        if (tailCapacity == 0) {
+            return;
+        }
+        if (tail == null) {
+            tail = new byte[tailCapacity];
+        }
+        if (len >= tail.length) {
+            System.arraycopy(b, off + len - tail.length, tail, 0, tail.length);
+            tailEnd = 0;
+            tailSize = tail.length;
+            return;
+        }
+
+        int firstLength = Math.min(len, tail.length - tailEnd);
+        System.arraycopy(b, off, tail, tailEnd, firstLength);
+        System.arraycopy(b, off + firstLength, tail, 0, len - firstLength);
+        tailEnd = (tailEnd + len) % tail.length;
+        tailSize = Math.min(tail.length, tailSize + len);
+    }
+
+    public synchronized long totalSize() {
+        return totalSize;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (log == null) {
+            return;
+        }
+        try (log) {
+            long omittedSize = totalSize - headSize - tailSize;
+            if (omittedSize > 0) {
+                log.write(getOmissionMarker(omittedSize).getBytes(StandardCharsets.UTF_8));
+            }
+            log.write(getTailBytes());
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        byte[] tailBytes = getTailBytes();
+        long omittedSize = totalSize - headSize - tailSize;
+        if (omittedSize == 0) {
+            // Decode as a whole, such that characters spanning head and tail are kept intact
+            byte[] bytes = new byte[headSize + tailSize];
+            System.arraycopy(head, 0, bytes, 0, headSize);
+            System.arraycopy(tailBytes, 0, bytes, headSize, tailSize);
+            return new String(bytes);
+        }
+
+        return new String(head, 0, headSize) + getOmissionMarker(omittedSize) + new String(tailBytes);
+    }
+
+    private byte[] getTailBytes() {
+        byte[] tailBytes = new byte[tailSize];
+        if (tail != null) {
+            int tailStart = Math.floorMod(tailEnd - tailSize, tail.length);
+            int firstLength = Math.min(tailSize, tail.length - tailStart);
+            System.arraycopy(tail, tailStart, tailBytes, 0, firstLength);
+            System.arraycopy(tail, 0, tailBytes, firstLength, tailSize - firstLength);
+        }
+        return tailBytes;
+    }
+
+    private static String getOmissionMarker(long omittedSize) {
+        return "\n<%s more bytes>\n".formatted(omittedSize);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution;
+
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import org.objectweb.asm.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * A class of a patch that replaces the class of the original program in a running JVM. Redefinition only supports
+ * changes of method bodies and does not run static initializers again, so patches that add or remove classes, fields
+ * or methods, or that change a static initializer, cannot be tested this way.
+ */
+public record ClassRedefinition(String className, Path classFile) {
+
+    /**
+     * Finds the classes in the given package directories that differ between the build of a patch and the original
+     * build. Returns empty if any of them cannot be redefined.
+     */
+    public static Optional<List<ClassRedefinition>> find(Path originalBuildDir, Path buildDir, Set<Path> packageDirs) throws AprIOException {
+        List<ClassRedefinition> result = new ArrayList<>();
+        for (Path packageDir : packageDirs) {
+            Set<Path> originalClasses = listClassFiles(originalBuildDir, packageDir);
+            Set<Path> classes = listClassFiles(buildDir, packageDir);
+            if (!classes.equals(originalClasses)) {
+                return Optional.empty();
+            }
+
+            for (Path classFile : classes.stream().sorted().toList()) {
+                byte[] originalBytes = readClassFile(originalBuildDir.resolve(classFile.toString()));
+                byte[] bytes = readClassFile(buildDir.resolve(classFile.toString()));
+                if (Arrays.equals(bytes, originalBytes)) {
+                    continue;
+                }
+                if (!getShape(bytes).equals(getShape(originalBytes))) {
+                    return Optional.empty();
+                }
+
+                String className = classFile.toString().replaceFirst("\\.class$", "").replace('/', '.');
+                result.add(new ClassRedefinition(className, buildDir.resolve(classFile.toString())));
+            }
+        }
+        return Optional.of(result);
+    }
+
+    private static Set<Path> listClassFiles(Path buildDir, Path packageDir) throws AprIOException {
+        Path classDir = buildDir.resolve(packageDir.toString());
+        if (!Files.isDirectory(classDir)) {
+            return Set.of();
+        }
+
+        try (Stream<Path> files = Files.list(classDir)) {
+            Set<Path> result = new HashSet<>();
+            files.filter(p -> p.getFileName().toString().endsWith(".class")).forEach(p -> result.add(buildDir.relativize(p)));
+            return result;
+        } catch (IOException e) {
+            throw new AprIOException("Failed to list classes in " + classDir, e);
+        }
+    }
+
+    private static byte[] readClassFile(Path classFile) throws AprIOException {
+        try {
+            return Files.readAllBytes(classFile);
+        } catch (IOException e) {
+            throw new AprIOException("Failed to read class file " + classFile, e);
+        }
+    }
+
+    /*
+     * Everything of a class that must stay the same for it to be redefined: its declaration, the declarations of its
+     * fields and methods in order, and the code of its static initializer.
+     */
+    private static String getShape(byte[] bytes) {
+        List<String> declarations = new ArrayList<>();
+        ClassWriter staticInitializer = new ClassWriter(0);
+        new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM9, staticInitializer) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                declarations.add("class %s %s %s %s %s".formatted(access, name, signature, superName, Arrays.toString(interfaces)));
+                super.visit(version, access, name, signature, superName, interfaces);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                declarations.add("field %s %s %s %s %s".formatted(access, name, descriptor, signature, value));
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                declarations.add("method %s %s %s %s %s".formatted(access, name, descriptor, signature, Arrays.toString(exceptions)));
+                return name.equals("<clinit>") ? super.visitMethod(access, name, descriptor, signature, exceptions) : null;
+            }
+        }, ClassReader.SKIP_DEBUG);
+
+        declarations.add("static initializer " + HexFormat.of().formatHex(staticInitializer.toByteArray()));
+        return String.join("\n", declarations);
+    }
+}
@@ -33,18 +33,31 @@ public record CommandResult(
         boolean timedOut,
         int exitCode,
         String stdout,
-        String stderr
+        String stderr,
+        long durationMillis,
+        // Resource limit of the process sandbox that caused the process to fail, null if none
+        ResourceLimit exceededLimit
 ) {
-    public CommandResult(CommandLine command, Map<String, String> environment, boolean success, boolean timedOut, int exitCode, String stdout, String stderr) {
-        this(String.join(" ", command.toStrings()), environment, success, timedOut, exitCode, stdout, stderr);
+    public CommandResult(String command, Map<String, String> environment, boolean success, boolean timedOut, int exitCode, String stdout, String stderr) {
+        this(command, environment, success, timedOut, exitCode, stdout, stderr, 0, null);
+    }
+
+    public CommandResult(CommandLine command, Map<String, String> environment, boolean success, boolean timedOut, int exitCode, String stdout, String stderr, long durationMillis) {
+        this(String.join(" ", command.toStrings()), environment, success, timedOut, exitCode, stdout, stderr, durationMillis, null);
+    }
+
+    public CommandResult withExceededLimit(ResourceLimit limit) {
+        return new CommandResult(command, environment, false, timedOut, exitCode, stdout, stderr, durationMillis, limit);
     }
 
     public String toFileString() {
         String envString = String.join("\n", environment.entrySet().stream().map(e -> "%s=%s".formatted(e.getKey(), e.getValue())).toList());
-        return "command:\n%s\nenv:\n%s\nexitcode: %d\nstdout:\n%s\nstderr:\n%s\n".formatted(
+        String limitString = exceededLimit == null ? "" : "exceeded limit: %s\n".formatted(exceededLimit);
+        return "command:\n%s\nenv:\n%s\nexitcode: %d\n%sstdout:\n%s\nstderr:\n%s\n".formatted(
                 command,
                 envString,
                 exitCode,
+                limitString,
                 stdout,
                 stderr
         );
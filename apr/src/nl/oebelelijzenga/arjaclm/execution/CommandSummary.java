@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution;
+
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Lightweight version of a {@link CommandResult} that is retained with fitness results. The environment and output of
+ * the command are dropped, apart from the end of its error output, while the full result is kept in a log file that is
+ * read when needed.
+ */
+public record CommandSummary(
+        String command,
+        boolean success,
+        boolean timedOut,
+        int exitCode,
+        long durationMillis,
+        ResourceLimit exceededLimit,
+        // End of the error output, or of the regular output if there is no error output
+        String diagnostic,
+        // Log file containing the full command result, null if there is none
+        String logFile
+) {
+    private static final int MAX_DIAGNOSTIC_LENGTH = 2000;
+
+    public static CommandSummary of(CommandResult result, Path logFile) {
+        String output = result.stderr().isBlank() ? result.stdout() : result.stderr();
+        String diagnostic = output.length() > MAX_DIAGNOSTIC_LENGTH ? output.substring(output.length() - MAX_DIAGNOSTIC_LENGTH) : output;
+        return new CommandSummary(
+                result.command(),
+                result.success(),
+                result.timedOut(),
+                result.exitCode(),
+                result.durationMillis(),
+                result.exceededLimit(),
+                diagnostic,
+                logFile == null ? null : logFile.toString()
+        );
+    }
+
+    /**
+     * Log files belong to the patch directories of a single run, so summaries that outlive the run do not refer to them.
+     */
+    public CommandSummary withoutLogFile() {
+        return new CommandSummary(command, success, timedOut, exitCode, durationMillis, exceededLimit, diagnostic, null);
+    }
+
+    public String toFileString() {
+        String limitString = exceededLimit == null ? "" : "exceeded limit: %s\n".formatted(exceededLimit);
+        return "command:\n%s\nexitcode: %d\nduration: %d ms\n%sdiagnostic:\n%s\nlog: %s\n".formatted(
+                command,
+                exitCode,
+                durationMillis,
+                limitString,
+                diagnostic,
+                logFile
+        );
+    }
+
+    /**
+     * Reads the full command result from the log file, falling back to the summary if the log file does not exist
+     * (anymore).
+     */
+    public String loadLog() throws AprIOException {
+        if (logFile == null || !Files.exists(Path.of(logFile))) {
+            return toFileString();
+        }
+        return FileUtil.readFile(Path.of(logFile));
+    }
+}
@@ -32,16 +32,39 @@ import java.util.Map;
 
 public class CommandUtils {
 
+    // Output kept in memory per stream. The tail contains the results of the test runner, so it is the larger part.
+    private static final int OUTPUT_HEAD_SIZE = 1_000_000;
+    private static final int OUTPUT_TAIL_SIZE = 4_000_000;
+
     public static CommandResult runCommand(CommandLine command, long timeout, Path workdir, Map<String, String> environment) throws AprException {
+        return runCommand(command, timeout, workdir, environment, new BoundedOutputCapture(OUTPUT_HEAD_SIZE, OUTPUT_TAIL_SIZE), new BoundedOutputCapture(OUTPUT_HEAD_SIZE, OUTPUT_TAIL_SIZE));
+    }
+
+    /**
+     * Runs the command in the given sandbox, see {@link ProcessSandbox}. The head and tail of stdout and stderr are
+     * written to {@code <outputLogPrefix>.stdout.log} and {@code <outputLogPrefix>.stderr.log}.
+     */
+    public static CommandResult runCommand(CommandLine command, long timeout, Path workdir, Map<String, String> environment, ProcessSandbox sandbox, Path outputLogPrefix) throws AprException {
+        BoundedOutputCapture stdout = new BoundedOutputCapture(OUTPUT_HEAD_SIZE, OUTPUT_TAIL_SIZE, Path.of(outputLogPrefix + ".stdout.log"));
+        BoundedOutputCapture stderr;
+        try {
+            stderr = new BoundedOutputCapture(OUTPUT_HEAD_SIZE, OUTPUT_TAIL_SIZE, Path.of(outputLogPrefix + ".stderr.log"));
+        } catch (AprIOException e) {
+            closeOutput(stdout);
+            throw e;
+        }
+
+        CommandResult result = runCommand(sandbox.wrap(command), timeout, workdir, environment, stdout, stderr);
+        return sandbox.classify(result);
+    }
+
+    private static CommandResult runCommand(CommandLine command, long timeout, Path workdir, Map<String, String> environment, BoundedOutputCapture stdoutStream, BoundedOutputCapture stderrStream) throws AprException {
         Executor executor = new DefaultExecutor();
         executor.setWorkingDirectory(new File(workdir.toString()));
 
         ExecuteWatchdog watchdog = new ExecuteWatchdog(timeout * 1000);
         executor.setWatchdog(watchdog);
 
-        // Use limited size output streams to avoid OutOfMemory errors caused by untrusted programs
-        LimitedSizeOutputStream stdoutStream = new LimitedSizeOutputStream();
-        LimitedSizeOutputStream stderrStream = new LimitedSizeOutputStream();
         executor.setStreamHandler(new PumpStreamHandler(stdoutStream, stderrStream));
 
         // The spawned process inherts the environment of the parent Java process here. This is mostly done so that
@@ -49,6 +72,7 @@ public class CommandUtils {
         Map<String, String> executionEnv = new HashMap<>(System.getenv());
         executionEnv.putAll(environment);
 
+        long startTime = System.currentTimeMillis();
         int exitCode;
         try {
             exitCode = executor.execute(command, executionEnv);
@@ -57,6 +81,9 @@ public class CommandUtils {
             exitCode = e.getExitValue();
         } catch (IOException e) {
             throw new AprIOException("Failed to execute command " + command, e);
+        } finally {
+            closeOutput(stdoutStream);
+            closeOutput(stderrStream);
         }
 
         return new CommandResult(
@@ -66,10 +93,19 @@ public class CommandUtils {
                 watchdog.killedProcess(),
                 exitCode,
                 stdoutStream.toString(),
-                stderrStream.toString()
+                stderrStream.toString(),
+                System.currentTimeMillis() - startTime
         );
     }
 
+    private static void closeOutput(BoundedOutputCapture output) throws AprIOException {
+        try {
+            output.close();
+        } catch (IOException e) {
+            throw new AprIOException("Failed to close output log", e);
+        }
+    }
+
     public static CommandResult runCommand(CommandLine command, long timeout, Path workDir) throws AprException {
         return runCommand(command, timeout, workDir, new HashMap<>());
     }
@@ -81,31 +117,4 @@ public class CommandUtils {
     private static Path getProcessWorkdir() {
         return Path.of(System.getProperty("user.dir"));
     }
-
-    private static class LimitedSizeOutputStream extends OutputStream {
-
-        private static final int MAX_SIZE = 10_000_000;
-
-        private final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        private long additionalChars = 0;
-
-        @Override
-        public void write(int i) throws IOException {
-            if (byteArrayOutputStream.size() > MAX_SIZE) {
-                additionalChars++;
-                return;
-            }
-
-            byteArrayOutputStream.write(i);
-        }
-
-        @Override
-        public String toString() {
-            if (additionalChars != 0) {
-                return "%s\n<%s more characters>".formatted(byteArrayOutputStream.toString(), additionalChars);
-            }
-
-            return byteArrayOutputStream.toString();
-        }
-    }
 }
@@ -21,6 +21,7 @@
 
 package nl.oebelelijzenga.arjaclm.execution;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.execution.java8.TestMethodResolver;
 import nl.oebelelijzenga.arjaclm.io.FileUtil;
@@ -35,6 +36,7 @@ import org.apache.commons.exec.CommandLine;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class ExternalJavaExecutor {
 
@@ -42,13 +44,21 @@ public class ExternalJavaExecutor {
     private final Bug bug;
     private final JavaContext context;
     private final IJavaCompiler compiler;
+    private final TestJvmResources testJvmResources;
+    private final PhaseTimers timers;
 
     public ExternalJavaExecutor(AprConfig aprConfig, Bug bug, JavaContext context) {
+        this(aprConfig, bug, context, new TestJvmResources(), new PhaseTimers());
+    }
+
+    public ExternalJavaExecutor(AprConfig aprConfig, Bug bug, JavaContext context, TestJvmResources testJvmResources, PhaseTimers timers) {
         this.aprConfig = aprConfig;
         this.bug = bug;
         this.context = context;
+        this.testJvmResources = testJvmResources;
+        this.timers = timers;
 
-        this.compiler = new ScriptJavaCompiler(aprConfig, bug, context);
+        this.compiler = new ScriptJavaCompiler(aprConfig, bug, context, timers);
     }
 
     public CompilationResult compileSourceFiles(List<Path> filePaths) throws AprException {
@@ -71,7 +81,15 @@ public class ExternalJavaExecutor {
     }
 
     public TestSuiteResult test(TestSuite testSuite) throws AprException {
-        ExternalJavaTestExecutor executor = new ExternalJavaTestExecutor(bug, aprConfig, context, testSuite);
+        return test(TestSchedule.runAll(testSuite.all()));
+    }
+
+    public TestSuiteResult test(TestSchedule schedule) throws AprException {
+        return test(schedule, Map.of());
+    }
+
+    public TestSuiteResult test(TestSchedule schedule, Map<String, String> systemProperties) throws AprException {
+        ExternalJavaTestExecutor executor = new ExternalJavaTestExecutor(bug, aprConfig, context, schedule, systemProperties, testJvmResources, timers);
         return executor.runTests();
     }
 
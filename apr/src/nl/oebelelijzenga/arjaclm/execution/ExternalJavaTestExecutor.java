@@ -21,6 +21,7 @@
 
 package nl.oebelelijzenga.arjaclm.execution;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.execution.java8.JUnitTestRunner;
 import nl.oebelelijzenga.arjaclm.io.FileUtil;
@@ -28,7 +29,6 @@ import nl.oebelelijzenga.arjaclm.io.JSONUtil;
 import nl.oebelelijzenga.arjaclm.model.apr.Bug;
 import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
 import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCaseResult;
-import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestSuite;
 import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestSuiteResult;
 import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
 import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
@@ -43,6 +43,7 @@ public class ExternalJavaTestExecutor {
     private static final Logger logger = LogManager.getLogger(ExternalJavaTestExecutor.class);
 
     public static final int TEST_SUITE_TIMEOUT = 120;
+    public static final String TEST_LOG = "test.log";
     public static final int EXIT_CODE_TEST_CASE_TIMEOUT = 10;
     public static final int EXIT_CODE_CLASS_NOT_FOUND = 11;
     public static final int EXIT_CODE_TEST_WAIT_INTERRUPTED = 12;
@@ -51,23 +52,48 @@ public class ExternalJavaTestExecutor {
     private final Bug bug;
     private final AprConfig input;
     private final JavaContext context;
-    private final List<TestCase> allTests;
+    private final TestSchedule schedule;
+    private final Map<String, String> systemProperties;
+    private final TestJvmResources testJvmResources;
+    private final PhaseTimers timers;
 
-    public ExternalJavaTestExecutor(Bug bug, AprConfig input, JavaContext context, TestSuite testSuite) {
+    public ExternalJavaTestExecutor(Bug bug, AprConfig input, JavaContext context, TestSchedule schedule, Map<String, String> systemProperties, TestJvmResources testJvmResources, PhaseTimers timers) {
         this.bug = bug;
         this.input = input;
         this.context = context;
-        this.allTests = new ArrayList<>(testSuite.all());
+        this.schedule = schedule;
+        this.systemProperties = systemProperties;
+        this.testJvmResources = testJvmResources;
+        this.timers = timers;
     }
 
     public TestSuiteResult runTests() throws AprException {
-        CommandResult commandResult = CommandUtils.runCommand(getTestCommand(allTests), TEST_SUITE_TIMEOUT, context.rootDir(), bug.env());
-        FileUtil.writeFile(context.aprDir().resolve("test.log"), commandResult.toFileString() +"\n\n");
+        ProcessSandbox sandbox = new ProcessSandbox(
+                input.processSandbox(),
+                ProcessSandbox.Limits.forProcess(TEST_SUITE_TIMEOUT, testJvmResources.getMemoryLimitBytes())
+        );
+        long startNanos = System.nanoTime();
+        CommandResult commandResult = CommandUtils.runCommand(getTestCommand(), TEST_SUITE_TIMEOUT, context.rootDir(), bug.env(), sandbox, context.aprDir().resolve("test"));
+        long processNanos = System.nanoTime() - startNanos;
+        timers.recordNanos("test process", processNanos);
+        return getTestSuiteResult(commandResult, processNanos, "test jvm startup");
+    }
+
+    /**
+     * Interprets the output of a test runner. The time of the run that was not spent in test cases is recorded as the
+     * given overhead phase.
+     */
+    public TestSuiteResult getTestSuiteResult(CommandResult commandResult, long runNanos, String overheadPhase) throws AprException {
+        FileUtil.writeFile(context.aprDir().resolve(TEST_LOG), commandResult.toFileString() +"\n\n");
 
         if (commandResult.timedOut()) {
             return new TestSuiteResult(false, new HashMap<>(), commandResult, "Test suite exceeded timeout of %s seconds".formatted(TEST_SUITE_TIMEOUT));
         }
 
+        if (commandResult.exceededLimit() != null) {
+            return new TestSuiteResult(false, new HashMap<>(), commandResult, "Test suite exceeded the %s limit of its sandbox".formatted(commandResult.exceededLimit()));
+        }
+
         if (commandResult.exitCode() == EXIT_CODE_TEST_CASE_TIMEOUT) {
             return new TestSuiteResult(false, new HashMap<>(), commandResult, "A test case timed out");
         }
@@ -80,14 +106,25 @@ public class ExternalJavaTestExecutor {
             return new TestSuiteResult(false, new HashMap<>(), commandResult, "Java 8 test runner returned unexpected stdout, probably used System.exit");
         }
 
+        long parseStartNanos = System.nanoTime();
         String resultJsonString = commandResult.stdout().split(TEST_RESULT_JSON_SEPARATOR, 2)[1];
         JUnitTestRunner.TestResults testResults = JSONUtil.fromJson(resultJsonString, JUnitTestRunner.TestResults.class);
+        testJvmResources.recordTestRun(testResults.peakHeapBytes, testResults.peakRssBytes);
+        recordTestTimes(testResults, runNanos, overheadPhase);
 
-        if (testResults.results.size() != allTests.size()) {
+        List<TestCase> allTests = schedule.tests();
+        if (testResults.stoppedEarly && !schedule.isFailFast()) {
+            throw new AprException("Test runner stopped early while all tests had to be executed");
+        }
+        if (!testResults.stoppedEarly && testResults.results.size() != allTests.size()) {
             throw new AprException("Test suite result does not contain results for %s test cases, but expected %s".formatted(testResults.results.size(), allTests.size()));
         }
 
-        logger.debug("Test script result contains results for %s tests".formatted(testResults.results.size()));
+        if (testResults.stoppedEarly) {
+            logger.debug("Test runner stopped after %s of %s tests as %s tests failed".formatted(testResults.results.size(), allTests.size(), schedule.maxFailures()));
+        } else {
+            logger.debug("Test script result contains results for %s tests".formatted(testResults.results.size()));
+        }
 
         Map<TestCase, TestCaseResult> results = new HashMap<>();
         for (JUnitTestRunner.TestResult testResult : testResults.results) {
@@ -103,24 +140,45 @@ public class ExternalJavaTestExecutor {
             }
         }
 
+        timers.recordSince("test result parsing", parseStartNanos);
+
         return new TestSuiteResult(true, results, commandResult, "Success");
     }
 
-    private CommandLine getTestCommand(List<TestCase> testCases) {
+    /*
+     * The time of the test run that was not spent in test cases is overhead, like starting the JVM and loading the test
+     * classes
+     */
+    private void recordTestTimes(JUnitTestRunner.TestResults testResults, long processNanos, String overheadPhase) {
+        long testNanos = 0;
+        for (JUnitTestRunner.TestResult testResult : testResults.results) {
+            testNanos += (long) (testResult.runtime * 1_000_000_000L);
+        }
+        timers.recordNanos("test execution", testNanos);
+        timers.recordNanos(overheadPhase, processNanos - testNanos);
+    }
+
+    private CommandLine getTestCommand() {
         CommandLine command = CommandLine.parse(input.java8Home().resolve("bin/java").toString());
         command.addArgument("-cp");
         command.addArgument(context.testClassPath().with(input.java8ToolsDir()).toString());
         command.addArgument("-Xms128m");
-        command.addArgument("-Xmx2G");
+        command.addArgument(testJvmResources.getMaxHeapArgument());
+        for (Map.Entry<String, String> property : systemProperties.entrySet()) {
+            command.addArgument("-D%s=%s".formatted(property.getKey(), property.getValue()));
+        }
+        if (schedule.isFailFast()) {
+            command.addArgument("-D%s=%s".formatted(JUnitTestRunner.NR_MANDATORY_TESTS_PROPERTY, schedule.nrMandatoryTests()));
+            command.addArgument("-D%s=%s".formatted(JUnitTestRunner.MAX_FAILURES_PROPERTY, schedule.maxFailures()));
+        }
         command.addArgument(JUnitTestRunner.class.getName());
 
         logger.debug("Executing tests with command %s <%s test cases>".formatted(
                 String.join(" ", command.toStrings()),
-                testCases.size()
+                schedule.tests().size()
         ));
 
-        testCases.sort(Comparator.comparing(TestCase::toString));
-        for (TestCase testCase : testCases) {
+        for (TestCase testCase : schedule.tests()) {
             command.addArgument(testCase.toString());
         }
 
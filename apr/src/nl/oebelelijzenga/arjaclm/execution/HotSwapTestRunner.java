@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution;
+
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.execution.java8.HotSwapTestWorker;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.Bug;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestSuiteResult;
+import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.commons.exec.CommandLine;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tests of patches in warm test JVMs, in which the changed classes of a patch are redefined for the duration
+ * of its test run. This avoids starting a JVM and loading the classes of the project and its tests for every patch.
+ * Each test JVM runs in its own copy of the original program, such that files written by tests do not end up in the
+ * original build, and in the same process sandbox as regular test JVMs. Test JVMs are replaced after a fixed number of
+ * runs or after a run that did not end normally, as tests can leave behind state that affects later runs.
+ */
+public class HotSwapTestRunner implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(HotSwapTestRunner.class);
+
+    public static final String AGENT_JAR = "hotswap-agent.jar";
+    private static final String COMMAND = "(hot swap test jvm %s)";
+    private static final int MAX_RUNS_PER_JVM = 50;
+    private static final int STARTUP_TIMEOUT = 60;  // Seconds
+    // Output of tests is only logged for debugging, as it cannot be attributed to patches
+    private static final int LOG_HEAD_SIZE = 1_000_000;
+    private static final int LOG_TAIL_SIZE = 1_000_000;
+
+    private final AprConfig config;
+    private final Bug bug;
+    private final JavaContext originalContext;
+    private final TestJvmResources testJvmResources;
+    private final PhaseTimers timers;
+
+    private final Deque<WarmTestJvm> idleJvms = new ArrayDeque<>();
+    private final Set<WarmTestJvm> allJvms = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextJvmId = new AtomicInteger(0);
+    private final ExecutorService outputReaders = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "hot-swap-output-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HotSwapTestRunner(AprConfig config, Bug bug, JavaContext originalContext, TestJvmResources testJvmResources, PhaseTimers timers) {
+        this.config = config;
+        this.bug = bug;
+        this.originalContext = originalContext;
+        this.testJvmResources = testJvmResources;
+        this.timers = timers;
+    }
+
+    public static boolean isAvailable(AprConfig config) {
+        return Files.isRegularFile(config.java8ToolsDir().resolve(AGENT_JAR));
+    }
+
+    /**
+     * Runs the tests of a compiled patch with its classes redefined in a warm test JVM. The compiled files are relative
+     * to the root of the context. Returns empty when the patch has to be tested in a new JVM instead, because its
+     * classes cannot be redefined or the warm test JVM failed.
+     */
+    public Optional<TestSuiteResult> test(JavaContext context, List<Path> compiledFilePaths, TestSchedule schedule, Map<String, String> systemProperties) throws AprException {
+        Set<Path> packageDirs = new HashSet<>();
+        for (Path filePath : compiledFilePaths) {
+            Path packageDir = context.relativeSourceDir().relativize(filePath).getParent();
+            packageDirs.add(packageDir == null ? Path.of("") : packageDir);
+        }
+        Optional<List<ClassRedefinition>> redefinitions = ClassRedefinition.find(originalContext.sourceBuildDir(), context.sourceBuildDir(), packageDirs);
+        if (redefinitions.isEmpty()) {
+            logger.debug("Classes of %s cannot be redefined, testing it in a new JVM".formatted(context.rootDir().getFileName()));
+            return Optional.empty();
+        }
+
+        WarmTestJvm jvm;
+        try {
+            jvm = acquire();
+        } catch (AprException e) {
+            logger.warn("Failed to start a warm test JVM, testing %s in a new JVM".formatted(context.rootDir().getFileName()), e);
+            return Optional.empty();
+        }
+
+        long startNanos = System.nanoTime();
+        Optional<WarmTestJvm.Response> response = Optional.empty();
+        boolean timedOut;
+        try {
+            response = jvm.run(redefinitions.get(), systemProperties, schedule);
+        } finally {
+            // Without a response the JVM may still be running tests, e.g. when the evaluation was cancelled
+            timedOut = response.isEmpty() && jvm.process.isAlive();
+            if (response.isEmpty() || response.get().exitCode() != 0 || jvm.nrRuns >= MAX_RUNS_PER_JVM) {
+                destroy(jvm);
+            } else {
+                release(jvm);
+            }
+        }
+        long runNanos = System.nanoTime() - startNanos;
+        timers.recordNanos("hot swap test run", runNanos);
+
+        if (timedOut) {
+            return Optional.of(new TestSuiteResult(false, new HashMap<>(), createCommandResult(jvm, false, true, -1, "", runNanos), "Test suite exceeded timeout of %s seconds".formatted(ExternalJavaTestExecutor.TEST_SUITE_TIMEOUT)));
+        }
+        if (response.isEmpty()) {
+            logger.warn("Warm test JVM %s exited unexpectedly, testing %s in a new JVM".formatted(jvm.id, context.rootDir().getFileName()));
+            return Optional.empty();
+        }
+        if (response.get().exitCode() == HotSwapTestWorker.EXIT_CODE_REDEFINITION_FAILED || response.get().exitCode() == HotSwapTestWorker.EXIT_CODE_NO_INSTRUMENTATION) {
+            logger.warn("Warm test JVM could not redefine the classes of %s, testing it in a new JVM".formatted(context.rootDir().getFileName()));
+            return Optional.empty();
+        }
+
+        CommandResult commandResult = createCommandResult(jvm, response.get().exitCode() == 0, false, response.get().exitCode(), response.get().stdout(), runNanos);
+        ExternalJavaTestExecutor executor = new ExternalJavaTestExecutor(bug, config, context, schedule, systemProperties, testJvmResources, timers);
+        return Optional.of(executor.getTestSuiteResult(commandResult, runNanos, "hot swap overhead"));
+    }
+
+    private CommandResult createCommandResult(WarmTestJvm jvm, boolean success, boolean timedOut, int exitCode, String stdout, long runNanos) {
+        return new CommandResult(COMMAND.formatted(jvm.id), bug.env(), success, timedOut, exitCode, stdout, "", runNanos / 1_000_000, null);
+    }
+
+    private WarmTestJvm acquire() throws AprException {
+        synchronized (idleJvms) {
+            WarmTestJvm jvm = idleJvms.pollFirst();
+            if (jvm != null) {
+                return jvm;
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        WarmTestJvm jvm = new WarmTestJvm(nextJvmId.getAndIncrement());
+        allJvms.add(jvm);
+        timers.recordSince("hot swap jvm startup", startNanos);
+        return jvm;
+    }
+
+    private void release(WarmTestJvm jvm) {
+        synchronized (idleJvms) {
+            idleJvms.addFirst(jvm);
+        }
+    }
+
+    private void destroy(WarmTestJvm jvm) {
+        allJvms.remove(jvm);
+        jvm.destroy();
+    }
+
+    @Override
+    public void close() {
+        for (WarmTestJvm jvm : allJvms) {
+            destroy(jvm);
+        }
+        synchronized (idleJvms) {
+            idleJvms.clear();
+        }
+        outputReaders.shutdownNow();
+    }
+
+    private class WarmTestJvm {
+
+        private record Response(String stdout, int exitCode) {
+        }
+
+        private final int id;
+        private final JavaContext workerContext;
+        private final Process process;
+        private final BufferedWriter input;
+        private final BufferedReader output;
+        private int nrRuns = 0;
+
+        private WarmTestJvm(int id) throws AprException {
+            this.id = id;
+            this.workerContext = originalContext.withRoot(originalContext.rootDir().resolveSibling("hotswap_jvm_%s".formatted(id)));
+            if (Files.exists(workerContext.rootDir())) {
+                FileUtil.deleteDirectory(workerContext.rootDir());
+            }
+            FileUtil.copySourceCodeFolder(originalContext.rootDir(), workerContext.rootDir());
+            if (Files.exists(workerContext.aprDir())) {
+                FileUtil.deleteDirectory(workerContext.aprDir());
+            }
+
+            CommandLine command = new CommandLine(config.java8Home().resolve("bin/java").toString());
+            command.addArgument("-javaagent:" + config.java8ToolsDir().resolve(AGENT_JAR), false);
+            command.addArgument("-cp");
+            command.addArgument(workerContext.testClassPath().with(config.java8ToolsDir()).toString(), false);
+            command.addArgument("-Xms128m");
+            command.addArgument(testJvmResources.getMaxHeapArgument());
+            command.addArgument(HotSwapTestWorker.class.getName());
+
+            // The limits cover the lifetime of the JVM, in which it runs the tests of multiple patches
+            ProcessSandbox sandbox = new ProcessSandbox(
+                    config.processSandbox(),
+                    ProcessSandbox.Limits.forProcess((long) ExternalJavaTestExecutor.TEST_SUITE_TIMEOUT * MAX_RUNS_PER_JVM, testJvmResources.getMemoryLimitBytes())
+            );
+            List<String> arguments = List.of(sandbox.wrap(command).toStrings());
+            ProcessBuilder builder = new ProcessBuilder(arguments).directory(workerContext.rootDir().toFile());
+            builder.environment().putAll(bug.env());
+            logger.debug("Starting warm test JVM with command %s".formatted(String.join(" ", arguments)));
+
+            Path logFile = getLogFile();
+            BoundedOutputCapture log = new BoundedOutputCapture(LOG_HEAD_SIZE, LOG_TAIL_SIZE, logFile);
+            try {
+                process = builder.start();
+            } catch (IOException e) {
+                closeLog(log);
+                FileUtil.deleteDirectory(workerContext.rootDir());
+                throw new AprIOException("Failed to start warm test JVM", e);
+            }
+            outputReaders.submit(() -> {
+                try (InputStream stderr = process.getErrorStream()) {
+                    stderr.transferTo(log);
+                } finally {
+                    closeLog(log);
+                }
+                return null;
+            });
+            input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+            boolean ready = false;
+            try {
+                ready = readOutput(() -> output.readLine(), STARTUP_TIMEOUT).filter(HotSwapTestWorker.READY::equals).isPresent();
+            } finally {
+                if (!ready) {
+                    destroy();
+                }
+            }
+            if (!ready) {
+                throw new AprException("Warm test JVM did not start, see %s".formatted(logFile));
+            }
+        }
+
+        private Path getLogFile() {
+            return originalContext.aprDir().resolve("hotswap_jvm_%s.log".formatted(id));
+        }
+
+        private void closeLog(BoundedOutputCapture log) throws AprIOException {
+            try {
+                log.close();
+            } catch (IOException e) {
+                throw new AprIOException("Failed to close log " + getLogFile(), e);
+            }
+        }
+
+        /*
+         * Kills the JVM and deletes its copy of the original program once it exited
+         */
+        private void destroy() {
+            process.destroyForcibly();
+            try {
+                process.waitFor(STARTUP_TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                FileUtil.deleteDirectory(workerContext.rootDir());
+            } catch (AprIOException e) {
+                logger.warn("Failed to delete directory of warm test JVM %s".formatted(id), e);
+            }
+        }
+
+        /*
+         * Returns empty if the JVM did not respond in time or exited
+         */
+        private Optional<Response> run(List<ClassRedefinition> redefinitions, Map<String, String> systemProperties, TestSchedule schedule) throws AprIOException {
+            nrRuns++;
+            try {
+                for (ClassRedefinition redefinition : redefinitions) {
+                    input.write("redefine\t%s\t%s\n".formatted(redefinition.className(), redefinition.classFile()));
+                }
+                for (Map.Entry<String, String> property : systemProperties.entrySet()) {
+                    input.write("property\t%s\t%s\n".formatted(property.getKey(), property.getValue()));
+                }
+                for (TestCase testCase : schedule.tests()) {
+                    input.write("test\t%s\n".formatted(testCase));
+                }
+                int nrMandatoryTests = schedule.isFailFast() ? schedule.nrMandatoryTests() : schedule.tests().size();
+                int maxFailures = schedule.isFailFast() ? schedule.maxFailures() : Integer.MAX_VALUE;
+                input.write("run\t%s\t%s\n".formatted(nrMandatoryTests, maxFailures));
+                input.flush();
+            } catch (IOException e) {
+                logger.warn("Failed to send tests to warm test JVM %s".formatted(id), e);
+                return Optional.empty();
+            }
+
+            return readOutput(this::readResponse, ExternalJavaTestExecutor.TEST_SUITE_TIMEOUT);
+        }
+
+        private Response readResponse() throws IOException {
+            StringBuilder stdout = new StringBuilder();
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.equals(HotSwapTestWorker.RESULT_END_SEPARATOR)) {
+                    String exitCode = output.readLine();
+                    return exitCode == null ? null : new Response(stdout.toString(), Integer.parseInt(exitCode.strip()));
+                }
+                stdout.append(line).append('\n');
+            }
+            return null;
+        }
+    }
+
+    private interface OutputReader<T> {
+        T read() throws IOException;
+    }
+
+    /*
+     * Reads from the output of a test JVM in the background, as reads cannot time out. Returns empty if the reader
+     * timed out, failed, or reached the end of the output.
+     */
+    private <T> Optional<T> readOutput(OutputReader<T> reader, long timeoutSeconds) throws AprIOException {
+        Future<T> future = outputReaders.submit(reader::read);
+        try {
+            return Optional.ofNullable(future.get(timeoutSeconds, TimeUnit.SECONDS));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AprIOException("Interrupted while waiting for warm test JVM", e);
+        } catch (ExecutionException e) {
+            logger.warn("Failed to read output of warm test JVM", e.getCause());
+            return Optional.empty();
+        }
+    }
+}
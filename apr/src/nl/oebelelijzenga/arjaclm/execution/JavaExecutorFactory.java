@@ -21,6 +21,7 @@
 
 package nl.oebelelijzenga.arjaclm.execution;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.model.apr.Bug;
 import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
 import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
@@ -29,13 +30,17 @@ public class JavaExecutorFactory {
 
     private final AprConfig aprConfig;
     private final Bug bug;
+    private final TestJvmResources testJvmResources;
+    private final PhaseTimers timers;
 
-    public JavaExecutorFactory(AprConfig aprConfig, Bug bug) {
+    public JavaExecutorFactory(AprConfig aprConfig, Bug bug, TestJvmResources testJvmResources, PhaseTimers timers) {
         this.aprConfig = aprConfig;
         this.bug = bug;
+        this.testJvmResources = testJvmResources;
+        this.timers = timers;
     }
 
     public ExternalJavaExecutor create(JavaContext context) {
-        return new ExternalJavaExecutor(aprConfig, bug, context);
+        return new ExternalJavaExecutor(aprConfig, bug, context, testJvmResources, timers);
     }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution;
+
+import nl.oebelelijzenga.arjaclm.model.io.ProcessSandboxMode;
+import org.apache.commons.exec.CommandLine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Wraps external processes such that a runaway patch cannot exhaust the resources of the host. With prlimit, the CPU
+ * time and the size of written files are limited using resource limits of the process. With cgroup, the process runs
+ * in a transient systemd scope which additionally limits the memory, the number of tasks and the CPU share of the whole
+ * process tree. Which limit was hit is derived from the exit code and output of the process.
+ * <p>
+ * The file size limit is RLIMIT_FSIZE, which bounds the size of every single file a process writes, not the total
+ * amount of data it writes. A patch can therefore still fill a disk with many files below the limit.
+ */
+public class ProcessSandbox {
+
+    private static final long MB = 1024 * 1024;
+    private static final int MAX_TASKS = 512;
+    // Per file, see the class documentation
+    private static final long MAX_FILE_SIZE_BYTES = 512 * MB;
+    // Allows tests to use multiple cores, but not the whole host
+    private static final int CPU_QUOTA_PERCENT = 200;
+    // The kernel sends SIGKILL rather than SIGXCPU when the soft limit equals the hard limit, which is
+    // indistinguishable from the OOM killer
+    private static final int CPU_HARD_LIMIT_GRACE_SECONDS = 5;
+
+    private static final int EXIT_CODE_SIGKILL = 128 + 9;
+    private static final int EXIT_CODE_SIGXCPU = 128 + 24;
+    private static final int EXIT_CODE_SIGXFSZ = 128 + 25;
+
+    public record Limits(long cpuSeconds, long memoryBytes, int maxTasks, long maxFileSizeBytes, int cpuQuotaPercent) {
+
+        /**
+         * Limits for a process with the given wall clock timeout, which may use the CPU quota for its whole duration.
+         */
+        public static Limits forProcess(long timeoutSeconds, long memoryBytes) {
+            long cpuSeconds = timeoutSeconds * CPU_QUOTA_PERCENT / 100;
+            return new Limits(cpuSeconds, memoryBytes, MAX_TASKS, MAX_FILE_SIZE_BYTES, CPU_QUOTA_PERCENT);
+        }
+    }
+
+    private static final boolean IS_ROOT = isRoot();
+
+    private final ProcessSandboxMode mode;
+    private final Limits limits;
+
+    public ProcessSandbox(ProcessSandboxMode mode, Limits limits) {
+        this.mode = mode;
+        this.limits = limits;
+    }
+
+    public static ProcessSandbox none() {
+        return new ProcessSandbox(ProcessSandboxMode.NONE, null);
+    }
+
+    public CommandLine wrap(CommandLine command) {
+        CommandLine wrapped = switch (mode) {
+            case NONE -> null;
+            case PRLIMIT -> {
+                CommandLine prlimit = new CommandLine("prlimit");
+                prlimit.addArgument("--cpu=" + getCpuLimit());
+                prlimit.addArgument("--fsize=" + limits.maxFileSizeBytes());
+                yield prlimit;
+            }
+            case CGROUP -> {
+                CommandLine systemdRun = new CommandLine("systemd-run");
+                if (!IS_ROOT) {
+                    systemdRun.addArgument("--user");
+                }
+                systemdRun.addArgument("--scope");
+                systemdRun.addArgument("--quiet");
+                systemdRun.addArgument("--collect");
+                addProperty(systemdRun, "MemoryMax", Long.toString(limits.memoryBytes()));
+                addProperty(systemdRun, "MemorySwapMax", "0");
+                addProperty(systemdRun, "TasksMax", Integer.toString(limits.maxTasks()));
+                addProperty(systemdRun, "CPUQuota", limits.cpuQuotaPercent() + "%");
+                addProperty(systemdRun, "LimitCPU", getCpuLimit());
+                addProperty(systemdRun, "LimitFSIZE", Long.toString(limits.maxFileSizeBytes()));
+                yield systemdRun;
+            }
+        };
+
+        if (wrapped == null) {
+            return command;
+        }
+
+        wrapped.addArgument("--");
+        // Arguments of the original command are already quoted where needed
+        Arrays.stream(command.toStrings()).forEach(argument -> wrapped.addArgument(argument, false));
+        return wrapped;
+    }
+
+    private String getCpuLimit() {
+        return "%s:%s".formatted(limits.cpuSeconds(), limits.cpuSeconds() + CPU_HARD_LIMIT_GRACE_SECONDS);
+    }
+
+    /*
+     * Only root can start scopes in the system instance of systemd, other users need their user instance. Any account
+     * with uid 0 is root, whatever its name.
+     */
+    private static boolean isRoot() {
+        try {
+            return (int) Files.getAttribute(Path.of("/proc/self"), "unix:uid") == 0;
+        } catch (IOException | UnsupportedOperationException e) {
+            return "root".equals(System.getProperty("user.name"));
+        }
+    }
+
+    private static void addProperty(CommandLine command, String name, String value) {
+        command.addArgument("-p");
+        command.addArgument(name + "=" + value);
+    }
+
+    /**
+     * Adds the limit that caused the process to fail to the result, if any.
+     */
+    public CommandResult classify(CommandResult result) {
+        if (mode == ProcessSandboxMode.NONE || result.success() || result.timedOut()) {
+            return result;
+        }
+
+        String output = result.stdout() + result.stderr();
+        if (result.exitCode() == EXIT_CODE_SIGXCPU) {
+            return result.withExceededLimit(ResourceLimit.CPU_TIME);
+        }
+        // The JVM ignores SIGXFSZ, in which case writing fails with an IOException instead
+        if (result.exitCode() == EXIT_CODE_SIGXFSZ || output.contains("File too large")) {
+            return result.withExceededLimit(ResourceLimit.FILE_SIZE);
+        }
+        if (mode == ProcessSandboxMode.CGROUP) {
+            if (output.contains("unable to create native thread") || output.contains("Resource temporarily unavailable")) {
+                return result.withExceededLimit(ResourceLimit.TASKS);
+            }
+            // Processes that exceed the memory limit of their cgroup are killed by the OOM killer
+            if (result.exitCode() == EXIT_CODE_SIGKILL) {
+                return result.withExceededLimit(ResourceLimit.MEMORY);
+            }
+        }
+
+        return result;
+    }
+}
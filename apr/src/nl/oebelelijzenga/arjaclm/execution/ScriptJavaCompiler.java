@@ -21,6 +21,7 @@
 
 package nl.oebelelijzenga.arjaclm.execution;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.io.FileUtil;
 import nl.oebelelijzenga.arjaclm.model.apr.Bug;
@@ -37,16 +38,20 @@ import java.util.Map;
 public class ScriptJavaCompiler implements IJavaCompiler {
 
     public static final String COMPILATION_SCRIPT = "compile.sh";
+    public static final String COMPILATION_LOG = "compile.log";
     public static final long COMPILATION_TIMEOUT = 300;  // Seconds
+    private static final long COMPILATION_MEMORY_LIMIT = 2048L * 1024 * 1024;
 
     private final AprConfig input;
     private final Bug bug;
     private final JavaContext context;
+    private final PhaseTimers timers;
 
-    public ScriptJavaCompiler(AprConfig input, Bug bug, JavaContext context) {
+    public ScriptJavaCompiler(AprConfig input, Bug bug, JavaContext context, PhaseTimers timers) {
         this.input = input;
         this.bug = bug;
         this.context = context;
+        this.timers = timers;
     }
 
     public CompilationResult compile(List<Path> filePaths, Path outDir) throws AprException {
@@ -58,15 +63,18 @@ public class ScriptJavaCompiler implements IJavaCompiler {
             env.put("JAVA_HOME", input.java8Home().toString());
         }
 
-        CommandResult commandResult = CommandUtils.runCommand(
+        CommandResult commandResult = timers.time("compile", () -> CommandUtils.runCommand(
                 CommandLine.parse(getCompilationScriptPath(context).toString()),
                 COMPILATION_TIMEOUT,
                 context.rootDir(),
-                env
-        );
-        FileUtil.writeFile(context.aprDir().resolve("compile.log"), commandResult.toFileString());
+                env,
+                new ProcessSandbox(input.processSandbox(), ProcessSandbox.Limits.forProcess(COMPILATION_TIMEOUT, COMPILATION_MEMORY_LIMIT)),
+                context.aprDir().resolve("compile")
+        ));
+        Path logFile = context.aprDir().resolve(COMPILATION_LOG);
+        FileUtil.writeFile(logFile, commandResult.toFileString());
 
-        return new CompilationResult(commandResult.success(), commandResult);
+        return new CompilationResult(commandResult.success(), CommandSummary.of(commandResult, logFile));
     }
 
     private static Path getCompilationScriptPath(JavaContext context) {
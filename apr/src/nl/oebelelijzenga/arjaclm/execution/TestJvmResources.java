@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution;
+
+import com.sun.management.OperatingSystemMXBean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Memory requirements of the test JVMs of a bug. The maximum heap size of test JVMs is derived from the peak heap
+ * usage observed in the sanity check, and the peak resident memory of all test runs is tracked such that a new test
+ * run is only admitted when the host has enough memory available for it.
+ */
+public class TestJvmResources {
+
+    private static final Logger logger = LogManager.getLogger(TestJvmResources.class);
+
+    private static final long MB = 1024 * 1024;
+    public static final long DEFAULT_MAX_HEAP_BYTES = 2048 * MB;
+    private static final long MIN_MAX_HEAP_BYTES = 128 * MB;
+    // Memory used by a JVM besides its heap, such as metaspace, code cache and thread stacks
+    private static final long JVM_OVERHEAD_BYTES = 256 * MB;
+    // Memory that is kept available for the APR process itself and the rest of the host
+    private static final long MEMORY_RESERVE_BYTES = 1024 * MB;
+    private static final long ADMISSION_POLL_MILLIS = 100;
+
+    private long maxHeapBytes = DEFAULT_MAX_HEAP_BYTES;
+    private long peakHeapBytes = 0;
+    private long peakRssBytes = 0;
+    private int nrRunning = 0;
+
+    public synchronized String getMaxHeapArgument() {
+        return "-Xmx%dm".formatted(maxHeapBytes / MB);
+    }
+
+    public synchronized long getMaxHeapBytes() {
+        return maxHeapBytes;
+    }
+
+    public synchronized void setMaxHeapBytes(long maxHeapBytes) {
+        this.maxHeapBytes = Math.max(MIN_MAX_HEAP_BYTES, Math.min(DEFAULT_MAX_HEAP_BYTES, maxHeapBytes));
+    }
+
+    /**
+     * Memory limit of a test JVM when it is sandboxed, which leaves headroom for memory used besides the heap
+     */
+    public synchronized long getMemoryLimitBytes() {
+        return maxHeapBytes + 2 * JVM_OVERHEAD_BYTES;
+    }
+
+    public synchronized void recordTestRun(long peakHeapBytes, long peakRssBytes) {
+        this.peakHeapBytes = Math.max(this.peakHeapBytes, peakHeapBytes);
+        this.peakRssBytes = Math.max(this.peakRssBytes, peakRssBytes);
+    }
+
+    /**
+     * Sets the maximum heap size to twice the peak heap usage observed so far, which should be the sanity check run of
+     * the original program. Patches that need considerably more memory than the original program fail their tests.
+     */
+    public synchronized void deriveMaxHeapBytes() {
+        if (peakHeapBytes == 0) {
+            return;
+        }
+        setMaxHeapBytes((2 * peakHeapBytes + MB - 1) / MB * MB);
+        logger.info("Using a maximum heap size of %s MB for test JVMs, peak heap usage of the original program was %s MB".formatted(maxHeapBytes / MB, peakHeapBytes / MB));
+    }
+
+    public synchronized long getEstimatedRssBytes() {
+        if (peakRssBytes > 0) {
+            return peakRssBytes;
+        }
+        return maxHeapBytes + JVM_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Blocks until there is enough memory available to start a test JVM. A test JVM is always admitted if no other
+     * test JVM is running, so evaluation keeps making progress under memory pressure.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        boolean waited = false;
+        while (nrRunning > 0 && getAvailableMemoryBytes() < getEstimatedRssBytes() + MEMORY_RESERVE_BYTES) {
+            if (!waited) {
+                logger.debug("Delaying test run due to memory pressure, %s test JVMs are running".formatted(nrRunning));
+                waited = true;
+            }
+            wait(ADMISSION_POLL_MILLIS);
+        }
+        nrRunning++;
+    }
+
+    public synchronized void release() {
+        nrRunning--;
+        notifyAll();
+    }
+
+    /**
+     * Number of patches that can be evaluated in parallel given the cores and memory of the host, assuming test JVMs
+     * use the default maximum heap size.
+     */
+    public static int getDefaultNrJobs() {
+        long totalMemoryBytes = getOperatingSystemBean().getTotalMemorySize();
+        long nrJobsByMemory = (totalMemoryBytes - MEMORY_RESERVE_BYTES) / (DEFAULT_MAX_HEAP_BYTES + JVM_OVERHEAD_BYTES);
+        int nrJobsByCores = Runtime.getRuntime().availableProcessors();
+        return (int) Math.max(1, Math.min(nrJobsByCores, nrJobsByMemory));
+    }
+
+    private static long getAvailableMemoryBytes() {
+        // Free memory does not include the page cache, which can be reclaimed, so prefer MemAvailable on Linux
+        try {
+            List<String> lines = Files.readAllLines(Path.of("/proc/meminfo"));
+            for (String line : lines) {
+                if (line.startsWith("MemAvailable:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.trace("Could not read /proc/meminfo", e);
+        }
+        return getOperatingSystemBean().getFreeMemorySize();
+    }
+
+    private static OperatingSystemMXBean getOperatingSystemBean() {
+        return (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution;
+
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Order in which the test runner executes tests. The first {@code nrMandatoryTests} tests are always executed, after
+ * which the runner stops as soon as {@code maxFailures} of the remaining tests failed.
+ */
+public record TestSchedule(List<TestCase> tests, int nrMandatoryTests, int maxFailures) {
+
+    public static final int NO_MAX_FAILURES = Integer.MAX_VALUE;
+
+    public static TestSchedule runAll(Collection<TestCase> tests) {
+        return new TestSchedule(sorted(tests), tests.size(), NO_MAX_FAILURES);
+    }
+
+    public static List<TestCase> sorted(Collection<TestCase> tests) {
+        return tests.stream().sorted(Comparator.comparing(TestCase::toString)).toList();
+    }
+
+    public boolean isFailFast() {
+        return maxFailures != NO_MAX_FAILURES;
+    }
+}
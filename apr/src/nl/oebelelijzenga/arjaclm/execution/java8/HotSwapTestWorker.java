@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.execution.java8;
+
+import java.io.*;
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Test runner that stays alive to run the tests of many patches. It is loaded as java agent, such that it can redefine
+ * the classes of the original program with the classes of a patch. It then runs the tests with {@link JUnitTestRunner}
+ * and restores the original classes and system properties.
+ * <p>
+ * Commands are read from stdin, one per line with tab separated arguments:
+ * <pre>
+ * redefine [class name] [class file]
+ * property [key] [value]
+ * test [test case]
+ * run [nr mandatory tests] [max failures]
+ * </pre>
+ * On run, the results are written to stdout like those of {@link JUnitTestRunner}, followed by the end separator and
+ * the exit code the test runner would have had. Output of the tests themselves goes to stderr.
+ */
+public class HotSwapTestWorker {
+
+    public static final String READY = "ready";
+    public static final String RESULT_END_SEPARATOR = "============================== APR Test Results End ==============================";
+    public static final int EXIT_CODE_NO_INSTRUMENTATION = 14;
+    public static final int EXIT_CODE_REDEFINITION_FAILED = 15;
+
+    private static Instrumentation instrumentation;
+
+    private final Map<String, byte[]> originalClasses = new HashMap<>();
+
+    public static void premain(String args, Instrumentation inst) {
+        instrumentation = inst;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (instrumentation == null || !instrumentation.isRedefineClassesSupported()) {
+            System.err.println("Test worker must be started as java agent that can redefine classes");
+            System.exit(EXIT_CODE_NO_INSTRUMENTATION);
+            return;
+        }
+
+        PrintStream protocol = System.out;
+        System.setOut(System.err);
+
+        HotSwapTestWorker worker = new HotSwapTestWorker();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        protocol.println(READY);
+        protocol.flush();
+
+        Map<String, String> redefinitions = new LinkedHashMap<>();
+        Map<String, String> properties = new LinkedHashMap<>();
+        List<String> testCases = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] command = line.split("\t", -1);
+            switch (command[0]) {
+                case "redefine":
+                    redefinitions.put(command[1], command[2]);
+                    break;
+                case "property":
+                    properties.put(command[1], command[2]);
+                    break;
+                case "test":
+                    testCases.add(command[1]);
+                    break;
+                case "run":
+                    int exitCode = worker.run(redefinitions, properties, testCases, Integer.parseInt(command[1]), Integer.parseInt(command[2]), protocol);
+                    protocol.println(RESULT_END_SEPARATOR);
+                    protocol.println(exitCode);
+                    protocol.flush();
+                    redefinitions.clear();
+                    properties.clear();
+                    testCases.clear();
+                    break;
+                default:
+                    System.err.println("Unknown command: " + line);
+                    System.exit(13);
+                    return;
+            }
+        }
+
+        // Force exit the program, even if dangling threads produced by tests are still running
+        System.exit(0);
+    }
+
+    private int run(Map<String, String> redefinitions, Map<String, String> properties, List<String> testCases, int nrMandatoryTests, int maxFailures, PrintStream protocol) {
+        try {
+            instrumentation.redefineClasses(getClassDefinitions(redefinitions, false));
+        } catch (Throwable t) {
+            // Thrown before any class is redefined, for example when the patch changes the fields or methods of a class
+            t.printStackTrace();
+            return EXIT_CODE_REDEFINITION_FAILED;
+        }
+
+        Map<String, String> previousProperties = new HashMap<>();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            previousProperties.put(property.getKey(), System.setProperty(property.getKey(), property.getValue()));
+        }
+
+        int exitCode;
+        try {
+            exitCode = runTests(testCases, nrMandatoryTests, maxFailures, protocol);
+        } finally {
+            for (Map.Entry<String, String> property : previousProperties.entrySet()) {
+                if (property.getValue() == null) {
+                    System.clearProperty(property.getKey());
+                } else {
+                    System.setProperty(property.getKey(), property.getValue());
+                }
+            }
+        }
+
+        try {
+            instrumentation.redefineClasses(getClassDefinitions(redefinitions, true));
+        } catch (Throwable t) {
+            t.printStackTrace();
+            return EXIT_CODE_REDEFINITION_FAILED;
+        }
+        return exitCode;
+    }
+
+    private static int runTests(List<String> testCases, int nrMandatoryTests, int maxFailures, PrintStream protocol) {
+        JUnitTestRunner runner = new JUnitTestRunner(testCases, nrMandatoryTests, maxFailures);
+        List<JUnitTestRunner.TestResult> results;
+        try {
+            results = runner.run();
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+            return 11;
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            return 12;
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return 13;
+        }
+
+        protocol.println("============================== APR Test Results ==============================");
+        protocol.println(JUnitTestRunner.resultsToJSON(results, runner.stoppedEarly(), JUnitTestRunner.getPeakHeapBytes(), JUnitTestRunner.getPeakRssBytes()));
+
+        if (!results.isEmpty() && results.get(results.size() - 1).timedout) {
+            return 10;
+        }
+        return 0;
+    }
+
+    private ClassDefinition[] getClassDefinitions(Map<String, String> classFiles, boolean original) throws IOException, ClassNotFoundException {
+        List<ClassDefinition> definitions = new ArrayList<>();
+        for (Map.Entry<String, String> classFile : classFiles.entrySet()) {
+            Class<?> cls = Class.forName(classFile.getKey(), false, ClassLoader.getSystemClassLoader());
+            byte[] bytes = original ? getOriginalClass(classFile.getKey()) : Files.readAllBytes(Paths.get(classFile.getValue()));
+            definitions.add(new ClassDefinition(cls, bytes));
+        }
+        return definitions.toArray(new ClassDefinition[0]);
+    }
+
+    /*
+     * The class path of the worker contains the build of the original program
+     */
+    private byte[] getOriginalClass(String className) throws IOException {
+        byte[] bytes = originalClasses.get(className);
+        if (bytes != null) {
+            return bytes;
+        }
+
+        try (InputStream input = ClassLoader.getSystemResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (input == null) {
+                throw new IOException("Original class file of " + className + " not found");
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int nrRead;
+            while ((nrRead = input.read(buffer)) != -1) {
+                output.write(buffer, 0, nrRead);
+            }
+            bytes = output.toByteArray();
+        }
+        originalClasses.put(className, bytes);
+        return bytes;
+    }
+}
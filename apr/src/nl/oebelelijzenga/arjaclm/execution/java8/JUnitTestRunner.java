@@ -29,8 +29,10 @@ import org.junit.runner.Request;
 import org.junit.runner.Result;
 import org.junit.runner.notification.Failure;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -39,6 +41,10 @@ public class JUnitTestRunner {
     // Due to Math optimizer tests
     public static final int TEST_CASE_TIMEOUT = 20;
 
+    // Optional fail-fast: after the given number of mandatory tests, stop once the given number of other tests failed
+    public static final String NR_MANDATORY_TESTS_PROPERTY = "apr.nrMandatoryTests";
+    public static final String MAX_FAILURES_PROPERTY = "apr.maxFailures";
+
     public static void main(String[] args) {
         List<String> testCases = new ArrayList<>();
         for (String arg : args) {
@@ -49,7 +55,11 @@ public class JUnitTestRunner {
                 testCases.add(arg);
             }
         }
-        JUnitTestRunner runner = new JUnitTestRunner(testCases);
+        JUnitTestRunner runner = new JUnitTestRunner(
+                testCases,
+                Integer.getInteger(NR_MANDATORY_TESTS_PROPERTY, testCases.size()),
+                Integer.getInteger(MAX_FAILURES_PROPERTY, Integer.MAX_VALUE)
+        );
         List<TestResult> results;
         try {
             results = runner.run();
@@ -68,7 +78,7 @@ public class JUnitTestRunner {
         }
 
         System.out.println("============================== APR Test Results ==============================");
-        System.out.println(resultsToJSON(results));
+        System.out.println(resultsToJSON(results, runner.stoppedEarly, getPeakHeapBytes(), getPeakRssBytes()));
 
         if (!results.isEmpty() && results.get(results.size() - 1).timedout) {
             // Signal to calling process that a testcase timed out and the suite needs to be re-run for the remaining cases
@@ -87,9 +97,17 @@ public class JUnitTestRunner {
 
     public static class TestResults {
         public final List<TestResult> results;
+        // Whether remaining tests were skipped because the maximum number of failures was reached
+        public final boolean stoppedEarly;
+        public final long peakHeapBytes;
+        // Resident memory high-water mark of the test JVM, 0 if unknown
+        public final long peakRssBytes;
 
-        public TestResults(List<TestResult> results) {
+        public TestResults(List<TestResult> results, boolean stoppedEarly, long peakHeapBytes, long peakRssBytes) {
             this.results = results;
+            this.stoppedEarly = stoppedEarly;
+            this.peakHeapBytes = peakHeapBytes;
+            this.peakRssBytes = peakRssBytes;
         }
     }
 
@@ -110,10 +128,19 @@ public class JUnitTestRunner {
     }
 
     private final List<String> testCases;
+    private final int nrMandatoryTests;
+    private final int maxFailures;
     private List<TestResult> results;
+    private boolean stoppedEarly = false;
 
     public JUnitTestRunner(List<String> testCases) {
+        this(testCases, testCases.size(), Integer.MAX_VALUE);
+    }
+
+    public JUnitTestRunner(List<String> testCases, int nrMandatoryTests, int maxFailures) {
         this.testCases = testCases;
+        this.nrMandatoryTests = nrMandatoryTests;
+        this.maxFailures = maxFailures;
     }
 
     public List<TestResult> run() throws ClassNotFoundException, InterruptedException, IllegalArgumentException {
@@ -121,6 +148,10 @@ public class JUnitTestRunner {
         return results;
     }
 
+    public boolean stoppedEarly() {
+        return stoppedEarly;
+    }
+
     private boolean useJUnit4() {
         try {
             Class<?> cls = Request.class;
@@ -132,7 +163,9 @@ public class JUnitTestRunner {
 
     private void runTests() throws InterruptedException, ClassNotFoundException {
         results = new ArrayList<>();
-        for (String testCase : testCases) {
+        int nrFailures = 0;
+        for (int i = 0; i < testCases.size(); i++) {
+            String testCase = testCases.get(i);
             if (!testCase.contains("::")) {
                 throw new IllegalArgumentException("Test cases must reference a function, not a class");
             }
@@ -161,6 +194,14 @@ public class JUnitTestRunner {
                 // Just exit on timeout, main will return the appropriate signal
                 return;
             }
+
+            if (i >= nrMandatoryTests && !result.passed) {
+                nrFailures++;
+                if (nrFailures >= maxFailures && i < testCases.size() - 1) {
+                    stoppedEarly = true;
+                    return;
+                }
+            }
         }
     }
 
@@ -260,7 +301,33 @@ public class JUnitTestRunner {
         return stringWriter.toString();
     }
 
-    private static String resultsToJSON(List<TestResult> results) {
+    static long getPeakHeapBytes() {
+        // Pools do not necessarily peak at the same time, so this is an upper bound
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peakHeapBytes;
+    }
+
+    static long getPeakRssBytes() {
+        // Only available on Linux
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+        return 0;
+    }
+
+    static String resultsToJSON(List<TestResult> results, boolean stoppedEarly, long peakHeapBytes, long peakRssBytes) {
         StringBuilder jsonBuilder = new StringBuilder("{\"results\": [");
 
         for (TestResult result : results) {
@@ -288,7 +355,7 @@ public class JUnitTestRunner {
             // Remove trailing comma
             jsonBuilder.deleteCharAt(jsonBuilder.length() - 1);
         }
-        jsonBuilder.append("\t]\n}");
+        jsonBuilder.append(String.format("\t],\n\"stoppedEarly\": %s,\n\"peakHeapBytes\": %d,\n\"peakRssBytes\": %d\n}", stoppedEarly, peakHeapBytes, peakRssBytes));
 
         return jsonBuilder.toString();
     }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.fitness;
+
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.FitnessResult;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Identifies patches that compile to the same classes, such that the test results of one can be reused for the
+ * others. The fingerprint of a patch covers the classes compiled from its edited files, without debug attributes like
+ * line numbers, and leaves out the classes that are identical to those of the original program. Patches that only
+ * differ in edits that javac compiles away, or in edits of files that compile to the original classes, therefore get
+ * the same fingerprint.
+ */
+public class BytecodeEquivalence {
+
+    private static final String REMOVED_CLASS = "removed";
+
+    private final JavaContext originalContext;
+    private final PhaseTimers timers;
+    private final Map<Path, Optional<ClassFile>> originalClasses = new ConcurrentHashMap<>();
+    private final Map<String, FitnessResult.TestSummary> testSummaries = new ConcurrentHashMap<>();
+
+    /*
+     * Parsed class file of which the source file attribute is read up front, which is null when the class was compiled
+     * without debug information. The hash is only computed for classes of the edited source files.
+     */
+    private static final class ClassFile {
+        private final ClassReader reader;
+        private final String sourceFile;
+        private String hash;
+
+        private ClassFile(ClassReader reader) {
+            this.reader = reader;
+            this.sourceFile = getSourceFile(reader);
+        }
+
+        private synchronized String hash() {
+            if (hash == null) {
+                hash = hashWithoutDebugInfo(reader);
+            }
+            return hash;
+        }
+    }
+
+    public BytecodeEquivalence(JavaContext originalContext, PhaseTimers timers) {
+        this.originalContext = originalContext;
+        this.timers = timers;
+    }
+
+    public Optional<FitnessResult.TestSummary> get(String fingerprint) {
+        return Optional.ofNullable(testSummaries.get(fingerprint));
+    }
+
+    public void put(String fingerprint, FitnessResult.TestSummary testSummary) {
+        testSummaries.putIfAbsent(fingerprint, testSummary);
+    }
+
+    /**
+     * Fingerprint of the build of a patch, given the paths of its edited files relative to the root of its context.
+     */
+    public String getFingerprint(JavaContext context, List<Path> editedFilePaths) throws AprIOException {
+        long startNanos = System.nanoTime();
+        Map<Path, String> changedClasses = new TreeMap<>();
+        for (Path editedFilePath : editedFilePaths) {
+            Path relativeFilePath = context.relativeSourceDir().relativize(editedFilePath);
+            Path packageDir = relativeFilePath.getParent() == null ? Path.of("") : relativeFilePath.getParent();
+            String sourceFile = relativeFilePath.getFileName().toString();
+
+            Map<Path, ClassFile> classes = getClassesOfSource(context.sourceBuildDir(), packageDir, sourceFile, BytecodeEquivalence::readClass);
+            Map<Path, ClassFile> original = getClassesOfSource(originalContext.sourceBuildDir(), packageDir, sourceFile, this::readOriginalClass);
+            for (Map.Entry<Path, ClassFile> entry : classes.entrySet()) {
+                ClassFile originalClass = original.get(entry.getKey());
+                if (originalClass == null || !originalClass.hash().equals(entry.getValue().hash())) {
+                    changedClasses.put(entry.getKey(), entry.getValue().hash());
+                }
+            }
+            for (Path originalClass : original.keySet()) {
+                if (!classes.containsKey(originalClass)) {
+                    changedClasses.put(originalClass, REMOVED_CLASS);
+                }
+            }
+        }
+
+        StringBuilder fingerprint = new StringBuilder();
+        changedClasses.forEach((cls, hash) -> fingerprint.append(cls).append('=').append(hash).append(';'));
+        timers.recordSince("bytecode fingerprint", startNanos);
+        return fingerprint.toString();
+    }
+
+    private interface ClassFileReader {
+        Optional<ClassFile> read(Path buildDir, Path classFile) throws AprIOException;
+    }
+
+    /*
+     * Classes of a source file are found through their source file attribute. If any class in the package lacks that
+     * attribute, all classes of the package are used.
+     */
+    private static Map<Path, ClassFile> getClassesOfSource(Path buildDir, Path packageDir, String sourceFile, ClassFileReader reader) throws AprIOException {
+        Path classDir = buildDir.resolve(packageDir.toString());
+        if (!Files.isDirectory(classDir)) {
+            return Map.of();
+        }
+
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.list(classDir)) {
+            classFiles = files.filter(p -> p.getFileName().toString().endsWith(".class")).sorted().toList();
+        } catch (IOException e) {
+            throw new AprIOException("Failed to list classes in " + classDir, e);
+        }
+
+        Map<Path, ClassFile> packageClasses = new HashMap<>();
+        for (Path classFile : classFiles) {
+            Optional<ClassFile> info = reader.read(buildDir, buildDir.relativize(classFile));
+            info.ifPresent(i -> packageClasses.put(buildDir.relativize(classFile), i));
+        }
+
+        if (packageClasses.values().stream().anyMatch(i -> i.sourceFile == null)) {
+            return packageClasses;
+        }
+        Map<Path, ClassFile> result = new HashMap<>();
+        packageClasses.forEach((cls, info) -> {
+            if (info.sourceFile.equals(sourceFile)) {
+                result.put(cls, info);
+            }
+        });
+        return result;
+    }
+
+    private Optional<ClassFile> readOriginalClass(Path buildDir, Path classFile) throws AprIOException {
+        Optional<ClassFile> info = originalClasses.get(classFile);
+        if (info == null) {
+            info = readClass(buildDir, classFile);
+            originalClasses.put(classFile, info);
+        }
+        return info;
+    }
+
+    private static Optional<ClassFile> readClass(Path buildDir, Path classFile) throws AprIOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(buildDir.resolve(classFile.toString()));
+        } catch (IOException e) {
+            throw new AprIOException("Failed to read class file " + classFile, e);
+        }
+
+        ClassReader reader;
+        try {
+            reader = new ClassReader(bytes);
+        } catch (IllegalArgumentException e) {
+            // Not a valid class file, which cannot be loaded either
+            return Optional.empty();
+        }
+        return Optional.of(new ClassFile(reader));
+    }
+
+    /*
+     * Only reads the header and attributes of the class, fields and methods are skipped
+     */
+    private static String getSourceFile(ClassReader reader) {
+        String[] sourceFile = new String[1];
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visitSource(String source, String debug) {
+                sourceFile[0] = source;
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        return sourceFile[0];
+    }
+
+    /*
+     * Rewriting the class without debug attributes also rebuilds the constant pool, which otherwise contains the names
+     * and line numbers of the debug attributes
+     */
+    private static String hashWithoutDebugInfo(ClassReader reader) {
+        ClassWriter writer = new ClassWriter(0);
+        reader.accept(writer, ClassReader.SKIP_DEBUG);
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest(writer.toByteArray()));
+    }
+}
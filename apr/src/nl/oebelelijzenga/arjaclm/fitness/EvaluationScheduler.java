@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.fitness;
+
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.execution.TestJvmResources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+/**
+ * Long-lived scheduler for patch evaluation work, shared by all fitness instances of a run. The number of concurrently
+ * running compiler and test processes is limited by separate permits, and test processes are additionally only started
+ * when there is enough memory available for another test JVM. The scheduler does not own any threads: users run their
+ * tasks on a bounded pool that they shut down themselves.
+ */
+public class EvaluationScheduler {
+
+    public enum ProcessKind {
+        COMPILE,
+        TEST
+    }
+
+    @FunctionalInterface
+    public interface ProcessTask<T> {
+        T run() throws AprException;
+    }
+
+    private final int maxNrProcesses;
+    private final Semaphore compilePermits;
+    private final Semaphore testPermits;
+    private final TestJvmResources testJvmResources = new TestJvmResources();
+    private final PhaseTimers timers;
+
+    public EvaluationScheduler(int maxNrProcesses) {
+        this(maxNrProcesses, new PhaseTimers());
+    }
+
+    public EvaluationScheduler(int maxNrProcesses, PhaseTimers timers) {
+        this.maxNrProcesses = maxNrProcesses;
+        this.compilePermits = new Semaphore(maxNrProcesses, true);
+        this.testPermits = new Semaphore(maxNrProcesses, true);
+        this.timers = timers;
+    }
+
+    /**
+     * Creates a pool for tasks that run processes through this scheduler. Tasks hold at most one permit at a time, so
+     * the pool has enough threads to use all compile and test permits at once. Futures of the pool can be cancelled,
+     * which interrupts the task and destroys the external process it is running, if any.
+     */
+    public ExecutorService createTaskPool() {
+        return createPool(2 * maxNrProcesses);
+    }
+
+    private static ExecutorService createPool(int nrThreads) {
+        return Executors.newFixedThreadPool(nrThreads, runnable -> {
+            Thread thread = new Thread(runnable, "evaluation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the given task once a permit for the kind of process is available. Permits are handed out in order of
+     * request, such that the compile and test stages of different patches can overlap.
+     */
+    public <T> T runProcess(ProcessKind kind, ProcessTask<T> task) throws AprException {
+        Semaphore permits = kind == ProcessKind.COMPILE ? compilePermits : testPermits;
+        long startNanos = System.nanoTime();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AprException("Interrupted while waiting to start a %s process".formatted(kind.name().toLowerCase()), e);
+        }
+
+        try {
+            if (kind == ProcessKind.TEST) {
+                return runTestProcess(task, startNanos);
+            }
+            timers.recordSince("compile wait", startNanos);
+            return task.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private <T> T runTestProcess(ProcessTask<T> task, long startNanos) throws AprException {
+        try {
+            testJvmResources.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AprException("Interrupted while waiting for memory to start a test process", e);
+        }
+
+        timers.recordSince("test wait", startNanos);
+        try {
+            return task.run();
+        } finally {
+            testJvmResources.release();
+        }
+    }
+
+    public TestJvmResources testJvmResources() {
+        return testJvmResources;
+    }
+
+    /**
+     * Runs the given tasks on at most the given number of threads and waits for all of them. Tasks that have not
+     * finished yet are cancelled when one of them fails.
+     */
+    public void runAll(List<? extends Runnable> tasks, int nrThreads) throws AprException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        Queue<Runnable> queue = new ConcurrentLinkedQueue<>(tasks);
+        ExecutorService executor = createPool(Math.min(nrThreads, tasks.size()));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < Math.min(nrThreads, tasks.size()); i++) {
+            futures.add(executor.submit(() -> {
+                Runnable task;
+                while (!Thread.currentThread().isInterrupted() && (task = queue.poll()) != null) {
+                    task.run();
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AprException("Interrupted while waiting for tasks", e);
+        } catch (ExecutionException e) {
+            throw new AprException("A task encountered an exception", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -22,36 +22,67 @@
 package nl.oebelelijzenga.arjaclm.fitness;
 
 import nl.oebelelijzenga.arjaclm.NumberUtil;
-import nl.oebelelijzenga.arjaclm.ThreadUtil;
 import nl.oebelelijzenga.arjaclm.exception.AprCriticalException;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.execution.BatchJavaCompiler;
+import nl.oebelelijzenga.arjaclm.execution.CommandResult;
+import nl.oebelelijzenga.arjaclm.execution.CommandSummary;
 import nl.oebelelijzenga.arjaclm.execution.ExternalJavaExecutor;
+import nl.oebelelijzenga.arjaclm.execution.ExternalJavaTestExecutor;
+import nl.oebelelijzenga.arjaclm.execution.HotSwapTestRunner;
 import nl.oebelelijzenga.arjaclm.execution.JavaExecutorFactory;
+import nl.oebelelijzenga.arjaclm.execution.TestSchedule;
 import nl.oebelelijzenga.arjaclm.genetic.PatchManager;
 import nl.oebelelijzenga.arjaclm.model.apr.Patch;
 import nl.oebelelijzenga.arjaclm.model.apr.fitness.*;
-import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
 import nl.oebelelijzenga.arjaclm.model.java.CompilationResult;
 import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import nl.oebelelijzenga.arjaclm.parser.MutantSchema;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-
-public class Fitness {
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates patches, each in its own task on a bounded pool that is shut down when the fitness is closed. Patches are
+ * first looked up in the fitness cache. The remaining ones are compiled in a mutant schema, by the in-process batch
+ * compiler or by their own compiler process, after which their tests are run in a new or hot swapped test JVM. Compiler
+ * and test processes are limited by separate permits of the shared {@link EvaluationScheduler}, such that one patch can
+ * be compiled while another is tested. A patch whose evaluation fails gets an error result rather than failing the
+ * whole batch, which is neither cached nor reported such that it is evaluated again when it is encountered again.
+ * Patch info files and the fitness cache are written in the background, which is flushed when the fitness is closed.
+ */
+public class Fitness implements AutoCloseable {
 
     private static final Logger logger = LogManager.getLogger(Fitness.class);
     public static final float MAX_LOSS = 999.0f;
+    // Failing more positive tests than this does not make a patch any worse
+    public static final int MAX_COUNTED_POSITIVE_FAILURES = 5;
+    // Each attempt excludes the edits that caused compiler errors in the previous one
+    private static final int MAX_SCHEMA_COMPILATION_ATTEMPTS = 4;
     private final JavaExecutorFactory executorFactory;
     private final IFitnessCache fitnessCache;
     private final PatchManager patchManager;
     private final TestSuite testSuite;
     private final float positiveTestWeight;
     private final float negativeTestWeight;
-    private final int nrJobs;
+    private final EvaluationScheduler scheduler;
+    private final ExecutorService executor;
+    private final Optional<TestImpactAnalysis> testImpactAnalysis;
+    private final Optional<TestPrioritizer> testPrioritizer;
+    private final boolean useMutantSchemata;
+    private final Optional<BatchJavaCompiler> batchCompiler;
+    private final Optional<BytecodeEquivalence> bytecodeEquivalence;
+    private final Optional<HotSwapTestRunner> hotSwapTestRunner;
 
     private final Set<Integer> knownPatchIds = new HashSet<>();
-
+    private final List<Future<?>> pendingReports = new ArrayList<>();
+    private final Set<Future<?>> pendingEvaluations = ConcurrentHashMap.newKeySet();
 
     public Fitness(
             JavaExecutorFactory executorFactory,
@@ -60,7 +91,13 @@ public class Fitness {
             TestSuite testSuite,
             float positiveTestWeight,
             float negativeTestWeight,
-            int nrJobs
+            EvaluationScheduler scheduler,
+            Optional<TestImpactAnalysis> testImpactAnalysis,
+            Optional<TestPrioritizer> testPrioritizer,
+            boolean useMutantSchemata,
+            Optional<BatchJavaCompiler> batchCompiler,
+            Optional<BytecodeEquivalence> bytecodeEquivalence,
+            Optional<HotSwapTestRunner> hotSwapTestRunner
     ) {
         this.executorFactory = executorFactory;
         this.fitnessCache = fitnessCache;
@@ -68,7 +105,17 @@ public class Fitness {
         this.testSuite = testSuite;
         this.positiveTestWeight = positiveTestWeight;
         this.negativeTestWeight = negativeTestWeight;
-        this.nrJobs = nrJobs;
+        this.scheduler = scheduler;
+        this.executor = scheduler.createTaskPool();
+        this.testImpactAnalysis = testImpactAnalysis;
+        this.testPrioritizer = testPrioritizer;
+        this.useMutantSchemata = useMutantSchemata;
+        this.batchCompiler = batchCompiler;
+        this.bytecodeEquivalence = bytecodeEquivalence;
+        this.hotSwapTestRunner = hotSwapTestRunner;
+    }
+
+    private record CompiledSchema(MutantSchema schema, JavaContext context, CompilationResult compilationResult) {
     }
 
     public FitnessResult evaluate(Patch patch) throws AprException {
@@ -91,7 +138,15 @@ public class Fitness {
 
         long startTime = System.currentTimeMillis();
 
-        Map<Patch, FitnessResult> newEvaluationResults = evaluateFitnessInParallel(patchesToEvaluate);
+        if ((batchCompiler.isPresent() || hotSwapTestRunner.isPresent()) && !patchesToEvaluate.isEmpty()) {
+            ensureOriginalBuild();
+        }
+
+        Optional<CompiledSchema> schema = useMutantSchemata ? compileSchema(patchesToEvaluate) : Optional.empty();
+        Map<Patch, CompilationResult> compilationResults = batchCompiler.isPresent() && batchCompiler.get().isUsable()
+                ? compileBatch(patchesToEvaluate.stream().filter(p -> schema.isEmpty() || !schema.get().schema().contains(p)).toList())
+                : Map.of();
+        Map<Patch, FitnessResult> newEvaluationResults = evaluateFitnessInPipeline(patchesToEvaluate, schema, compilationResults);
 
         float runTime = (float) (System.currentTimeMillis() - startTime) / 1000;
         logger.info(
@@ -105,65 +160,370 @@ public class Fitness {
 
         results.putAll(newEvaluationResults);
 
-        // Write patch info files and update and write fitness cache
+        // Update the fitness cache and write patch info files and the fitness cache in the background
+        throwFailedReports();
         for (Patch patch : patches) {
             FitnessResult result = results.get(patch);
-            fitnessCache.put(patch, result);
+            if (result.evaluationError()) {
+                // Errors are not caused by the patch itself, so evaluation is retried when the patch is encountered again
+                continue;
+            }
             if (!knownPatchIds.contains(patch.id())) {
-                patchManager.writePatchInfoFile(result, patch, patchManager.createPatchContext(patch));
+                report(() -> patchManager.writePatchInfoFile(result, patch));
             }
+            fitnessCache.put(patch, result);
             knownPatchIds.add(patch.id());
         }
-        fitnessCache.save();
+        report(fitnessCache::save);
 
         return results;
     }
 
-    private Map<Patch, FitnessResult> evaluateFitnessInParallel(List<Patch> patches) throws AprException {
-        List<FitnessTask> tasks = patches.stream().map(p -> new FitnessTask(this, p, testSuite)).toList();
-        ThreadUtil.runTasksInParallel(tasks, nrJobs);
+    private interface ReportTask {
+        void run() throws AprException;
+    }
 
-        Map<Patch, FitnessResult> result = new HashMap<>();
-        for (FitnessTask task : tasks) {
-            if (task.getException() != null) {
-                throw new AprException("Fitness evaluation task failed for patch %s".formatted(task.patch.id()), task.getException());
+    private void report(ReportTask task) {
+        pendingReports.add(executor.submit(() -> {
+            task.run();
+            return null;
+        }));
+    }
+
+    /*
+     * Rethrows the exception of the first failed report and forgets about finished reports
+     */
+    private void throwFailedReports() throws AprException {
+        Iterator<Future<?>> iterator = pendingReports.iterator();
+        while (iterator.hasNext()) {
+            Future<?> report = iterator.next();
+            if (!report.isDone()) {
+                continue;
+            }
+            iterator.remove();
+            getReportResult(report);
+        }
+    }
+
+    private static void getReportResult(Future<?> report) throws AprException {
+        try {
+            report.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AprException("Interrupted while writing fitness reports", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AprException aprException) {
+                throw aprException;
+            }
+            throw new AprException("Failed to write fitness reports", e.getCause());
+        }
+    }
+
+    /**
+     * Cancels evaluations that are still running, waits for all patch info files and the fitness cache to be written
+     * and shuts down the task pool.
+     */
+    @Override
+    public void close() throws AprException {
+        pendingEvaluations.forEach(f -> f.cancel(true));
+        try {
+            for (Future<?> report : pendingReports) {
+                getReportResult(report);
+            }
+            pendingReports.clear();
+        } finally {
+            executor.shutdownNow();
+            if (batchCompiler.isPresent()) {
+                batchCompiler.get().close();
+            }
+            hotSwapTestRunner.ifPresent(HotSwapTestRunner::close);
+        }
+    }
+
+    /*
+     * Compiles a mutant schema of the patches. When the schema does not compile, the edits that caused the errors are
+     * excluded and the schema is compiled again, up to a limited number of attempts. Patches that are not part of the
+     * resulting schema are compiled separately, which is also where they are found not to compile.
+     */
+    private Optional<CompiledSchema> compileSchema(List<Patch> patches) throws AprException {
+        Set<String> excludedEditKeys = new HashSet<>();
+        for (int attempt = 0; attempt < MAX_SCHEMA_COMPILATION_ATTEMPTS; attempt++) {
+            Optional<MutantSchema> schema = MutantSchema.create(patches, excludedEditKeys, patchManager.javaEditor());
+            if (schema.isEmpty()) {
+                return Optional.empty();
             }
-            if (task.getResult() == null) {
-                throw new AprCriticalException();
+
+            JavaContext context = patchManager.createSchemaContext(schema.get());
+            ExternalJavaExecutor executor = executorFactory.create(context);
+            CompilationResult compilationResult = scheduler.runProcess(
+                    EvaluationScheduler.ProcessKind.COMPILE,
+                    () -> executor.compileSourceFiles(schema.get().filePaths())
+            );
+            if (compilationResult.success()) {
+                logger.info("Compiled mutant schema of %s of %s patches in %s attempt(s)".formatted(schema.get().patches().size(), patches.size(), attempt + 1));
+                return Optional.of(new CompiledSchema(schema.get(), context, compilationResult));
+            }
+
+            Optional<Set<String>> failingEditKeys = schema.get().getEditKeysCausingErrors(compilationResult.commandSummary().loadLog());
+            if (failingEditKeys.isEmpty() || excludedEditKeys.containsAll(failingEditKeys.get())) {
+                logger.info("Mutant schema has compiler errors that cannot be attributed to edits, compiling patches separately");
+                return Optional.empty();
+            }
+            excludedEditKeys.addAll(failingEditKeys.get());
+        }
+
+        logger.info("Mutant schema did not compile in %s attempts, compiling patches separately".formatted(MAX_SCHEMA_COMPILATION_ATTEMPTS));
+        return Optional.empty();
+    }
+
+    /*
+     * Patches are compiled against and hot swapped into the build of the original program, which does not exist yet
+     * when the sanity check was skipped
+     */
+    private void ensureOriginalBuild() throws AprException {
+        JavaContext originalContext = patchManager.originalContext();
+        if (!Files.isDirectory(originalContext.sourceBuildDir())) {
+            ExternalJavaExecutor executor = executorFactory.create(originalContext);
+            scheduler.runProcess(EvaluationScheduler.ProcessKind.COMPILE, executor::compileAllSourceFiles).requireSuccess();
+        }
+    }
+
+    /*
+     * Compiles the patches with the in-process batch compiler. Their contexts are created in parallel first.
+     */
+    private Map<Patch, CompilationResult> compileBatch(List<Patch> patches) throws AprException {
+        if (patches.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Patch, Future<JavaContext>> contexts = new LinkedHashMap<>();
+        for (Patch patch : patches) {
+            contexts.put(patch, executor.submit(() -> patchManager.createPatchContext(patch)));
+        }
+        List<BatchJavaCompiler.Unit> units = new ArrayList<>();
+        for (Map.Entry<Patch, Future<JavaContext>> entry : contexts.entrySet()) {
+            try {
+                units.add(new BatchJavaCompiler.Unit(entry.getValue().get(), entry.getKey().editedFilesPaths()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AprException("Interrupted while creating the context of patch %s".formatted(entry.getKey().id()), e);
+            } catch (ExecutionException e) {
+                throw new AprException("Failed to create the context of patch %s".formatted(entry.getKey().id()), e.getCause());
+            }
+        }
+
+        List<CompilationResult> compilationResults = batchCompiler.orElseThrow().compile(units);
+        Map<Patch, CompilationResult> result = new HashMap<>();
+        for (int i = 0; i < patches.size(); i++) {
+            result.put(patches.get(i), compilationResults.get(i));
+        }
+        return result;
+    }
+
+    private Map<Patch, FitnessResult> evaluateFitnessInPipeline(List<Patch> patches, Optional<CompiledSchema> schema, Map<Patch, CompilationResult> compilationResults) throws AprException {
+        Map<Patch, Future<FitnessResult>> futures = new LinkedHashMap<>();
+        for (Patch patch : patches) {
+            futures.put(patch, executor.submit(() -> evaluateFitnessIsolated(patch, schema.filter(s -> s.schema().contains(patch)), Optional.ofNullable(compilationResults.get(patch)))));
+        }
+        pendingEvaluations.addAll(futures.values());
+
+        Map<Patch, FitnessResult> result = new HashMap<>();
+        try {
+            for (Map.Entry<Patch, Future<FitnessResult>> entry : futures.entrySet()) {
+                FitnessResult fitnessResult;
+                try {
+                    fitnessResult = entry.getValue().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AprException("Interrupted while evaluating patch %s".formatted(entry.getKey().id()), e);
+                } catch (ExecutionException e) {
+                    throw new AprException("Fitness evaluation task failed for patch %s".formatted(entry.getKey().id()), e.getCause());
+                }
+                if (fitnessResult == null) {
+                    throw new AprCriticalException();
+                }
+                result.put(entry.getKey(), fitnessResult);
             }
-            result.put(task.getPatch(), task.getResult());
+        } finally {
+            // Evaluations are only left running when waiting for them failed, in which case their results are not used
+            futures.values().forEach(f -> f.cancel(true));
+            pendingEvaluations.removeAll(futures.values());
         }
 
         return result;
     }
 
-    private FitnessResult evaluateFitness(Patch patch, TestSuite testSuite) throws AprException {
-        Variant variant = patch.variant();
+    private FitnessResult evaluateFitnessIsolated(Patch patch, Optional<CompiledSchema> schema, Optional<CompilationResult> compilationResult) {
+        try {
+            if (schema.isPresent()) {
+                return patchManager.timers().time("patch evaluation", () -> evaluateFitnessInSchema(patch, schema.get()));
+            }
+            return patchManager.timers().time("patch evaluation", () -> evaluateFitness(patch, testSuite, compilationResult));
+        } catch (AprException | RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                logger.debug("Evaluation of patch %s was cancelled".formatted(patch.id()));
+            } else {
+                logger.warn("Evaluation of patch %s failed, assigning it an error result".formatted(patch.id()), e);
+            }
+            return createErrorResult(e);
+        }
+    }
 
+    private FitnessResult evaluateFitness(Patch patch, TestSuite testSuite, Optional<CompilationResult> batchCompilationResult) throws AprException {
         JavaContext context = patchManager.createPatchContext(patch);
         ExternalJavaExecutor executor = executorFactory.create(context);
 
         // Only compile edited files. Don't do anything if files are already compiled
-        CompilationResult compilationResult = executor.compileSourceFiles(patch.editedFilesPaths());
+        CompilationResult compilationResult = batchCompilationResult.isPresent() ? batchCompilationResult.get() : scheduler.runProcess(
+                EvaluationScheduler.ProcessKind.COMPILE,
+                () -> executor.compileSourceFiles(patch.editedFilesPaths())
+        );
         if (!compilationResult.success()) {
             return new FitnessResult(MAX_LOSS, MAX_LOSS, compilationResult, null);
         }
 
-        logger.debug("Executing %s tests for patch %s".formatted(testSuite.all().size(), patch.id()));
+        if (bytecodeEquivalence.isEmpty()) {
+            return testCompiledPatch(patch, testSuite, executor, compilationResult, context, patch.editedFilesPaths(), Map.of());
+        }
+
+        String fingerprint = bytecodeEquivalence.get().getFingerprint(context, patch.editedFilesPaths());
+        Optional<FitnessResult.TestSummary> equivalentTestSummary = bytecodeEquivalence.get().get(fingerprint);
+        if (equivalentTestSummary.isPresent()) {
+            logger.debug("Patch %s compiled to the same classes as an evaluated patch, reusing its test results".formatted(patch.id()));
+            return createFitnessResult(
+                    equivalentTestSummary.get().positiveTestFailureRatio(),
+                    equivalentTestSummary.get().negativeTestFailureRatio(),
+                    patch.variant().enabledEdits().size(),
+                    compilationResult,
+                    equivalentTestSummary.get()
+            );
+        }
 
-        TestSuiteResult testSuiteResult = executor.test(testSuite);
+        FitnessResult result = testCompiledPatch(patch, testSuite, executor, compilationResult, context, patch.editedFilesPaths(), Map.of());
+        if (result.testSummary().success()) {
+            // Failed test executions are not reused, as they can be caused by the environment rather than the classes
+            bytecodeEquivalence.get().put(fingerprint, getReusedTestSummary(result.testSummary(), patch));
+        }
+        return result;
+    }
+
+    /*
+     * Test summary for patches reusing the results of the given patch, which do not refer to its log file
+     */
+    private static FitnessResult.TestSummary getReusedTestSummary(FitnessResult.TestSummary testSummary, Patch patch) {
+        CommandSummary command = testSummary.commandSummary();
+        return new FitnessResult.TestSummary(
+                testSummary.success(),
+                testSummary.failedPositiveTests(),
+                testSummary.positiveTestFailureRatio(),
+                testSummary.failedNegativeTests(),
+                testSummary.negativeTestFailureRatio(),
+                new CommandSummary(
+                        "(reused from equivalent bytecode of patch %s)".formatted(patch.id()),
+                        command.success(),
+                        command.timedOut(),
+                        command.exitCode(),
+                        command.durationMillis(),
+                        command.exceededLimit(),
+                        command.diagnostic(),
+                        null
+                )
+        );
+    }
+
+    /*
+     * Tests a patch on the shared build of a mutant schema, in which its edits are activated by system properties
+     */
+    private FitnessResult evaluateFitnessInSchema(Patch patch, CompiledSchema schema) throws AprException {
+        JavaContext context = patchManager.createSchemaPatchContext(schema.context(), patch);
+        ExternalJavaExecutor executor = executorFactory.create(context);
+        return testCompiledPatch(patch, testSuite, executor, schema.compilationResult(), context, schema.schema().filePaths(), schema.schema().getSystemProperties(patch));
+    }
+
+    /*
+     * The classes of the compiled files that differ from the original build are the ones a hot swap test run redefines
+     */
+    private FitnessResult testCompiledPatch(Patch patch, TestSuite testSuite, ExternalJavaExecutor executor, CompilationResult compilationResult, JavaContext context, List<Path> compiledFilePaths, Map<String, String> systemProperties) throws AprException {
+        TestSuite testsToRun = getTestsToRun(patch, testSuite);
+        logger.debug("Executing %s tests for patch %s".formatted(testsToRun.all().size(), patch.id()));
+
+        TestSuiteResult testSuiteResult;
+        if (testsToRun.all().isEmpty()) {
+            testSuiteResult = new TestSuiteResult(true, new HashMap<>(), CommandResult.empty(), "All test results were reused");
+        } else {
+            TestSchedule schedule = testPrioritizer.isPresent() ? testPrioritizer.get().schedule(testsToRun) : TestSchedule.runAll(testsToRun.all());
+            testSuiteResult = scheduler.runProcess(EvaluationScheduler.ProcessKind.TEST, () -> {
+                if (hotSwapTestRunner.isPresent()) {
+                    Optional<TestSuiteResult> hotSwapResult = hotSwapTestRunner.get().test(context, compiledFilePaths, schedule, systemProperties);
+                    if (hotSwapResult.isPresent()) {
+                        return hotSwapResult.get();
+                    }
+                }
+                return executor.test(schedule, systemProperties);
+            });
+        }
+        Set<TestCase> executedTests = testSuiteResult.results().keySet();
+        if (testsToRun != testSuite) {
+            testSuiteResult = addOriginalResults(testSuiteResult, testSuite);
+        }
 
         if (!testSuiteResult.success()) {
             logger.warn("Test execution failed with message \"%s\", probably just a bad patch".formatted(testSuiteResult.message()));
         }
 
-        FitnessResult result = createFitnessResult(patch, compilationResult, testSuiteResult);
+        FitnessResult result = createFitnessResult(patch, compilationResult, testSuiteResult, context.aprDir().resolve(ExternalJavaTestExecutor.TEST_LOG));
+        if (testPrioritizer.isPresent() && testSuiteResult.success()) {
+            testPrioritizer.get().record(
+                    executedTests.stream().filter(testSuite.positiveTests()::contains).toList(),
+                    result.testSummary().failedPositiveTests()
+            );
+        }
 
-        logger.debug("Score for variant %s (%s) is %s".formatted(variant, context.rootDir().getFileName(), result.getSummary()));
+        logger.debug("Score for variant %s (%s) is %s".formatted(patch.variant(), context.rootDir().getFileName(), result.getSummary()));
 
         return result;
     }
 
+    private TestSuite getTestsToRun(Patch patch, TestSuite testSuite) {
+        if (testImpactAnalysis.isEmpty()) {
+            return testSuite;
+        }
+
+        Set<TestCase> affectedTests = testImpactAnalysis.get().getAffectedTests(testSuite.all(), patch.editedFilesPaths());
+        return new TestSuite(
+                testSuite.positiveTests().stream().filter(affectedTests::contains).collect(Collectors.toSet()),
+                testSuite.negativeTests().stream().filter(affectedTests::contains).collect(Collectors.toSet())
+        );
+    }
+
+    /*
+     * Adds the results of the original program for tests that were not executed. As the original program passed the
+     * sanity check, it passes all positive tests and fails all negative tests.
+     */
+    private static TestSuiteResult addOriginalResults(TestSuiteResult testSuiteResult, TestSuite testSuite) {
+        if (!testSuiteResult.success()) {
+            return testSuiteResult;
+        }
+
+        Map<TestCase, TestCaseResult> results = new HashMap<>(testSuiteResult.results());
+        for (TestCase test : testSuite.positiveTests()) {
+            results.putIfAbsent(test, new TestCaseResult(true, false, 0, List.of()));
+        }
+        for (TestCase test : testSuite.negativeTests()) {
+            results.putIfAbsent(test, new TestCaseResult(false, false, 0, List.of("Result of the original program")));
+        }
+        return new TestSuiteResult(true, results, testSuiteResult.commandResult(), testSuiteResult.message());
+    }
+
+    /*
+     * Result for a patch of which the evaluation failed. It is scored like a patch that does not compile, with the
+     * error as compiler output.
+     */
+    private static FitnessResult createErrorResult(Exception e) {
+        CommandResult commandResult = new CommandResult("(evaluation error)", Map.of(), false, false, -1, "", ExceptionUtils.getStackTrace(e));
+        return new FitnessResult(MAX_LOSS, MAX_LOSS, new CompilationResult(false, CommandSummary.of(commandResult, null)), null, true);
+    }
+
     private Optional<FitnessResult> getCachedFitnessResult(Patch patch) {
         Optional<FitnessResult> optionalNaiveCachedResult = fitnessCache.get(patch);
         if (optionalNaiveCachedResult.isEmpty()) {
@@ -188,42 +548,7 @@ public class Fitness {
         ));
     }
 
-    static class FitnessTask implements Runnable {
-        private final Fitness fitness;
-        private final Patch patch;
-        private final TestSuite testSuite;
-        private FitnessResult result;
-        private Exception exception = null;
-
-        public FitnessTask(Fitness fitness, Patch patch, TestSuite testSuite) {
-            this.fitness = fitness;
-            this.patch = patch;
-            this.testSuite = testSuite;
-        }
-
-        @Override
-        public void run() {
-            try {
-                result = this.fitness.evaluateFitness(patch, testSuite);
-            } catch (AprException e) {
-                exception = e;
-            }
-        }
-
-        public Patch getPatch() {
-            return patch;
-        }
-
-        public FitnessResult getResult() {
-            return result;
-        }
-
-        public Exception getException() {
-            return exception;
-        }
-    }
-
-    private FitnessResult createFitnessResult(Patch patch, CompilationResult compilationResult, TestSuiteResult testSuiteResult) {
+    private FitnessResult createFitnessResult(Patch patch, CompilationResult compilationResult, TestSuiteResult testSuiteResult, Path testLogFile) {
         Set<TestCase> failedPositiveTests = new HashSet<>();
         Set<TestCase> failedNegativeTests = new HashSet<>();
 
@@ -240,7 +565,7 @@ public class Fitness {
             }
         }
 
-        float failedPositiveTestRatio = Math.min(1.0f, (float) failedPositiveTests.size() / 5.0f);
+        float failedPositiveTestRatio = Math.min(1.0f, (float) failedPositiveTests.size() / MAX_COUNTED_POSITIVE_FAILURES);
         float failedNegativeTestRatio = (float) failedNegativeTests.size() / testSuite.negativeTests().size();
 
         return createFitnessResult(
@@ -254,7 +579,7 @@ public class Fitness {
                         failedPositiveTestRatio,
                         failedNegativeTests,
                         failedNegativeTestRatio,
-                        testSuiteResult.commandResult()
+                        CommandSummary.of(testSuiteResult.commandResult(), testLogFile)
                 )
         );
     }
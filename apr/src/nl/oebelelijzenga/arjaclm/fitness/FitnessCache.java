@@ -22,6 +22,7 @@
 package nl.oebelelijzenga.arjaclm.fitness;
 
 import com.google.gson.reflect.TypeToken;
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.exception.AprIOException;
 import nl.oebelelijzenga.arjaclm.io.FileUtil;
 import nl.oebelelijzenga.arjaclm.io.JSONUtil;
@@ -35,29 +36,44 @@ import org.apache.logging.log4j.Logger;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Fitness results of patches, persisted per bug. Evaluation options of the search that trade exactness for speed,
+ * such as reusing test results or stopping at the first failing test, change the results. Results of different
+ * combinations of those options are therefore persisted in different files.
+ */
 public class FitnessCache implements IFitnessCache {
 
     private static final Logger logger = LogManager.getLogger(FitnessCache.class);
     private final AprConfig aprConfig;
     private final Bug bug;
     private final Map<Integer, FitnessResult> cache;
+    private final PhaseTimers timers;
 
-    private FitnessCache(AprConfig aprConfig, Bug bug, HashMap<Integer, FitnessResult> cache) {
+    private FitnessCache(AprConfig aprConfig, Bug bug, HashMap<Integer, FitnessResult> cache, PhaseTimers timers) {
         this.aprConfig = aprConfig;
         this.bug = bug;
         this.cache = cache;
+        this.timers = timers;
     }
 
     public static FitnessCache create(AprConfig aprConfig, Bug bug) throws AprIOException {
+        return create(aprConfig, bug, new PhaseTimers());
+    }
+
+    public static FitnessCache create(AprConfig aprConfig, Bug bug, PhaseTimers timers) throws AprIOException {
         Path cacheFilePath = getCacheFilePath(aprConfig, bug);
         if (!Files.exists(cacheFilePath)) {
-            return new FitnessCache(aprConfig, bug, new HashMap<>());
+            return new FitnessCache(aprConfig, bug, new HashMap<>(), timers);
         }
 
+        long startNanos = System.nanoTime();
+
         HashMap<Integer, FitnessResult> cache = new HashMap<>();
         if (aprConfig.usePersistentFitnessCache())
         {
@@ -66,39 +82,78 @@ public class FitnessCache implements IFitnessCache {
             Type jsonDataType = new TypeToken<HashMap<Integer, FitnessResult>>() {
             }.getType();
             try {
-                cache = JSONUtil.fromJson(cacheFileContent, jsonDataType);
+                Map<Integer, FitnessResult> loadedCache = JSONUtil.fromJson(cacheFileContent, jsonDataType);
+                loadedCache.forEach((key, result) -> {
+                    // Entries written by older versions lack command summaries, so their patches are evaluated again
+                    if (result.compilationResult() != null && result.compilationResult().commandSummary() != null && (result.testSummary() == null || result.testSummary().commandSummary() != null)) {
+                        cache.put(key, result.withoutLogFiles());
+                    }
+                });
             } catch (AprIOException e) {
                 logger.warn("Loading fitness cache file failed, ignoring it.");
             }
 
             logger.info("Loaded %s fitness cache entries".formatted(cache.size()));
         }
+        timers.recordSince("cache load", startNanos);
+
+        return new FitnessCache(aprConfig, bug, cache, timers);
+    }
 
-        return new FitnessCache(aprConfig, bug, cache);
+    public static Path getCacheFilePath(AprConfig aprConfig, Bug bug) {
+        List<String> evaluationMode = getEvaluationMode(aprConfig);
+        if (evaluationMode.isEmpty()) {
+            return aprConfig.fitnessCacheDir().resolve("fitness_cache_%s.json".formatted(bug.simpleName()));
+        }
+        return aprConfig.fitnessCacheDir().resolve("fitness_cache_%s_%s.json".formatted(bug.simpleName(), String.join("_", evaluationMode)));
     }
 
-    private static Path getCacheFilePath(AprConfig aprConfig, Bug bug) {
-        return aprConfig.fitnessCacheDir().resolve("fitness_cache_%s.json".formatted(bug.simpleName()));
+    /*
+     * Options that make fitness results differ from those of running all tests of the patch in a new JVM
+     */
+    private static List<String> getEvaluationMode(AprConfig aprConfig) {
+        List<String> mode = new ArrayList<>();
+        if (aprConfig.reuseUnaffectedTestResults()) {
+            mode.add("reuse-unaffected");
+        }
+        if (aprConfig.prioritizeTests()) {
+            mode.add("fail-fast");
+        }
+        if (aprConfig.useMutantSchemata()) {
+            mode.add("schema");
+        }
+        if (aprConfig.reuseEquivalentBytecodeResults()) {
+            mode.add("reuse-bytecode");
+        }
+        if (aprConfig.hotSwapTests()) {
+            mode.add("hotswap");
+        }
+        return mode;
     }
 
     @Override
-    public Optional<FitnessResult> get(Patch patch) {
+    public synchronized Optional<FitnessResult> get(Patch patch) {
         return Optional.ofNullable(cache.get(patch.variant().enabledEditsHashCode()));
     }
 
     @Override
-    public void put(Patch patch, FitnessResult result) {
+    public synchronized void put(Patch patch, FitnessResult result) {
         cache.put(patch.variant().enabledEditsHashCode(), result);
     }
 
     @Override
-    public void save() throws AprIOException {
+    public synchronized void save() throws AprIOException {
         if (!aprConfig.usePersistentFitnessCache())
         {
             return;
         }
 
-        String cacheFileContent = JSONUtil.toJSON(cache);
+        long startNanos = System.nanoTime();
+        // Log files are left out, as they are in the patch directories of this run
+        Map<Integer, FitnessResult> persistedCache = new HashMap<>();
+        cache.forEach((key, result) -> persistedCache.put(key, result.withoutLogFiles()));
+        String cacheFileContent = JSONUtil.toJSON(persistedCache);
         FileUtil.writeFile(getCacheFilePath(aprConfig, bug), cacheFileContent);
+        timers.recordSince("cache save", startNanos);
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.fitness;
+
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
+import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Static dependency map between test classes and source files, used to determine which tests can observe the edits of
+ * a patch. Files are related by the simple names of the types they declare and the identifiers they contain, so the
+ * map over-approximates dependencies, except for classes that are only used through reflection. All source files of
+ * the project must be included, as a test can observe an edit through any file that references the edited file.
+ */
+public class TestImpactAnalysis {
+
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("\\b[A-Za-z_$][A-Za-z0-9_$]*\\b");
+    private static final Pattern TYPE_DECLARATION_PATTERN = Pattern.compile("\\b(?:class|interface|enum|record)\\s+([A-Za-z_$][A-Za-z0-9_$]*)");
+    private static final Pattern PACKAGE_PATTERN = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+    // Source files that reference a source file, directly or indirectly, including the file itself
+    private final Map<Path, Set<Path>> dependentSourceFiles = new HashMap<>();
+    // Source files that are referenced by a test class, directly or through other test files
+    private final Map<String, Set<Path>> testClassDependencies = new HashMap<>();
+    private final Map<Set<Path>, Set<String>> affectedTestClassesCache = new ConcurrentHashMap<>();
+
+    public TestImpactAnalysis(List<? extends RawJavaFile> sourceFiles, List<? extends RawJavaFile> testFiles) {
+        Map<String, Set<Path>> sourceFilesByTypeName = new HashMap<>();
+        for (RawJavaFile file : sourceFiles) {
+            for (String typeName : getDeclaredTypeNames(file)) {
+                sourceFilesByTypeName.computeIfAbsent(typeName, k -> new HashSet<>()).add(file.relativeFilePath());
+            }
+        }
+
+        // Invert the reference graph of source files, such that the files affected by an edit can be found
+        Map<Path, Set<Path>> referencingSourceFiles = new HashMap<>();
+        for (RawJavaFile file : sourceFiles) {
+            for (Path referencedFile : getReferencedFiles(file, sourceFilesByTypeName)) {
+                referencingSourceFiles.computeIfAbsent(referencedFile, k -> new HashSet<>()).add(file.relativeFilePath());
+            }
+        }
+        for (RawJavaFile file : sourceFiles) {
+            dependentSourceFiles.put(file.relativeFilePath(), getReachableFiles(file.relativeFilePath(), referencingSourceFiles));
+        }
+
+        // Test classes can extend or use other test classes, so include the references of referenced test files
+        Map<String, Set<Path>> testFilesByTypeName = new HashMap<>();
+        Map<Path, String> testClassNames = new HashMap<>();
+        for (RawJavaFile file : testFiles) {
+            for (String typeName : getDeclaredTypeNames(file)) {
+                testFilesByTypeName.computeIfAbsent(typeName, k -> new HashSet<>()).add(file.relativeFilePath());
+            }
+            testClassNames.put(file.relativeFilePath(), getQualifiedClassName(file));
+        }
+        Map<Path, Set<Path>> referencedTestFiles = new HashMap<>();
+        Map<Path, Set<Path>> directSourceDependencies = new HashMap<>();
+        for (RawJavaFile file : testFiles) {
+            referencedTestFiles.put(file.relativeFilePath(), getReferencedFiles(file, testFilesByTypeName));
+            directSourceDependencies.put(file.relativeFilePath(), getReferencedFiles(file, sourceFilesByTypeName));
+        }
+        for (RawJavaFile file : testFiles) {
+            Set<Path> dependencies = new HashSet<>();
+            for (Path testFile : getReachableFiles(file.relativeFilePath(), referencedTestFiles)) {
+                dependencies.addAll(directSourceDependencies.get(testFile));
+            }
+            testClassDependencies.put(testClassNames.get(file.relativeFilePath()), dependencies);
+        }
+    }
+
+    /**
+     * Creates the map from all source files in the source directory of the project, rather than the source files of
+     * the project, which only include the packages needed for repair when the project was loaded partially.
+     */
+    public static TestImpactAnalysis fromSourceTree(JavaProject project) throws AprIOException {
+        JavaContext context = project.context();
+        List<RawJavaFile> sourceFiles = new ArrayList<>();
+        for (Path sourceFilePath : FileUtil.getJavaSourceFilePaths(context.srcDir())) {
+            if (!sourceFilePath.startsWith(context.testDir())) {
+                sourceFiles.add(new RawJavaFile(context.rootDir().relativize(sourceFilePath), FileUtil.readFile(sourceFilePath)));
+            }
+        }
+        return new TestImpactAnalysis(sourceFiles, project.testFiles());
+    }
+
+    /**
+     * Returns the tests that can observe edits of the given source files. Tests of which the test class is unknown
+     * are always considered to be affected.
+     */
+    public Set<TestCase> getAffectedTests(Set<TestCase> tests, List<Path> editedFiles) {
+        Set<String> affectedTestClasses = affectedTestClassesCache.computeIfAbsent(new HashSet<>(editedFiles), this::getAffectedTestClasses);
+
+        Set<TestCase> result = new HashSet<>();
+        for (TestCase test : tests) {
+            String testClass = getTopLevelClassName(test.cls());
+            if (!testClassDependencies.containsKey(testClass) || affectedTestClasses.contains(testClass)) {
+                result.add(test);
+            }
+        }
+        return result;
+    }
+
+    private Set<String> getAffectedTestClasses(Set<Path> editedFiles) {
+        Set<Path> affectedFiles = new HashSet<>();
+        for (Path editedFile : editedFiles) {
+            // Edited files that are not known source files could affect anything
+            affectedFiles.addAll(dependentSourceFiles.getOrDefault(editedFile, Set.of(editedFile)));
+        }
+
+        Set<String> result = new HashSet<>();
+        for (Map.Entry<String, Set<Path>> entry : testClassDependencies.entrySet()) {
+            if (!Collections.disjoint(entry.getValue(), affectedFiles)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> getDeclaredTypeNames(RawJavaFile file) {
+        Set<String> names = new HashSet<>();
+        Matcher matcher = TYPE_DECLARATION_PATTERN.matcher(file.sourceCode());
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        // The file name is also the name of the public type, which matters if the declaration was not recognized
+        String fileName = file.relativeFilePath().getFileName().toString();
+        names.add(fileName.substring(0, fileName.length() - ".java".length()));
+        return names;
+    }
+
+    private static Set<Path> getReferencedFiles(RawJavaFile file, Map<String, Set<Path>> filesByTypeName) {
+        Set<Path> referencedFiles = new HashSet<>();
+        Matcher matcher = IDENTIFIER_PATTERN.matcher(file.sourceCode());
+        while (matcher.find()) {
+            Set<Path> files = filesByTypeName.get(matcher.group());
+            if (files != null) {
+                referencedFiles.addAll(files);
+            }
+        }
+        return referencedFiles;
+    }
+
+    private static Set<Path> getReachableFiles(Path start, Map<Path, Set<Path>> edges) {
+        Set<Path> reachable = new HashSet<>();
+        Deque<Path> queue = new ArrayDeque<>(List.of(start));
+        while (!queue.isEmpty()) {
+            Path file = queue.pop();
+            if (reachable.add(file)) {
+                queue.addAll(edges.getOrDefault(file, Set.of()));
+            }
+        }
+        return reachable;
+    }
+
+    private static String getQualifiedClassName(RawJavaFile file) {
+        String fileName = file.relativeFilePath().getFileName().toString();
+        String className = fileName.substring(0, fileName.length() - ".java".length());
+        Matcher matcher = PACKAGE_PATTERN.matcher(file.sourceCode());
+        return matcher.find() ? matcher.group(1) + "." + className : className;
+    }
+
+    private static String getTopLevelClassName(String className) {
+        int nestedIndex = className.indexOf('$');
+        return nestedIndex == -1 ? className : className.substring(0, nestedIndex);
+    }
+}
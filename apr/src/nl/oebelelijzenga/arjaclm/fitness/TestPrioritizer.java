@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.fitness;
+
+import nl.oebelelijzenga.arjaclm.execution.TestSchedule;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestSuite;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of how often each positive test failed for the patches evaluated so far, and orders the tests of a patch
+ * such that the tests most likely to fail run first. Negative tests always run completely, since the fitness depends on
+ * all of them, while positive tests only count up to {@link Fitness#MAX_COUNTED_POSITIVE_FAILURES} failures. The test
+ * runner can therefore stop once that many positive tests failed.
+ */
+public class TestPrioritizer {
+
+    private final Map<TestCase, KillStatistics> statistics = new ConcurrentHashMap<>();
+
+    private static class KillStatistics {
+        private int nrRuns = 0;
+        private int nrKills = 0;
+
+        private synchronized void record(boolean killed) {
+            nrRuns++;
+            if (killed) {
+                nrKills++;
+            }
+        }
+
+        /*
+         * Laplace smoothed, such that tests without history rank between tests that often and rarely fail
+         */
+        private synchronized double killRate() {
+            return (nrKills + 1.0) / (nrRuns + 2.0);
+        }
+    }
+
+    /**
+     * Records the outcome of the positive tests that were executed for a patch.
+     */
+    public void record(Collection<TestCase> executedPositiveTests, Set<TestCase> failedPositiveTests) {
+        for (TestCase test : executedPositiveTests) {
+            statistics.computeIfAbsent(test, t -> new KillStatistics()).record(failedPositiveTests.contains(test));
+        }
+    }
+
+    public double getKillRate(TestCase test) {
+        KillStatistics testStatistics = statistics.get(test);
+        return testStatistics == null ? new KillStatistics().killRate() : testStatistics.killRate();
+    }
+
+    public TestSchedule schedule(TestSuite testSuite) {
+        List<TestCase> tests = new ArrayList<>(TestSchedule.sorted(testSuite.negativeTests()));
+
+        // Snapshot the kill rates, as they can be updated by concurrent evaluations while sorting
+        Map<TestCase, Double> killRates = new HashMap<>();
+        for (TestCase test : testSuite.positiveTests()) {
+            killRates.put(test, getKillRate(test));
+        }
+        List<TestCase> positiveTests = new ArrayList<>(TestSchedule.sorted(testSuite.positiveTests()));
+        positiveTests.sort(Comparator.comparing((TestCase test) -> killRates.get(test)).reversed());
+        tests.addAll(positiveTests);
+
+        return new TestSchedule(tests, testSuite.negativeTests().size(), Fitness.MAX_COUNTED_POSITIVE_FAILURES);
+    }
+}
@@ -21,7 +21,10 @@
 
 package nl.oebelelijzenga.arjaclm.genetic;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+
 import java.util.List;
+import java.util.Map;
 
 public record GenerationStatistics(
         int generationNr,
@@ -33,6 +36,7 @@ public record GenerationStatistics(
         int nrTestAdequateVariants,
         int nrUniqueTestAdequateVariants,
         List<Float> bestFitness,
-        long durationMillis
+        long durationMillis,
+        Map<String, PhaseTimers.Summary> phaseTimings
 ) {
 }
@@ -21,8 +21,10 @@
 
 package nl.oebelelijzenga.arjaclm.genetic;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.fitness.EvaluationScheduler;
 import nl.oebelelijzenga.arjaclm.fitness.Fitness;
 import nl.oebelelijzenga.arjaclm.io.FileUtil;
 import nl.oebelelijzenga.arjaclm.model.apr.Patch;
@@ -32,29 +34,57 @@ import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
 import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
 import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
 import nl.oebelelijzenga.arjaclm.parser.JavaEditor;
+import nl.oebelelijzenga.arjaclm.parser.MutantSchema;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Creates patches for variants and materializes their source trees. Work on different patches is guarded by striped
+ * locks rather than a single lock, such that patches can be rendered and copied while others are being evaluated.
+ */
 public class PatchManager {
 
+    private static final Logger logger = LogManager.getLogger(PatchManager.class);
+    private static final int NR_LOCK_STRIPES = 64;
+
     private final Path patchFolder;
     private final Path summariesFolder;
     private final Path resultsFolder;
     private final JavaContext sourceContext;
     private final JavaContext originalContext;
 
-    private final Map<Integer, Patch> variantPatchCache = new HashMap<>();
-    private final Map<Integer, JavaContext> existingContexts = new HashMap<>();
+    private final int nrJobs;
+
+    private final Map<Integer, Patch> variantPatchCache = new ConcurrentHashMap<>();
+    private final Map<Integer, JavaContext> existingContexts = new ConcurrentHashMap<>();
+    private final Map<Integer, JavaContext> schemaPatchContexts = new ConcurrentHashMap<>();
+    private final AtomicInteger nextPatchId = new AtomicInteger(0);
+    private final AtomicInteger nextSchemaId = new AtomicInteger(0);
+    private final Object[] lockStripes = new Object[NR_LOCK_STRIPES];
+    private final JavaEditor javaEditor = new JavaEditor();
+    private final EvaluationScheduler scheduler;
+    private final PhaseTimers timers = new PhaseTimers();
 
     public PatchManager(AprConfig input, JavaContext inputContext) throws AprException {
         this.patchFolder = input.runOutDir().resolve("patches");
         this.summariesFolder = input.runOutDir().resolve("summaries");
         this.resultsFolder = input.runOutDir().resolve("results");
         this.sourceContext = inputContext;
+        this.nrJobs = input.nrJobs();
+        this.scheduler = new EvaluationScheduler(nrJobs, timers);
+        for (int i = 0; i < NR_LOCK_STRIPES; i++) {
+            lockStripes[i] = new Object();
+        }
 
         originalContext = sourceContext.withRoot(patchFolder.resolve("original"));
         createPatchContextFolder(sourceContext, originalContext, true);
@@ -62,31 +92,88 @@ public class PatchManager {
     }
 
 
-    public synchronized Patch createPatch(Variant variant) throws AprException {
+    private Object getLockStripe(int key) {
+        return lockStripes[Math.floorMod(key, NR_LOCK_STRIPES)];
+    }
+
+    public Patch createPatch(Variant variant) throws AprException {
         Patch patch;
 
         int hashCode = variant.enabledEditsHashCode();
-        if (variantPatchCache.containsKey(hashCode)) {
+        synchronized (getLockStripe(hashCode)) {
             patch = variantPatchCache.get(hashCode);
-        } else {
-            patch = new Patch(variantPatchCache.size(), variant, JavaEditor.getEditedSourceFiles(variant.enabledEdits()));
-            variantPatchCache.put(hashCode, patch);
+            if (patch == null) {
+                List<RawJavaFile> editedFiles = javaEditor.getCachedEditedSourceFiles(variant.enabledEdits());
+                patch = new Patch(nextPatchId.getAndIncrement(), variant, editedFiles);
+                variantPatchCache.put(hashCode, patch);
+            }
         }
 
         variant.setPatchId(patch.id());
         return patch;
     }
 
-    public synchronized JavaContext createPatchContext(Patch patch) throws AprException {
-        if (existingContexts.containsKey(patch.id())) {
-            return existingContexts.get(patch.id());
+    /**
+     * Creates the patches of multiple variants. The edited files of new patches are rendered in parallel first, after
+     * which the patches are created in the order of the variants, such that patch ids do not depend on thread scheduling.
+     */
+    public List<Patch> createPatches(List<Variant> variants) throws AprException {
+        Map<Integer, Variant> newVariants = new LinkedHashMap<>();
+        for (Variant variant : variants) {
+            int hashCode = variant.enabledEditsHashCode();
+            if (!variantPatchCache.containsKey(hashCode)) {
+                newVariants.putIfAbsent(hashCode, variant);
+            }
         }
 
-        return createPatchContext(patch, this.patchFolder, true);
+        List<Runnable> renderTasks = newVariants.values().stream().map(variant -> (Runnable) () -> {
+            try {
+                timers.time("render", () -> javaEditor.getCachedEditedSourceFiles(variant.enabledEdits()));
+            } catch (AprException e) {
+                // Rendering is repeated when creating the patch below, which reports the failure
+                logger.debug("Failed to render variant %s".formatted(variant), e);
+            }
+        }).toList();
+        scheduler.runAll(renderTasks, nrJobs);
+
+        List<Patch> patches = new ArrayList<>();
+        for (Variant variant : variants) {
+            patches.add(createPatch(variant));
+        }
+        return patches;
     }
 
-    public synchronized JavaContext createResultContext(Patch patch) throws AprException {
-        return createPatchContext(patch, this.resultsFolder, false);
+    public JavaEditor javaEditor() {
+        return javaEditor;
+    }
+
+    public EvaluationScheduler scheduler() {
+        return scheduler;
+    }
+
+    public PhaseTimers timers() {
+        return timers;
+    }
+
+    public JavaContext originalContext() {
+        return originalContext;
+    }
+
+    public JavaContext createPatchContext(Patch patch) throws AprException {
+        synchronized (getLockStripe(patch.id())) {
+            JavaContext context = existingContexts.get(patch.id());
+            if (context != null) {
+                return context;
+            }
+
+            return createPatchContext(patch, this.patchFolder, true);
+        }
+    }
+
+    public JavaContext createResultContext(Patch patch) throws AprException {
+        synchronized (getLockStripe(patch.id())) {
+            return createPatchContext(patch, this.resultsFolder, false);
+        }
     }
 
     private JavaContext createPatchContext(Patch patch, Path patchFolder, boolean copySourceFiles) throws AprException {
@@ -94,6 +181,7 @@ public class PatchManager {
             throw new AprException("Cannot create new original patch context as it is already created");
         }
 
+        long startNanos = System.nanoTime();
         Path patchRoot = patchFolder.resolve("patch_" + patch.id());
         JavaContext context = originalContext.withRoot(patchRoot);
         createPatchContextFolder(originalContext, context, copySourceFiles);
@@ -105,7 +193,38 @@ public class PatchManager {
         }
 
         existingContexts.put(patch.id(), context);
+        timers.recordSince("context copy", startNanos);
+
+        return context;
+    }
+
+    /**
+     * Materializes the source tree of a mutant schema next to the patch directories.
+     */
+    public JavaContext createSchemaContext(MutantSchema schema) throws AprException {
+        long startNanos = System.nanoTime();
+        JavaContext context = originalContext.withRoot(patchFolder.resolve("schema_" + nextSchemaId.getAndIncrement()));
+        createPatchContextFolder(originalContext, context, true);
+
+        for (RawJavaFile file : schema.files()) {
+            Path filePath = context.rootDir().resolve(file.relativeFilePath());
+            FileUtil.mkdir(filePath.getParent());
+            FileUtil.writeFile(filePath, file.sourceCode());
+        }
+        timers.recordSince("context copy", startNanos);
+
+        return context;
+    }
 
+    /**
+     * Context for testing a patch on the build of a mutant schema. The build is shared, but every patch gets its own
+     * apr directory for the logs of its test run.
+     */
+    public JavaContext createSchemaPatchContext(JavaContext schemaContext, Patch patch) throws AprIOException {
+        Path aprDir = schemaContext.aprDir().resolve("patch_" + patch.id());
+        FileUtil.mkdir(aprDir);
+        JavaContext context = schemaContext.withAprDir(aprDir);
+        schemaPatchContexts.put(patch.id(), context);
         return context;
     }
 
@@ -122,6 +241,15 @@ public class PatchManager {
         FileUtil.mkdir(to.aprDir());
     }
 
+    /**
+     * Writes the patch info to the context the patch was evaluated in. Patches tested on the build of a mutant schema
+     * never get their own copy of the source tree, so none is created for their report either.
+     */
+    public void writePatchInfoFile(FitnessResult result, Patch patch) throws AprException {
+        JavaContext schemaPatchContext = schemaPatchContexts.get(patch.id());
+        writePatchInfoFile(result, patch, schemaPatchContext != null ? schemaPatchContext : createPatchContext(patch));
+    }
+
     public void writePatchInfoFile(FitnessResult result, Patch patch, JavaContext patchContext) throws AprException {
         String patchInfoContent = generatePatchInfoContent(patch, result);
 
@@ -161,6 +289,26 @@ public class PatchManager {
         FileUtil.writeFile(summariesFolder.resolve(summaryFileName), patchInfoContent);
     }
 
+    private String generatePatchDiff(Patch patch) throws AprException {
+        JavaContext schemaPatchContext = schemaPatchContexts.get(patch.id());
+        if (schemaPatchContext == null) {
+            return patch.generateDiff(createPatchContext(patch), sourceContext);
+        }
+
+        // Only the edited files are written, next to the test logs of the patch
+        Path editedFilesRoot = schemaPatchContext.aprDir().resolve("edited_files");
+        for (RawJavaFile editedFile : patch.editedFiles()) {
+            Path editedFilePath = editedFilesRoot.resolve(editedFile.relativeFilePath());
+            FileUtil.mkdir(editedFilePath.getParent());
+            FileUtil.writeFile(editedFilePath, editedFile.sourceCode());
+        }
+        try {
+            return patch.generateDiff(editedFilesRoot, sourceContext);
+        } finally {
+            FileUtil.deleteDirectory(editedFilesRoot);
+        }
+    }
+
     private String generatePatchInfoContent(Patch patch, FitnessResult fitnessResult) throws AprException {
         String separator = "========";
         StringBuilder stringBuilder = new StringBuilder();
@@ -172,7 +320,7 @@ public class PatchManager {
         stringBuilder.append(patch.variant().toFileString()).append("\n");
 
         stringBuilder.append(separator).append(" diff ").append(separator).append("\n");
-        stringBuilder.append(patch.generateDiff(createPatchContext(patch), sourceContext)).append("\n");
+        stringBuilder.append(generatePatchDiff(patch)).append("\n");
 
         stringBuilder.append(separator).append(" variant trace ").append(separator).append("\n");
         for (Pair<Variant, Class<?>> version : patch.variant().getHistory()) {
@@ -182,13 +330,13 @@ public class PatchManager {
         stringBuilder.append("\n");
 
         stringBuilder.append(separator).append("compile log").append(separator).append("\n");
-        stringBuilder.append(fitnessResult.compilationResult().commandResult().toFileString()).append("\n");
+        stringBuilder.append(fitnessResult.compilationResult().commandSummary().loadLog()).append("\n");
 
         stringBuilder.append(separator).append("test log").append(separator).append("\n");
         if (fitnessResult.testSummary() == null) {
             stringBuilder.append("(no test results)\n");
         } else {
-            String testLogString = fitnessResult.testSummary().commandResult().toFileString();
+            String testLogString = fitnessResult.testSummary().commandSummary().loadLog();
             // Cap test log to 1MB
             int logSizeLimit = 1_000_000;
             if (testLogString.length() > logSizeLimit) {
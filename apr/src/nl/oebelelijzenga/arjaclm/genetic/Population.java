@@ -22,6 +22,7 @@
 package nl.oebelelijzenga.arjaclm.genetic;
 
 import nl.oebelelijzenga.arjaclm.NumberUtil;
+import nl.oebelelijzenga.arjaclm.apr.IAprRunListener;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.fitness.Fitness;
 import nl.oebelelijzenga.arjaclm.genetic.crossover.CrossoverFactory;
@@ -35,7 +36,6 @@ import nl.oebelelijzenga.arjaclm.model.apr.genetic.GeneticConfig;
 import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
 import nl.oebelelijzenga.arjaclm.model.apr.ingredient.Ingredient;
 import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
-import nl.oebelelijzenga.arjaclm.parser.ingredient.ModificationScreener;
 import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
@@ -59,19 +59,21 @@ public class Population {
     private Map<Variant, FitnessResult> evaluation = new HashMap<>();
     private boolean foundSolution = false;
     private final Set<Integer> allPatchIds = new HashSet<>();
+    private final IAprRunListener listener;
 
-    private Population(AprConfig aprConfig, Fitness fitness, PatchManager patchManager, List<Variant> initialPopulation, float mutationProbability) {
+    private Population(AprConfig aprConfig, Fitness fitness, PatchManager patchManager, List<Variant> initialPopulation, float mutationProbability, IAprRunListener listener) {
         this.geneticConfig = aprConfig.geneticConfig();
         this.fitness = fitness;
         this.patchManager = patchManager;
         this.variants = initialPopulation;
         this.size = initialPopulation.size();
         this.earlyExit = aprConfig.geneticConfig().earlyExit();
-        this.mutationFactory = new MutationFactory(aprConfig, mutationProbability);
+        this.mutationFactory = new MutationFactory(aprConfig, mutationProbability, patchManager.javaEditor(), patchManager.timers());
         this.crossoverFactory = new CrossoverFactory();
+        this.listener = listener;
     }
 
-    public static Population create(AprConfig aprConfig, Fitness fitness, PatchManager patchManager, List<ModificationPoint> modificationPoints) throws AprException {
+    public static Population create(AprConfig aprConfig, Fitness fitness, PatchManager patchManager, List<ModificationPoint> modificationPoints, IAprRunListener listener) throws AprException {
         List<Variant> variants = new ArrayList<>();
         float mutationProbability = NumberUtil.round(aprConfig.geneticConfig().mutationProbabilityMultiplier() / modificationPoints.size(), 3);
         logger.info("Mutation probability is %s".formatted(mutationProbability));
@@ -92,17 +94,20 @@ public class Population {
             }
             variants.add(Variant.create(edits));
         }
-        return new Population(aprConfig, fitness, patchManager, variants, mutationProbability);
+        return new Population(aprConfig, fitness, patchManager, variants, mutationProbability, listener);
     }
 
     public PopulationResult evolve() throws AprException {
         long startTime = System.currentTimeMillis();
+        // Timings of the first generation should not include the sanity check
+        patchManager.timers().takeIntervalSummaries();
 
         logger.info("Evaluating initial population...");
         evaluateVariants();
 
         List<GenerationStatistics> generationStatistics = new ArrayList<>();
         generationStatistics.add(createGenerationStatistics(variants, System.currentTimeMillis() - startTime));
+        listener.onGenerationFinished(generationStatistics.get(0));
 
         int nrGenerations = geneticConfig.nrGenerations();
         while (generation < nrGenerations) {
@@ -115,6 +120,7 @@ public class Population {
 
             GenerationStatistics statistics = runGeneration();
             generationStatistics.add(statistics);
+            listener.onGenerationFinished(statistics);
 
             // Exit if a test-adequate variants is found
             Variant fittestVariant = getFittestVariant();
@@ -194,7 +200,8 @@ public class Population {
                 (int) variants.stream().filter(v -> evaluation.get(v).isTestAdequate()).count(),
                 (int) uniqueVariants.stream().filter(v -> evaluation.get(v).isTestAdequate()).count(),
                 evaluation.get(getFittestVariant()).asScoresList(),
-                duration
+                duration,
+                patchManager.timers().takeIntervalSummaries()
         );
     }
 
@@ -219,8 +226,9 @@ public class Population {
 
     private void evaluateVariants() throws AprException {
         Map<Variant, Patch> variantPatches = new HashMap<>();
-        for (Variant variant : variants) {
-            variantPatches.put(variant, patchManager.createPatch(variant));
+        List<Patch> patches = patchManager.createPatches(variants);
+        for (int i = 0; i < variants.size(); i++) {
+            variantPatches.put(variants.get(i), patches.get(i));
         }
 
         Map<Patch, FitnessResult> results = fitness.evaluate(new ArrayList<>(new HashSet<>(variantPatches.values())));
@@ -258,18 +266,12 @@ public class Population {
                     continue;
                 }
 
-                if (ModificationScreener.screen(modificationPoint.statement(), ingredient, manipulation)) {
+                if (modificationPoint.validIngredients().isValid(manipulation, ingredient)) {
                     continue;
                 }
 
                 // Edit is not valid. See if any other ingredient suffices and replace it if so.
-                List<Ingredient> validIngredients = modificationPoint.redundancyIngredients().stream().filter(
-                        x -> ModificationScreener.screen(
-                                modificationPoint.statement(),
-                                x,
-                                manipulation
-                        )
-                ).toList();
+                List<Ingredient> validIngredients = modificationPoint.validIngredients().get(manipulation);
 
                 if (validIngredients.isEmpty()) {
                     // No valid alternative so we disable this edit
@@ -285,7 +287,7 @@ public class Population {
     }
 
     private TournamentSelection createSelection() {
-        return new TournamentSelection(variants, evaluation);
+        return new TournamentSelection(variants, evaluation, patchManager.timers());
     }
 
     private Variant getFittestVariant() {
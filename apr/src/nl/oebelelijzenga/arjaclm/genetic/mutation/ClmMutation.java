@@ -21,6 +21,7 @@
 
 package nl.oebelelijzenga.arjaclm.genetic.mutation;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.api.ClmApiClient;
 import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictRequestDTO;
 import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictResponseDTO;
@@ -49,10 +50,14 @@ public class ClmMutation implements IMutation {
     private final ClmConfig clmConfig;
     private static final Map<String, List<List<Statement>>> maskReplacementCache = new HashMap<>();
     private final float mutationProbability;
+    private final JavaEditor javaEditor;
+    private final PhaseTimers timers;
 
-    public ClmMutation(ClmConfig clmConfig, float mutationProbability) {
+    public ClmMutation(ClmConfig clmConfig, float mutationProbability, JavaEditor javaEditor, PhaseTimers timers) {
         this.clmConfig = clmConfig;
         this.mutationProbability = mutationProbability * 1.5f;
+        this.javaEditor = javaEditor;
+        this.timers = timers;
     }
 
     @Override
@@ -100,7 +105,7 @@ public class ClmMutation implements IMutation {
         }
         editsWithMask = IMutation.replaceEdit(editsWithMask, targetEdit, maskEdit);
 
-        String maskedCodeWithPlaceholder = JavaEditor.getEditedSourceFiles(editsWithMask).get(0).sourceCode();
+        String maskedCodeWithPlaceholder = javaEditor.getCachedEditedSourceFiles(editsWithMask).get(0).sourceCode();
         if (!maskedCodeWithPlaceholder.contains(maskPlaceholderStatement)) {
             logger.warn("Failed to generate code with mask token, skipping mask prediction");
             return Optional.empty();
@@ -131,7 +136,7 @@ public class ClmMutation implements IMutation {
         }
 
         // Generate mask replacement
-        ClmApiClient clmApiClient = new ClmApiClient(clmConfig.apiHost(), clmConfig.apiPort());
+        ClmApiClient clmApiClient = new ClmApiClient(clmConfig.apiHost(), clmConfig.apiPort(), timers);
         MaskPredictResponseDTO responseDto = clmApiClient.maskPredict(
                 new MaskPredictRequestDTO(
                         prompt,
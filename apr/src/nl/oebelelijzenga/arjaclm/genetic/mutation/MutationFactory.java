@@ -21,22 +21,28 @@
 
 package nl.oebelelijzenga.arjaclm.genetic.mutation;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.genetic.PseudoRandom;
 import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import nl.oebelelijzenga.arjaclm.parser.JavaEditor;
 
 public class MutationFactory {
 
     private final AprConfig aprConfig;
     private final float mutationProbability;
+    private final JavaEditor javaEditor;
+    private final PhaseTimers timers;
 
-    public MutationFactory(AprConfig aprConfig, float mutationProbability) {
+    public MutationFactory(AprConfig aprConfig, float mutationProbability, JavaEditor javaEditor, PhaseTimers timers) {
         this.aprConfig = aprConfig;
         this.mutationProbability = mutationProbability;
+        this.javaEditor = javaEditor;
+        this.timers = timers;
     }
 
     public IMutation createRandomMutation() {
         if (aprConfig.clmConfig().clmEnabled() && PseudoRandom.bool(aprConfig.clmConfig().mutationProbability())) {
-            return new ClmMutation(aprConfig.clmConfig(), mutationProbability);
+            return new ClmMutation(aprConfig.clmConfig(), mutationProbability, javaEditor, timers);
         }
 
         return new ARJAMutation(mutationProbability);
@@ -21,6 +21,7 @@
 
 package nl.oebelelijzenga.arjaclm.genetic.selection;
 
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
 import nl.oebelelijzenga.arjaclm.genetic.PseudoRandom;
 import nl.oebelelijzenga.arjaclm.model.apr.fitness.FitnessResult;
 import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
@@ -40,6 +41,15 @@ public class TournamentSelection {
     private final Map<Variant, Set<Variant>> dominationMatrix;
 
     public TournamentSelection(List<Variant> variants, Map<Variant, FitnessResult> evaluations) {
+        this(variants, evaluations, new PhaseTimers());
+    }
+
+    /**
+     * Computing the pareto fronts and crowding distances is quadratic in the number of variants, so its duration is
+     * recorded as the selection phase.
+     */
+    public TournamentSelection(List<Variant> variants, Map<Variant, FitnessResult> evaluations, PhaseTimers timers) {
+        long startNanos = System.nanoTime();
         this.variants = variants;
         this.evaluations = evaluations;
 
@@ -66,6 +76,7 @@ public class TournamentSelection {
                 this.variantCrowdingDistances.put(variant, getCrowdingDistance(variant, sortedFrontByObjective, variantScoreLists));
             }
         }
+        timers.recordSince("selection", startNanos);
     }
 
     private static Map<Variant, Set<Variant>> reduplicateDominationMatrix(Map<Variant, Set<Variant>> uniqueDominationMatrix, List<Variant> duplicateVariants) {
@@ -22,11 +22,14 @@
 package nl.oebelelijzenga.arjaclm.io;
 
 import nl.oebelelijzenga.arjaclm.apr.AprProblem;
+import nl.oebelelijzenga.arjaclm.apr.WarmBugState;
+import nl.oebelelijzenga.arjaclm.apr.WarmBugStateCache;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.execution.ExternalJavaExecutor;
 import nl.oebelelijzenga.arjaclm.genetic.PatchManager;
 import nl.oebelelijzenga.arjaclm.genetic.PseudoRandom;
 import nl.oebelelijzenga.arjaclm.model.apr.Bug;
+import nl.oebelelijzenga.arjaclm.model.apr.BugLocation;
 import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
 import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestSuite;
 import nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening.QualifiedName;
@@ -37,9 +40,11 @@ import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -49,9 +54,15 @@ public class AprProblemLoader {
 
 
     private final AprPreferences preferences;
+    private final Optional<WarmBugStateCache> warmBugStateCache;
 
     public AprProblemLoader(AprPreferences preferences) {
+        this(preferences, Optional.empty());
+    }
+
+    public AprProblemLoader(AprPreferences preferences, Optional<WarmBugStateCache> warmBugStateCache) {
         this.preferences = preferences;
+        this.warmBugStateCache = warmBugStateCache;
     }
 
     public AprProblem load() throws AprException {
@@ -64,16 +75,68 @@ public class AprProblemLoader {
 
         PatchManager patchManager = new PatchManager(config, context);
 
+        String variant = getBugStateVariant(config);
+        String sourceFingerprint = WarmBugStateCache.getSourceFingerprint(context);
+        Optional<WarmBugState> cachedState = warmBugStateCache.flatMap(c -> c.get(context, variant, sourceFingerprint));
+
+        WarmBugState state;
+        if (cachedState.isPresent()) {
+            logger.info("Reusing previously loaded project, build and test suite of bug %s".formatted(bug.name()));
+            state = cachedState.get();
+        } else {
+            state = loadBugState(config, context, bug, sourceFingerprint);
+            if (warmBugStateCache.isPresent()) {
+                warmBugStateCache.get().put(context, variant, state);
+            }
+        }
+
+        TestSuite sampledTestSuite = createSampledTestSuite(config, state.fullTestSuite());
+
+        return new AprProblem(config, patchManager, state.project(), bug, state.fullTestSuite(), sampledTestSuite, state);
+    }
+
+    private WarmBugState loadBugState(AprConfig config, JavaContext context, Bug bug, String sourceFingerprint) throws AprException {
         // Source files must be compiled at least once, as JavaProjectLoader cannot resolve AST symbols otherwise
+        long startTime = System.currentTimeMillis();
         ExternalJavaExecutor executor = new ExternalJavaExecutor(config, bug, context);
         executor.compileAllSourceFiles().requireSuccess();
         executor.compileAllTestFiles().requireSuccess();
+        logPhaseDuration("Compiling the original sources and tests", startTime);
+
+        startTime = System.currentTimeMillis();
+        JavaProjectLoader projectLoader = new JavaProjectLoader(context, config.nrParserThreads());
+        JavaProject project;
+        if (config.lazyProjectLoading()) {
+            project = projectLoader.loadPartialJavaProject(getSuspiciousFiles(config, bug));
+        } else {
+            project = projectLoader.loadJavaProject();
+        }
+        logPhaseDuration("Parsing %s source files using %s thread(s)".formatted(project.sourceFiles().size(), config.nrParserThreads()), startTime);
 
-        JavaProject project = new JavaProjectLoader(context).loadJavaProject();
+        startTime = System.currentTimeMillis();
         TestSuite fullTestSuite = createFullTestSuite(config, project, bug);
-        TestSuite sampledTestSuite = createSampledTestSuite(config, fullTestSuite);
+        logPhaseDuration("Resolving the test suite", startTime);
+
+        return new WarmBugState(sourceFingerprint, project, fullTestSuite);
+    }
+
+    private static String getBugStateVariant(AprConfig config) {
+        if (config.lazyProjectLoading()) {
+            // A partially loaded project depends on the suspiciousness threshold, so it cannot be reused for other thresholds
+            return "partial_" + config.modificationPointSuspiciousnessThreshold();
+        }
+        return "full";
+    }
+
+    private static Set<Path> getSuspiciousFiles(AprConfig config, Bug bug) {
+        return bug.suspiciousLocations().stream()
+                .filter(l -> l.susScore() >= config.modificationPointSuspiciousnessThreshold())
+                .map(BugLocation::file)
+                .collect(Collectors.toSet());
+    }
 
-        return new AprProblem(config, patchManager, project, bug, fullTestSuite, sampledTestSuite);
+    private static void logPhaseDuration(String phase, long startTime) {
+        logger.info("%s took %.1f seconds".formatted(phase, (float) (System.currentTimeMillis() - startTime) / 1000));
     }
 
     private TestSuite createFullTestSuite(AprConfig config, JavaProject project, Bug bug) throws AprException {
@@ -22,6 +22,7 @@
 package nl.oebelelijzenga.arjaclm.io;
 
 import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.execution.TestJvmResources;
 import nl.oebelelijzenga.arjaclm.genetic.PseudoRandom;
 import nl.oebelelijzenga.arjaclm.model.apr.*;
 import nl.oebelelijzenga.arjaclm.model.apr.genetic.GeneticConfig;
@@ -110,7 +111,7 @@ public class InputLoader {
                 runDir.getParent(),
                 preferences.fitnessCacheDir(),
                 preferences.usePersistentFitnessCache(),
-                preferences.nrJobs(),
+                preferences.nrJobs() > 0 ? preferences.nrJobs() : TestJvmResources.getDefaultNrJobs(),
                 preferences.positiveTestWeight(),
                 1 - preferences.positiveTestWeight(),
                 preferences.modificationPointSuspiciousnessThreshold(),
@@ -118,7 +119,18 @@ public class InputLoader {
                 preferences.positiveTestRatio(),
                 preferences.mu(),
                 preferences.seed(),
-                preferences.deleteIntermediatePatchDirs()
+                preferences.deleteIntermediatePatchDirs(),
+                preferences.nrParserThreads(),
+                preferences.lazyProjectLoading(),
+                preferences.nrScreeningThreads() > 0 ? preferences.nrScreeningThreads() : Runtime.getRuntime().availableProcessors(),
+                preferences.usePersistentModificationPointIndex(),
+                preferences.processSandbox(),
+                preferences.reuseUnaffectedTestResults(),
+                preferences.prioritizeTests(),
+                preferences.useMutantSchemata(),
+                preferences.batchCompilation(),
+                preferences.reuseEquivalentBytecodeResults(),
+                preferences.hotSwapTests()
         );
     }
 
@@ -28,22 +28,75 @@ import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
 import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
 import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
 import nl.oebelelijzenga.arjaclm.parser.JavaParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class JavaProjectLoader {
+
+    private static final Logger logger = LogManager.getLogger(JavaProjectLoader.class);
+    private static final Pattern IMPORT_PATTERN = Pattern.compile("^\\s*import\\s+(static\\s+)?([\\w.]+?)(\\.\\*)?\\s*;", Pattern.MULTILINE);
+
     private final JavaContext context;
     private final JavaParser parser;
+    private final int nrParserThreads;
 
     public JavaProjectLoader(JavaContext context) {
+        this(context, 1);
+    }
+
+    public JavaProjectLoader(JavaContext context, int nrParserThreads) {
         this.context = context;
         this.parser = new JavaParser(context);
+        this.nrParserThreads = nrParserThreads;
     }
 
     public JavaProject loadJavaProject() throws AprException {
-        List<ParsedJavaFile> sourceFiles = parser.parseSourceFiles(getSourceFilePaths());
+        return loadJavaProject(getSourceFilePaths());
+    }
+
+    /**
+     * Loads a project which only contains the source files of the packages of the given files, and the source files
+     * those packages import. Ingredients are only taken from the package of a modification point, so loading the
+     * packages of all suspicious files suffices for repair. Symbols declared in packages that were not loaded cannot
+     * be resolved, which only causes ingredients referencing them to be rejected.
+     */
+    public JavaProject loadPartialJavaProject(Collection<Path> requiredFiles) throws AprException {
+        List<Path> allSourceFilePaths = getSourceFilePaths();
+        Set<Path> requiredPackageDirs = new HashSet<>();
+        for (Path requiredFile : requiredFiles) {
+            requiredPackageDirs.add(FileUtil.pathToCanonical(requiredFile).getParent());
+        }
+
+        // The shallowest packages determine the top-level package of the project, which decides which referenced
+        // symbols are checked by the ingredient screeners
+        int minPackageDepth = allSourceFilePaths.stream().mapToInt(Path::getNameCount).min().orElse(0);
+        allSourceFilePaths.stream().filter(p -> p.getNameCount() == minPackageDepth).forEach(p -> requiredPackageDirs.add(p.getParent()));
+
+        Set<Path> importedFiles = new HashSet<>();
+        for (Path sourceFilePath : allSourceFilePaths) {
+            if (requiredPackageDirs.contains(sourceFilePath.getParent())) {
+                importedFiles.addAll(getImportedSourceFilePaths(sourceFilePath));
+            }
+        }
+
+        List<Path> sourceFilePaths = allSourceFilePaths.stream()
+                .filter(p -> requiredPackageDirs.contains(p.getParent()) || importedFiles.contains(p))
+                .toList();
+        logger.info("Loading %s of %s source files required for %s packages".formatted(sourceFilePaths.size(), allSourceFilePaths.size(), requiredPackageDirs.size()));
+
+        return loadJavaProject(sourceFilePaths);
+    }
+
+    private JavaProject loadJavaProject(List<Path> sourceFilePaths) throws AprException {
+        List<ParsedJavaFile> sourceFiles = parser.parseSourceFiles(sourceFilePaths, nrParserThreads);
 
         List<RawJavaFile> testFiles = new ArrayList<>();
         for (Path testFilePath : getTestFilePaths()) {
@@ -62,6 +115,44 @@ public class JavaProjectLoader {
         );
     }
 
+    /*
+     * Returns the source files of the project imported by the given file. Wildcard imports include the whole package.
+     */
+    private Set<Path> getImportedSourceFilePaths(Path sourceFilePath) throws AprIOException {
+        Set<Path> result = new HashSet<>();
+        Matcher matcher = IMPORT_PATTERN.matcher(FileUtil.readFile(sourceFilePath));
+        while (matcher.find()) {
+            String[] elements = matcher.group(2).split("\\.");
+            Path importedDir = context.srcDir().resolve(String.join("/", elements));
+            if (matcher.group(3) != null && Files.isDirectory(importedDir)) {
+                result.addAll(getJavaFilesInDir(importedDir));
+                continue;
+            }
+
+            // Imports of nested classes and static members contain more elements than the file path
+            for (int i = elements.length; i > 0; i--) {
+                Path importedFile = context.srcDir().resolve(String.join("/", Arrays.copyOfRange(elements, 0, i)) + ".java");
+                if (Files.isRegularFile(importedFile)) {
+                    result.add(FileUtil.pathToCanonical(importedFile));
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Path> getJavaFilesInDir(Path dir) throws AprIOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            List<Path> result = new ArrayList<>();
+            for (Path path : paths.filter(p -> p.toString().endsWith(".java")).toList()) {
+                result.add(FileUtil.pathToCanonical(path));
+            }
+            return result;
+        } catch (IOException e) {
+            throw new AprIOException("Failed to list files in " + dir, e);
+        }
+    }
+
     private List<Path> getSourceFilePaths() throws AprIOException {
         List<Path> sourceFilePaths = FileUtil.getJavaSourceFilePaths(context.srcDir());
         // Filter out test files
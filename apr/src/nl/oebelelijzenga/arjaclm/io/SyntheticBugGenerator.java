@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.io;
+
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.execution.ScriptJavaCompiler;
+import nl.oebelelijzenga.arjaclm.model.apr.BugDTO;
+import nl.oebelelijzenga.arjaclm.model.apr.BuggyLineDTO;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Generates buggy Java 8 projects in the format of tests/SimpleExample, of which the size and test runtime can be
+ * configured. Every source file contains a class with a chain of integer operations. One operation of the first class
+ * subtracts a constant that should be added, which is repairable by an identical statement earlier in that class.
+ * The first class is only tested by the negative test, the other classes by the positive tests.
+ */
+public class SyntheticBugGenerator {
+
+    public static final String PACKAGE = "synthetic";
+    private static final int MAX_STATEMENTS_PER_METHOD = 50;
+    private static final int BUG_CONSTANT = 7;
+    private static final float BUG_SUS_SCORE = 1.0f;
+    private static final float OTHER_SUS_SCORE = 0.5f;
+
+    public record Spec(int nrFiles, int nrStatementsPerFile, int nrTests, int testRuntimeMillis) {
+    }
+
+    private enum OperationKind {ADD, SUBTRACT, MULTIPLY, XOR, BOUND}
+
+    private record Operation(OperationKind kind, int constant) {
+        private int apply(int value) {
+            return switch (kind) {
+                case ADD -> value + constant;
+                case SUBTRACT -> value - constant;
+                case MULTIPLY -> value * constant;
+                case XOR -> value ^ constant;
+                case BOUND -> value > constant ? value % 997 : value;
+            };
+        }
+
+        private List<String> render() {
+            return switch (kind) {
+                case ADD -> List.of("result = result + %s;".formatted(constant));
+                case SUBTRACT -> List.of("result = result - %s;".formatted(constant));
+                case MULTIPLY -> List.of("result = result * %s;".formatted(constant));
+                case XOR -> List.of("result = result ^ %s;".formatted(constant));
+                case BOUND -> List.of("if (result > %s) {".formatted(constant), "    result = result % 997;", "}");
+            };
+        }
+    }
+
+    private final Spec spec;
+    private final Path libDir;
+
+    public SyntheticBugGenerator(Spec spec, Path libDir) throws AprIOException {
+        if (spec.nrFiles() < 2 || spec.nrStatementsPerFile() < 2 || spec.nrTests() < 1) {
+            throw new AprIOException("Synthetic bugs require at least 2 files, 2 statements per file and 1 test", null);
+        }
+        this.spec = spec;
+        this.libDir = libDir;
+    }
+
+    /**
+     * Writes the bug to a directory named {@code [name]_buggy} in the given directory and returns its path.
+     */
+    public Path generate(Path parentDir, String name, long seed) throws AprIOException {
+        Path bugDir = parentDir.resolve(name + "_buggy");
+        if (Files.exists(bugDir)) {
+            FileUtil.deleteDirectory(bugDir);
+        }
+        Path packageDir = bugDir.resolve("src").resolve(PACKAGE);
+        Path testPackageDir = bugDir.resolve("src/tests");
+        FileUtil.mkdir(packageDir);
+        FileUtil.mkdir(testPackageDir);
+
+        Random random = new Random(seed);
+        List<List<Operation>> modules = new ArrayList<>();
+        for (int i = 0; i < spec.nrFiles(); i++) {
+            modules.add(createOperations(random));
+        }
+
+        // The first module adds the bug constant at its first statement, and should add it again halfway
+        int bugIndex = spec.nrStatementsPerFile() / 2;
+        List<Operation> fixedOperations = modules.get(0);
+        fixedOperations.set(0, new Operation(OperationKind.ADD, BUG_CONSTANT));
+        fixedOperations.set(bugIndex, new Operation(OperationKind.ADD, BUG_CONSTANT));
+        List<Operation> buggyOperations = new ArrayList<>(fixedOperations);
+        buggyOperations.set(bugIndex, new Operation(OperationKind.SUBTRACT, BUG_CONSTANT));
+
+        List<BuggyLineDTO> buggyLines = new ArrayList<>();
+        for (int i = 0; i < spec.nrFiles(); i++) {
+            List<Integer> operationLines = new ArrayList<>();
+            String source = renderModule(i, i == 0 ? buggyOperations : modules.get(i), operationLines);
+            FileUtil.writeFile(packageDir.resolve(getModuleName(i) + ".java"), source);
+
+            if (i == 0) {
+                for (int j = 0; j < operationLines.size(); j++) {
+                    buggyLines.add(new BuggyLineDTO(
+                            "src/%s/%s.java".formatted(PACKAGE, getModuleName(i)),
+                            operationLines.get(j),
+                            j == bugIndex ? BUG_SUS_SCORE : OTHER_SUS_SCORE
+                    ));
+                }
+            }
+        }
+        // Most suspicious lines first, as produced by fault localization
+        buggyLines.sort(Comparator.comparing(BuggyLineDTO::susScore).reversed());
+
+        FileUtil.writeFile(testPackageDir.resolve("Module0Test.java"), renderNegativeTest(fixedOperations, buggyOperations));
+        Set<String> positiveTestClasses = new TreeSet<>();
+        for (int i = 1; i < spec.nrFiles(); i++) {
+            int nrModuleTests = spec.nrTests() / (spec.nrFiles() - 1) + (i - 1 < spec.nrTests() % (spec.nrFiles() - 1) ? 1 : 0);
+            if (nrModuleTests == 0) {
+                continue;
+            }
+            FileUtil.writeFile(testPackageDir.resolve(getModuleName(i) + "Test.java"), renderPositiveTest(i, modules.get(i), nrModuleTests));
+            positiveTestClasses.add("tests.%sTest".formatted(getModuleName(i)));
+        }
+
+        BugDTO bugDto = new BugDTO(
+                "src",
+                "src/tests",
+                null,
+                null,
+                null,
+                new HashMap<>(),
+                positiveTestClasses,
+                Set.of("tests.Module0Test"),
+                new HashSet<>(),
+                List.of(),
+                List.of(libDir.resolve("junit-4.12.jar").toString(), libDir.resolve("hamcrest-core-1.3.jar").toString()),
+                buggyLines
+        );
+        FileUtil.writeFile(bugDir.resolve(InputLoader.BUG_FILE), JSONUtil.toJSON(bugDto));
+        writeCompilationScript(bugDir, bugDto.testClassPath());
+
+        return bugDir;
+    }
+
+    /*
+     * Sources and tests are compiled together into the source build dir, using the Java 8 installation the compiler
+     * passes as JAVA_HOME
+     */
+    private static void writeCompilationScript(Path bugDir, List<String> classPath) throws AprIOException {
+        Path scriptPath = bugDir.resolve(ScriptJavaCompiler.COMPILATION_SCRIPT);
+        FileUtil.writeFile(scriptPath, String.join("\n",
+                "#!/bin/sh",
+                "set -e",
+                "mkdir -p apr/build",
+                "\"$JAVA_HOME/bin/javac\" -nowarn -encoding UTF-8 -cp %s -d apr/build $(find src -name '*.java')".formatted(String.join(":", classPath)),
+                ""
+        ));
+        if (!scriptPath.toFile().setExecutable(true)) {
+            throw new AprIOException("Failed to make %s executable".formatted(scriptPath), null);
+        }
+    }
+
+    private List<Operation> createOperations(Random random) {
+        List<Operation> operations = new ArrayList<>();
+        OperationKind[] kinds = OperationKind.values();
+        for (int i = 0; i < spec.nrStatementsPerFile(); i++) {
+            OperationKind kind = kinds[random.nextInt(kinds.length)];
+            int constant = switch (kind) {
+                case MULTIPLY -> 2 + random.nextInt(4);
+                case BOUND -> 10_000 + random.nextInt(10_000);
+                default -> 1 + random.nextInt(100);
+            };
+            operations.add(new Operation(kind, constant));
+        }
+        return operations;
+    }
+
+    private static String getModuleName(int index) {
+        return "Module" + index;
+    }
+
+    private static int evaluate(List<Operation> operations, int input) {
+        int result = input;
+        for (Operation operation : operations) {
+            result = operation.apply(result);
+        }
+        return result;
+    }
+
+    /*
+     * Operations are split over multiple methods to stay within the size limits of methods
+     */
+    private static String renderModule(int index, List<Operation> operations, List<Integer> operationLines) {
+        List<String> lines = new ArrayList<>();
+        lines.add("package %s;".formatted(PACKAGE));
+        lines.add("");
+        lines.add("public class %s {".formatted(getModuleName(index)));
+        lines.add("    public int compute(int x) {");
+        lines.add("        int result = x;");
+        int nrMethods = (operations.size() + MAX_STATEMENTS_PER_METHOD - 1) / MAX_STATEMENTS_PER_METHOD;
+        for (int i = 0; i < nrMethods; i++) {
+            lines.add("        result = step%s(result);".formatted(i));
+        }
+        lines.add("        return result;");
+        lines.add("    }");
+
+        for (int i = 0; i < nrMethods; i++) {
+            lines.add("");
+            lines.add("    private int step%s(int result) {".formatted(i));
+            for (Operation operation : operations.subList(i * MAX_STATEMENTS_PER_METHOD, Math.min(operations.size(), (i + 1) * MAX_STATEMENTS_PER_METHOD))) {
+                operationLines.add(lines.size() + 1);
+                for (String line : operation.render()) {
+                    lines.add("        " + line);
+                }
+            }
+            lines.add("        return result;");
+            lines.add("    }");
+        }
+        lines.add("}");
+        return String.join("\n", lines) + "\n";
+    }
+
+    private String renderTestClass(String className, List<String> testMethods) {
+        List<String> lines = new ArrayList<>();
+        lines.add("package tests;");
+        lines.add("");
+        lines.add("import static org.junit.Assert.assertEquals;");
+        lines.add("");
+        lines.add("import org.junit.Test;");
+        lines.add("import %s.*;".formatted(PACKAGE));
+        lines.add("");
+        lines.add("public class %s {".formatted(className));
+        for (String testMethod : testMethods) {
+            lines.add("");
+            lines.add(testMethod);
+        }
+        lines.add("}");
+        return String.join("\n", lines) + "\n";
+    }
+
+    private String renderTestMethod(String methodName, int moduleIndex, int input, int expected) {
+        return """
+                    @Test
+                    public void %s() throws InterruptedException {
+                        Thread.sleep(%s);
+                        assertEquals(%s, new %s().compute(%s));
+                    }""".formatted(methodName, spec.testRuntimeMillis(), expected, getModuleName(moduleIndex), input);
+    }
+
+    private String renderPositiveTest(int moduleIndex, List<Operation> operations, int nrTests) {
+        List<String> testMethods = new ArrayList<>();
+        for (int i = 0; i < nrTests; i++) {
+            testMethods.add(renderTestMethod("test" + i, moduleIndex, i, evaluate(operations, i)));
+        }
+        return renderTestClass(getModuleName(moduleIndex) + "Test", testMethods);
+    }
+
+    /*
+     * Uses the first input for which the bug is observable, as later operations can mask it
+     */
+    private String renderNegativeTest(List<Operation> fixedOperations, List<Operation> buggyOperations) throws AprIOException {
+        for (int input = 0; input < 1000; input++) {
+            int expected = evaluate(fixedOperations, input);
+            if (expected != evaluate(buggyOperations, input)) {
+                return renderTestClass("Module0Test", List.of(renderTestMethod("testBug", 0, input, expected)));
+            }
+        }
+        throw new AprIOException("Failed to find an input that reveals the synthetic bug", null);
+    }
+}
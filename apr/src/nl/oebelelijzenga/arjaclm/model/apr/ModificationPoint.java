@@ -22,6 +22,7 @@
 package nl.oebelelijzenga.arjaclm.model.apr;
 
 import nl.oebelelijzenga.arjaclm.model.apr.ingredient.Ingredient;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.ValidIngredientTable;
 import nl.oebelelijzenga.arjaclm.model.java.JavaClass;
 import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
 import nl.oebelelijzenga.arjaclm.parser.ASTUtil;
@@ -39,8 +40,16 @@ public record ModificationPoint(
         float weight,
         // Patch ingredients obtained from the redundancy assumption
         List<Ingredient> redundancyIngredients,
-        List<ManipulationName> allowedManipulations
+        List<ManipulationName> allowedManipulations,
+        // Redundancy ingredients that pass the modification screening rules, per manipulation
+        ValidIngredientTable validIngredients
 ) {
+    public ModificationPoint(int index, Statement statement, ParsedJavaFile sourceFile, JavaClass cls, float weight,
+                             List<Ingredient> redundancyIngredients, List<ManipulationName> allowedManipulations) {
+        this(index, statement, sourceFile, cls, weight, redundancyIngredients, allowedManipulations,
+                new ValidIngredientTable(statement, redundancyIngredients));
+    }
+
     @Override
     public String toString() {
         return String.format(
@@ -64,13 +64,20 @@ public record Patch(
     }
 
     public String generateDiff(JavaContext patchContext, JavaContext originalContext) throws AprException {
+        return generateDiff(patchContext.rootDir(), originalContext);
+    }
+
+    /**
+     * Diffs the edited files under the given root directory, which only needs to contain the edited files
+     */
+    public String generateDiff(Path patchRootDir, JavaContext originalContext) throws AprException {
         StringBuilder diffContent = new StringBuilder();
 
         for (RawJavaFile editedFile : editedFiles()) {
             CommandLine command = CommandLine.parse("diff")
                     .addArgument("-u")  // Diff in git format
                     .addArgument(originalContext.rootDir().resolve(editedFile.relativeFilePath()).toString())
-                    .addArgument(patchContext.rootDir().resolve(editedFile.relativeFilePath()).toString());
+                    .addArgument(patchRootDir.resolve(editedFile.relativeFilePath()).toString());
             CommandResult result = CommandUtils.runCommand(command, 5);
 
             // Only exit code 2 means something went wrong. Generating the diff is not functionally important so we
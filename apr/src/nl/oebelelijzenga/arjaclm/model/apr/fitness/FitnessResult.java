@@ -21,7 +21,7 @@
 
 package nl.oebelelijzenga.arjaclm.model.apr.fitness;
 
-import nl.oebelelijzenga.arjaclm.execution.CommandResult;
+import nl.oebelelijzenga.arjaclm.execution.CommandSummary;
 import nl.oebelelijzenga.arjaclm.model.java.CompilationResult;
 
 import java.util.HashSet;
@@ -32,8 +32,14 @@ public record FitnessResult(
         float testSuiteFitness,
         float patchSizeFitness,
         CompilationResult compilationResult,
-        TestSummary testSummary
+        TestSummary testSummary,
+        // Whether the patch could not be evaluated, rather than failing to compile or pass tests
+        boolean evaluationError
 ) {
+    public FitnessResult(float testSuiteFitness, float patchSizeFitness, CompilationResult compilationResult, TestSummary testSummary) {
+        this(testSuiteFitness, patchSizeFitness, compilationResult, testSummary, false);
+    }
+
     public record TestSummary(
             boolean success,
             Set<TestCase> failedPositiveTests,
@@ -41,7 +47,7 @@ public record FitnessResult(
             // Negative test cases which failed
             Set<TestCase> failedNegativeTests,
             float negativeTestFailureRatio,
-            CommandResult commandResult
+            CommandSummary commandSummary
     ) {
         public int getNrFailedPositiveTests() {
             return failedPositiveTests.size();
@@ -56,10 +62,27 @@ public record FitnessResult(
             tests.addAll(failedNegativeTests);
             return tests;
         }
+
+        public TestSummary withoutLogFile() {
+            return new TestSummary(success, failedPositiveTests, positiveTestFailureRatio, failedNegativeTests, negativeTestFailureRatio, commandSummary.withoutLogFile());
+        }
     }
 
     ;
 
+    /**
+     * Copy of this result without the log files of its commands, for results that outlive the run they were created in.
+     */
+    public FitnessResult withoutLogFiles() {
+        return new FitnessResult(
+                testSuiteFitness,
+                patchSizeFitness,
+                new CompilationResult(compilationResult.success(), compilationResult.commandSummary().withoutLogFile()),
+                testSummary == null ? null : testSummary.withoutLogFile(),
+                evaluationError
+        );
+    }
+
     public List<Float> asScoresList() {
         return List.of(testSuiteFitness, patchSizeFitness);
     }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.model.apr.ingredient;
+
+import nl.oebelelijzenga.arjaclm.parser.ingredient.ModificationScreener;
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.eclipse.jdt.core.dom.Statement;
+
+import java.util.*;
+
+/**
+ * Redundancy ingredients of a modification point that pass the {@link ModificationScreener} rules, per manipulation.
+ * The rules only depend on the statement, the ingredient and the manipulation, so they are applied once when the
+ * modification point is created.
+ */
+public class ValidIngredientTable {
+
+    private final Statement statement;
+    private final Map<ManipulationName, List<Ingredient>> validIngredients = new EnumMap<>(ManipulationName.class);
+    private final Map<ManipulationName, Set<Ingredient>> validIngredientSets = new EnumMap<>(ManipulationName.class);
+    // Ingredients are compared by identity, since edits refer to the ingredient objects of their modification point
+    private final Set<Ingredient> knownIngredients = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public ValidIngredientTable(Statement statement, List<Ingredient> redundancyIngredients) {
+        this(statement, redundancyIngredients, screen(statement, redundancyIngredients));
+    }
+
+    /**
+     * Creates a table of ingredients that were screened before, e.g. by a run that stored them in a modification point
+     * index. The valid ingredients must be a subset of the redundancy ingredients for every manipulation.
+     */
+    public ValidIngredientTable(Statement statement, List<Ingredient> redundancyIngredients, Map<ManipulationName, List<Ingredient>> validIngredients) {
+        this.statement = statement;
+        knownIngredients.addAll(redundancyIngredients);
+
+        for (ManipulationName manipulation : ManipulationName.values()) {
+            List<Ingredient> ingredients = validIngredients.get(manipulation);
+            Set<Ingredient> ingredientSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            ingredientSet.addAll(ingredients);
+
+            this.validIngredients.put(manipulation, ingredients);
+            validIngredientSets.put(manipulation, ingredientSet);
+        }
+    }
+
+    private static Map<ManipulationName, List<Ingredient>> screen(Statement statement, List<Ingredient> redundancyIngredients) {
+        Map<ManipulationName, List<Ingredient>> result = new EnumMap<>(ManipulationName.class);
+        for (ManipulationName manipulation : ManipulationName.values()) {
+            result.put(manipulation, redundancyIngredients.stream()
+                    .filter(i -> ModificationScreener.screen(statement, i, manipulation))
+                    .toList());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the valid ingredients for the manipulation, in the order of the redundancy ingredients of the modification point.
+     */
+    public List<Ingredient> get(ManipulationName manipulation) {
+        return validIngredients.get(manipulation);
+    }
+
+    public boolean isValid(ManipulationName manipulation, Ingredient ingredient) {
+        if (knownIngredients.contains(ingredient)) {
+            return validIngredientSets.get(manipulation).contains(ingredient);
+        }
+
+        // Ingredients that are not among the redundancy ingredients of this modification point are screened directly
+        return ModificationScreener.screen(statement, ingredient, manipulation);
+    }
+}
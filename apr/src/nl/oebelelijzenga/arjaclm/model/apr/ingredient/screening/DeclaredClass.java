@@ -21,15 +21,26 @@
 
 package nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening;
 
+import nl.oebelelijzenga.arjaclm.parser.ASTUtil;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 public class DeclaredClass extends DeclaredSymbol {
 
     private final ITypeBinding typeBinding;
+    private final String name;
+    // Names of the super classes, followed by the name of this class
+    private final List<String> hierarchyNames;
 
     public DeclaredClass(SymbolVisibility visibility, ITypeBinding typeBinding) {
         super(QualifiedName.fromString(typeBinding.getQualifiedName()), visibility, true);
         this.typeBinding = typeBinding;
+        this.name = typeBinding.getQualifiedName();
+        this.hierarchyNames = Stream.concat(ASTUtil.getSuperClasses(typeBinding).stream(), Stream.of(typeBinding))
+                .map(ITypeBinding::getQualifiedName)
+                .toList();
     }
 
     public ITypeBinding getTypeBinding() {
@@ -46,6 +57,15 @@ public class DeclaredClass extends DeclaredSymbol {
         return typeBinding;
     }
 
+    @Override
+    public String getDeclaringClassName() {
+        return name;
+    }
+
+    public List<String> getHierarchyNames() {
+        return hierarchyNames;
+    }
+
     @Override
     public String toString() {
         return "DeclaredClass[name=%s, visibility=%s, static=%s]".formatted(qualifiedName, visibility, isStatic);
@@ -35,6 +35,9 @@ public final class DeclaredMethod extends DeclaredSymbol {
     private final boolean isConstructor;
     private final List<QualifiedName> throwsExceptionTypes;
     private final IMethodBinding methodBinding;
+    private final ITypeBinding returnTypeBinding;
+    private final QualifiedName returnTypeName;
+    private final String declaringClassName;
     private final List<Statement> statements = new ArrayList<>();
 
     public DeclaredMethod(QualifiedName qualifiedName, SymbolVisibility visibility, boolean isStatic, MethodDeclaration methodDeclaration, List<DeclaredVariable> parameters, boolean isConstructor, List<QualifiedName> throwsExceptionTypes) {
@@ -44,6 +47,9 @@ public final class DeclaredMethod extends DeclaredSymbol {
         this.isConstructor = isConstructor;
         this.throwsExceptionTypes = throwsExceptionTypes;
         this.methodBinding = methodDeclaration.resolveBinding();
+        this.returnTypeBinding = methodBinding.getReturnType();
+        this.returnTypeName = QualifiedName.fromString(returnTypeBinding.getQualifiedName());
+        this.declaringClassName = methodBinding.getDeclaringClass().getQualifiedName();
     }
 
     public MethodDeclaration methodDeclaration() {
@@ -55,11 +61,11 @@ public final class DeclaredMethod extends DeclaredSymbol {
     }
 
     public ITypeBinding returnTypeBinding() {
-        return methodBinding().getReturnType();
+        return returnTypeBinding;
     }
 
     public QualifiedName returnTypeName() {
-        return QualifiedName.fromString(returnTypeBinding().getQualifiedName());
+        return returnTypeName;
     }
 
     public List<DeclaredVariable> parameters() {
@@ -93,4 +99,9 @@ public final class DeclaredMethod extends DeclaredSymbol {
     public ITypeBinding getDeclaringClass() {
         return methodBinding().getDeclaringClass();
     }
+
+    @Override
+    public String getDeclaringClassName() {
+        return declaringClassName;
+    }
 }
@@ -21,11 +21,14 @@
 
 package nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening;
 
-import nl.oebelelijzenga.arjaclm.parser.ASTUtil;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 
 import java.util.List;
 
+/**
+ * Symbol that can be referenced by ingredients. Names derived from bindings are resolved when the symbol is created,
+ * such that checking references does not query JDT, which is not thread-safe.
+ */
 public abstract class DeclaredSymbol {
 
     protected final QualifiedName qualifiedName;
@@ -62,31 +65,33 @@ public abstract class DeclaredSymbol {
 
     public abstract ITypeBinding getDeclaringClass();
 
-    public boolean isVisibleFromClass(ITypeBinding cls) {
+    /**
+     * Qualified name of the declaring class as reported by JDT, or null for local symbols.
+     */
+    public abstract String getDeclaringClassName();
+
+    public boolean isVisibleFromClass(DeclaredClass cls) {
         switch (visibility) {
             case PUBLIC -> {
                 return true;
             }
             case PROTECTED -> {
-                List<ITypeBinding> classes = ASTUtil.getSuperClasses(cls);
-                classes.add(cls);
-                return classes.stream().map(x -> x.getQualifiedName().equals(qualifiedName.getParent().toString())).findAny().get();
+                List<String> classes = cls.getHierarchyNames();
+                return classes.stream().map(x -> x.equals(qualifiedName.getParent().toString())).findAny().get();
             }
             case PACKAGE_PRIVATE -> {
-                QualifiedName clsParent = QualifiedName.fromString(cls.getQualifiedName()).getParent();
-                QualifiedName declaringClassParent = QualifiedName.fromString(getDeclaringClass().getQualifiedName()).getParent();
+                QualifiedName clsParent = QualifiedName.fromString(cls.getDeclaringClassName()).getParent();
+                QualifiedName declaringClassParent = QualifiedName.fromString(getDeclaringClassName()).getParent();
                 return clsParent.equals(declaringClassParent);
             }
             case PRIVATE -> {
-                return cls.getQualifiedName().equals(qualifiedName.getParent().toString());
+                return cls.getDeclaringClassName().equals(qualifiedName.getParent().toString());
             }
         }
         throw new IllegalArgumentException(visibility.toString());
     }
 
-    public boolean isFieldOf(ITypeBinding cls) {
-        List<ITypeBinding> classes = ASTUtil.getSuperClasses(cls);
-        classes.add(cls);
-        return classes.stream().anyMatch(x -> x.getQualifiedName().equals(qualifiedName.getParent().toString()));
+    public boolean isFieldOf(DeclaredClass cls) {
+        return cls.getHierarchyNames().stream().anyMatch(x -> x.equals(qualifiedName.getParent().toString()));
     }
 }
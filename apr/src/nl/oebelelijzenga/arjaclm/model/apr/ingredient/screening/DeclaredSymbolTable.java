@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening;
+
+import java.util.*;
+
+/**
+ * Symbols declared in a scope, indexed by kind and by short and qualified name. Tables of enclosing scopes are shared
+ * as parents, such that the symbols of a class are only indexed once for all statements in it.
+ */
+public class DeclaredSymbolTable {
+
+    private enum SymbolKind {
+        VARIABLE,
+        METHOD,
+        CLASS
+    }
+
+    private record SymbolKey(SymbolKind kind, String name) {}
+
+    private final DeclaredSymbolTable parent;
+    private final List<DeclaredSymbol> symbols;
+    private final Map<SymbolKey, List<Integer>> shortNameIndex = new HashMap<>();
+    private final Map<SymbolKey, List<Integer>> qualifiedNameIndex = new HashMap<>();
+
+    public DeclaredSymbolTable(List<? extends DeclaredSymbol> symbols, DeclaredSymbolTable parent) {
+        this.parent = parent;
+        this.symbols = List.copyOf(symbols);
+
+        for (int i = 0; i < this.symbols.size(); i++) {
+            DeclaredSymbol symbol = this.symbols.get(i);
+            SymbolKind kind = getKind(symbol);
+            shortNameIndex.computeIfAbsent(new SymbolKey(kind, symbol.getShortName()), k -> new ArrayList<>()).add(i);
+            qualifiedNameIndex.computeIfAbsent(new SymbolKey(kind, symbol.getQualifiedName().toString()), k -> new ArrayList<>()).add(i);
+        }
+    }
+
+    public DeclaredSymbolTable(List<? extends DeclaredSymbol> symbols) {
+        this(symbols, null);
+    }
+
+    private static SymbolKind getKind(DeclaredSymbol symbol) {
+        if (symbol instanceof DeclaredMethod) {
+            return SymbolKind.METHOD;
+        }
+        if (symbol instanceof DeclaredClass) {
+            return SymbolKind.CLASS;
+        }
+        return SymbolKind.VARIABLE;
+    }
+
+    /**
+     * Returns the symbols that may match the reference by name, innermost scope first and in order of declaration within
+     * a scope. Variable references are never matched to methods and vice versa, while classes are matched by qualified name.
+     */
+    public List<DeclaredSymbol> getCandidates(ReferencedSymbol reference) {
+        SymbolKind kind = reference instanceof ReferencedMethod ? SymbolKind.METHOD : SymbolKind.VARIABLE;
+        String qualifiedName = reference.getQualifiedName().toString();
+
+        List<DeclaredSymbol> candidates = new ArrayList<>();
+        for (DeclaredSymbolTable table = this; table != null; table = table.parent) {
+            SortedSet<Integer> indices = new TreeSet<>();
+            indices.addAll(table.shortNameIndex.getOrDefault(new SymbolKey(kind, reference.getOriginalReference()), List.of()));
+            indices.addAll(table.qualifiedNameIndex.getOrDefault(new SymbolKey(kind, qualifiedName), List.of()));
+            indices.addAll(table.qualifiedNameIndex.getOrDefault(new SymbolKey(SymbolKind.CLASS, qualifiedName), List.of()));
+            for (int index : indices) {
+                candidates.add(table.symbols.get(index));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns all symbols, innermost scope first.
+     */
+    public List<DeclaredSymbol> getSymbols() {
+        List<DeclaredSymbol> result = new ArrayList<>(symbols);
+        if (parent != null) {
+            result.addAll(parent.getSymbols());
+        }
+        return result;
+    }
+}
@@ -26,18 +26,22 @@ import org.eclipse.jdt.core.dom.IVariableBinding;
 
 public class DeclaredVariable extends DeclaredSymbol {
     protected final IVariableBinding variableBinding;
+    private final ITypeBinding typeBinding;
+    private final String declaringClassName;
 
     public DeclaredVariable(QualifiedName qualifiedName, SymbolVisibility visibility, boolean isStatic, IVariableBinding variableBinding) {
         super(qualifiedName, visibility, isStatic);
         this.variableBinding = variableBinding;
+        this.typeBinding = variableBinding.getType();
+        this.declaringClassName = variableBinding.getDeclaringClass() == null ? null : variableBinding.getDeclaringClass().getQualifiedName();
     }
 
     public QualifiedName getQualifiedTypeName() {
-        return QualifiedName.fromString(variableBinding.getType().getQualifiedName());
+        return QualifiedName.fromString(typeBinding.getQualifiedName());
     }
 
     public ITypeBinding getTypeBinding() {
-        return variableBinding.getType();
+        return typeBinding;
     }
 
     public IVariableBinding getVariableBinding() {
@@ -56,11 +60,16 @@ public class DeclaredVariable extends DeclaredSymbol {
 
     @Override
     public ITypeBinding getOutputTypeBinding() {
-        return variableBinding.getType();
+        return typeBinding;
     }
 
     @Override
     public ITypeBinding getDeclaringClass() {
         return variableBinding.getDeclaringClass();
     }
+
+    @Override
+    public String getDeclaringClassName() {
+        return declaringClassName;
+    }
 }
@@ -28,21 +28,34 @@ import nl.oebelelijzenga.arjaclm.parser.visitor.DeclaredClassSymbolsVisitor;
 import nl.oebelelijzenga.arjaclm.parser.visitor.DeclaredLocalSymbolsVisitor;
 import nl.oebelelijzenga.arjaclm.parser.visitor.ReferencedSymbolsVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.Statement;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Symbol information used to screen ingredients. The declared class symbols are collected once for the whole project,
+ * after which local symbols of modification candidates and referenced symbols of ingredient candidates can be added
+ * incrementally. Information of statements that were added before is reused. Adding statements is synchronized and
+ * lookups never block, so the info can be read by multiple threads once all statements to be screened are added.
+ */
 public class IngredientScreeningInfo {
 
-    private final ReferencedSymbols referencedSymbols;
+    private final DeclaredClassSymbols classSymbols;
+    private final Map<Statement, List<ReferencedSymbol>> referencedSymbols = new ConcurrentHashMap<>();
     private final Map<QualifiedName, DeclaredClass> classes = new HashMap<>();
     private final Map<Statement, DeclaredClass> statementClasses = new HashMap<>();
     private final Map<Statement, DeclaredMethod> statementMethods = new HashMap<>();
-    private final Map<Statement, List<DeclaredSymbol>> visibleSymbols = new HashMap<>();
+    private final Map<Statement, DeclaredSymbolTable> visibleSymbols = new ConcurrentHashMap<>();
+    private final Map<DeclaredClass, DeclaredSymbolTable> classSymbolTables = new HashMap<>();
+    private final Map<DeclaredMethod, DeclaredSymbolTable> methodSymbolTables = new HashMap<>();
     private final QualifiedName topLevelPackage;
+    private final boolean multipleBindingEnvironments;
 
-    private IngredientScreeningInfo(DeclaredClassSymbols classSymbols, DeclaredLocalSymbols localSymbols, ReferencedSymbols referencedSymbols) {
-        this.referencedSymbols = referencedSymbols;
+    private IngredientScreeningInfo(DeclaredClassSymbols classSymbols, boolean multipleBindingEnvironments) {
+        this.classSymbols = classSymbols;
+        this.multipleBindingEnvironments = multipleBindingEnvironments;
 
         for (DeclaredClass cls : classSymbols.classes()) {
             this.classes.put(cls.getQualifiedName(), cls);
@@ -51,11 +64,6 @@ public class IngredientScreeningInfo {
                 for (Statement statement : declaredMethod.statements()) {
                     statementClasses.put(statement, cls);
                     statementMethods.put(statement, declaredMethod);
-
-                    if (localSymbols.statementSymbols().containsKey(statement)) {
-                        // Only index visible symbols for statements for which this information is provided
-                        visibleSymbols.put(statement, getVisibleSymbolsForStatement(statement, declaredMethod, cls, classSymbols, localSymbols));
-                    }
                 }
             }
         }
@@ -63,36 +71,95 @@ public class IngredientScreeningInfo {
         topLevelPackage = classes.values().stream().map(c -> c.getQualifiedName().getParent()).min(Comparator.comparing(q -> q.elements().size())).orElseThrow();
     }
 
-    private static List<DeclaredSymbol> getVisibleSymbolsForStatement(Statement statement, DeclaredMethod method, DeclaredClass currentCls,
-                                                                      DeclaredClassSymbols classSymbols, DeclaredLocalSymbols localSymbols) {
-        List<DeclaredSymbol> declaredSymbols = new ArrayList<>(localSymbols.get(statement));
-        declaredSymbols.addAll(method.parameters());
-        declaredSymbols.addAll(classSymbols.getSymbols(currentCls));
+    private DeclaredSymbolTable getClassSymbolTable(DeclaredClass currentCls) {
+        return classSymbolTables.computeIfAbsent(currentCls, cls -> {
+            List<DeclaredSymbol> declaredSymbols = new ArrayList<>(classSymbols.getSymbols(cls));
+            for (DeclaredClass otherCls : classSymbols.classes()) {
+                if (otherCls == cls) {
+                    continue;
+                }
 
-        for (DeclaredClass otherCls : classSymbols.classes()) {
-            if (otherCls == currentCls) {
-                continue;
+                for (DeclaredSymbol symbol : classSymbols.getSymbols(otherCls)) {
+                    if (symbol.isVisibleFromClass(cls)) {
+                        declaredSymbols.add(symbol);
+                    }
+                }
             }
+            return new DeclaredSymbolTable(declaredSymbols);
+        });
+    }
 
-            for (DeclaredSymbol symbol : classSymbols.getSymbols(otherCls)) {
-                if (symbol.isVisibleFromClass(currentCls.getTypeBinding())) {
-                    declaredSymbols.add(symbol);
-                }
+    private DeclaredSymbolTable getMethodSymbolTable(DeclaredMethod method, DeclaredClass currentCls) {
+        return methodSymbolTables.computeIfAbsent(method, m -> new DeclaredSymbolTable(m.parameters(), getClassSymbolTable(currentCls)));
+    }
+
+    public static IngredientScreeningInfo create(JavaProject project) {
+        List<CompilationUnit> allCompilationUnits = project.sourceFiles().stream().map(ParsedJavaFile::compilationUnit).toList();
+        return new IngredientScreeningInfo(DeclaredClassSymbolsVisitor.getClassSymbols(allCompilationUnits), hasMultipleBindingEnvironments(allCompilationUnits));
+    }
+
+    /*
+     * Compilation units that were parsed together share their bindings, so they resolve java.lang.Object to the same
+     * binding instance
+     */
+    private static boolean hasMultipleBindingEnvironments(List<CompilationUnit> compilationUnits) {
+        Set<ITypeBinding> objectBindings = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CompilationUnit compilationUnit : compilationUnits) {
+            ITypeBinding objectBinding = compilationUnit.getAST().resolveWellKnownType(Object.class.getName());
+            if (objectBinding != null) {
+                objectBindings.add(objectBinding);
             }
         }
-
-        return declaredSymbols;
+        return objectBindings.size() > 1;
     }
 
     public static IngredientScreeningInfo create(JavaProject project, List<Statement> modificationCandidates, List<Statement> ingredientCandidates) {
-        List<CompilationUnit> allCompilationUnits = project.sourceFiles().stream().map(ParsedJavaFile::compilationUnit).toList();
-        DeclaredClassSymbols classSymbols = DeclaredClassSymbolsVisitor.getClassSymbols(allCompilationUnits);
+        IngredientScreeningInfo info = create(project);
+        info.addModificationCandidates(modificationCandidates);
+        info.addIngredientCandidates(ingredientCandidates);
+        return info;
+    }
+
+    /**
+     * Indexes the symbols that are visible at the given statements, which is required for screening ingredients for them.
+     */
+    public synchronized void addModificationCandidates(List<Statement> modificationCandidates) {
+        List<Statement> newCandidates = modificationCandidates.stream().filter(s -> !visibleSymbols.containsKey(s)).toList();
+        if (newCandidates.isEmpty()) {
+            return;
+        }
+
+        DeclaredLocalSymbols localSymbols = DeclaredLocalSymbolsVisitor.getLocalSymbols(newCandidates);
+        for (Statement statement : localSymbols.statementSymbols().keySet()) {
+            // Only index visible symbols for statements of which the declaring method is known
+            DeclaredMethod method = statementMethods.get(statement);
+            if (method != null) {
+                DeclaredSymbolTable methodSymbolTable = getMethodSymbolTable(method, statementClasses.get(statement));
+                visibleSymbols.put(statement, new DeclaredSymbolTable(localSymbols.get(statement), methodSymbolTable));
+            }
+        }
+    }
 
-        DeclaredLocalSymbols localSymbols = DeclaredLocalSymbolsVisitor.getLocalSymbols(modificationCandidates);
+    /**
+     * Indexes the symbols referenced by the given statements, which is required for screening them as ingredients.
+     */
+    public synchronized void addIngredientCandidates(List<Statement> ingredientCandidates) {
+        List<Statement> newCandidates = ingredientCandidates.stream().filter(s -> !referencedSymbols.containsKey(s)).toList();
+        if (newCandidates.isEmpty()) {
+            return;
+        }
 
-        ReferencedSymbols referencedSymbols = ReferencedSymbolsVisitor.getReferencedSymbols(ingredientCandidates);
+        ReferencedSymbols newReferencedSymbols = ReferencedSymbolsVisitor.getReferencedSymbols(newCandidates);
+        for (Map.Entry<Statement, List<ReferencedSymbol>> entry : newReferencedSymbols.statementSymbols().entrySet()) {
+            referencedSymbols.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
 
-        return new IngredientScreeningInfo(classSymbols, localSymbols, referencedSymbols);
+    /**
+     * Whether the files of the project were parsed in partitions that resolve bindings in different environments.
+     */
+    public boolean hasMultipleBindingEnvironments() {
+        return multipleBindingEnvironments;
     }
 
     public QualifiedName getTopLeveLPackage() {
@@ -100,10 +167,11 @@ public class IngredientScreeningInfo {
     }
 
     private List<ReferencedSymbol> getStatementReferencedSymbols(Statement statement) throws AprException {
-        if (referencedSymbols.get(statement) == null) {
+        List<ReferencedSymbol> symbols = referencedSymbols.get(statement);
+        if (symbols == null) {
             throw new AprException("No referenced symbols info available for statement " + statement.toString(), null);
         }
-        return referencedSymbols.get(statement);
+        return symbols;
     }
 
     public List<ReferencedVariable> getReferencedVariables(Statement statement) throws AprException {
@@ -114,12 +182,17 @@ public class IngredientScreeningInfo {
         return getStatementReferencedSymbols(statement).stream().filter(x -> x instanceof ReferencedMethod).map(x -> (ReferencedMethod) x).toList();
     }
 
-    public List<DeclaredSymbol> getDeclaredSymbols(Statement statement) throws AprException {
-        if (!visibleSymbols.containsKey(statement)) {
+    public DeclaredSymbolTable getDeclaredSymbolTable(Statement statement) throws AprException {
+        DeclaredSymbolTable symbolTable = visibleSymbols.get(statement);
+        if (symbolTable == null) {
             throw new AprException("No statement visible symbol info available for " + statement.toString(), null);
         }
 
-        return visibleSymbols.get(statement);
+        return symbolTable;
+    }
+
+    public List<DeclaredSymbol> getDeclaredSymbols(Statement statement) throws AprException {
+        return getDeclaredSymbolTable(statement).getSymbols();
     }
 
     public DeclaredClass getStatementClassDeclaration(Statement statement) throws AprException {
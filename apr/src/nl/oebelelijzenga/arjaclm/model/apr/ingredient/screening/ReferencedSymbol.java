@@ -53,7 +53,7 @@ public abstract class ReferencedSymbol {
             return false;
         }
 
-        QualifiedName declaringClass = QualifiedName.fromString(declaredSymbol.getDeclaringClass().getQualifiedName());
+        QualifiedName declaringClass = QualifiedName.fromString(declaredSymbol.getDeclaringClassName());
         return declaringClass.endsWith(qualifiedReference.getParent());
     }
 }
@@ -43,6 +43,17 @@ public record AprConfig(
         // Multiplier for the probability that the edit of a modification point is initially set to true
         float mu,
         int seed,
-        boolean deleteIntermediatePatchDirs
+        boolean deleteIntermediatePatchDirs,
+        int nrParserThreads,
+        boolean lazyProjectLoading,
+        int nrScreeningThreads,
+        boolean usePersistentModificationPointIndex,
+        ProcessSandboxMode processSandbox,
+        boolean reuseUnaffectedTestResults,
+        boolean prioritizeTests,
+        boolean useMutantSchemata,
+        boolean batchCompilation,
+        boolean reuseEquivalentBytecodeResults,
+        boolean hotSwapTests
 ) {
 }
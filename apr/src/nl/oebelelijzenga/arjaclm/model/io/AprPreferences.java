@@ -54,7 +54,18 @@ public record AprPreferences(
         int clmNrInfills,
         float clmMutationProbability,
         boolean deleteIntermediatePatchDirs,
-        int geneticSearchTimeLimitSeconds
+        int geneticSearchTimeLimitSeconds,
+        int nrParserThreads,
+        boolean lazyProjectLoading,
+        int nrScreeningThreads,
+        boolean usePersistentModificationPointIndex,
+        ProcessSandboxMode processSandbox,
+        boolean reuseUnaffectedTestResults,
+        boolean prioritizeTests,
+        boolean useMutantSchemata,
+        boolean batchCompilation,
+        boolean reuseEquivalentBytecodeResults,
+        boolean hotSwapTests
 ) {
     public Map<String, String> toMap() {
         Map<String, String> map = new HashMap<>();
@@ -87,6 +98,17 @@ public record AprPreferences(
         map.put("clmNrInfills", Integer.toString(clmNrInfills));
         map.put("deleteIntermediatePatchDirs", Boolean.toString(deleteIntermediatePatchDirs));
         map.put("geneticSearchTimeLimitSeconds", Integer.toString(geneticSearchTimeLimitSeconds));
+        map.put("nrParserThreads", Integer.toString(nrParserThreads));
+        map.put("lazyProjectLoading", Boolean.toString(lazyProjectLoading));
+        map.put("nrScreeningThreads", Integer.toString(nrScreeningThreads));
+        map.put("usePersistentModificationPointIndex", Boolean.toString(usePersistentModificationPointIndex));
+        map.put("processSandbox", processSandbox.name().toLowerCase());
+        map.put("reuseUnaffectedTestResults", Boolean.toString(reuseUnaffectedTestResults));
+        map.put("prioritizeTests", Boolean.toString(prioritizeTests));
+        map.put("useMutantSchemata", Boolean.toString(useMutantSchemata));
+        map.put("batchCompilation", Boolean.toString(batchCompilation));
+        map.put("reuseEquivalentBytecodeResults", Boolean.toString(reuseEquivalentBytecodeResults));
+        map.put("hotSwapTests", Boolean.toString(hotSwapTests));
         return map;
     }
 }
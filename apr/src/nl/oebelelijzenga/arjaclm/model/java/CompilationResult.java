@@ -22,15 +22,15 @@
 package nl.oebelelijzenga.arjaclm.model.java;
 
 import nl.oebelelijzenga.arjaclm.exception.AprException;
-import nl.oebelelijzenga.arjaclm.execution.CommandResult;
+import nl.oebelelijzenga.arjaclm.execution.CommandSummary;
 
 public record CompilationResult(
         boolean success,
-        CommandResult commandResult
+        CommandSummary commandSummary
 ) {
     public void requireSuccess() throws AprException {
         if (!success) {
-            throw new AprException("Compilation failed:\n" + commandResult, null);
+            throw new AprException("Compilation failed:\n" + commandSummary.toFileString(), null);
         }
     }
 }
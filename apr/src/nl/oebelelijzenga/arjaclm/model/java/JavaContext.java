@@ -53,6 +53,10 @@ public record JavaContext(
         );
     }
 
+    public JavaContext withAprDir(Path newAprDir) {
+        return new JavaContext(rootDir, srcDir, testDir, newAprDir, sourceBuildDir, testBuildDir, compileClassPath, testClassPath);
+    }
+
     public Path relativeSourceDir() {
         return rootDir.relativize(srcDir);
     }
@@ -23,60 +23,175 @@ package nl.oebelelijzenga.arjaclm.parser;
 
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.model.apr.genetic.Edit;
+import nl.oebelelijzenga.arjaclm.model.java.JavaClass;
 import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
 import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
 import nl.oebelelijzenga.arjaclm.parser.manipulation.AbstractManipulation;
 import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationFactory;
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.eclipse.jdt.core.dom.Statement;
 import org.eclipse.jdt.core.dom.rewrite.ASTRewrite;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.text.edits.TextEdit;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Applies edits to the source files they modify. An editor instance caches the changed region of the most recently
+ * used sets of edits to a file, such that rendering a file edit set that was seen before only splices that region into
+ * the original source instead of rewriting the whole AST again.
+ */
 public class JavaEditor {
 
-    public static List<RawJavaFile> getEditedSourceFiles(List<Edit> edits) throws AprException {
-        Map<ParsedJavaFile, ASTRewrite> astRewrites = new HashMap<>();
+    /**
+     * Region of the original source that is replaced by an edited version of the file.
+     */
+    private record SourceSplice(int offset, int length, String replacement) {
 
-        for (Edit edit : edits) {
-            ASTRewrite rewrite = astRewrites.computeIfAbsent(
-                    edit.modificationPoint().sourceFile(),
-                    k -> ASTUtil.createRewriteForClass(edit.modificationPoint().cls())
-            );
+        static SourceSplice between(String original, String edited) {
+            int prefixLength = 0;
+            int maxLength = Math.min(original.length(), edited.length());
+            while (prefixLength < maxLength && original.charAt(prefixLength) == edited.charAt(prefixLength)) {
+                prefixLength++;
+            }
 
-            AbstractManipulation manipulation = ManipulationFactory.getManipulation(
-                    edit.manipulation(),
-                    edit.modificationPoint().statement(),
-                    edit.ingredient(),
-                    rewrite
+            int suffixLength = 0;
+            while (suffixLength < maxLength - prefixLength
+                    && original.charAt(original.length() - 1 - suffixLength) == edited.charAt(edited.length() - 1 - suffixLength)) {
+                suffixLength++;
+            }
+
+            return new SourceSplice(
+                    prefixLength,
+                    original.length() - prefixLength - suffixLength,
+                    edited.substring(prefixLength, edited.length() - suffixLength)
             );
-            manipulation.manipulate();
         }
 
+        String apply(String original) {
+            return original.substring(0, offset) + replacement + original.substring(offset + length);
+        }
+    }
+
+    /*
+     * Identifies an edit by the location of its statement rather than the modification point index, since modification
+     * points of different runs may share an editor. Ingredient statements are compared by identity, which avoids
+     * printing them for every lookup. Edits share their ingredient instances with the variants they are copied from.
+     */
+    private record EditKey(int startPosition, int length, ManipulationName manipulation, List<Statement> ingredientStatements) {
+    }
+
+    private record FileEditsKey(Path relativeFilePath, List<EditKey> edits) {
+    }
+
+    private static final int DEFAULT_MAX_CACHE_SIZE = 10_000;
+
+    private final Map<FileEditsKey, SourceSplice> fileEditSplices;
+
+    public JavaEditor() {
+        this(DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public JavaEditor(int maxCacheSize) {
+        fileEditSplices = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FileEditsKey, SourceSplice> eldest) {
+                return size() > maxCacheSize;
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #getEditedSourceFiles(List)}, but reuses the rendering of file edit sets that were seen before.
+     */
+    public List<RawJavaFile> getCachedEditedSourceFiles(List<Edit> edits) throws AprException {
         List<RawJavaFile> editedFiles = new ArrayList<>();
-        for (Map.Entry<ParsedJavaFile, ASTRewrite> entry : astRewrites.entrySet()) {
-            IDocument sourceCode = new Document(entry.getKey().sourceCode());
-            TextEdit textEdit = entry.getValue().rewriteAST(sourceCode, null);
-
-            try {
-                textEdit.apply(sourceCode);
-            } catch (BadLocationException e) {
-                throw new AprException("Failed to apply AST edits", e);
+        for (Map.Entry<ParsedJavaFile, List<Edit>> entry : groupEditsByFile(edits).entrySet()) {
+            ParsedJavaFile file = entry.getKey();
+            FileEditsKey key = getFileEditsKey(file, entry.getValue());
+
+            SourceSplice splice = fileEditSplices.get(key);
+            if (splice == null) {
+                String editedSourceCode = getEditedSourceCode(file, entry.getValue());
+                splice = SourceSplice.between(file.sourceCode(), editedSourceCode);
+                fileEditSplices.put(key, splice);
             }
 
-            editedFiles.add(
-                    new RawJavaFile(
-                            entry.getKey().relativeFilePath(),
-                            sourceCode.get()
-                    )
-            );
+            editedFiles.add(new RawJavaFile(file.relativeFilePath(), splice.apply(file.sourceCode())));
         }
+        return editedFiles;
+    }
+
+    public int cacheSize() {
+        return fileEditSplices.size();
+    }
 
+    public static List<RawJavaFile> getEditedSourceFiles(List<Edit> edits) throws AprException {
+        List<RawJavaFile> editedFiles = new ArrayList<>();
+        for (Map.Entry<ParsedJavaFile, List<Edit>> entry : groupEditsByFile(edits).entrySet()) {
+            editedFiles.add(new RawJavaFile(entry.getKey().relativeFilePath(), getEditedSourceCode(entry.getKey(), entry.getValue())));
+        }
         return editedFiles;
     }
+
+    private static Map<ParsedJavaFile, List<Edit>> groupEditsByFile(List<Edit> edits) {
+        Map<ParsedJavaFile, List<Edit>> fileEdits = new LinkedHashMap<>();
+        for (Edit edit : edits) {
+            fileEdits.computeIfAbsent(edit.modificationPoint().sourceFile(), k -> new ArrayList<>()).add(edit);
+        }
+        return fileEdits;
+    }
+
+    private static FileEditsKey getFileEditsKey(ParsedJavaFile file, List<Edit> edits) {
+        List<EditKey> editKeys = new ArrayList<>();
+        for (Edit edit : edits) {
+            Statement statement = edit.modificationPoint().statement();
+            editKeys.add(new EditKey(
+                    statement.getStartPosition(),
+                    statement.getLength(),
+                    edit.manipulation(),
+                    // The ingredient of a delete is not rendered
+                    edit.manipulation() == ManipulationName.DELETE ? List.of() : List.copyOf(edit.ingredient().statements())
+            ));
+        }
+        return new FileEditsKey(file.relativeFilePath(), editKeys);
+    }
+
+    private static String getEditedSourceCode(ParsedJavaFile file, List<Edit> edits) throws AprException {
+        JavaClass cls = edits.get(0).modificationPoint().cls();
+        IDocument sourceCode = new Document(file.sourceCode());
+        TextEdit textEdit;
+
+        // Manipulations create nodes owned by the AST of the file, which is not thread-safe. Different files are
+        // rendered concurrently, but rewrites of the same AST are done one at a time.
+        synchronized (cls.compilationUnit().getAST()) {
+            ASTRewrite rewrite = ASTUtil.createRewriteForClass(cls);
+            for (Edit edit : edits) {
+                AbstractManipulation manipulation = ManipulationFactory.getManipulation(
+                        edit.manipulation(),
+                        edit.modificationPoint().statement(),
+                        edit.ingredient(),
+                        rewrite
+                );
+                manipulation.manipulate();
+            }
+
+            textEdit = rewrite.rewriteAST(sourceCode, null);
+        }
+
+        try {
+            textEdit.apply(sourceCode);
+        } catch (BadLocationException e) {
+            throw new AprException("Failed to apply AST edits", e);
+        }
+
+        return sourceCode.get();
+    }
 }
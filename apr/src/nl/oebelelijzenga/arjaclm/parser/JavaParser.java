@@ -21,16 +21,20 @@
 
 package nl.oebelelijzenga.arjaclm.parser;
 
+import nl.oebelelijzenga.arjaclm.ThreadUtil;
 import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.exception.AprIOException;
 import nl.oebelelijzenga.arjaclm.io.FileUtil;
 import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
 import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
+import nl.oebelelijzenga.arjaclm.parser.ingredient.IngredientUtil;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.*;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -65,6 +69,80 @@ public class JavaParser {
         return requestor.getFiles();
     }
 
+    /**
+     * Parses source files using multiple threads, each with its own ASTParser. Files are partitioned by package, such
+     * that statements of the same package always share a binding environment. Bindings of different partitions come
+     * from different environments, which JDT does not consider type compatible even for the same type, so the
+     * ingredient screeners of such projects also match types by their binding keys (see
+     * {@link IngredientUtil#typesWeaklyMatch(ITypeBinding, ITypeBinding, boolean)}).
+     */
+    public List<ParsedJavaFile> parseSourceFiles(List<Path> sourceFilePaths, int nrThreads) throws AprException {
+        if (nrThreads <= 1) {
+            return parseSourceFiles(sourceFilePaths);
+        }
+
+        List<ParseTask> tasks = new ArrayList<>();
+        for (List<Path> partition : partitionByPackage(sourceFilePaths, nrThreads)) {
+            tasks.add(new ParseTask(partition));
+        }
+        ThreadUtil.runTasksInParallel(tasks, tasks.size());
+
+        Map<Path, ParsedJavaFile> filesByPath = new HashMap<>();
+        for (ParseTask task : tasks) {
+            for (ParsedJavaFile file : task.files) {
+                filesByPath.put(file.relativeFilePath(), file);
+            }
+        }
+
+        // Keep the order of the given paths, as it determines the order of ingredients
+        List<ParsedJavaFile> result = new ArrayList<>();
+        for (Path sourceFilePath : sourceFilePaths) {
+            ParsedJavaFile file = filesByPath.get(context.rootDir().relativize(sourceFilePath));
+            if (file != null) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private static List<List<Path>> partitionByPackage(List<Path> sourceFilePaths, int nrPartitions) {
+        Map<Path, List<Path>> packages = new HashMap<>();
+        for (Path sourceFilePath : sourceFilePaths) {
+            packages.computeIfAbsent(sourceFilePath.getParent(), k -> new ArrayList<>()).add(sourceFilePath);
+        }
+
+        // Assign the largest packages first, each to the partition with the fewest files so far
+        List<List<Path>> partitions = new ArrayList<>();
+        for (int i = 0; i < Math.min(nrPartitions, packages.size()); i++) {
+            partitions.add(new ArrayList<>());
+        }
+        List<List<Path>> sortedPackages = packages.values().stream()
+                .sorted(Comparator.comparing((List<Path> p) -> p.size()).reversed().thenComparing(p -> p.get(0)))
+                .toList();
+        for (List<Path> packageFiles : sortedPackages) {
+            partitions.stream().min(Comparator.comparing(List::size)).orElseThrow().addAll(packageFiles);
+        }
+        return partitions;
+    }
+
+    private class ParseTask implements Runnable {
+        private final List<Path> sourceFilePaths;
+        private List<ParsedJavaFile> files = List.of();
+
+        private ParseTask(List<Path> sourceFilePaths) {
+            this.sourceFilePaths = sourceFilePaths;
+        }
+
+        @Override
+        public void run() {
+            try {
+                files = parseSourceFiles(sourceFilePaths);
+            } catch (AprException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     public ParsedJavaFile parseCompilationUnit(CompilationUnit compilationUnit, Path sourceFilePath, String sourceCode) throws AprException {
         // Use relative paths for source files so that the project can be used with different contexts
         Path filePath = context.rootDir().relativize(sourceFilePath);
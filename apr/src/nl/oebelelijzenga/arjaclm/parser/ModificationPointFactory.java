@@ -43,23 +43,36 @@ import org.apache.logging.log4j.Logger;
 import org.eclipse.jdt.core.dom.*;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ModificationPointFactory {
 
     private static final Logger logger = LogManager.getLogger(ModificationPointFactory.class);
+    private static final int SCREENING_CHUNK_SIZE = 128;
 
     private final AprConfig config;
     private final JavaProject project;
     private final Bug bug;
+    private IngredientScreeningInfo ingredientScreeningInfo;
 
-    private ModificationPointFactory(AprConfig config, JavaProject project, Bug bug) {
+    private ModificationPointFactory(AprConfig config, JavaProject project, Bug bug, IngredientScreeningInfo ingredientScreeningInfo) {
         this.config = config;
         this.project = project;
         this.bug = bug;
+        this.ingredientScreeningInfo = ingredientScreeningInfo;
     }
 
     public static List<ModificationPoint> create(AprConfig input, JavaProject project, Bug bug) throws AprException {
-        return (new ModificationPointFactory(input, project, bug)).createModificationPoints();
+        return (new ModificationPointFactory(input, project, bug, null)).createModificationPoints();
+    }
+
+    /**
+     * Creates modification points using symbol information that is shared with other users of the same project.
+     */
+    public static List<ModificationPoint> create(AprConfig input, JavaProject project, Bug bug, IngredientScreeningInfo ingredientScreeningInfo) throws AprException {
+        return (new ModificationPointFactory(input, project, bug, ingredientScreeningInfo)).createModificationPoints();
     }
 
     private List<ModificationPoint> createModificationPoints() throws AprException {
@@ -84,13 +97,16 @@ public class ModificationPointFactory {
         }
 
         // Obtain list of filtered but locations, but in their original order of appearance as it is slightly more intuitive for debugging
+        Map<BugLocation, Integer> locationIndices = new HashMap<>();
+        for (int i = 0; i < bug.suspiciousLocations().size(); i++) {
+            locationIndices.putIfAbsent(bug.suspiciousLocations().get(i), i);
+        }
         List<BugLocationInProject> bugLocations = bugLocationsInProject.stream()
-                .sorted(Comparator.comparing(l -> bug.suspiciousLocations().indexOf(l.location)))
+                .sorted(Comparator.comparing(l -> locationIndices.get(l.location)))
                 .toList();
 
         List<ModificationPoint> result = new ArrayList<>();
-        for (BugLocationInProject l : bugLocations) {
-            ModificationPoint modificationPoint = makeModificationPoint(l.file, l.cls, l.statement, l.location, bugLocations.indexOf(l));
+        for (ModificationPoint modificationPoint : makeModificationPoints(bugLocations)) {
             if (!modificationPoint.redundancyIngredients().isEmpty()) {
                 // Silently drop modification points which have no ingredients since at least one ingredient is needed for genetic search
                 result.add(modificationPoint);
@@ -131,21 +147,55 @@ public class ModificationPointFactory {
         throw new AprException("Failed to match buggy line info %s to a Java source file".formatted(location));
     }
 
-    private ModificationPoint makeModificationPoint(ParsedJavaFile file, JavaClass cls, Statement statement, BugLocation location, int index) throws AprException {
-        List<Statement> candidateIngredients = getCandidateIngredientStatementsForStatementInClass(cls);
-        checkIngredientCandidateASTs(candidateIngredients);
-        IngredientScreeningInfo ingredientScreeningInfo = IngredientScreeningInfo.create(project, List.of(statement), candidateIngredients);
+    private List<ModificationPoint> makeModificationPoints(List<BugLocationInProject> bugLocations) throws AprException {
+        // All statements are indexed up front, such that the screening info is only read while screening in parallel
+        IngredientScreeningInfo ingredientScreeningInfo = getIngredientScreeningInfo();
+        Map<String, List<Statement>> packageCandidateIngredients = new HashMap<>();
+        for (BugLocationInProject l : bugLocations) {
+            String packageName = l.cls.packageName().toString();
+            if (!packageCandidateIngredients.containsKey(packageName)) {
+                List<Statement> candidateIngredients = getCandidateIngredientStatementsForStatementInClass(l.cls);
+                checkIngredientCandidateASTs(candidateIngredients);
+                ingredientScreeningInfo.addIngredientCandidates(candidateIngredients);
+                packageCandidateIngredients.put(packageName, candidateIngredients);
+            }
+        }
+        ingredientScreeningInfo.addModificationCandidates(bugLocations.stream().map(l -> l.statement).toList());
+
+        IngredientScreenerCollection screeners = new IngredientScreenerCollection(config, ingredientScreeningInfo);
+        ForkJoinPool pool = new ForkJoinPool(config.nrScreeningThreads());
+        try {
+            List<ForkJoinTask<ModificationPoint>> tasks = new ArrayList<>();
+            for (int i = 0; i < bugLocations.size(); i++) {
+                BugLocationInProject l = bugLocations.get(i);
+                List<Statement> candidateIngredients = packageCandidateIngredients.get(l.cls.packageName().toString());
+                int index = i;
+                tasks.add(pool.submit(() -> makeModificationPoint(l, index, candidateIngredients, screeners, ingredientScreeningInfo)));
+            }
+
+            List<ModificationPoint> modificationPoints = new ArrayList<>();
+            for (ForkJoinTask<ModificationPoint> task : tasks) {
+                modificationPoints.add(getTaskResult(task));
+            }
+            return modificationPoints;
+        } finally {
+            // Stops the remaining tasks when screening failed
+            pool.shutdownNow();
+        }
+    }
 
-        List<Statement> filteredIngredients = getFilteredIngredientStatements(statement, candidateIngredients, ingredientScreeningInfo);
+    private ModificationPoint makeModificationPoint(BugLocationInProject l, int index, List<Statement> candidateIngredients,
+                                                    IngredientScreenerCollection screeners, IngredientScreeningInfo ingredientScreeningInfo) throws AprException {
+        List<Statement> filteredIngredients = getFilteredIngredientStatements(l.statement, candidateIngredients, screeners);
 
         ModificationPoint modificationPoint = new ModificationPoint(
                 index,
-                statement,
-                file,
-                cls,
-                NumberUtil.round(location.susScore(), 3),
+                l.statement,
+                l.file,
+                l.cls,
+                NumberUtil.round(l.location.susScore(), 3),
                 filteredIngredients.stream().map(i -> new Ingredient(i, true)).toList(),
-                getAllowedManipulationsForStatement(statement, ingredientScreeningInfo)
+                getAllowedManipulationsForStatement(l.statement, ingredientScreeningInfo)
         );
 
         if (filteredIngredients.isEmpty()) {
@@ -154,6 +204,14 @@ public class ModificationPointFactory {
         return modificationPoint;
     }
 
+    private IngredientScreeningInfo getIngredientScreeningInfo() {
+        // Declared class symbols of the whole project are only collected once, as this is expensive for large projects
+        if (ingredientScreeningInfo == null) {
+            ingredientScreeningInfo = IngredientScreeningInfo.create(project);
+        }
+        return ingredientScreeningInfo;
+    }
+
     private void checkIngredientCandidateASTs(List<Statement> ingredientCandidates) throws AprException {
         Set<CompilationUnit> compilationUnits = new HashSet<>(ingredientCandidates.stream().map(ASTUtil::getCompilationUnitForNode).toList());
         List<BindingCheckerVisitor.UnresolvedBinding> allUnresolvedBindings = new ArrayList<>();
@@ -183,16 +241,51 @@ public class ModificationPointFactory {
         return ingredients;
     }
 
-    private List<Statement> getFilteredIngredientStatements(Statement statement, List<Statement> ingredients, IngredientScreeningInfo ingredientScreeningInfo) throws AprException {
+    /**
+     * Screens the ingredients in chunks that are forked on the pool of the calling task, keeping their original order.
+     */
+    private List<Statement> getFilteredIngredientStatements(Statement statement, List<Statement> ingredients, IngredientScreenerCollection screeners) throws AprException {
+        List<ForkJoinTask<List<Statement>>> tasks = new ArrayList<>();
+        for (int start = 0; start < ingredients.size(); start += SCREENING_CHUNK_SIZE) {
+            List<Statement> chunk = ingredients.subList(start, Math.min(start + SCREENING_CHUNK_SIZE, ingredients.size()));
+            tasks.add(ForkJoinTask.adapt(() -> screenIngredients(statement, chunk, screeners)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        List<Statement> allowedIngredients = new ArrayList<>();
+        for (ForkJoinTask<List<Statement>> task : tasks) {
+            allowedIngredients.addAll(getTaskResult(task));
+        }
+        return allowedIngredients;
+    }
+
+    private static List<Statement> screenIngredients(Statement statement, List<Statement> ingredients, IngredientScreenerCollection screeners) throws AprException {
         List<Statement> allowedIngredients = new ArrayList<>();
         for (Statement ingredient : ingredients) {
-            if (IngredientScreenerCollection.screen(statement, ingredient, config, ingredientScreeningInfo)) {
+            if (screeners.screen(statement, ingredient)) {
                 allowedIngredients.add(ingredient);
             }
         }
         return allowedIngredients;
     }
 
+    private static <T> T getTaskResult(ForkJoinTask<T> task) throws AprException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AprException("Interrupted while creating modification points", e);
+        } catch (ExecutionException e) {
+            // Checked exceptions of tasks are wrapped by the fork join framework
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof AprException aprException) {
+                    throw aprException;
+                }
+            }
+            throw new AprException("Failed to create modification points", e.getCause());
+        }
+    }
+
     /**
      * Implements operation filter rules from table 1 of the ARJA paper
      */
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.parser;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.io.JSONUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.Bug;
+import nl.oebelelijzenga.arjaclm.model.apr.BugLocation;
+import nl.oebelelijzenga.arjaclm.model.apr.ModificationPoint;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.Ingredient;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.ValidIngredientTable;
+import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import nl.oebelelijzenga.arjaclm.model.java.JavaClass;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
+import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jdt.core.dom.Statement;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Persists the modification points of a bug along with their ingredients, the outcome of screening them per
+ * manipulation and their allowed manipulations. Statements are stored by their location in the source files, such that
+ * the index can be reattached to freshly parsed ASTs. An index is only used while the parsed sources, the suspicious
+ * locations and the modification point preferences are unchanged.
+ */
+public class ModificationPointIndex {
+
+    private static final Logger logger = LogManager.getLogger(ModificationPointIndex.class);
+
+    private record StatementInProject(ParsedJavaFile file, JavaClass cls, Statement statement) {}
+
+    public static Optional<List<ModificationPoint>> load(AprConfig config, JavaProject project, Bug bug) throws AprException {
+        Path indexFilePath = getIndexFilePath(config, bug);
+        if (!config.usePersistentModificationPointIndex() || !Files.exists(indexFilePath)) {
+            return Optional.empty();
+        }
+
+        ModificationPointIndexDto index;
+        try {
+            index = JSONUtil.fromJson(FileUtil.readFile(indexFilePath), ModificationPointIndexDto.class);
+        } catch (AprIOException e) {
+            logger.warn("Loading modification point index failed, ignoring it.");
+            return Optional.empty();
+        }
+
+        if (index == null || !getIndexKey(config, project, bug).equals(index.key())) {
+            logger.info("Modification point index of bug %s is outdated, ignoring it".formatted(bug.simpleName()));
+            return Optional.empty();
+        }
+
+        Map<String, StatementInProject> statements = getStatementsByLocation(project);
+        List<ModificationPoint> modificationPoints = new ArrayList<>();
+        for (ModificationPointIndexDto.ModificationPointDto dto : index.modificationPoints()) {
+            StatementInProject statement = statements.get(resolveLocation(index, dto.statement()));
+            List<Ingredient> ingredients = new ArrayList<>();
+            for (String ingredientLocation : dto.ingredients()) {
+                StatementInProject ingredient = statements.get(resolveLocation(index, ingredientLocation));
+                if (ingredient == null) {
+                    statement = null;
+                    break;
+                }
+                ingredients.add(new Ingredient(ingredient.statement(), true));
+            }
+
+            if (statement == null) {
+                logger.warn("Modification point index of bug %s refers to unknown statements, ignoring it".formatted(bug.simpleName()));
+                return Optional.empty();
+            }
+
+            Map<ManipulationName, List<Ingredient>> validIngredients = new EnumMap<>(ManipulationName.class);
+            for (ManipulationName manipulation : ManipulationName.values()) {
+                List<Integer> indices = dto.validIngredients() == null ? null : dto.validIngredients().get(manipulation);
+                if (indices == null || indices.stream().anyMatch(i -> i < 0 || i >= ingredients.size())) {
+                    logger.warn("Modification point index of bug %s has no valid screened ingredients, ignoring it".formatted(bug.simpleName()));
+                    return Optional.empty();
+                }
+                validIngredients.put(manipulation, indices.stream().map(ingredients::get).toList());
+            }
+
+            // The screened ingredients are restored rather than screened again
+            modificationPoints.add(new ModificationPoint(
+                    dto.index(),
+                    statement.statement(),
+                    statement.file(),
+                    statement.cls(),
+                    dto.weight(),
+                    ingredients,
+                    dto.allowedManipulations(),
+                    new ValidIngredientTable(statement.statement(), ingredients, validIngredients)
+            ));
+        }
+
+        logger.info("Loaded %d modification points from index".formatted(modificationPoints.size()));
+        return Optional.of(modificationPoints);
+    }
+
+    public static void save(AprConfig config, JavaProject project, Bug bug, List<ModificationPoint> modificationPoints) throws AprException {
+        if (!config.usePersistentModificationPointIndex()) {
+            return;
+        }
+
+        Map<Statement, ParsedJavaFile> statementFiles = new HashMap<>();
+        for (StatementInProject statement : getStatementsByLocation(project).values()) {
+            statementFiles.put(statement.statement(), statement.file());
+        }
+
+        List<String> files = new ArrayList<>();
+        List<ModificationPointIndexDto.ModificationPointDto> modificationPointDtos = new ArrayList<>();
+        for (ModificationPoint modificationPoint : modificationPoints) {
+            List<String> ingredients = new ArrayList<>();
+            for (Ingredient ingredient : modificationPoint.redundancyIngredients()) {
+                ingredients.add(formatLocation(files, statementFiles, ingredient.statements().get(0)));
+            }
+
+            Map<ManipulationName, List<Integer>> validIngredients = new EnumMap<>(ManipulationName.class);
+            for (ManipulationName manipulation : ManipulationName.values()) {
+                validIngredients.put(manipulation, getIngredientIndices(modificationPoint, modificationPoint.validIngredients().get(manipulation)));
+            }
+
+            modificationPointDtos.add(new ModificationPointIndexDto.ModificationPointDto(
+                    modificationPoint.index(),
+                    formatLocation(files, statementFiles, modificationPoint.statement()),
+                    modificationPoint.weight(),
+                    ingredients,
+                    modificationPoint.allowedManipulations(),
+                    validIngredients
+            ));
+        }
+
+        ModificationPointIndexDto index = new ModificationPointIndexDto(getIndexKey(config, project, bug), files, modificationPointDtos);
+        FileUtil.writeFile(getIndexFilePath(config, bug), JSONUtil.toJSON(index));
+    }
+
+    /*
+     * Ingredients are matched by identity, as a modification point may have distinct ingredients that are equal
+     */
+    private static List<Integer> getIngredientIndices(ModificationPoint modificationPoint, List<Ingredient> ingredients) {
+        List<Integer> result = new ArrayList<>();
+        for (Ingredient ingredient : ingredients) {
+            for (int i = 0; i < modificationPoint.redundancyIngredients().size(); i++) {
+                if (modificationPoint.redundancyIngredients().get(i) == ingredient) {
+                    result.add(i);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Path getIndexFilePath(AprConfig config, Bug bug) {
+        return config.fitnessCacheDir().resolve("modpoint_index_%s.json".formatted(bug.simpleName()));
+    }
+
+    private static String formatLocation(List<String> files, Map<Statement, ParsedJavaFile> statementFiles, Statement statement) throws AprException {
+        ParsedJavaFile file = statementFiles.get(statement);
+        if (file == null) {
+            throw new AprException("Statement %s is not part of the project".formatted(ASTUtil.statementToSingleLine(statement)));
+        }
+        String relativeFilePath = file.relativeFilePath().toString();
+        int fileIndex = files.indexOf(relativeFilePath);
+        if (fileIndex < 0) {
+            files.add(relativeFilePath);
+            fileIndex = files.size() - 1;
+        }
+        return "%d:%d:%d".formatted(fileIndex, statement.getStartPosition(), statement.getLength());
+    }
+
+    private static String resolveLocation(ModificationPointIndexDto index, String location) {
+        String[] parts = location.split(":");
+        return "%s:%s:%s".formatted(index.files().get(Integer.parseInt(parts[0])), parts[1], parts[2]);
+    }
+
+    private static Map<String, StatementInProject> getStatementsByLocation(JavaProject project) {
+        Map<String, StatementInProject> result = new HashMap<>();
+        for (ParsedJavaFile file : project.sourceFiles()) {
+            for (JavaClass cls : file.classes()) {
+                for (Statement statement : cls.statements()) {
+                    String location = "%s:%d:%d".formatted(file.relativeFilePath(), statement.getStartPosition(), statement.getLength());
+                    result.put(location, new StatementInProject(file, cls, statement));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Hash of everything the modification points depend on: the parsed sources, the class path their bindings are
+     * resolved against, the number of parser threads, the suspicious locations and the modification point preferences.
+     */
+    private static String getIndexKey(AprConfig config, JavaProject project, Bug bug) throws AprIOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        List<ParsedJavaFile> files = project.sourceFiles().stream().sorted(Comparator.comparing(f -> f.relativeFilePath().toString())).toList();
+        for (ParsedJavaFile file : files) {
+            digest.update("%s;".formatted(file.relativeFilePath()).getBytes(StandardCharsets.UTF_8));
+            digest.update(file.sourceCode().getBytes(StandardCharsets.UTF_8));
+        }
+        // Jars are identified by their size and modification time rather than their contents, which are large
+        for (Path entry : project.context().compileClassPath().paths().stream().sorted().toList()) {
+            try {
+                String entryInfo = Files.isRegularFile(entry) ? "%s:%s".formatted(Files.size(entry), Files.getLastModifiedTime(entry).toMillis()) : "";
+                digest.update("%s:%s;".formatted(entry, entryInfo).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new AprIOException("Failed to read class path entry " + entry, e);
+            }
+        }
+        digest.update("%s;".formatted(config.nrParserThreads()).getBytes(StandardCharsets.UTF_8));
+        for (BugLocation location : bug.suspiciousLocations()) {
+            Path file = location.file().isAbsolute() ? project.context().rootDir().relativize(location.file()) : location.file();
+            digest.update("%s:%s:%s;".formatted(file, location.lineNr(), location.susScore()).getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update("%s_%s".formatted(config.modificationPointSuspiciousnessThreshold(), config.maxNrModificationPoints()).getBytes(StandardCharsets.UTF_8));
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
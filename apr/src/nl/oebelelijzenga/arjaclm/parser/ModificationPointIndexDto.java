@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.parser;
+
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+
+import java.util.List;
+import java.util.Map;
+
+public record ModificationPointIndexDto(
+        String key,
+        // Relative paths of the source files referred to by the statement locations
+        List<String> files,
+        List<ModificationPointDto> modificationPoints
+) {
+    public record ModificationPointDto(
+            int index,
+            // Statement locations are formatted as <file index>:<start position>:<length>
+            String statement,
+            float weight,
+            List<String> ingredients,
+            List<ManipulationName> allowedManipulations,
+            // Indices of the ingredients that pass the modification screening rules, per manipulation
+            Map<ManipulationName, List<Integer>> validIngredients
+    ) {
+    }
+}
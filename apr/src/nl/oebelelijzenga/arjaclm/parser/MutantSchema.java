@@ -0,0 +1,439 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.parser;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.model.apr.ModificationPoint;
+import nl.oebelelijzenga.arjaclm.model.apr.Patch;
+import nl.oebelelijzenga.arjaclm.model.apr.genetic.Edit;
+import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
+import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.eclipse.jdt.core.dom.*;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Source code of a single build that contains the edits of many patches at once ("mutant schema"). The statement of
+ * every modification point that is edited by one of the patches is replaced by an if-else chain in which each
+ * distinct edit is a branch that is only taken when its system property is set, and the original statement is the
+ * final else branch. A patch is activated by setting the properties of its edits when starting the test JVM.
+ * <p>
+ * The branches contain the output of the java editor for the single edit, so that they match the source of the patch.
+ * As every branch is a nested block, edits that change the scope of declarations cannot be guarded. Neither can edits
+ * that insert jump statements, since an else branch that completes normally hides compiler errors such as unreachable
+ * code after the edit. Patches with such edits, with edits that were excluded, or with edits of modification points
+ * that overlap with those of other patches are left out of the schema, such that they can be evaluated separately.
+ */
+public class MutantSchema {
+
+    public static final String GUARD_PROPERTY_PREFIX = "apr.schema.";
+    private static final Pattern COMPILER_ERROR_PATTERN = Pattern.compile("(?m)(\\S+\\.java):(\\d+): error:");
+
+    /*
+     * Lines of the schema source, 1-based and inclusive
+     */
+    private record LineRange(Path file, int startLine, int endLine) {
+        boolean contains(Path file, int lineNr) {
+            return this.file.equals(file) && lineNr >= startLine && lineNr <= endLine;
+        }
+
+        int size() {
+            return endLine - startLine;
+        }
+    }
+
+    private record Guard(int id, String key, Edit edit) {
+    }
+
+    private final List<RawJavaFile> files;
+    private final Map<Patch, List<Guard>> patchGuards;
+    private final Map<Guard, LineRange> guardLines;
+    // Body declarations of the schema that contain guards, mapped to those guards
+    private final Map<LineRange, Set<Guard>> bodyDeclarationGuards;
+
+    private MutantSchema(List<RawJavaFile> files, Map<Patch, List<Guard>> patchGuards, Map<Guard, LineRange> guardLines, Map<LineRange, Set<Guard>> bodyDeclarationGuards) {
+        this.files = files;
+        this.patchGuards = patchGuards;
+        this.guardLines = guardLines;
+        this.bodyDeclarationGuards = bodyDeclarationGuards;
+    }
+
+    /**
+     * Creates a schema of the given patches, leaving out patches of which an edit has one of the excluded keys. Returns
+     * an empty optional when less than two patches can be included, in which case a schema saves no compilation.
+     */
+    public static Optional<MutantSchema> create(List<Patch> patches, Set<String> excludedEditKeys, JavaEditor javaEditor) throws AprException {
+        Map<Patch, List<Edit>> includedPatches = new LinkedHashMap<>();
+        for (Patch patch : patches) {
+            List<Edit> edits = patch.variant().enabledEdits();
+            if (!edits.isEmpty() && edits.stream().allMatch(e -> canGuard(e) && !excludedEditKeys.contains(getEditKey(e)))
+                    && edits.stream().map(e -> e.modificationPoint().statement()).distinct().count() == edits.size()) {
+                includedPatches.put(patch, edits);
+            }
+        }
+
+        Set<Statement> statements = selectNonOverlappingStatements(includedPatches.values());
+        includedPatches.values().removeIf(edits -> !edits.stream().allMatch(e -> statements.contains(e.modificationPoint().statement())));
+        if (includedPatches.size() < 2) {
+            return Optional.empty();
+        }
+
+        // Guards of the same modification point are kept in order of first use, such that schemas are deterministic
+        Map<String, Guard> guards = new LinkedHashMap<>();
+        Map<Patch, List<Guard>> patchGuards = new LinkedHashMap<>();
+        for (Map.Entry<Patch, List<Edit>> entry : includedPatches.entrySet()) {
+            List<Guard> guardsOfPatch = new ArrayList<>();
+            for (Edit edit : entry.getValue()) {
+                String key = getEditKey(edit);
+                guardsOfPatch.add(guards.computeIfAbsent(key, k -> new Guard(guards.size(), k, edit)));
+            }
+            patchGuards.put(entry.getKey(), guardsOfPatch);
+        }
+
+        Map<ParsedJavaFile, Map<Statement, List<Guard>>> fileGuards = new LinkedHashMap<>();
+        for (Guard guard : guards.values()) {
+            ModificationPoint modificationPoint = guard.edit().modificationPoint();
+            fileGuards.computeIfAbsent(modificationPoint.sourceFile(), f -> new LinkedHashMap<>())
+                    .computeIfAbsent(modificationPoint.statement(), s -> new ArrayList<>())
+                    .add(guard);
+        }
+
+        List<RawJavaFile> files = new ArrayList<>();
+        Map<Guard, LineRange> guardLines = new HashMap<>();
+        Map<LineRange, Set<Guard>> bodyDeclarationGuards = new HashMap<>();
+        for (Map.Entry<ParsedJavaFile, Map<Statement, List<Guard>>> entry : fileGuards.entrySet()) {
+            Optional<RawJavaFile> file = renderFile(entry.getKey(), entry.getValue(), guardLines, bodyDeclarationGuards, javaEditor);
+            if (file.isEmpty()) {
+                return Optional.empty();
+            }
+            files.add(file.get());
+        }
+
+        return Optional.of(new MutantSchema(files, patchGuards, guardLines, bodyDeclarationGuards));
+    }
+
+    public List<RawJavaFile> files() {
+        return files;
+    }
+
+    public List<Path> filePaths() {
+        return files.stream().map(RawJavaFile::relativeFilePath).toList();
+    }
+
+    public Set<Patch> patches() {
+        return patchGuards.keySet();
+    }
+
+    public boolean contains(Patch patch) {
+        return patchGuards.containsKey(patch);
+    }
+
+    /**
+     * System properties that activate the edits of a patch in the schema.
+     */
+    public Map<String, String> getSystemProperties(Patch patch) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (Guard guard : patchGuards.get(patch)) {
+            properties.put(GUARD_PROPERTY_PREFIX + guard.id(), "true");
+        }
+        return properties;
+    }
+
+    /**
+     * Determines the edits that caused the given compiler output. An error inside the branch of an edit is caused by
+     * that edit. Other errors, such as a missing return statement after a return was deleted, are attributed to all
+     * edits of the method (or other body declaration) they occur in. Returns an empty optional when an error cannot be
+     * attributed to any edit, in which case excluding edits will not make the schema compile.
+     */
+    public Optional<Set<String>> getEditKeysCausingErrors(String compilerOutput) {
+        Set<String> result = new HashSet<>();
+        Matcher matcher = COMPILER_ERROR_PATTERN.matcher(compilerOutput);
+        while (matcher.find()) {
+            Path errorFile = Path.of(matcher.group(1));
+            int lineNr = Integer.parseInt(matcher.group(2));
+            Optional<Path> file = files.stream().map(RawJavaFile::relativeFilePath).filter(errorFile::endsWith).findFirst();
+            if (file.isEmpty()) {
+                return Optional.empty();
+            }
+
+            Optional<Guard> guard = guardLines.entrySet().stream()
+                    .filter(e -> e.getValue().contains(file.get(), lineNr))
+                    .map(Map.Entry::getKey)
+                    .findFirst();
+            if (guard.isPresent()) {
+                result.add(guard.get().key());
+                continue;
+            }
+
+            Optional<LineRange> bodyDeclaration = bodyDeclarationGuards.keySet().stream()
+                    .filter(r -> r.contains(file.get(), lineNr))
+                    .min(Comparator.comparing(LineRange::size));
+            if (bodyDeclaration.isEmpty()) {
+                return Optional.empty();
+            }
+            bodyDeclarationGuards.get(bodyDeclaration.get()).forEach(g -> result.add(g.key()));
+        }
+        return result.isEmpty() ? Optional.empty() : Optional.of(result);
+    }
+
+    /**
+     * Identifies the effect of an edit, in the same way as the keys of the edited files cached by the java editor.
+     */
+    public static String getEditKey(Edit edit) {
+        Statement statement = edit.modificationPoint().statement();
+        StringBuilder key = new StringBuilder(edit.modificationPoint().sourceFile().relativeFilePath().toString());
+        key.append("|%d:%d:%s".formatted(statement.getStartPosition(), statement.getLength(), edit.manipulation()));
+        if (edit.manipulation() != ManipulationName.DELETE) {
+            for (Statement ingredientStatement : edit.ingredient().statements()) {
+                key.append(":").append(ingredientStatement.toString());
+            }
+        }
+        return key.toString();
+    }
+
+    /*
+     * Declarations cannot be moved into a nested block without changing their scope, and constructor invocations
+     * must remain the first statement of a constructor. Labels must stay directly attached to their loop. Inserted
+     * jump statements are only checked for reachability and definite returns when compiled without the else branch.
+     */
+    private static boolean canGuard(Edit edit) {
+        Statement statement = edit.modificationPoint().statement();
+        if (!canGuard(statement) || statement.getParent() instanceof LabeledStatement) {
+            return false;
+        }
+        return edit.manipulation() == ManipulationName.DELETE
+                || edit.ingredient().statements().stream().allMatch(s -> canGuard(s) && !containsJump(s));
+    }
+
+    private static boolean canGuard(Statement statement) {
+        return !(statement instanceof VariableDeclarationStatement
+                || statement instanceof TypeDeclarationStatement
+                || statement instanceof ConstructorInvocation
+                || statement instanceof SuperConstructorInvocation
+                || statement instanceof SwitchCase);
+    }
+
+    private static boolean containsJump(Statement statement) {
+        boolean[] result = {false};
+        statement.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(ReturnStatement node) {
+                result[0] = true;
+                return false;
+            }
+
+            @Override
+            public boolean visit(ThrowStatement node) {
+                result[0] = true;
+                return false;
+            }
+
+            @Override
+            public boolean visit(BreakStatement node) {
+                result[0] = true;
+                return false;
+            }
+
+            @Override
+            public boolean visit(ContinueStatement node) {
+                result[0] = true;
+                return false;
+            }
+
+            @Override
+            public boolean visit(YieldStatement node) {
+                result[0] = true;
+                return false;
+            }
+
+            // Jumps of lambdas and local classes do not leave the statement
+            @Override
+            public boolean visit(LambdaExpression node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(AnonymousClassDeclaration node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(TypeDeclarationStatement node) {
+                return false;
+            }
+        });
+        return result[0];
+    }
+
+    /*
+     * Picks the statements that are edited by most patches first, and skips statements that contain or are contained
+     * by a statement that was already picked
+     */
+    private static Set<Statement> selectNonOverlappingStatements(Collection<List<Edit>> patchEdits) {
+        Map<Statement, Integer> nrUses = new LinkedHashMap<>();
+        for (List<Edit> edits : patchEdits) {
+            for (Edit edit : edits) {
+                nrUses.merge(edit.modificationPoint().statement(), 1, Integer::sum);
+            }
+        }
+
+        Set<Statement> result = new HashSet<>();
+        List<Statement> candidates = nrUses.keySet().stream().sorted(Comparator.comparing(nrUses::get).reversed()).toList();
+        for (Statement candidate : candidates) {
+            if (result.stream().noneMatch(s -> overlap(s, candidate))) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    private static boolean overlap(Statement a, Statement b) {
+        if (a.getRoot() != b.getRoot()) {
+            return false;
+        }
+        return a.getStartPosition() < b.getStartPosition() + b.getLength() && b.getStartPosition() < a.getStartPosition() + a.getLength();
+    }
+
+    /*
+     * The branch of a guard replaces the region of the original source that the editor changed for its edit, which
+     * contains the statement and may include surrounding whitespace. All guards of a statement replace the union of
+     * their regions. Returns an empty optional when the regions of different statements overlap.
+     */
+    private static Optional<RawJavaFile> renderFile(ParsedJavaFile file, Map<Statement, List<Guard>> statementGuards, Map<Guard, LineRange> guardLines, Map<LineRange, Set<Guard>> bodyDeclarationGuards, JavaEditor javaEditor) throws AprException {
+        String original = file.sourceCode();
+        List<Statement> statements = statementGuards.keySet().stream().sorted(Comparator.comparing(Statement::getStartPosition)).toList();
+
+        StringBuilder schema = new StringBuilder();
+        // Original offsets at the end of replaced regions, mapped to the difference in length up to there
+        TreeMap<Integer, Integer> offsetShifts = new TreeMap<>();
+        Map<Guard, int[]> guardOffsets = new HashMap<>();
+        int cursor = 0;
+        for (Statement statement : statements) {
+            Map<Guard, String> editedSources = new LinkedHashMap<>();
+            int start = statement.getStartPosition();
+            int end = start + statement.getLength();
+            for (Guard guard : statementGuards.get(statement)) {
+                String edited = javaEditor.getCachedEditedSourceFiles(List.of(guard.edit())).get(0).sourceCode();
+                editedSources.put(guard, edited);
+                int[] region = getEditedRegion(original, edited, statement);
+                start = Math.min(start, region[0]);
+                end = Math.max(end, region[1]);
+            }
+            if (start < cursor) {
+                return Optional.empty();
+            }
+            schema.append(original, cursor, start);
+
+            for (Map.Entry<Guard, String> entry : editedSources.entrySet()) {
+                String edited = entry.getValue();
+                schema.append("if (java.lang.System.getProperty(\"%s%s\") != null) {\n".formatted(GUARD_PROPERTY_PREFIX, entry.getKey().id()));
+                int branchStart = schema.length();
+                schema.append(edited, start, end + edited.length() - original.length());
+                guardOffsets.put(entry.getKey(), new int[]{branchStart, schema.length()});
+                schema.append("\n} else ");
+            }
+            schema.append("{\n").append(original, start, end).append("\n}");
+
+            offsetShifts.put(end, schema.length() - end);
+            cursor = end;
+        }
+        schema.append(original, cursor, original.length());
+        String schemaSource = schema.toString();
+        int[] lineOffsets = getLineOffsets(schemaSource);
+
+        for (Map.Entry<Guard, int[]> entry : guardOffsets.entrySet()) {
+            guardLines.put(entry.getKey(), new LineRange(
+                    file.relativeFilePath(),
+                    getLineNr(lineOffsets, entry.getValue()[0]),
+                    getLineNr(lineOffsets, entry.getValue()[1])
+            ));
+        }
+
+        for (Statement statement : statements) {
+            Optional<BodyDeclaration> bodyDeclaration = ASTUtil.getParentOfType(statement, BodyDeclaration.class);
+            if (bodyDeclaration.isEmpty()) {
+                continue;
+            }
+            int start = bodyDeclaration.get().getStartPosition();
+            int end = start + bodyDeclaration.get().getLength();
+            LineRange lines = new LineRange(
+                    file.relativeFilePath(),
+                    getLineNr(lineOffsets, getSchemaOffset(offsetShifts, start)),
+                    getLineNr(lineOffsets, getSchemaOffset(offsetShifts, end))
+            );
+            bodyDeclarationGuards.computeIfAbsent(lines, l -> new HashSet<>()).addAll(statementGuards.get(statement));
+        }
+
+        return Optional.of(new RawJavaFile(file.relativeFilePath(), schemaSource));
+    }
+
+    /*
+     * Start and end offset of the original source that differs from the edited source, extended to contain the
+     * statement. The common prefix and suffix stop at the statement, as inserted code may repeat part of it.
+     */
+    private static int[] getEditedRegion(String original, String edited, Statement statement) {
+        int statementStart = statement.getStartPosition();
+        int statementEnd = statementStart + statement.getLength();
+
+        int prefixLength = 0;
+        int maxPrefixLength = Math.min(statementStart, edited.length());
+        while (prefixLength < maxPrefixLength && original.charAt(prefixLength) == edited.charAt(prefixLength)) {
+            prefixLength++;
+        }
+
+        int suffixLength = 0;
+        int maxSuffixLength = Math.min(original.length() - statementEnd, edited.length() - prefixLength);
+        while (suffixLength < maxSuffixLength
+                && original.charAt(original.length() - 1 - suffixLength) == edited.charAt(edited.length() - 1 - suffixLength)) {
+            suffixLength++;
+        }
+
+        return new int[]{prefixLength, original.length() - suffixLength};
+    }
+
+    private static int getSchemaOffset(TreeMap<Integer, Integer> offsetShifts, int originalOffset) {
+        Map.Entry<Integer, Integer> shift = offsetShifts.floorEntry(originalOffset);
+        return shift == null ? originalOffset : originalOffset + shift.getValue();
+    }
+
+    /*
+     * Offsets at which the lines of the source start
+     */
+    private static int[] getLineOffsets(String source) {
+        List<Integer> offsets = new ArrayList<>(List.of(0));
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                offsets.add(i + 1);
+            }
+        }
+        return offsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int getLineNr(int[] lineOffsets, int offset) {
+        int index = Arrays.binarySearch(lineOffsets, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -25,7 +25,6 @@ import nl.oebelelijzenga.arjaclm.exception.AprException;
 import nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening.*;
 import org.eclipse.jdt.core.dom.Statement;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -49,8 +48,8 @@ public abstract class AbstractIngredientScreener {
      * @return The declared symbol matching the reference
      */
     protected Optional<DeclaredSymbol> resolveSymbol(ReferencedSymbol referencedSymbol, Statement statement) throws AprException {
-        List<DeclaredSymbol> declaredSymbols = ingredientScreeningInfo.getDeclaredSymbols(statement);
-        for (DeclaredSymbol declaredSymbol : declaredSymbols) {
+        // Only symbols matching the reference by name are considered, in the same order as all visible symbols
+        for (DeclaredSymbol declaredSymbol : ingredientScreeningInfo.getDeclaredSymbolTable(statement).getCandidates(referencedSymbol)) {
             if (symbolReferenceMatches(referencedSymbol, declaredSymbol, statement)) {
                 return Optional.of(declaredSymbol);
             }
@@ -71,7 +70,7 @@ public abstract class AbstractIngredientScreener {
             return false;
         }
         // check visibility
-        if(!(declaredSymbol.getVisibility() == SymbolVisibility.LOCAL || (declaredSymbol.isVisibleFromClass(cls.getTypeBinding()) && declaredSymbol.isFieldOf(cls.getTypeBinding())))) {
+        if(!(declaredSymbol.getVisibility() == SymbolVisibility.LOCAL || (declaredSymbol.isVisibleFromClass(cls) && declaredSymbol.isFieldOf(cls)))) {
             return false;
         }
 
@@ -148,7 +147,7 @@ public abstract class AbstractIngredientScreener {
             }
 
             // Check return type / variable type
-            if (!IngredientUtil.typesWeaklyMatch(declaredArgument.get().getOutputTypeBinding(), declaredParameter.getOutputTypeBinding())) {
+            if (!IngredientUtil.typesWeaklyMatch(declaredArgument.get().getOutputTypeBinding(), declaredParameter.getOutputTypeBinding(), ingredientScreeningInfo.hasMultipleBindingEnvironments())) {
                 return false;
             }
         }
@@ -85,7 +85,7 @@ public class ArjaRulesIngredientScreener extends AbstractIngredientScreener {
         ITypeBinding ingredientSwitchType = IngredientUtil.getSwitchType(ASTUtil.getParentOfType(ingredient, SwitchStatement.class).orElseThrow());
         ITypeBinding statementSwitchType = IngredientUtil.getSwitchType(statementSwitchStatement.get());
 
-        return IngredientUtil.typesStronglyMatch(ingredientSwitchType, statementSwitchType);
+        return IngredientUtil.typesStronglyMatch(ingredientSwitchType, statementSwitchType, ingredientScreeningInfo.hasMultipleBindingEnvironments());
     }
 
     public boolean rule4(Statement statement, Statement ingredient) throws AprException {
@@ -97,24 +97,26 @@ public class ArjaRulesIngredientScreener extends AbstractIngredientScreener {
             ITypeBinding thrownType = IngredientUtil.getThrowExceptionType(throwIngredient);
 
             // subclasses of RuntimeException and Error do not require explicit 'throws' declaration
-            if (ASTUtil.instanceOf(thrownType, QualifiedName.fromString(RuntimeException.class.getName()))) {
-                return true;
-            }
-            if (ASTUtil.instanceOf(thrownType, QualifiedName.fromString(Error.class.getName()))) {
-                return true;
+            synchronized (IngredientUtil.BINDING_LOCK) {
+                if (ASTUtil.instanceOf(thrownType, QualifiedName.fromString(RuntimeException.class.getName()))) {
+                    return true;
+                }
+                if (ASTUtil.instanceOf(thrownType, QualifiedName.fromString(Error.class.getName()))) {
+                    return true;
+                }
             }
 
-            return throwTypes.stream().anyMatch(t -> IngredientUtil.typesWeaklyMatch(thrownType, t));
+            return throwTypes.stream().anyMatch(t -> IngredientUtil.typesWeaklyMatch(thrownType, t, ingredientScreeningInfo.hasMultipleBindingEnvironments()));
         }
 
         if (ingredient instanceof ReturnStatement returnIngredient) {
             Optional<ITypeBinding> returnedType = IngredientUtil.getReturnStatementType(returnIngredient);
-            String methodReturnType = method.returnTypeBinding().getQualifiedName();
-            if (returnedType.isEmpty() || methodReturnType.equals("void")) {
-                return returnedType.isEmpty() && methodReturnType.equals("void");
+            boolean methodReturnsVoid = method.returnTypeName().equals(new QualifiedName("void"));
+            if (returnedType.isEmpty() || methodReturnsVoid) {
+                return returnedType.isEmpty() && methodReturnsVoid;
             }
 
-            return IngredientUtil.typesWeaklyMatch(returnedType.get(), method.returnTypeBinding());
+            return IngredientUtil.typesWeaklyMatch(returnedType.get(), method.returnTypeBinding(), ingredientScreeningInfo.hasMultipleBindingEnvironments());
         }
 
         return true;
@@ -147,7 +149,7 @@ public class ArjaRulesIngredientScreener extends AbstractIngredientScreener {
         }
 
         for (String statementVariable : statementVariables.keySet()) {
-            if (!IngredientUtil.typesStronglyMatch(ingredientVariables.get(statementVariable), statementVariables.get(statementVariable))) {
+            if (!IngredientUtil.typesStronglyMatch(ingredientVariables.get(statementVariable), statementVariables.get(statementVariable), ingredientScreeningInfo.hasMultipleBindingEnvironments())) {
                 return false;
             }
         }
@@ -31,12 +31,23 @@ import org.eclipse.jdt.core.dom.Statement;
 
 import java.util.List;
 
+/**
+ * Applies all ingredient screeners. The screeners only read the screening info, so a single collection can be shared
+ * by threads screening in parallel as long as no statements are added to the info meanwhile. Symbols resolve the names
+ * they are matched on when they are created, and the remaining binding queries hold {@link IngredientUtil#BINDING_LOCK}.
+ */
 public class IngredientScreenerCollection {
 
     private static final Logger logger = LogManager.getLogger(IngredientScreenerCollection.class);
 
-    public static boolean screen(Statement statement, Statement ingredient, AprConfig aprConfig, IngredientScreeningInfo ingredientScreeningInfo) throws AprException {
-        for (AbstractIngredientScreener screener : createIngredientScreeners(aprConfig, ingredientScreeningInfo)) {
+    private final List<AbstractIngredientScreener> screeners;
+
+    public IngredientScreenerCollection(AprConfig aprConfig, IngredientScreeningInfo ingredientScreeningInfo) {
+        this.screeners = createIngredientScreeners(aprConfig, ingredientScreeningInfo);
+    }
+
+    public boolean screen(Statement statement, Statement ingredient) throws AprException {
+        for (AbstractIngredientScreener screener : screeners) {
             if (!screener.screen(statement, ingredient)) {
                 logger.debug(
                         "%s rejected ingredient \"%s\" for statement \"%s\"".formatted(
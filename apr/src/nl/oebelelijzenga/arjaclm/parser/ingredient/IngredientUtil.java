@@ -27,16 +27,101 @@ import org.eclipse.jdt.core.dom.*;
 import java.util.*;
 
 public class IngredientUtil {
+    private static final Map<String, Class<?>> BOXED_PRIMITIVE_TYPES = Map.of(
+            "boolean", Boolean.class,
+            "byte", Byte.class,
+            "char", Character.class,
+            "short", Short.class,
+            "int", Integer.class,
+            "long", Long.class,
+            "float", Float.class,
+            "double", Double.class
+    );
+
+    /**
+     * JDT bindings are not thread-safe, as they lazily resolve and cache types in maps that are shared by all bindings
+     * of an environment. Threads that screen ingredients in parallel hold this lock while querying bindings.
+     */
+    public static final Object BINDING_LOCK = new Object();
+
     public static boolean typesWeaklyMatch(ITypeBinding source, ITypeBinding target) {
-        return source.isAssignmentCompatible(target);
+        synchronized (BINDING_LOCK) {
+            return source.isAssignmentCompatible(target);
+        }
     }
 
-    public static boolean typesStronglyMatch(ITypeBinding source, ITypeBinding target) {
-        if (!typesWeaklyMatch(source, target)) {
+    /**
+     * Files parsed by different parser threads get their bindings from different environments, which JDT never
+     * considers assignment compatible, not even for the same type. When the project has multiple environments and JDT
+     * rejects the types, they are also matched by the binding keys of the source type and its super types, which are
+     * the same in every environment, and by the names of boxed primitive types.
+     */
+    public static boolean typesWeaklyMatch(ITypeBinding source, ITypeBinding target, boolean multipleBindingEnvironments) {
+        synchronized (BINDING_LOCK) {
+            if (typesWeaklyMatch(source, target)) {
+                return true;
+            }
+            return multipleBindingEnvironments && (isSubTypeByKey(source, target) || isBoxingCompatibleByName(source, target));
+        }
+    }
+
+    private static boolean isSubTypeByKey(ITypeBinding source, ITypeBinding target) {
+        if (source.isPrimitive() || target.isPrimitive() || source.isNullType() || target.getKey() == null) {
             return false;
         }
+        if (target.getQualifiedName().equals(Object.class.getName())) {
+            // Interfaces have no super class, but are still assignable to Object
+            return true;
+        }
 
-        return source.getQualifiedName().equals(target.getQualifiedName());
+        Set<String> visitedKeys = new HashSet<>();
+        Deque<ITypeBinding> queue = new ArrayDeque<>(List.of(source));
+        while (!queue.isEmpty()) {
+            ITypeBinding type = queue.pop();
+            if (type.getKey() == null || !visitedKeys.add(type.getKey())) {
+                continue;
+            }
+            if (type.getKey().equals(target.getKey())) {
+                // The same binding means the same environment, in which JDT has already rejected the types
+                return type != target;
+            }
+            if (type.getSuperclass() != null) {
+                queue.add(type.getSuperclass());
+            }
+            queue.addAll(List.of(type.getInterfaces()));
+        }
+        return false;
+    }
+
+    private static boolean isBoxingCompatibleByName(ITypeBinding source, ITypeBinding target) {
+        if (source.isPrimitive() && !target.isPrimitive() && BOXED_PRIMITIVE_TYPES.containsKey(source.getName())) {
+            // Boxing, followed by a widening reference conversion
+            Class<?> boxedType = BOXED_PRIMITIVE_TYPES.get(source.getName());
+            Set<String> typeNames = new HashSet<>();
+            for (Class<?> cls = boxedType; cls != null; cls = cls.getSuperclass()) {
+                typeNames.add(cls.getTypeName());
+                Arrays.stream(cls.getGenericInterfaces()).map(java.lang.reflect.Type::getTypeName).forEach(typeNames::add);
+            }
+            return typeNames.contains(target.getQualifiedName());
+        }
+        if (!source.isPrimitive() && target.isPrimitive() && BOXED_PRIMITIVE_TYPES.containsKey(target.getName())) {
+            return source.getQualifiedName().equals(BOXED_PRIMITIVE_TYPES.get(target.getName()).getName());
+        }
+        return false;
+    }
+
+    public static boolean typesStronglyMatch(ITypeBinding source, ITypeBinding target) {
+        return typesStronglyMatch(source, target, false);
+    }
+
+    public static boolean typesStronglyMatch(ITypeBinding source, ITypeBinding target, boolean multipleBindingEnvironments) {
+        synchronized (BINDING_LOCK) {
+            if (!typesWeaklyMatch(source, target, multipleBindingEnvironments)) {
+                return false;
+            }
+
+            return source.getQualifiedName().equals(target.getQualifiedName());
+        }
     }
 
     public static boolean statementIsLastInMethod(Statement statement) {
@@ -64,35 +149,45 @@ public class IngredientUtil {
 
     public static List<ITypeBinding> getMethodThrowsTypes(MethodDeclaration methodDeclaration) {
         List<ITypeBinding> result = new ArrayList<>();
-        for (Object obj : methodDeclaration.thrownExceptionTypes()) {
-            Type type = (Type) obj;
-            result.add(type.resolveBinding());
+        synchronized (BINDING_LOCK) {
+            for (Object obj : methodDeclaration.thrownExceptionTypes()) {
+                Type type = (Type) obj;
+                result.add(type.resolveBinding());
+            }
         }
         return result;
     }
 
     public static ITypeBinding getThrowExceptionType(ThrowStatement statement) {
-        return statement.getExpression().resolveTypeBinding();
+        synchronized (BINDING_LOCK) {
+            return statement.getExpression().resolveTypeBinding();
+        }
     }
 
     public static Optional<ITypeBinding> getReturnStatementType(ReturnStatement statement) {
         if (statement.getExpression() == null) {
             return Optional.empty();
         }
-        return Optional.of(statement.getExpression().resolveTypeBinding());
+        synchronized (BINDING_LOCK) {
+            return Optional.of(statement.getExpression().resolveTypeBinding());
+        }
     }
 
     public static Map<String, ITypeBinding> getDeclaredVariables(VariableDeclarationStatement statement) {
         Map<String, ITypeBinding> declaredVariables = new HashMap<>();
-        for (Object obj : statement.fragments()) {
-            VariableDeclarationFragment fragment = (VariableDeclarationFragment) obj;
-            declaredVariables.put(fragment.getName().toString(), fragment.resolveBinding().getType());
+        synchronized (BINDING_LOCK) {
+            for (Object obj : statement.fragments()) {
+                VariableDeclarationFragment fragment = (VariableDeclarationFragment) obj;
+                declaredVariables.put(fragment.getName().toString(), fragment.resolveBinding().getType());
+            }
         }
         return declaredVariables;
     }
 
     public static ITypeBinding getSwitchType(SwitchStatement statement) {
-        return statement.getExpression().resolveTypeBinding();
+        synchronized (BINDING_LOCK) {
+            return statement.getExpression().resolveTypeBinding();
+        }
     }
 
     private static Optional<Statement> getLastStatementInBlock(Block block) {
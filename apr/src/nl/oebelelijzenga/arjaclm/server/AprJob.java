@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.server;
+
+import nl.oebelelijzenga.arjaclm.apr.AprResult;
+import nl.oebelelijzenga.arjaclm.apr.AprResultDto;
+import nl.oebelelijzenga.arjaclm.apr.IAprRunListener;
+import nl.oebelelijzenga.arjaclm.genetic.GenerationStatistics;
+import nl.oebelelijzenga.arjaclm.model.io.AprPreferences;
+import nl.oebelelijzenga.arjaclm.server.dto.AprJobDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A repair job submitted to the {@link AprServer}. Progress is recorded as events, which clients can poll or stream.
+ */
+public class AprJob implements IAprRunListener {
+
+    private final int id;
+    private final List<String> args;
+    private final AprPreferences preferences;
+    private final List<String> events = new ArrayList<>();
+    private final List<GenerationStatistics> generations = new ArrayList<>();
+    private AprJobStatus status = AprJobStatus.QUEUED;
+    private AprResult result = null;
+
+    public AprJob(int id, List<String> args, AprPreferences preferences) {
+        this.id = id;
+        this.args = args;
+        this.preferences = preferences;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public AprPreferences preferences() {
+        return preferences;
+    }
+
+    public synchronized AprJobStatus status() {
+        return status;
+    }
+
+    public synchronized void setRunning() {
+        status = AprJobStatus.RUNNING;
+        addEvent("Job started");
+    }
+
+    public synchronized void setFinished(AprResult result) {
+        this.result = result;
+        status = result.executionError() ? AprJobStatus.FAILED : AprJobStatus.FINISHED;
+        addEvent("Job %s after %s ms with %s test-adequate patches".formatted(
+                status.name().toLowerCase(),
+                result.executionTimeMillis(),
+                result.population().correctVariants().size()
+        ));
+    }
+
+    public synchronized void setFailed(Exception e) {
+        status = AprJobStatus.FAILED;
+        addEvent("Job failed with an exception: %s: %s".formatted(e.getClass().getName(), e.getMessage()));
+    }
+
+    @Override
+    public synchronized void onEvent(String message) {
+        addEvent(message);
+    }
+
+    @Override
+    public synchronized void onGenerationFinished(GenerationStatistics statistics) {
+        generations.add(statistics);
+        addEvent("Generation %s finished in %s ms, best fitness %s, %s unique test-adequate variants".formatted(
+                statistics.generationNr(),
+                statistics.durationMillis(),
+                statistics.bestFitness(),
+                statistics.nrUniqueTestAdequateVariants()
+        ));
+    }
+
+    /**
+     * Blocks until more than nrKnownEvents events are available or the job is done, and returns the new events.
+     */
+    public synchronized List<String> awaitEvents(int nrKnownEvents) throws InterruptedException {
+        while (events.size() <= nrKnownEvents && !status.isDone()) {
+            wait();
+        }
+        return new ArrayList<>(events.subList(Math.min(nrKnownEvents, events.size()), events.size()));
+    }
+
+    public synchronized AprJobDto toDto() {
+        return new AprJobDto(
+                id,
+                args,
+                preferences.bugDir(),
+                preferences.seed(),
+                status,
+                new ArrayList<>(events),
+                new ArrayList<>(generations),
+                result == null ? null : new AprResultDto(result)
+        );
+    }
+
+    private void addEvent(String message) {
+        events.add(message);
+        notifyAll();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package nl.oebelelijzenga.arjaclm.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import nl.oebelelijzenga.arjaclm.apr.AprResult;
+import nl.oebelelijzenga.arjaclm.apr.AprRun;
+import nl.oebelelijzenga.arjaclm.apr.WarmBugStateCache;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.exception.AprIOException;
+import nl.oebelelijzenga.arjaclm.io.JSONUtil;
+import nl.oebelelijzenga.arjaclm.model.io.AprPreferences;
+import nl.oebelelijzenga.arjaclm.server.dto.AprJobRequestDto;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resident APR server that accepts repair jobs over a local HTTP API. Jobs are executed one at a time, since every
+ * run already evaluates variants in parallel and the genetic search relies on a global seeded random generator.
+ * Loaded projects, builds, modification points and sanity check results are kept per bug in a
+ * {@link WarmBugStateCache}, such that subsequent jobs on the same bug skip the cold start.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>POST /jobs with body {"args": [...]} submits a job using the arguments of the repair command</li>
+ *     <li>GET /jobs lists all jobs</li>
+ *     <li>GET /jobs/[id] returns the status, events and result of a job</li>
+ *     <li>GET /jobs/[id]/events streams the events of a job until it is done</li>
+ * </ul>
+ */
+public class AprServer {
+
+    private static final Logger logger = LogManager.getLogger(AprServer.class);
+
+    private final String host;
+    private final int port;
+    private final IAprJobParser jobParser;
+    private final WarmBugStateCache warmBugStateCache = new WarmBugStateCache();
+    private final Map<Integer, AprJob> jobs = new LinkedHashMap<>();
+    private final AtomicInteger nextJobId = new AtomicInteger();
+    private final ExecutorService jobQueue = Executors.newSingleThreadExecutor();
+    private final ExecutorService requestExecutor = Executors.newCachedThreadPool();
+    private HttpServer server;
+
+    public AprServer(String host, int port, IAprJobParser jobParser) {
+        this.host = host;
+        this.port = port;
+        this.jobParser = jobParser;
+    }
+
+    public void start() throws AprIOException {
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            throw new AprIOException("Failed to start server on %s:%s".formatted(host, port), e);
+        }
+        server.createContext("/jobs", this::handleJobsRequest);
+        server.setExecutor(requestExecutor);
+        server.start();
+        logger.info("APR server listening on http://%s:%s".formatted(host, port()));
+    }
+
+    /*
+     * Port the server listens on, which differs from the configured port if that is 0
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        // Also interrupts requests that are streaming the events of a job
+        requestExecutor.shutdownNow();
+        jobQueue.shutdownNow();
+    }
+
+    public AprJob submit(List<String> args) throws AprException {
+        // Parsed before taking an id, such that rejected jobs do not leave gaps
+        AprPreferences preferences = jobParser.parse(args);
+        AprJob job = new AprJob(nextJobId.getAndIncrement(), args, preferences);
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+        }
+        logger.info("Queued job %s for bug %s".formatted(job.id(), job.preferences().bugDir()));
+        jobQueue.submit(() -> runJob(job));
+        return job;
+    }
+
+    private void runJob(AprJob job) {
+        job.setRunning();
+        try {
+            AprResult result = new AprRun(job.preferences(), Optional.of(warmBugStateCache), job).execute();
+            job.setFinished(result);
+        } catch (Exception e) {
+            logger.error("Job %s failed".formatted(job.id()), e);
+            job.setFailed(e);
+        }
+    }
+
+    private void handleJobsRequest(HttpExchange exchange) throws IOException {
+        try {
+            String[] pathParts = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+            String method = exchange.getRequestMethod();
+
+            if (pathParts.length == 1 && method.equals("POST")) {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                AprJobRequestDto request = JSONUtil.fromJson(body, AprJobRequestDto.class);
+                if (request == null || request.args() == null) {
+                    sendResponse(exchange, 400, "Request body must contain the job arguments");
+                    return;
+                }
+                sendJsonResponse(exchange, 202, submit(request.args()).toDto());
+            } else if (pathParts.length == 1 && method.equals("GET")) {
+                List<Object> result = new ArrayList<>();
+                for (AprJob job : getJobs()) {
+                    result.add(job.toDto());
+                }
+                sendJsonResponse(exchange, 200, result);
+            } else if (pathParts.length == 2 && method.equals("GET")) {
+                Optional<AprJob> job = getJob(pathParts[1]);
+                if (job.isEmpty()) {
+                    sendResponse(exchange, 404, "Job not found");
+                    return;
+                }
+                sendJsonResponse(exchange, 200, job.get().toDto());
+            } else if (pathParts.length == 3 && pathParts[2].equals("events") && method.equals("GET")) {
+                Optional<AprJob> job = getJob(pathParts[1]);
+                if (job.isEmpty()) {
+                    sendResponse(exchange, 404, "Job not found");
+                    return;
+                }
+                streamEvents(exchange, job.get());
+            } else {
+                sendResponse(exchange, 404, "Unknown endpoint %s %s".formatted(method, exchange.getRequestURI()));
+            }
+        } catch (AprException e) {
+            sendResponse(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void streamEvents(HttpExchange exchange, AprJob job) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        // A response length of 0 results in a chunked response, which is flushed after every event
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream out = exchange.getResponseBody();
+        int nrSentEvents = 0;
+        while (true) {
+            List<String> events = job.awaitEvents(nrSentEvents);
+            for (String event : events) {
+                out.write((event + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+            nrSentEvents += events.size();
+
+            if (events.isEmpty() && job.status().isDone()) {
+                break;
+            }
+        }
+    }
+
+    private List<AprJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    private Optional<AprJob> getJob(String id) {
+        synchronized (jobs) {
+            try {
+                return Optional.ofNullable(jobs.get(Integer.parseInt(id)));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    private static void sendJsonResponse(HttpExchange exchange, int statusCode, Object content) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        byte[] body = JSONUtil.toJSON(content).getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sendResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
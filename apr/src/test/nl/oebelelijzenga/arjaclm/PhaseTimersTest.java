@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+
+import java.util.Map;
+
+public class PhaseTimersTest extends TestCase {
+
+    public void testSummary() {
+        PhaseTimers timers = new PhaseTimers();
+        for (int i = 1; i <= 100; i++) {
+            timers.recordMillis("compile", i);
+        }
+
+        PhaseTimers.Summary summary = timers.getSummaries().get("compile");
+        assertEquals(100, summary.count());
+        assertEquals(5050.0f, summary.totalMillis(), 0.01f);
+        assertEquals(50.5f, summary.meanMillis(), 0.01f);
+        assertEquals(100.0f, summary.maxMillis(), 0.01f);
+        // Percentiles are rounded up to the bucket bound, which is at most 12.5% off
+        assertEquals(50.0f, summary.p50Millis(), 50.0f * 0.125f);
+        assertEquals(90.0f, summary.p90Millis(), 90.0f * 0.125f);
+        assertEquals(99.0f, summary.p99Millis(), 99.0f * 0.125f);
+        assertTrue(summary.p50Millis() >= 50.0f);
+        assertTrue(summary.p99Millis() <= summary.maxMillis());
+    }
+
+    public void testTime() throws Exception {
+        PhaseTimers timers = new PhaseTimers();
+        assertEquals("result", timers.time("task", () -> "result"));
+        try {
+            timers.time("task", () -> {
+                throw new IllegalStateException();
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            // Failed tasks are timed as well
+        }
+        assertEquals(2, timers.getSummaries().get("task").count());
+    }
+
+    public void testIntervalSummaries() {
+        PhaseTimers timers = new PhaseTimers();
+        timers.recordMillis("compile", 10);
+        timers.recordMillis("test", 20);
+
+        Map<String, PhaseTimers.Summary> first = timers.takeIntervalSummaries();
+        assertEquals(1, first.get("compile").count());
+        assertEquals(1, first.get("test").count());
+
+        timers.recordMillis("compile", 30);
+        Map<String, PhaseTimers.Summary> second = timers.takeIntervalSummaries();
+        assertEquals(1, second.get("compile").count());
+        assertFalse(second.containsKey("test"));
+
+        assertEquals(2, timers.getSummaries().get("compile").count());
+        assertTrue(timers.takeIntervalSummaries().isEmpty());
+    }
+}
@@ -26,6 +26,7 @@ import nl.oebelelijzenga.arjaclm.model.apr.ClassPath;
 import nl.oebelelijzenga.arjaclm.model.apr.genetic.GeneticConfig;
 import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
 import nl.oebelelijzenga.arjaclm.model.io.ClmConfig;
+import nl.oebelelijzenga.arjaclm.model.io.ProcessSandboxMode;
 import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
 import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
 import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
@@ -71,6 +72,18 @@ public class TestUtil {
     }
 
     public static AprConfig getDummyAprConfig() {
+        return getDummyAprConfig(Path.of(""), false);
+    }
+
+    public static AprConfig getDummyAprConfig(Path cacheDir, boolean usePersistentModificationPointIndex) {
+        return getDummyAprConfig(cacheDir, usePersistentModificationPointIndex, 1);
+    }
+
+    public static AprConfig getDummyAprConfig(Path cacheDir, boolean usePersistentModificationPointIndex, int nrScreeningThreads) {
+        return getDummyAprConfig(cacheDir, usePersistentModificationPointIndex, 1, nrScreeningThreads);
+    }
+
+    public static AprConfig getDummyAprConfig(Path cacheDir, boolean usePersistentModificationPointIndex, int nrParserThreads, int nrScreeningThreads) {
         return new AprConfig(
                 new ClmConfig(true, "codet5", "large", "localhost", 5000, 0, 0, 0.1f),
                 new GeneticConfig(1, 1, 1, 1, true, 0.1f, 1),
@@ -78,7 +91,7 @@ public class TestUtil {
                 Path.of(""),
                 Path.of(""),
                 Path.of(""),
-                Path.of(""),
+                cacheDir,
                 true,
                 1,
                 0.1f,
@@ -88,6 +101,17 @@ public class TestUtil {
                 1.0f,
                 0.06f,
                 0,
+                false,
+                nrParserThreads,
+                false,
+                nrScreeningThreads,
+                usePersistentModificationPointIndex,
+                ProcessSandboxMode.NONE,
+                false,
+                false,
+                false,
+                false,
+                false,
                 false
         );
     }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package test.nl.oebelelijzenga.arjaclm.api;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.api.ClmApiClient;
+import nl.oebelelijzenga.arjaclm.api.StubClmApiServer;
+import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictRequestDTO;
+import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictResponseDTO;
+import nl.oebelelijzenga.arjaclm.api.dto.MaskPredictResponseMaskReplacementDTO;
+
+import java.util.List;
+
+public class StubClmApiServerTest extends TestCase {
+
+    private static final String PROMPT = """
+            public int calc(int x) {
+                int a = x;
+                <mask>
+                a = a + 1;
+                a = a + 1;
+                return a;
+            }
+            """;
+
+    public void testInfillsAreSurroundingStatements() throws Exception {
+        try (StubClmApiServer server = new StubClmApiServer(0)) {
+            ClmApiClient client = new ClmApiClient(server.host(), server.port());
+            MaskPredictResponseDTO response = client.maskPredict(new MaskPredictRequestDTO(PROMPT, "codet5", "large", 10));
+
+            assertEquals(1, response.getResults().size());
+            List<String> infills = response.getResults().get(0).getMaskReplacements().stream().map(MaskPredictResponseMaskReplacementDTO::getReplacement).toList();
+            // Duplicate statements are returned once, and statements without a semicolon are not statements
+            assertEquals(List.of("int a = x;", "a = a + 1;", "return a;"), infills);
+            assertTrue(response.getResults().get(0).getMaskReplacements().stream().allMatch(r -> r.getMask().equals(ClmApiClient.MASK_TOKEN)));
+        }
+    }
+
+    public void testNrResultsIsRespected() throws Exception {
+        try (StubClmApiServer server = new StubClmApiServer(0)) {
+            ClmApiClient client = new ClmApiClient(server.host(), server.port());
+            MaskPredictResponseDTO response = client.maskPredict(new MaskPredictRequestDTO(PROMPT, "codet5", "large", 2));
+            assertEquals(2, response.getResults().get(0).getMaskReplacements().size());
+        }
+    }
+
+    public void testLatencyIsSimulated() throws Exception {
+        try (StubClmApiServer server = new StubClmApiServer(200)) {
+            ClmApiClient client = new ClmApiClient(server.host(), server.port());
+            long startMillis = System.currentTimeMillis();
+            MaskPredictResponseDTO response = client.maskPredict(new MaskPredictRequestDTO(PROMPT, "codet5", "large", 1));
+            assertTrue(System.currentTimeMillis() - startMillis >= 200);
+            assertEquals(0.2f, response.getPredictTime());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.apr;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.apr.WarmBugState;
+import nl.oebelelijzenga.arjaclm.apr.WarmBugStateCache;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.ClassPath;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestSuite;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Set;
+
+public class WarmBugStateCacheTest extends TestCase {
+
+    private Path tempDir;
+    private JavaContext context;
+    private Path sourceFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("warm_bug_state_cache_test");
+        context = new JavaContext(
+                tempDir,
+                tempDir.resolve("src"),
+                tempDir.resolve("test"),
+                tempDir.resolve("apr"),
+                tempDir.resolve("apr/build"),
+                tempDir.resolve("apr/build-tests"),
+                new ClassPath(new HashSet<>()),
+                new ClassPath(new HashSet<>())
+        );
+        sourceFile = context.srcDir().resolve("mypkg/Calc.java");
+        FileUtil.mkdir(sourceFile.getParent());
+        FileUtil.mkdir(context.testDir());
+        FileUtil.mkdir(context.sourceBuildDir());
+        FileUtil.writeFile(sourceFile, "class Calc { int a = 1; }");
+        FileUtil.writeFile(tempDir.resolve("bug.json"), "{}");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    private static WarmBugState createState(String sourceFingerprint) {
+        return new WarmBugState(sourceFingerprint, null, new TestSuite(Set.of(), Set.of()));
+    }
+
+    public void testFingerprintDependsOnContent() throws Exception {
+        String fingerprint = WarmBugStateCache.getSourceFingerprint(context);
+        FileTime modifiedTime = Files.getLastModifiedTime(sourceFile);
+
+        // Touching a file does not change its content
+        Files.setLastModifiedTime(sourceFile, FileTime.fromMillis(modifiedTime.toMillis() + 10_000));
+        assertEquals(fingerprint, WarmBugStateCache.getSourceFingerprint(context));
+
+        // An edit that keeps the size and modification time still changes the fingerprint
+        FileUtil.writeFile(sourceFile, "class Calc { int a = 2; }");
+        Files.setLastModifiedTime(sourceFile, modifiedTime);
+        assertFalse(fingerprint.equals(WarmBugStateCache.getSourceFingerprint(context)));
+    }
+
+    public void testVariantsAreCachedSeparately() throws Exception {
+        String fingerprint = WarmBugStateCache.getSourceFingerprint(context);
+        WarmBugStateCache cache = new WarmBugStateCache();
+        WarmBugState fullState = createState(fingerprint);
+        WarmBugState partialState = createState(fingerprint);
+        cache.put(context, "full", fullState);
+        cache.put(context, "partial_0.1", partialState);
+
+        assertSame(fullState, cache.get(context, "full", fingerprint).orElseThrow());
+        assertSame(partialState, cache.get(context, "partial_0.1", fingerprint).orElseThrow());
+        assertTrue(cache.get(context, "partial_0.2", fingerprint).isEmpty());
+        assertEquals(2, cache.size());
+    }
+
+    public void testChangedBugIsDiscarded() throws Exception {
+        String fingerprint = WarmBugStateCache.getSourceFingerprint(context);
+        WarmBugStateCache cache = new WarmBugStateCache();
+        cache.put(context, "full", createState(fingerprint));
+        cache.put(context, "partial_0.1", createState(fingerprint));
+
+        FileUtil.writeFile(sourceFile, "class Calc { int a = 2; }");
+        String newFingerprint = WarmBugStateCache.getSourceFingerprint(context);
+        WarmBugState newPartialState = createState(newFingerprint);
+        cache.put(context, "partial_0.1", newPartialState);
+
+        // Discards the other stale variants, but keeps the variant loaded after the change
+        assertTrue(cache.get(context, "full", newFingerprint).isEmpty());
+        assertEquals(1, cache.size());
+        assertSame(newPartialState, cache.get(context, "partial_0.1", newFingerprint).orElseThrow());
+
+        // Without a build the sources must be compiled again
+        FileUtil.deleteDirectory(context.sourceBuildDir());
+        assertTrue(cache.get(context, "partial_0.1", newFingerprint).isEmpty());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.execution;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+import nl.oebelelijzenga.arjaclm.execution.BatchJavaCompiler;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.ClassPath;
+import nl.oebelelijzenga.arjaclm.model.java.CompilationResult;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import test.nl.oebelelijzenga.arjaclm.TestUtil;
+
+import javax.tools.ToolProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+
+public class BatchJavaCompilerTest extends TestCase {
+
+    private static final Path CALC = Path.of("src/mypkg/Calc.java");
+    private static final Path OTHER = Path.of("src/mypkg/Other.java");
+
+    private static final String CALC_SOURCE = """
+            package mypkg;
+
+            public class Calc {
+                public int calc(int x) {
+                    return Other.twice(x) + 1;
+                }
+            }
+            """;
+
+    private static final String OTHER_SOURCE = """
+            package mypkg;
+
+            public class Other {
+                public static int twice(int x) {
+                    Runnable r = new Runnable() {
+                        public void run() {
+                        }
+                    };
+                    r.run();
+                    return x * 2;
+                }
+            }
+            """;
+
+    private Path tempDir;
+    private JavaContext originalContext;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("batch_compiler_test");
+        originalContext = createContext(tempDir.resolve("original"), CALC_SOURCE, OTHER_SOURCE);
+        FileUtil.mkdir(originalContext.sourceBuildDir());
+        FileUtil.mkdir(originalContext.testBuildDir().resolve("mypkg"));
+        FileUtil.writeFile(originalContext.testBuildDir().resolve("mypkg/CalcTest.class"), "test class");
+
+        int exitCode = ToolProvider.getSystemJavaCompiler().run(
+                null, null, null,
+                "-d", originalContext.sourceBuildDir().toString(),
+                originalContext.rootDir().resolve(CALC).toString(),
+                originalContext.rootDir().resolve(OTHER).toString()
+        );
+        assertEquals(0, exitCode);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    private static JavaContext createContext(Path rootDir, String calcSource, String otherSource) throws Exception {
+        FileUtil.mkdir(rootDir.resolve(CALC).getParent());
+        FileUtil.writeFile(rootDir.resolve(CALC), calcSource);
+        FileUtil.writeFile(rootDir.resolve(OTHER), otherSource);
+        FileUtil.mkdir(rootDir.resolve("apr"));
+        return new JavaContext(
+                rootDir,
+                rootDir.resolve("src"),
+                rootDir.resolve("test"),
+                rootDir.resolve("apr"),
+                rootDir.resolve("apr/build"),
+                rootDir.resolve("apr/build-tests"),
+                new ClassPath(new HashSet<>()),
+                new ClassPath(new HashSet<>())
+        );
+    }
+
+    public void testCompileBatch() throws Exception {
+        JavaContext calcContext = createContext(tempDir.resolve("patch_1"), CALC_SOURCE.replace("+ 1", "+ 2"), OTHER_SOURCE);
+        JavaContext brokenContext = createContext(tempDir.resolve("patch_2"), CALC_SOURCE.replace("+ 1", "+ y"), OTHER_SOURCE);
+        JavaContext otherContext = createContext(tempDir.resolve("patch_3"), CALC_SOURCE, OTHER_SOURCE.replaceAll("(?s)new Runnable\\(\\) \\{.*?};", "() -> {};"));
+
+        List<CompilationResult> results;
+        try (BatchJavaCompiler compiler = new BatchJavaCompiler(TestUtil.getDummyAprConfig(), originalContext, new PhaseTimers())) {
+            results = compiler.compile(List.of(
+                    new BatchJavaCompiler.Unit(calcContext, List.of(CALC)),
+                    new BatchJavaCompiler.Unit(brokenContext, List.of(CALC)),
+                    new BatchJavaCompiler.Unit(otherContext, List.of(OTHER))
+            ));
+        }
+
+        assertTrue(results.get(0).success());
+        assertFalse(results.get(1).success());
+        assertTrue(results.get(1).commandSummary().loadLog().contains("Calc.java:5: error: cannot find symbol"));
+        assertTrue(results.get(2).success());
+
+        // Builds are completed with the original classes and tests
+        assertEquals(8, calc(calcContext, 3));
+        assertEquals(7, calc(otherContext, 3));
+        assertTrue(Files.exists(calcContext.testBuildDir().resolve("mypkg/CalcTest.class")));
+
+        // Nested classes of the original program are only added for classes that were not compiled
+        assertTrue(Files.exists(calcContext.sourceBuildDir().resolve("mypkg/Other$1.class")));
+        assertFalse(Files.exists(otherContext.sourceBuildDir().resolve("mypkg/Other$1.class")));
+    }
+
+    public void testPatchesOnlySeeOriginalClasses() throws Exception {
+        // The first patch calls a method that only exists in the edited file of the second patch
+        JavaContext calcContext = createContext(tempDir.resolve("patch_1"), CALC_SOURCE.replace("twice", "thrice"), OTHER_SOURCE);
+        JavaContext otherContext = createContext(tempDir.resolve("patch_2"), CALC_SOURCE, OTHER_SOURCE.replace("twice", "thrice"));
+
+        List<CompilationResult> results;
+        try (BatchJavaCompiler compiler = new BatchJavaCompiler(TestUtil.getDummyAprConfig(), originalContext, new PhaseTimers())) {
+            results = compiler.compile(List.of(
+                    new BatchJavaCompiler.Unit(calcContext, List.of(CALC)),
+                    new BatchJavaCompiler.Unit(otherContext, List.of(OTHER))
+            ));
+        }
+
+        assertFalse(results.get(0).success());
+        assertTrue(results.get(1).success());
+    }
+
+    public void testNotUsableWhenOriginalProgramDoesNotCompile() throws Exception {
+        // For example because the compilation script excludes this file
+        FileUtil.writeFile(originalContext.srcDir().resolve("mypkg/Broken.java"), "package mypkg;\n\npublic class Broken extends Missing {\n}\n");
+
+        try (BatchJavaCompiler compiler = new BatchJavaCompiler(TestUtil.getDummyAprConfig(), originalContext, new PhaseTimers())) {
+            assertFalse(compiler.isUsable());
+            assertFalse(Files.exists(originalContext.aprDir().resolve("batch_compiler_validation")));
+        }
+    }
+
+    private static int calc(JavaContext context, int input) throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{context.sourceBuildDir().toUri().toURL()}, null)) {
+            Class<?> cls = classLoader.loadClass("mypkg.Calc");
+            return (int) cls.getMethod("calc", int.class).invoke(cls.getDeclaredConstructor().newInstance(), input);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.execution;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.execution.BoundedOutputCapture;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BoundedOutputCaptureTest extends TestCase {
+
+    public void testOutputWithinCapacityIsKept() throws IOException {
+        BoundedOutputCapture capture = new BoundedOutputCapture(4, 4);
+        write(capture, "abc");
+        write(capture, "def");
+        capture.write('g');
+        assertEquals("abcdefg", capture.toString());
+    }
+
+    public void testHeadAndTailAreKept() throws IOException {
+        BoundedOutputCapture capture = new BoundedOutputCapture(3, 4);
+        write(capture, "abcde");
+        write(capture, "fgh");
+        write(capture, "ijklm");
+        capture.write('n');
+        assertEquals("abc\n<7 more bytes>\nklmn", capture.toString());
+        assertEquals(14, capture.totalSize());
+
+        // Bulk write larger than the tail
+        write(capture, "0123456789");
+        assertEquals("abc\n<17 more bytes>\n6789", capture.toString());
+    }
+
+    public void testOutputWithinCapacityIsStreamedToLog() throws Exception {
+        Path logFile = Files.createTempFile("output", ".log");
+        try {
+            BoundedOutputCapture capture = new BoundedOutputCapture(4, 8, logFile);
+            write(capture, "hello ");
+            write(capture, "world");
+            capture.close();
+            assertEquals("hello world", Files.readString(logFile));
+        } finally {
+            Files.delete(logFile);
+        }
+    }
+
+    public void testLogIsBounded() throws Exception {
+        Path logFile = Files.createTempFile("output", ".log");
+        try {
+            BoundedOutputCapture capture = new BoundedOutputCapture(2, 2, logFile);
+            write(capture, "hello ");
+            write(capture, "world");
+            capture.close();
+            assertEquals("he\n<7 more bytes>\nld", capture.toString());
+            assertEquals(capture.toString(), Files.readString(logFile));
+        } finally {
+            Files.delete(logFile);
+        }
+    }
+
+    private static void write(BoundedOutputCapture capture, String content) throws IOException {
+        // Surround the content with other bytes, to check that offsets are respected
+        byte[] bytes = ("_" + content + "_").getBytes(StandardCharsets.UTF_8);
+        capture.write(bytes, 1, bytes.length - 2);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.execution;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.execution.ClassRedefinition;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public class ClassRedefinitionTest extends TestCase {
+
+    private static final String CALC_SOURCE = """
+            package mypkg;
+
+            public class Calc {
+                private static final int OFFSET = Integer.parseInt("1");
+
+                public int calc(int x) {
+                    return x + OFFSET;
+                }
+            }
+            """;
+
+    private Path tempDir;
+    private Path originalBuildDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("class_redefinition_test");
+        originalBuildDir = compile("original", CALC_SOURCE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    private Path compile(String name, String source) throws Exception {
+        Path sourceFile = tempDir.resolve(name).resolve("src/mypkg/Calc.java");
+        Path buildDir = tempDir.resolve(name).resolve("build");
+        FileUtil.mkdir(sourceFile.getParent());
+        FileUtil.mkdir(buildDir);
+        FileUtil.writeFile(sourceFile, source);
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", buildDir.toString(), sourceFile.toString()));
+        return buildDir;
+    }
+
+    private Optional<List<ClassRedefinition>> find(Path buildDir) throws Exception {
+        return ClassRedefinition.find(originalBuildDir, buildDir, Set.of(Path.of("mypkg")));
+    }
+
+    public void testMethodBodyChange() throws Exception {
+        Path buildDir = compile("body", CALC_SOURCE.replace("x + OFFSET", "x - OFFSET"));
+        assertEquals(
+                Optional.of(List.of(new ClassRedefinition("mypkg.Calc", buildDir.resolve("mypkg/Calc.class")))),
+                find(buildDir)
+        );
+
+        // Classes that only differ in line numbers are redefined as well, which is harmless
+        assertEquals(1, find(compile("moved", CALC_SOURCE.replace("    public int calc", "\n    public int calc"))).orElseThrow().size());
+        assertEquals(Optional.of(List.of()), find(compile("same", CALC_SOURCE)));
+    }
+
+    public void testUnsupportedChanges() throws Exception {
+        assertTrue(find(compile("method", CALC_SOURCE.replace("    public int calc", "    void added() {\n    }\n\n    public int calc"))).isEmpty());
+        assertTrue(find(compile("static_initializer", CALC_SOURCE.replace("\"1\"", "\"2\""))).isEmpty());
+        assertTrue(find(compile("anonymous_class", CALC_SOURCE.replace("return x + OFFSET;", "Runnable r = new Runnable() {\n public void run() {\n }\n };\n return x;"))).isEmpty());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.execution;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.execution.CommandResult;
+import nl.oebelelijzenga.arjaclm.execution.CommandSummary;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+public class CommandSummaryTest extends TestCase {
+
+    public void testSummaryKeepsEndOfErrorOutput() throws Exception {
+        String stderr = "x".repeat(5000) + "error: cannot find symbol";
+        CommandResult result = new CommandResult("javac", Map.of("HOME", "/root"), false, false, 1, "some output", stderr);
+
+        CommandSummary summary = CommandSummary.of(result, null);
+
+        assertEquals(1, summary.exitCode());
+        assertEquals(2000, summary.diagnostic().length());
+        assertTrue(summary.diagnostic().endsWith("error: cannot find symbol"));
+        assertEquals(summary.toFileString(), summary.loadLog());
+    }
+
+    public void testLoadLogReadsFullResult() throws Exception {
+        Path logFile = Files.createTempFile("compile", ".log");
+        try {
+            CommandResult result = new CommandResult("javac", Map.of(), true, false, 0, "compiled", "");
+            Files.writeString(logFile, result.toFileString());
+
+            CommandSummary summary = CommandSummary.of(result, logFile);
+
+            assertEquals("compiled", summary.diagnostic());
+            assertEquals(result.toFileString(), summary.loadLog());
+        } finally {
+            Files.delete(logFile);
+        }
+    }
+}
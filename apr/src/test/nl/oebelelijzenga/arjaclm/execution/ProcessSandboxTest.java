@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.execution;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.execution.CommandResult;
+import nl.oebelelijzenga.arjaclm.execution.CommandUtils;
+import nl.oebelelijzenga.arjaclm.execution.ProcessSandbox;
+import nl.oebelelijzenga.arjaclm.execution.ResourceLimit;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.io.ProcessSandboxMode;
+import org.apache.commons.exec.CommandLine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class ProcessSandboxTest extends TestCase {
+
+    private static final ProcessSandbox.Limits LIMITS = ProcessSandbox.Limits.forProcess(60, 1024 * 1024 * 1024);
+    private static final ProcessSandbox.Limits SMALL_LIMITS = new ProcessSandbox.Limits(1, 256 * 1024 * 1024, 64, 1024 * 1024, 100);
+
+    private Path tempDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("process_sandbox_test");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    private CommandResult runShell(String script) throws AprException {
+        CommandLine command = new CommandLine("sh");
+        command.addArgument("-c");
+        command.addArgument(script, false);
+        ProcessSandbox sandbox = new ProcessSandbox(ProcessSandboxMode.PRLIMIT, SMALL_LIMITS);
+        return CommandUtils.runCommand(command, 30, tempDir, Map.of(), sandbox, tempDir.resolve("process"));
+    }
+
+    public void testWrapWithPrlimit() {
+        CommandLine command = CommandLine.parse("java -cp lib.jar Runner");
+        command.addArgument("my.Test::test with spaces");
+
+        CommandLine wrapped = new ProcessSandbox(ProcessSandboxMode.PRLIMIT, LIMITS).wrap(command);
+
+        assertEquals(
+                List.of("prlimit", "--cpu=120:125", "--fsize=536870912", "--", "java", "-cp", "lib.jar", "Runner", "\"my.Test::test with spaces\""),
+                List.of(wrapped.toStrings())
+        );
+        assertSame(command, ProcessSandbox.none().wrap(command));
+    }
+
+    public void testClassifyExceededLimit() {
+        ProcessSandbox prlimit = new ProcessSandbox(ProcessSandboxMode.PRLIMIT, LIMITS);
+        ProcessSandbox cgroup = new ProcessSandbox(ProcessSandboxMode.CGROUP, LIMITS);
+
+        assertEquals(ResourceLimit.CPU_TIME, prlimit.classify(result(152, "")).exceededLimit());
+        assertEquals(ResourceLimit.FILE_SIZE, prlimit.classify(result(1, "java.io.IOException: File too large")).exceededLimit());
+        assertNull(prlimit.classify(result(137, "")).exceededLimit());
+        assertEquals(ResourceLimit.MEMORY, cgroup.classify(result(137, "")).exceededLimit());
+        assertEquals(ResourceLimit.TASKS, cgroup.classify(result(1, "java.lang.OutOfMemoryError: unable to create native thread")).exceededLimit());
+        assertNull(cgroup.classify(result(1, "AssertionError")).exceededLimit());
+        assertNull(ProcessSandbox.none().classify(result(152, "")).exceededLimit());
+    }
+
+    public void testPrlimitStopsCpuBoundProcess() throws Exception {
+        CommandResult result = runShell("while :; do :; done");
+
+        assertFalse(result.success());
+        assertFalse(result.timedOut());
+        assertEquals(ResourceLimit.CPU_TIME, result.exceededLimit());
+    }
+
+    public void testPrlimitBoundsTheSizeOfEachFile() throws Exception {
+        CommandResult result = runShell("head -c 2000000 /dev/zero > big.bin");
+        assertFalse(result.success());
+        assertEquals(ResourceLimit.FILE_SIZE, result.exceededLimit());
+        assertEquals(1024 * 1024, Files.size(tempDir.resolve("big.bin")));
+
+        // The limit applies to every file separately, not to the total amount written
+        result = runShell("head -c 800000 /dev/zero > a.bin && head -c 800000 /dev/zero > b.bin");
+        assertTrue(result.success());
+        assertNull(result.exceededLimit());
+    }
+
+    private static CommandResult result(int exitCode, String stderr) {
+        return new CommandResult("cmd", Map.of(), false, false, exitCode, "", stderr);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.execution;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.execution.TestJvmResources;
+
+public class TestJvmResourcesTest extends TestCase {
+
+    private static final long MB = 1024 * 1024;
+
+    public void testDeriveMaxHeapFromObservedPeak() {
+        TestJvmResources resources = new TestJvmResources();
+        assertEquals("-Xmx2048m", resources.getMaxHeapArgument());
+
+        // Nothing observed yet, keep the default
+        resources.deriveMaxHeapBytes();
+        assertEquals(TestJvmResources.DEFAULT_MAX_HEAP_BYTES, resources.getMaxHeapBytes());
+
+        resources.recordTestRun(100 * MB, 300 * MB);
+        resources.recordTestRun(90 * MB, 250 * MB);
+        resources.deriveMaxHeapBytes();
+        assertEquals("-Xmx200m", resources.getMaxHeapArgument());
+        assertEquals(300 * MB, resources.getEstimatedRssBytes());
+    }
+
+    public void testMaxHeapIsBounded() {
+        TestJvmResources resources = new TestJvmResources();
+        resources.recordTestRun(10 * MB, 0);
+        resources.deriveMaxHeapBytes();
+        assertEquals("-Xmx128m", resources.getMaxHeapArgument());
+
+        resources.recordTestRun(4096 * MB, 0);
+        resources.deriveMaxHeapBytes();
+        assertEquals(TestJvmResources.DEFAULT_MAX_HEAP_BYTES, resources.getMaxHeapBytes());
+    }
+
+    public void testDefaultNrJobsIsPositive() {
+        assertTrue(TestJvmResources.getDefaultNrJobs() >= 1);
+    }
+}
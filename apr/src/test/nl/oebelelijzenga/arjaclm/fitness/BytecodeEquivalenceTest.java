@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.fitness;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.PhaseTimers;
+import nl.oebelelijzenga.arjaclm.fitness.BytecodeEquivalence;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.ClassPath;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+
+public class BytecodeEquivalenceTest extends TestCase {
+
+    private static final Path CALC = Path.of("src/mypkg/Calc.java");
+    private static final Path OTHER = Path.of("src/mypkg/Other.java");
+
+    private static final String CALC_SOURCE = """
+            package mypkg;
+
+            public class Calc {
+                public int calc(int x) {
+                    return Helper.inc(x);
+                }
+            }
+
+            class Helper {
+                static int inc(int x) {
+                    return x + 1;
+                }
+            }
+            """;
+
+    private static final String OTHER_SOURCE = """
+            package mypkg;
+
+            public class Other {
+                public int twice(int x) {
+                    return x * 2;
+                }
+            }
+            """;
+
+    private Path tempDir;
+    private BytecodeEquivalence equivalence;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("bytecode_equivalence_test");
+        equivalence = new BytecodeEquivalence(compile("original", CALC_SOURCE, OTHER_SOURCE), new PhaseTimers());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    private JavaContext compile(String name, String calcSource, String otherSource) throws Exception {
+        Path rootDir = tempDir.resolve(name);
+        FileUtil.mkdir(rootDir.resolve(CALC).getParent());
+        FileUtil.writeFile(rootDir.resolve(CALC), calcSource);
+        FileUtil.writeFile(rootDir.resolve(OTHER), otherSource);
+        JavaContext context = new JavaContext(
+                rootDir,
+                rootDir.resolve("src"),
+                rootDir.resolve("test"),
+                rootDir.resolve("apr"),
+                rootDir.resolve("apr/build"),
+                rootDir.resolve("apr/build-tests"),
+                new ClassPath(new HashSet<>()),
+                new ClassPath(new HashSet<>())
+        );
+        FileUtil.mkdir(context.sourceBuildDir());
+
+        int exitCode = ToolProvider.getSystemJavaCompiler().run(
+                null, null, null,
+                "-g", "-d", context.sourceBuildDir().toString(),
+                rootDir.resolve(CALC).toString(),
+                rootDir.resolve(OTHER).toString()
+        );
+        assertEquals(0, exitCode);
+        return context;
+    }
+
+    public void testFingerprintIgnoresDebugInfoAndDeadCode() throws Exception {
+        JavaContext moved = compile("moved", CALC_SOURCE.replace("    public int calc", "\n\n    public int calc"), OTHER_SOURCE);
+        JavaContext deadCode = compile("dead_code", CALC_SOURCE.replace("return Helper.inc(x);", "if (false) {\nx = 5;\n}\nreturn Helper.inc(x);"), OTHER_SOURCE);
+
+        // Both compile to the classes of the original program
+        assertEquals("", equivalence.getFingerprint(moved, List.of(CALC)));
+        assertEquals("", equivalence.getFingerprint(deadCode, List.of(CALC)));
+    }
+
+    public void testFingerprintOfChangedClasses() throws Exception {
+        JavaContext changed = compile("changed", CALC_SOURCE.replace("x + 1", "x + 2"), OTHER_SOURCE);
+        JavaContext changedMoved = compile("changed_moved", CALC_SOURCE.replace("x + 1", "x + 2").replace("class Helper", "\nclass Helper"), OTHER_SOURCE);
+        JavaContext changedCalc = compile("changed_calc", CALC_SOURCE.replace("Helper.inc(x)", "Helper.inc(x + 1)"), OTHER_SOURCE);
+        JavaContext changedOther = compile("changed_other", CALC_SOURCE, OTHER_SOURCE.replace("x * 2", "x * 3"));
+        JavaContext changedOtherMoved = compile("changed_other_moved", CALC_SOURCE.replace("    public int calc", "\n    public int calc"), OTHER_SOURCE.replace("x * 2", "x * 3"));
+
+        // Classes of all top-level types in an edited file are covered
+        String fingerprint = equivalence.getFingerprint(changed, List.of(CALC));
+        assertTrue(fingerprint.startsWith("mypkg/Helper.class="));
+        assertEquals(fingerprint, equivalence.getFingerprint(changedMoved, List.of(CALC)));
+        assertFalse(fingerprint.equals(equivalence.getFingerprint(changedCalc, List.of(CALC))));
+
+        // Edited files that compile to the original classes do not matter
+        assertEquals(
+                equivalence.getFingerprint(changedOther, List.of(OTHER)),
+                equivalence.getFingerprint(changedOtherMoved, List.of(CALC, OTHER))
+        );
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.fitness;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.fitness.EvaluationScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EvaluationSchedulerTest extends TestCase {
+
+    public void testProcessPermitsLimitConcurrency() throws Exception {
+        EvaluationScheduler scheduler = new EvaluationScheduler(2);
+        ExecutorService pool = scheduler.createTaskPool();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int taskId = i;
+                futures.add(pool.submit(() -> scheduler.runProcess(EvaluationScheduler.ProcessKind.TEST, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        throw new AprException("Interrupted", e);
+                    }
+                    running.decrementAndGet();
+                    return taskId;
+                })));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, (int) futures.get(i).get());
+            }
+            assertTrue(maxRunning.get() <= 2);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public void testTaskPoolIsBounded() throws Exception {
+        EvaluationScheduler scheduler = new EvaluationScheduler(2);
+        ExecutorService pool = scheduler.createTaskPool();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(pool.submit(() -> {
+                    started.incrementAndGet();
+                    release.await();
+                    return null;
+                }));
+            }
+
+            // Waiting tasks do not get a thread of their own, there is one for each compile and test permit
+            long deadline = System.currentTimeMillis() + 10000;
+            while (started.get() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            assertEquals(4, started.get());
+
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(10, started.get());
+        } finally {
+            pool.shutdownNow();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    public void testRunAllReportsFailure() {
+        EvaluationScheduler scheduler = new EvaluationScheduler(2);
+        AtomicInteger nrCompleted = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(nrCompleted::incrementAndGet);
+        }
+        tasks.add(() -> {
+            throw new IllegalStateException("task failed");
+        });
+
+        try {
+            scheduler.runAll(tasks, 2);
+            fail();
+        } catch (AprException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package test.nl.oebelelijzenga.arjaclm.fitness;
+
+import nl.oebelelijzenga.arjaclm.execution.CommandResult;
+import nl.oebelelijzenga.arjaclm.execution.CommandSummary;
+import nl.oebelelijzenga.arjaclm.fitness.FitnessCache;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.Bug;
+import nl.oebelelijzenga.arjaclm.model.apr.Patch;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.FitnessResult;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
+import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
+import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import nl.oebelelijzenga.arjaclm.model.java.CompilationResult;
+import test.nl.oebelelijzenga.arjaclm.TestUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class FitnessCacheTest extends junit.framework.TestCase {
+
+    private Path cacheDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        cacheDir = Files.createTempDirectory("fitness_cache_test");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(cacheDir);
+    }
+
+    public void testPersistedResultsDoNotReferToLogFiles() throws Exception {
+        AprConfig config = TestUtil.getDummyAprConfig(cacheDir, false);
+        Bug bug = new Bug("MyBug", new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashMap<>(), List.of());
+        Patch patch = new Patch(1, Variant.create(List.of()), List.of());
+
+        CommandResult command = new CommandResult("java", Map.of(), true, false, 0, "ok", "");
+        FitnessResult result = new FitnessResult(
+                0.5f,
+                1.0f,
+                new CompilationResult(true, CommandSummary.of(command, cacheDir.resolve("compile.log"))),
+                new FitnessResult.TestSummary(true, Set.of(new TestCase("mypkg.MyTest", "test")), 0.5f, Set.of(), 0.0f, CommandSummary.of(command, cacheDir.resolve("test.log")))
+        );
+
+        FitnessCache cache = FitnessCache.create(config, bug);
+        cache.put(patch, result);
+        // Results stay linked to their logs during the run
+        assertEquals(result, cache.get(patch).orElseThrow());
+        cache.save();
+
+        assertFalse(Files.readString(FitnessCache.getCacheFilePath(config, bug)).contains(cacheDir.toString()));
+        FitnessResult loadedResult = FitnessCache.create(config, bug).get(patch).orElseThrow();
+        assertNull(loadedResult.compilationResult().commandSummary().logFile());
+        assertNull(loadedResult.testSummary().commandSummary().logFile());
+        assertEquals(result.testSummary().failedPositiveTests(), loadedResult.testSummary().failedPositiveTests());
+        assertEquals(result.compilationResult().commandSummary().diagnostic(), loadedResult.compilationResult().commandSummary().diagnostic());
+    }
+}
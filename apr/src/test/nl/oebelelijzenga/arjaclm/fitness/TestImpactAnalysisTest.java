@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.fitness;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.fitness.TestImpactAnalysis;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.io.JavaProjectLoader;
+import nl.oebelelijzenga.arjaclm.model.apr.ClassPath;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
+import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
+import test.nl.oebelelijzenga.arjaclm.TestUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class TestImpactAnalysisTest extends junit.framework.TestCase {
+
+    public void testAffectedTests() throws AprException {
+        JavaProject sourceProject = TestUtil.getParsedJavaFilesAsProject(Map.of(
+                "A.java", "package mypkg;\nclass A { int foo() { return 1; } }",
+                "B.java", "package mypkg;\nclass B { int bar() { return new A().foo(); } }",
+                "C.java", "package mypkg;\nclass C { int baz() { return 3; } }"
+        ));
+        List<RawJavaFile> testFiles = List.of(
+                new RawJavaFile(Path.of("tests/mypkg/BTest.java"), "package mypkg;\nclass BTest { void test() { new B().bar(); } }"),
+                new RawJavaFile(Path.of("tests/mypkg/BaseTest.java"), "package mypkg;\nclass BaseTest { C c = new C(); }"),
+                new RawJavaFile(Path.of("tests/mypkg/CTest.java"), "package mypkg;\nclass CTest extends BaseTest { void test() { } }")
+        );
+        JavaProject project = new JavaProject(sourceProject.sourceFiles(), testFiles, sourceProject.context());
+        Path fileA = sourceProject.sourceFiles().get(0).relativeFilePath();
+        Path fileC = sourceProject.sourceFiles().get(2).relativeFilePath();
+
+        TestImpactAnalysis analysis = new TestImpactAnalysis(project.sourceFiles(), project.testFiles());
+
+        TestCase bTest = new TestCase("mypkg.BTest", "test");
+        TestCase cTest = new TestCase("mypkg.CTest", "test");
+        TestCase unknownTest = new TestCase("mypkg.UnknownTest", "test");
+        Set<TestCase> tests = Set.of(bTest, cTest, unknownTest);
+
+        // B depends on A, so BTest observes edits of A
+        assertEquals(Set.of(bTest, unknownTest), analysis.getAffectedTests(tests, List.of(fileA)));
+        // CTest uses C through its super class
+        assertEquals(Set.of(cTest, unknownTest), analysis.getAffectedTests(tests, List.of(fileC)));
+        assertEquals(tests, analysis.getAffectedTests(tests, List.of(fileA, fileC)));
+    }
+
+    public void testSourceTreeIncludesFilesNotLoadedInPartialProject() throws AprException, IOException {
+        Path rootDir = Files.createTempDirectory("test_impact_analysis_test").toRealPath();
+        try {
+            Path srcDir = rootDir.resolve("src");
+            Path testDir = rootDir.resolve("tests");
+            Files.createDirectories(srcDir.resolve("root/a"));
+            Files.createDirectories(srcDir.resolve("root/u"));
+            Files.createDirectories(testDir.resolve("root/u"));
+            Files.writeString(srcDir.resolve("root/Root.java"), "package root;\npublic class Root { }");
+            Files.writeString(srcDir.resolve("root/a/A.java"), "package root.a;\npublic class A { public static int foo() { return 1; } }");
+            Files.writeString(srcDir.resolve("root/u/U.java"), "package root.u;\nimport root.a.A;\npublic class U { public int bar() { return A.foo(); } }");
+            Files.writeString(testDir.resolve("root/u/UTest.java"), "package root.u;\npublic class UTest { void test() { new U().bar(); } }");
+
+            JavaProject project = new JavaProjectLoader(new JavaContext(
+                    rootDir,
+                    srcDir,
+                    testDir,
+                    rootDir.resolve("apr"),
+                    rootDir.resolve("apr/build"),
+                    rootDir.resolve("apr/build-tests"),
+                    new ClassPath(new HashSet<>()),
+                    new ClassPath(new HashSet<>())
+            )).loadPartialJavaProject(List.of(srcDir.resolve("root/a/A.java")));
+            // U is neither in the package of A nor imported by it
+            assertEquals(
+                    Set.of(Path.of("src/root/Root.java"), Path.of("src/root/a/A.java")),
+                    project.sourceFiles().stream().map(RawJavaFile::relativeFilePath).collect(Collectors.toSet())
+            );
+
+            TestCase uTest = new TestCase("root.u.UTest", "test");
+            TestImpactAnalysis analysis = TestImpactAnalysis.fromSourceTree(project);
+            assertEquals(Set.of(uTest), analysis.getAffectedTests(Set.of(uTest), List.of(Path.of("src/root/a/A.java"))));
+        } finally {
+            FileUtil.deleteDirectory(rootDir);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.fitness;
+
+import nl.oebelelijzenga.arjaclm.execution.TestSchedule;
+import nl.oebelelijzenga.arjaclm.fitness.Fitness;
+import nl.oebelelijzenga.arjaclm.fitness.TestPrioritizer;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestCase;
+import nl.oebelelijzenga.arjaclm.model.apr.fitness.TestSuite;
+
+import java.util.List;
+import java.util.Set;
+
+public class TestPrioritizerTest extends junit.framework.TestCase {
+
+    private final TestCase positiveA = new TestCase("mypkg.ATest", "test");
+    private final TestCase positiveB = new TestCase("mypkg.BTest", "test");
+    private final TestCase positiveC = new TestCase("mypkg.CTest", "test");
+    private final TestCase negative = new TestCase("mypkg.ZTest", "test");
+    private final TestSuite testSuite = new TestSuite(Set.of(positiveA, positiveB, positiveC), Set.of(negative));
+
+    public void testScheduleWithoutHistory() {
+        TestSchedule schedule = new TestPrioritizer().schedule(testSuite);
+
+        // Negative tests are mandatory and come first, positive tests are ordered by name when nothing is known
+        assertEquals(List.of(negative, positiveA, positiveB, positiveC), schedule.tests());
+        assertEquals(1, schedule.nrMandatoryTests());
+        assertEquals(Fitness.MAX_COUNTED_POSITIVE_FAILURES, schedule.maxFailures());
+        assertTrue(schedule.isFailFast());
+    }
+
+    public void testFrequentlyFailingTestsRunFirst() {
+        TestPrioritizer prioritizer = new TestPrioritizer();
+        prioritizer.record(List.of(positiveA, positiveB, positiveC), Set.of(positiveC));
+        prioritizer.record(List.of(positiveA, positiveB, positiveC), Set.of(positiveB, positiveC));
+        prioritizer.record(List.of(positiveA, positiveB, positiveC), Set.of(positiveC));
+
+        assertEquals(List.of(negative, positiveC, positiveB, positiveA), prioritizer.schedule(testSuite).tests());
+        assertTrue(prioritizer.getKillRate(positiveC) > prioritizer.getKillRate(positiveB));
+    }
+
+    public void testKillRateConsidersOnlyExecutedRuns() {
+        TestPrioritizer prioritizer = new TestPrioritizer();
+        // A failed once in a single run, B failed once in four runs as it was skipped less often
+        prioritizer.record(List.of(positiveA, positiveB), Set.of(positiveA));
+        prioritizer.record(List.of(positiveB), Set.of());
+        prioritizer.record(List.of(positiveB), Set.of());
+        prioritizer.record(List.of(positiveB), Set.of(positiveB));
+
+        assertEquals(List.of(negative, positiveA, positiveC, positiveB), prioritizer.schedule(testSuite).tests());
+    }
+
+    public void testRunAllSchedule() {
+        TestSchedule schedule = TestSchedule.runAll(testSuite.all());
+
+        assertEquals(List.of(positiveA, positiveB, positiveC, negative), schedule.tests());
+        assertFalse(schedule.isFailFast());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.io;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.io.JavaProjectLoader;
+import nl.oebelelijzenga.arjaclm.model.apr.ClassPath;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
+import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+
+public class JavaProjectLoaderTest extends TestCase {
+
+    private Path rootDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        rootDir = Files.createTempDirectory("project_loader_test").toRealPath();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(rootDir);
+    }
+
+    private static void writeClass(Path srcDir, String pkg, String cls, String imports) throws IOException {
+        Path path = srcDir.resolve(pkg.replace('.', '/')).resolve(cls + ".java");
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "package %s;\n\n%s\n\npublic class %s {\n}\n".formatted(pkg, imports, cls));
+    }
+
+    public void testLoadPartialJavaProject() throws AprException, IOException {
+        Path srcDir = rootDir.resolve("src");
+        writeClass(srcDir, "root", "Root", "");
+        writeClass(srcDir, "root.a", "Suspicious", "import root.b.Imported;");
+        writeClass(srcDir, "root.a", "Sibling", "import static root.d.Util.foo;");
+        writeClass(srcDir, "root.b", "Imported", "");
+        writeClass(srcDir, "root.b", "NotImported", "");
+        writeClass(srcDir, "root.c", "Unrelated", "");
+        writeClass(srcDir, "root.d", "Util", "");
+        Files.createDirectories(rootDir.resolve("tests"));
+
+        JavaProjectLoader loader = new JavaProjectLoader(new JavaContext(
+                rootDir,
+                srcDir,
+                rootDir.resolve("tests"),
+                rootDir.resolve("apr"),
+                rootDir.resolve("apr/build"),
+                rootDir.resolve("apr/build-tests"),
+                new ClassPath(new HashSet<>()),
+                new ClassPath(new HashSet<>())
+        ));
+
+        JavaProject project = loader.loadPartialJavaProject(List.of(srcDir.resolve("root/a/Suspicious.java")));
+        List<String> loadedFiles = project.sourceFiles().stream().map(RawJavaFile::relativeFilePath).map(Path::toString).sorted().toList();
+
+        assertEquals(
+                List.of("src/root/Root.java", "src/root/a/Sibling.java", "src/root/a/Suspicious.java", "src/root/b/Imported.java", "src/root/d/Util.java"),
+                loadedFiles
+        );
+    }
+}
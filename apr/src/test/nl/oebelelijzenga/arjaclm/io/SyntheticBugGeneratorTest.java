@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.io;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.execution.ScriptJavaCompiler;
+import nl.oebelelijzenga.arjaclm.io.InputLoader;
+import nl.oebelelijzenga.arjaclm.io.JSONUtil;
+import nl.oebelelijzenga.arjaclm.io.SyntheticBugGenerator;
+import nl.oebelelijzenga.arjaclm.model.apr.BugDTO;
+import nl.oebelelijzenga.arjaclm.model.apr.BuggyLineDTO;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+public class SyntheticBugGeneratorTest extends TestCase {
+
+    public void testGenerate() throws AprException, IOException {
+        Path parentDir = Files.createTempDirectory("synthetic_bug_test").toRealPath();
+        SyntheticBugGenerator generator = new SyntheticBugGenerator(new SyntheticBugGenerator.Spec(3, 20, 5, 0), Path.of("lib"));
+
+        Path bugDir = generator.generate(parentDir, "synthetic", 1);
+        assertEquals(parentDir.resolve("synthetic_buggy"), bugDir);
+        for (String file : List.of("Module0.java", "Module1.java", "Module2.java")) {
+            assertTrue(Files.exists(bugDir.resolve("src/synthetic").resolve(file)));
+        }
+
+        assertTrue(Files.isExecutable(bugDir.resolve(ScriptJavaCompiler.COMPILATION_SCRIPT)));
+
+        BugDTO bug = JSONUtil.fromJson(Files.readString(bugDir.resolve(InputLoader.BUG_FILE)), BugDTO.class);
+        assertEquals(Set.of("tests.Module0Test"), bug.negativeTests());
+        assertEquals(Set.of("tests.Module1Test", "tests.Module2Test"), bug.positiveTests());
+        assertEquals(20, bug.buggyLines().size());
+
+        BuggyLineDTO mostSuspicious = bug.buggyLines().get(0);
+        assertEquals(1.0f, mostSuspicious.susScore());
+        List<String> lines = Files.readAllLines(bugDir.resolve(mostSuspicious.file()));
+        assertEquals("result = result - 7;", lines.get(mostSuspicious.lineNr() - 1).trim());
+    }
+
+    public void testGenerateIsDeterministic() throws AprException, IOException {
+        Path parentDir = Files.createTempDirectory("synthetic_bug_test").toRealPath();
+        SyntheticBugGenerator generator = new SyntheticBugGenerator(new SyntheticBugGenerator.Spec(2, 10, 1, 0), Path.of("lib"));
+
+        String first = Files.readString(generator.generate(parentDir, "first", 3).resolve("src/synthetic/Module1.java"));
+        String second = Files.readString(generator.generate(parentDir, "second", 3).resolve("src/synthetic/Module1.java"));
+        assertEquals(first, second);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening.*;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
+import org.eclipse.jdt.core.dom.Statement;
+import test.nl.oebelelijzenga.arjaclm.TestUtil;
+
+import java.util.List;
+
+public class DeclaredSymbolTableTest extends TestCase {
+    public void testCandidatesInnermostScopeFirst() throws AprException {
+        String source = """
+                package mypkg;
+                
+                class MyClass {
+                    int x = 1;
+                    
+                    void x() {}
+                
+                    void foo(int x) {
+                        int y = x;  // statement 0
+                    }
+                    
+                    void bar() {
+                        x++;  // statement 1
+                    }
+                }
+                """;
+
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(source, "MyClass.java");
+        List<Statement> statements = project.sourceFiles().get(0).classes().get(0).statements();
+        IngredientScreeningInfo info = IngredientScreeningInfo.create(project, statements, statements);
+
+        ReferencedVariable reference = new ReferencedVariable("x", "mypkg.MyClass.x");
+
+        List<DeclaredSymbol> fooCandidates = info.getDeclaredSymbolTable(statements.get(0)).getCandidates(reference);
+        assertEquals(2, fooCandidates.size());
+        assertTrue(fooCandidates.get(0).isLocal());
+        assertFalse(fooCandidates.get(1).isLocal());
+        assertTrue(fooCandidates.get(1) instanceof DeclaredVariable);
+
+        List<DeclaredSymbol> barCandidates = info.getDeclaredSymbolTable(statements.get(1)).getCandidates(reference);
+        assertEquals(1, barCandidates.size());
+        assertTrue(barCandidates.get(0) instanceof DeclaredVariable);
+        assertEquals(QualifiedName.fromString("mypkg.MyClass.x"), barCandidates.get(0).getQualifiedName());
+    }
+}
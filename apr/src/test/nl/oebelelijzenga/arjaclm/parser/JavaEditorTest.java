@@ -29,10 +29,14 @@ import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
 import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
 import nl.oebelelijzenga.arjaclm.parser.JavaEditor;
 import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.eclipse.jdt.core.dom.Statement;
 import test.nl.oebelelijzenga.arjaclm.TestUtil;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class JavaEditorTest extends AprTestCase {
 
@@ -185,4 +189,184 @@ public class JavaEditorTest extends AprTestCase {
                 editedFiles.get(0).sourceCode().strip()
         );
     }
+
+    public void testCachedEditsMatchUncachedEdits() throws AprException {
+        String sourceCode = """
+        package mypkg;
+                
+        public class MyClass {
+            public int foo(int x) {
+                int a = 0;
+                a += x;
+                x = a * 2;
+                return x;
+            }
+        }
+        """;
+
+        ParsedJavaFile parsedJavaFile = TestUtil.getParsedJavaFile(sourceCode, "MyClass.java");
+        List<Statement> statements = parsedJavaFile.classes().get(0).statements();
+        List<Edit> edits = new ArrayList<>();
+        for (int i = 1; i < 3; i++) {
+            edits.add(new Edit(
+                    true,
+                    ManipulationName.INSERT_BEFORE,
+                    new ModificationPoint(
+                            i,
+                            statements.get(i),
+                            parsedJavaFile,
+                            parsedJavaFile.classes().get(0),
+                            1.0f,
+                            new ArrayList<>(),
+                            ManipulationName.defaultEnabledManipulations()
+                    ),
+                    new Ingredient(statements.get(3 - i), true)
+            ));
+        }
+
+        JavaEditor javaEditor = new JavaEditor();
+        for (List<Edit> editSet : List.of(edits.subList(0, 1), edits, edits.subList(0, 1), edits)) {
+            List<RawJavaFile> expected = JavaEditor.getEditedSourceFiles(editSet);
+            List<RawJavaFile> actual = javaEditor.getCachedEditedSourceFiles(editSet);
+            assertEquals(1, actual.size());
+            assertEquals(expected.get(0).relativeFilePath(), actual.get(0).relativeFilePath());
+            assertEquals(expected.get(0).sourceCode(), actual.get(0).sourceCode());
+        }
+
+        // Each distinct file edit set is only rendered once
+        assertEquals(2, javaEditor.cacheSize());
+    }
+
+    private static Edit replaceEdit(ParsedJavaFile parsedJavaFile, int statementIndex, int ingredientIndex) {
+        List<Statement> statements = parsedJavaFile.classes().get(0).statements();
+        return new Edit(
+                true,
+                ManipulationName.REPLACE,
+                new ModificationPoint(
+                        statementIndex,
+                        statements.get(statementIndex),
+                        parsedJavaFile,
+                        parsedJavaFile.classes().get(0),
+                        1.0f,
+                        new ArrayList<>(),
+                        ManipulationName.defaultEnabledManipulations()
+                ),
+                new Ingredient(statements.get(ingredientIndex), true)
+        );
+    }
+
+    public void testIngredientsAreCachedByIdentity() throws AprException {
+        String sourceCode = """
+        package mypkg;
+                
+        public class MyClass {
+            public int foo(int x) {
+                int a = 0;
+                a = a+1;
+                a = a + 1;
+                return a;
+            }
+        }
+        """;
+
+        ParsedJavaFile parsedJavaFile = TestUtil.getParsedJavaFile(sourceCode, "MyClass.java");
+        List<Statement> statements = parsedJavaFile.classes().get(0).statements();
+        assertEquals(statements.get(1).toString(), statements.get(2).toString());
+
+        // Distinct ingredient statements that print the same are separate cache entries
+        JavaEditor javaEditor = new JavaEditor();
+        for (int ingredientIndex : List.of(1, 2)) {
+            List<Edit> editSet = List.of(replaceEdit(parsedJavaFile, 3, ingredientIndex));
+            assertEquals(
+                    JavaEditor.getEditedSourceFiles(editSet).get(0).sourceCode(),
+                    javaEditor.getCachedEditedSourceFiles(editSet).get(0).sourceCode()
+            );
+        }
+        assertEquals(2, javaEditor.cacheSize());
+    }
+
+    public void testCacheIsBounded() throws AprException {
+        String sourceCode = """
+        package mypkg;
+                
+        public class MyClass {
+            public int foo(int x) {
+                int a = 0;
+                a += x;
+                x = a * 2;
+                return x;
+            }
+        }
+        """;
+
+        ParsedJavaFile parsedJavaFile = TestUtil.getParsedJavaFile(sourceCode, "MyClass.java");
+        JavaEditor javaEditor = new JavaEditor(2);
+        for (int ingredientIndex = 0; ingredientIndex < 4; ingredientIndex++) {
+            List<Edit> editSet = List.of(replaceEdit(parsedJavaFile, 1, ingredientIndex));
+            assertEquals(
+                    JavaEditor.getEditedSourceFiles(editSet).get(0).sourceCode(),
+                    javaEditor.getCachedEditedSourceFiles(editSet).get(0).sourceCode()
+            );
+        }
+        assertEquals(2, javaEditor.cacheSize());
+    }
+
+    public void testConcurrentRenderingMatchesSequentialRendering() throws Exception {
+        String sourceCode = """
+        package mypkg;
+                
+        public class MyClass {
+            public int foo(int x) {
+                int a = 0;
+                a += x;
+                x = a * 2;
+                a -= 1;
+                return x;
+            }
+        }
+        """;
+
+        ParsedJavaFile parsedJavaFile = TestUtil.getParsedJavaFile(sourceCode, "MyClass.java");
+        List<Statement> statements = parsedJavaFile.classes().get(0).statements();
+        List<List<Edit>> editSets = new ArrayList<>();
+        for (int target = 1; target < statements.size(); target++) {
+            for (int ingredient = 1; ingredient < statements.size(); ingredient++) {
+                for (ManipulationName manipulation : List.of(ManipulationName.REPLACE, ManipulationName.INSERT_BEFORE, ManipulationName.DELETE)) {
+                    editSets.add(List.of(new Edit(
+                            true,
+                            manipulation,
+                            new ModificationPoint(
+                                    target,
+                                    statements.get(target),
+                                    parsedJavaFile,
+                                    parsedJavaFile.classes().get(0),
+                                    1.0f,
+                                    new ArrayList<>(),
+                                    ManipulationName.defaultEnabledManipulations()
+                            ),
+                            new Ingredient(statements.get(ingredient), true)
+                    )));
+                }
+            }
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (List<Edit> editSet : editSets) {
+            expected.add(JavaEditor.getEditedSourceFiles(editSet).get(0).sourceCode());
+        }
+
+        JavaEditor javaEditor = new JavaEditor();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (List<Edit> editSet : editSets) {
+                futures.add(executor.submit(() -> javaEditor.getCachedEditedSourceFiles(editSet).get(0).sourceCode()));
+            }
+            for (int i = 0; i < editSets.size(); i++) {
+                assertEquals(expected.get(i), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
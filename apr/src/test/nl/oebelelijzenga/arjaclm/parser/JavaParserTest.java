@@ -22,10 +22,39 @@
 package test.nl.oebelelijzenga.arjaclm.parser;
 
 import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.ClassPath;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.screening.IngredientScreeningInfo;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
 import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
+import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
+import nl.oebelelijzenga.arjaclm.parser.JavaParser;
+import nl.oebelelijzenga.arjaclm.parser.ingredient.IngredientUtil;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
 import test.nl.oebelelijzenga.arjaclm.TestUtil;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
 public class JavaParserTest extends AprTestCase {
+    private Path rootDir;
+
+    @Override
+    protected void setUp() throws IOException {
+        rootDir = Files.createTempDirectory("parser_test");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(rootDir);
+    }
+
     public void testSkipAnonymousClassDeclarationContent() throws AprException {
         String source = """
         package mypkg;
@@ -46,4 +75,79 @@ public class JavaParserTest extends AprTestCase {
         assertEquals(1, file.classes().get(0).statements().size());
         assertTrue(file.classes().get(0).statements().get(0).toString().startsWith("Runnable r="));
     }
+
+    public void testParallelParsingKeepsFileOrder() throws AprException, IOException {
+        List<Path> sourceFilePaths = new ArrayList<>();
+        for (String pkg : List.of("a", "b", "c")) {
+            for (String cls : List.of("X", "Y")) {
+                Path path = rootDir.resolve("src").resolve(pkg).resolve(cls + ".java");
+                Files.createDirectories(path.getParent());
+                Files.writeString(path, "package %s;\n\nclass %s {\n    void foo() {\n        int x = 0;\n    }\n}\n".formatted(pkg, cls));
+                sourceFilePaths.add(path);
+            }
+        }
+
+        JavaParser parser = new JavaParser(new JavaContext(
+                rootDir,
+                rootDir.resolve("src"),
+                rootDir.resolve("tests"),
+                rootDir.resolve("apr"),
+                rootDir.resolve("apr/build"),
+                rootDir.resolve("apr/build-tests"),
+                new ClassPath(new HashSet<>()),
+                new ClassPath(new HashSet<>())
+        ));
+
+        List<ParsedJavaFile> sequentialFiles = parser.parseSourceFiles(sourceFilePaths);
+        List<ParsedJavaFile> parallelFiles = parser.parseSourceFiles(sourceFilePaths, 2);
+
+        assertEquals(6, parallelFiles.size());
+        assertEquals(
+                sequentialFiles.stream().map(RawJavaFile::relativeFilePath).toList(),
+                parallelFiles.stream().map(RawJavaFile::relativeFilePath).toList()
+        );
+        for (ParsedJavaFile file : parallelFiles) {
+            assertEquals(1, file.classes().get(0).statements().size());
+        }
+    }
+
+    public void testParallelParsingMatchesTypesAcrossPartitions() throws AprException, IOException {
+        Path srcDir = rootDir.resolve("src");
+        Files.createDirectories(srcDir.resolve("a"));
+        Files.createDirectories(srcDir.resolve("b"));
+        Path basePath = Files.writeString(srcDir.resolve("a/Base.java"), "package a;\n\npublic class Base {\n    public int i;\n}\n");
+        Path subPath = Files.writeString(srcDir.resolve("b/Sub.java"), "package b;\n\npublic class Sub extends a.Base implements Comparable<Sub> {\n    Integer boxed;\n    Comparable<Integer> comparable;\n    public int compareTo(Sub other) { return 0; }\n}\n");
+
+        JavaContext context = new JavaContext(
+                rootDir,
+                srcDir,
+                rootDir.resolve("tests"),
+                rootDir.resolve("apr"),
+                rootDir.resolve("apr/build"),
+                rootDir.resolve("apr/build-tests"),
+                new ClassPath(new HashSet<>()),
+                new ClassPath(new HashSet<>())
+        );
+        JavaParser parser = new JavaParser(context);
+        // Both packages are parsed by a different thread, so their bindings come from different environments
+        List<ParsedJavaFile> files = parser.parseSourceFiles(List.of(basePath, subPath), 2);
+        assertTrue(IngredientScreeningInfo.create(new JavaProject(files, List.of(), context)).hasMultipleBindingEnvironments());
+        ITypeBinding base = ((TypeDeclaration) files.get(0).classes().get(0).compilationUnit().types().get(0)).resolveBinding();
+        ITypeBinding sub = ((TypeDeclaration) files.get(1).classes().get(0).compilationUnit().types().get(0)).resolveBinding();
+        ITypeBinding primitiveInt = base.getDeclaredFields()[0].getType();
+        ITypeBinding boxedInt = sub.getDeclaredFields()[0].getType();
+        ITypeBinding comparable = sub.getDeclaredFields()[1].getType();
+
+        assertFalse(IngredientUtil.typesWeaklyMatch(sub, base));
+        assertTrue(IngredientUtil.typesWeaklyMatch(sub, base, true));
+        assertFalse(IngredientUtil.typesWeaklyMatch(base, sub, true));
+        assertTrue(IngredientUtil.typesWeaklyMatch(primitiveInt, boxedInt, true));
+        assertTrue(IngredientUtil.typesWeaklyMatch(boxedInt, primitiveInt, true));
+        assertTrue(IngredientUtil.typesWeaklyMatch(primitiveInt, comparable, true));
+        assertFalse(IngredientUtil.typesWeaklyMatch(sub, comparable, true));
+
+        // A single thread resolves all bindings in one environment, in which only JDT decides
+        List<ParsedJavaFile> sequentialFiles = parser.parseSourceFiles(List.of(basePath, subPath), 1);
+        assertFalse(IngredientScreeningInfo.create(new JavaProject(sequentialFiles, List.of(), context)).hasMultipleBindingEnvironments());
+    }
 }
@@ -29,6 +29,7 @@ import nl.oebelelijzenga.arjaclm.model.apr.ModificationPoint;
 import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
 import nl.oebelelijzenga.arjaclm.parser.ModificationPointFactory;
 import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.eclipse.jdt.core.dom.Statement;
 import test.nl.oebelelijzenga.arjaclm.TestUtil;
 
 import java.nio.file.Path;
@@ -135,4 +136,86 @@ public class ModificationPointFactoryTest extends TestCase {
         assertEquals(ManipulationName.defaultEnabledManipulations(), modificationPoints.get(2).allowedManipulations());
         assertEquals(defaultManipulationsExceptDelete(), modificationPoints.get(3).allowedManipulations());
     }
+
+    public void testIngredientsKeepOrderAcrossScreeningChunks() throws AprException {
+        // More candidate statements than fit in a single screening chunk
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            body.append("        x += %d;\n".formatted(i));
+        }
+        String source = """
+                package mypkg;
+                
+                class MyClass {
+                    void fn(int x) {
+                %s    }
+                }
+                """.formatted(body);
+
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(source, "MyClass.java");
+        List<ModificationPoint> modificationPoints = ModificationPointFactory.create(
+                TestUtil.getDummyAprConfig(),
+                project,
+                new Bug(
+                        "MyBug",
+                        new HashSet<>(),
+                        new HashSet<>(),
+                        new HashSet<>(),
+                        new HashMap<>(),
+                        List.of(
+                                new BugLocation(Path.of("MyClass.java"), 5, 1.0f),
+                                new BugLocation(Path.of("MyClass.java"), 200, 0.5f)
+                        )
+                )
+        );
+
+        List<Statement> statements = project.sourceFiles().get(0).classes().get(0).statements();
+        assertEquals(2, modificationPoints.size());
+        for (int i = 0; i < modificationPoints.size(); i++) {
+            assertEquals(i, modificationPoints.get(i).index());
+            assertEquals(statements, modificationPoints.get(i).redundancyIngredients().stream().map(ingredient -> ingredient.statements().get(0)).toList());
+        }
+    }
+
+    public void testParallelScreeningMatchesSingleThreadedScreening() throws AprException {
+        // Statements of several types, such that ingredients are screened on assignment compatibility of their types
+        StringBuilder body = new StringBuilder();
+        List<BugLocation> bugLocations = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            body.append("        n += %d;\n".formatted(i));
+            body.append("        d = n * %d.5;\n".formatted(i));
+            body.append("        s = s + n;\n");
+            body.append("        o = add(n, d);\n");
+            body.append("        if (n > %d) return s;\n".formatted(i));
+            bugLocations.add(new BugLocation(Path.of("MyClass.java"), 7 + i * 5 + (i % 5), 1.0f));
+        }
+        String source = """
+                package mypkg;
+                
+                class MyClass {
+                    String fn(int n, double d, String s, Object o) {
+                %s        return s;
+                    }
+                    Double add(int a, double b) {
+                        return a + b;
+                    }
+                }
+                """.formatted(body);
+
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(source, "MyClass.java");
+        Bug bug = new Bug("MyBug", new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashMap<>(), bugLocations);
+        List<ModificationPoint> expected = ModificationPointFactory.create(TestUtil.getDummyAprConfig(Path.of(""), false, 1), project, bug);
+        List<ModificationPoint> actual = ModificationPointFactory.create(TestUtil.getDummyAprConfig(Path.of(""), false, 4), project, bug);
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i).statement(), actual.get(i).statement());
+            assertEquals(expected.get(i).allowedManipulations(), actual.get(i).allowedManipulations());
+            assertEquals(
+                    expected.get(i).redundancyIngredients().stream().map(ingredient -> ingredient.statements().get(0)).toList(),
+                    actual.get(i).redundancyIngredients().stream().map(ingredient -> ingredient.statements().get(0)).toList()
+            );
+        }
+    }
 }
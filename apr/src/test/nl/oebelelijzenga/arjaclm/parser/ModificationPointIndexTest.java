@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.parser;
+
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.io.JSONUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.Bug;
+import nl.oebelelijzenga.arjaclm.model.apr.BugLocation;
+import nl.oebelelijzenga.arjaclm.model.apr.ModificationPoint;
+import nl.oebelelijzenga.arjaclm.model.io.AprConfig;
+import nl.oebelelijzenga.arjaclm.model.java.JavaContext;
+import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
+import nl.oebelelijzenga.arjaclm.parser.ModificationPointFactory;
+import nl.oebelelijzenga.arjaclm.parser.ModificationPointIndex;
+import nl.oebelelijzenga.arjaclm.parser.ModificationPointIndexDto;
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import test.nl.oebelelijzenga.arjaclm.TestUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class ModificationPointIndexTest extends TestCase {
+
+    private Path cacheDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        cacheDir = Files.createTempDirectory("modpoint_index");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(cacheDir);
+    }
+
+    private static final String SOURCE = """
+            package mypkg;
+            
+            class MyClass {
+                int fn(int x) {
+                    int y = 0;  // line 5
+                    y += x;
+                    return y;   // line 7
+                }
+            }
+            """;
+
+    private static Bug getBug() {
+        return new Bug(
+                "MyBug",
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashMap<>(),
+                List.of(
+                        new BugLocation(Path.of("MyClass.java"), 5, 1.0f),
+                        new BugLocation(Path.of("MyClass.java"), 7, 0.5f)
+                )
+        );
+    }
+
+    public void testReattachToFreshlyParsedProject() throws AprException, IOException {
+        AprConfig config = TestUtil.getDummyAprConfig(cacheDir, true);
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(SOURCE, "MyClass.java");
+
+        assertTrue(ModificationPointIndex.load(config, project, getBug()).isEmpty());
+        List<ModificationPoint> modificationPoints = ModificationPointFactory.create(config, project, getBug());
+        ModificationPointIndex.save(config, project, getBug(), modificationPoints);
+
+        JavaProject freshProject = TestUtil.getParsedJavaFileAsProject(SOURCE, "MyClass.java");
+        Optional<List<ModificationPoint>> loaded = ModificationPointIndex.load(config, freshProject, getBug());
+        assertTrue(loaded.isPresent());
+        assertEquals(modificationPoints.size(), loaded.get().size());
+        for (int i = 0; i < modificationPoints.size(); i++) {
+            ModificationPoint expected = modificationPoints.get(i);
+            ModificationPoint actual = loaded.get().get(i);
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(expected.redundancyIngredients(), actual.redundancyIngredients());
+            assertEquals(expected.allowedManipulations(), actual.allowedManipulations());
+            for (ManipulationName manipulation : ManipulationName.values()) {
+                assertEquals(expected.validIngredients().get(manipulation), actual.validIngredients().get(manipulation));
+            }
+            // Statements must be part of the new ASTs
+            assertTrue(freshProject.sourceFiles().get(0).classes().get(0).statements().contains(actual.statement()));
+            assertSame(freshProject.sourceFiles().get(0), actual.sourceFile());
+        }
+    }
+
+    public void testScreenedIngredientsAreRestored() throws AprException, IOException {
+        AprConfig config = TestUtil.getDummyAprConfig(cacheDir, true);
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(SOURCE, "MyClass.java");
+        ModificationPointIndex.save(config, project, getBug(), ModificationPointFactory.create(config, project, getBug()));
+
+        // The screening outcome is read from the index instead of being screened again
+        Path indexFile;
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            indexFile = files.filter(f -> f.getFileName().toString().startsWith("modpoint_index_")).findFirst().orElseThrow();
+        }
+        ModificationPointIndexDto index = JSONUtil.fromJson(FileUtil.readFile(indexFile), ModificationPointIndexDto.class);
+        List<ModificationPointIndexDto.ModificationPointDto> modificationPoints = new ArrayList<>();
+        for (ModificationPointIndexDto.ModificationPointDto dto : index.modificationPoints()) {
+            Map<ManipulationName, List<Integer>> validIngredients = new EnumMap<>(dto.validIngredients());
+            validIngredients.put(ManipulationName.REPLACE, List.of());
+            modificationPoints.add(new ModificationPointIndexDto.ModificationPointDto(dto.index(), dto.statement(), dto.weight(), dto.ingredients(), dto.allowedManipulations(), validIngredients));
+        }
+        FileUtil.writeFile(indexFile, JSONUtil.toJSON(new ModificationPointIndexDto(index.key(), index.files(), modificationPoints)));
+
+        List<ModificationPoint> loaded = ModificationPointIndex.load(config, project, getBug()).orElseThrow();
+        assertTrue(loaded.stream().allMatch(m -> m.validIngredients().get(ManipulationName.REPLACE).isEmpty()));
+        assertTrue(loaded.stream().anyMatch(m -> !m.validIngredients().get(ManipulationName.INSERT_BEFORE).isEmpty()));
+    }
+
+    public void testChangedSourceInvalidatesIndex() throws AprException, IOException {
+        AprConfig config = TestUtil.getDummyAprConfig(cacheDir, true);
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(SOURCE, "MyClass.java");
+        ModificationPointIndex.save(config, project, getBug(), ModificationPointFactory.create(config, project, getBug()));
+
+        JavaProject changedProject = TestUtil.getParsedJavaFileAsProject(SOURCE.replace("y += x;", "y -= x;"), "MyClass.java");
+        assertTrue(ModificationPointIndex.load(config, changedProject, getBug()).isEmpty());
+    }
+
+    public void testChangedParserThreadsInvalidatesIndex() throws AprException, IOException {
+        AprConfig config = TestUtil.getDummyAprConfig(cacheDir, true, 1, 1);
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(SOURCE, "MyClass.java");
+        ModificationPointIndex.save(config, project, getBug(), ModificationPointFactory.create(config, project, getBug()));
+
+        assertTrue(ModificationPointIndex.load(config, project, getBug()).isPresent());
+        assertTrue(ModificationPointIndex.load(TestUtil.getDummyAprConfig(cacheDir, true, 4, 1), project, getBug()).isEmpty());
+    }
+
+    public void testChangedClassPathInvalidatesIndex() throws AprException, IOException {
+        AprConfig config = TestUtil.getDummyAprConfig(cacheDir, true);
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(SOURCE, "MyClass.java");
+        ModificationPointIndex.save(config, project, getBug(), ModificationPointFactory.create(config, project, getBug()));
+
+        JavaContext context = project.context();
+        JavaProject projectWithJar = new JavaProject(
+                project.sourceFiles(),
+                project.testFiles(),
+                new JavaContext(
+                        context.rootDir(),
+                        context.srcDir(),
+                        context.testDir(),
+                        context.aprDir(),
+                        context.sourceBuildDir(),
+                        context.testBuildDir(),
+                        context.compileClassPath().with(Path.of("lib/dependency.jar")),
+                        context.testClassPath()
+                )
+        );
+        assertTrue(ModificationPointIndex.load(config, projectWithJar, getBug()).isEmpty());
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.parser;
+
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.apr.ModificationPoint;
+import nl.oebelelijzenga.arjaclm.model.apr.Patch;
+import nl.oebelelijzenga.arjaclm.model.apr.genetic.Edit;
+import nl.oebelelijzenga.arjaclm.model.apr.genetic.Variant;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.Ingredient;
+import nl.oebelelijzenga.arjaclm.model.java.ParsedJavaFile;
+import nl.oebelelijzenga.arjaclm.model.java.RawJavaFile;
+import nl.oebelelijzenga.arjaclm.parser.JavaEditor;
+import nl.oebelelijzenga.arjaclm.parser.MutantSchema;
+import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
+import org.eclipse.jdt.core.dom.Statement;
+import test.nl.oebelelijzenga.arjaclm.TestUtil;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class MutantSchemaTest extends AprTestCase {
+
+    private static final String SOURCE_CODE = """
+            package mypkg;
+
+            public class Calc {
+                public int calc(int x) {
+                    int a = x;
+                    a = a + 1;
+                    if (a > 10) {
+                        a = a * 2;
+                    }
+                    return a;
+                }
+            }
+            """;
+
+    private ParsedJavaFile file;
+    private List<ModificationPoint> modificationPoints;
+    private Path tempDir;
+
+    @Override
+    protected void setUp() throws AprException, IOException {
+        tempDir = Files.createTempDirectory("mutant_schema_test");
+        file = TestUtil.getParsedJavaFile(SOURCE_CODE, "Calc.java");
+        modificationPoints = new ArrayList<>();
+        for (Statement statement : file.classes().get(0).statements()) {
+            modificationPoints.add(new ModificationPoint(
+                    modificationPoints.size(),
+                    statement,
+                    file,
+                    file.classes().get(0),
+                    1.0f,
+                    new ArrayList<>(),
+                    ManipulationName.defaultEnabledManipulations()
+            ));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    private Edit edit(ManipulationName manipulation, int statementIndex, int ingredientIndex) {
+        return new Edit(true, manipulation, modificationPoints.get(statementIndex), new Ingredient(file.classes().get(0).statements().get(ingredientIndex), true));
+    }
+
+    private static Patch patch(int id, Edit... edits) {
+        return new Patch(id, Variant.create(List.of(edits)), List.of());
+    }
+
+    /*
+     * Statements are 0: "int a = x;", 1: "a = a + 1;", 2: "if (a > 10) ...", 3: "a = a * 2;" and 4: "return a;"
+     */
+    private List<Patch> createPatches() {
+        return List.of(
+                patch(1, edit(ManipulationName.REPLACE, 1, 3)),
+                patch(2, edit(ManipulationName.DELETE, 1, 1)),
+                patch(3, edit(ManipulationName.INSERT_BEFORE, 4, 1)),
+                patch(4, edit(ManipulationName.REPLACE, 1, 3), edit(ManipulationName.INSERT_AFTER, 3, 1)),
+                // Replacing the declaration would change its scope
+                patch(5, edit(ManipulationName.REPLACE, 0, 1))
+        );
+    }
+
+    public void testSchemaBehavesLikePatches() throws Exception {
+        List<Patch> patches = createPatches();
+        MutantSchema schema = MutantSchema.create(patches, Set.of(), new JavaEditor()).orElseThrow();
+        assertEquals(Set.of(patches.get(0), patches.get(1), patches.get(2), patches.get(3)), schema.patches());
+        assertEquals(2, schema.getSystemProperties(patches.get(3)).size());
+
+        Class<?> schemaClass = compile(schema.files().get(0));
+        for (Patch patch : schema.patches()) {
+            Class<?> patchClass = compile(JavaEditor.getEditedSourceFiles(patch.variant().enabledEdits()).get(0));
+            Map<String, String> properties = schema.getSystemProperties(patch);
+            for (int input : List.of(3, 8, 20)) {
+                properties.forEach(System::setProperty);
+                try {
+                    assertEquals(calc(patchClass, input), calc(schemaClass, input));
+                } finally {
+                    properties.keySet().forEach(System::clearProperty);
+                }
+            }
+        }
+
+        // Without properties the schema behaves like the original program
+        assertEquals(calc(compile(file), 3), calc(schemaClass, 3));
+        assertEquals(calc(compile(file), 20), calc(schemaClass, 20));
+    }
+
+    public void testExcludedEdits() throws AprException {
+        List<Patch> patches = createPatches();
+        Edit replaceEdit = patches.get(0).variant().enabledEdits().get(0);
+
+        MutantSchema schema = MutantSchema.create(patches, Set.of(MutantSchema.getEditKey(replaceEdit)), new JavaEditor()).orElseThrow();
+        assertEquals(Set.of(patches.get(1), patches.get(2)), schema.patches());
+
+        // A single patch is not worth a schema
+        assertTrue(MutantSchema.create(patches.subList(0, 1), Set.of(), new JavaEditor()).isEmpty());
+    }
+
+    public void testJumpIngredientsAreExcluded() throws AprException {
+        // Inserting "return a;" makes the statements after it unreachable, which the else branch would hide
+        List<Patch> patches = new ArrayList<>(createPatches());
+        patches.add(patch(6, edit(ManipulationName.INSERT_BEFORE, 1, 4)));
+
+        MutantSchema schema = MutantSchema.create(patches, Set.of(), new JavaEditor()).orElseThrow();
+        assertFalse(schema.contains(patches.get(5)));
+        assertEquals(4, schema.patches().size());
+    }
+
+    public void testEditKeysCausingErrors() throws AprException {
+        List<Patch> patches = createPatches();
+        MutantSchema schema = MutantSchema.create(patches, Set.of(), new JavaEditor()).orElseThrow();
+        List<String> lines = schema.files().get(0).sourceCode().lines().toList();
+        Edit insertEdit = patches.get(2).variant().enabledEdits().get(0);
+
+        // The ingredient of the insert before "return a;" is the last occurrence of "a = a + 1"
+        int insertLineNr = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains("a = a + 1;")) {
+                insertLineNr = i + 1;
+            }
+        }
+        assertEquals(
+                Optional.of(Set.of(MutantSchema.getEditKey(insertEdit))),
+                schema.getEditKeysCausingErrors("/tmp/schema_0/Calc.java:%s: error: unreachable statement\n".formatted(insertLineNr))
+        );
+
+        // Errors outside the branches of edits are attributed to all edits of the method
+        int ifLineNr = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains("if (a > 10) {")) {
+                ifLineNr = i + 1;
+            }
+        }
+        assertEquals(4, schema.getEditKeysCausingErrors("Calc.java:%s: error: incompatible types\n".formatted(ifLineNr)).orElseThrow().size());
+
+        // Errors that cannot be attributed to edits make the schema unusable
+        assertTrue(schema.getEditKeysCausingErrors("Calc.java:%s: error: class, interface, or enum expected\n".formatted(lines.size() + 1)).isEmpty());
+
+        assertTrue(schema.getEditKeysCausingErrors("Other.java:3: error: cannot find symbol\n").isEmpty());
+    }
+
+    private static int calc(Class<?> cls, int input) throws ReflectiveOperationException {
+        Object instance = cls.getDeclaredConstructor().newInstance();
+        return (int) cls.getMethod("calc", int.class).invoke(instance, input);
+    }
+
+    private Class<?> compile(RawJavaFile file) throws IOException, ClassNotFoundException {
+        Path dir = Files.createTempDirectory(tempDir, "build");
+        Path sourceFile = dir.resolve("mypkg/Calc.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, file.sourceCode());
+
+        int exitCode = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", dir.toString(), sourceFile.toString());
+        assertEquals(file.sourceCode(), 0, exitCode);
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, null);
+        return classLoader.loadClass("mypkg.Calc");
+    }
+}
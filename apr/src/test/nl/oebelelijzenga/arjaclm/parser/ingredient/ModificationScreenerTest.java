@@ -22,6 +22,8 @@
 package test.nl.oebelelijzenga.arjaclm.parser.ingredient;
 
 import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.Ingredient;
+import nl.oebelelijzenga.arjaclm.model.apr.ingredient.ValidIngredientTable;
 import nl.oebelelijzenga.arjaclm.model.java.JavaProject;
 import nl.oebelelijzenga.arjaclm.parser.ingredient.ModificationScreener;
 import nl.oebelelijzenga.arjaclm.parser.manipulation.ManipulationName;
@@ -259,4 +261,39 @@ public class ModificationScreenerTest extends AprTestCase {
         assertTrue(ModificationScreener.screen(statements.get(3), statements.get(4), ManipulationName.INSERT_BEFORE));
         assertFalse(ModificationScreener.screen(statements.get(5), statements.get(6), ManipulationName.INSERT_BEFORE));
     }
+
+    public void testValidIngredientTable() throws AprException {
+        String source = """
+                package mypkg;
+                
+                class MyClass {
+                    void foo() {
+                        int x = 0;    // statement 0
+                        x = 1;
+                        int y = x;
+                        return;
+                    }
+                }
+                """;
+
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(source, "MyClass.java");
+        List<Statement> statements = project.sourceFiles().get(0).classes().get(0).statements();
+        List<Ingredient> ingredients = statements.stream().map(s -> new Ingredient(s, true)).toList();
+        ValidIngredientTable table = new ValidIngredientTable(statements.get(0), ingredients);
+
+        for (ManipulationName manipulation : ManipulationName.values()) {
+            List<Ingredient> expected = ingredients.stream().filter(i -> ModificationScreener.screen(statements.get(0), i, manipulation)).toList();
+            assertEquals(expected, table.get(manipulation));
+            for (Ingredient ingredient : ingredients) {
+                assertEquals(expected.contains(ingredient), table.isValid(manipulation, ingredient));
+            }
+        }
+
+        // A VDS may only be replaced by other VDSs, excluding itself
+        assertEquals(List.of(ingredients.get(2)), table.get(ManipulationName.REPLACE));
+
+        // Ingredients from elsewhere are screened directly
+        assertTrue(table.isValid(ManipulationName.REPLACE, new Ingredient(statements.get(2), false)));
+        assertFalse(table.isValid(ManipulationName.REPLACE, new Ingredient(statements.get(1), false)));
+    }
 }
@@ -74,6 +74,39 @@ public class ReferencedVariableIngredientScreenerTest extends TestCase {
         assertTrue(screener.screen(statements.get(3), statements.get(3)));
     }
 
+    public void testScreenWithIncrementallyExtendedInfo() throws AprException {
+        String source = """
+                package mypkg;
+                
+                class MyClass {
+                    public static void foo(int x) {
+                        int y = 1;  // statement 0
+                        y = x;
+                        int z = 2;
+                        y = z;  // statement 3
+                    }
+                }
+                """;
+
+        JavaProject project = TestUtil.getParsedJavaFileAsProject(source, "MyClass.java");
+        List<Statement> statements = project.sourceFiles().get(0).classes().get(0).statements();
+
+        IngredientScreeningInfo info = IngredientScreeningInfo.create(project);
+        ReferencedVariableIngredientScreener screener = new ReferencedVariableIngredientScreener(info);
+
+        info.addModificationCandidates(List.of(statements.get(1)));
+        info.addIngredientCandidates(statements.subList(0, 2));
+        assertTrue(screener.screen(statements.get(1), statements.get(0)));
+        assertTrue(screener.screen(statements.get(1), statements.get(1)));
+
+        // Adding overlapping statements later must give the same results as adding them at once
+        info.addModificationCandidates(List.of(statements.get(1), statements.get(2)));
+        info.addIngredientCandidates(statements);
+        assertFalse(screener.screen(statements.get(1), statements.get(3)));  // z is not yet declared
+        assertTrue(screener.screen(statements.get(2), statements.get(1)));
+        assertFalse(screener.screen(statements.get(2), statements.get(3)));  // z is not yet declared
+    }
+
     public void testScreenClassVariables() throws AprException {
         String source = """
                 package mypkg;
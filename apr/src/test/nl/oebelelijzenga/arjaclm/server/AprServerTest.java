@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024 Oebele Lijzenga
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package test.nl.oebelelijzenga.arjaclm.server;
+
+import com.google.gson.JsonParser;
+import junit.framework.TestCase;
+import nl.oebelelijzenga.arjaclm.cli.BaseAPRCommand;
+import nl.oebelelijzenga.arjaclm.exception.AprException;
+import nl.oebelelijzenga.arjaclm.io.FileUtil;
+import nl.oebelelijzenga.arjaclm.model.io.AprPreferences;
+import nl.oebelelijzenga.arjaclm.server.AprJob;
+import nl.oebelelijzenga.arjaclm.server.AprJobStatus;
+import nl.oebelelijzenga.arjaclm.server.AprServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AprServerTest extends TestCase {
+
+    private static class JobCommand extends BaseAPRCommand {
+        private JobCommand(Path outDir) {
+            this.outDir = outDir;
+        }
+    }
+
+    private Path tempDir;
+    private AprServer server;
+    private HttpClient client;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("apr_server_test");
+        // Jobs refer to a bug that does not exist, so they fail while loading it
+        server = new AprServer("localhost", 0, args -> {
+            if (args.isEmpty()) {
+                throw new AprException("No bug directory given");
+            }
+            return new JobCommand(tempDir.resolve("out")).createPreferences(tempDir.resolve(args.get(0)), 0);
+        });
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.stop();
+        FileUtil.deleteDirectory(tempDir);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:%s%s".formatted(server.port(), path)))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public void testConcurrentlySubmittedJobsHaveUniqueIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<AprJob>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                futures.add(executor.submit(() -> server.submit(List.of("missing_bug"))));
+            }
+
+            Set<Integer> ids = new HashSet<>();
+            for (Future<AprJob> future : futures) {
+                ids.add(future.get().id());
+            }
+            assertEquals(40, ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testJobsApi() throws Exception {
+        assertEquals(400, send("POST", "/jobs", "{}").statusCode());
+        assertEquals(400, send("POST", "/jobs", "{\"args\": []}").statusCode());
+        assertEquals(404, send("GET", "/jobs/3", null).statusCode());
+        assertEquals(404, send("GET", "/jobs/abc", null).statusCode());
+
+        HttpResponse<String> submitResponse = send("POST", "/jobs", "{\"args\": [\"missing_bug\"]}");
+        assertEquals(202, submitResponse.statusCode());
+        assertEquals(0, JsonParser.parseString(submitResponse.body()).getAsJsonObject().get("id").getAsInt());
+
+        // Streaming ends once the job is done
+        HttpResponse<String> eventsResponse = send("GET", "/jobs/0/events", null);
+        assertEquals(200, eventsResponse.statusCode());
+        assertTrue(eventsResponse.body(), eventsResponse.body().startsWith("Job started\n"));
+        assertTrue(eventsResponse.body(), eventsResponse.body().contains("Job failed"));
+
+        HttpResponse<String> jobResponse = send("GET", "/jobs/0", null);
+        assertEquals(200, jobResponse.statusCode());
+        assertEquals(AprJobStatus.FAILED.name(), JsonParser.parseString(jobResponse.body()).getAsJsonObject().get("status").getAsString());
+        assertTrue(send("GET", "/jobs", null).body().contains("missing_bug"));
+    }
+}